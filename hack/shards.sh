@@ -0,0 +1,26 @@
+#!/bin/bash
+
+# Starts several certalert instances with sharding enabled against the debug configuration.
+# Instance N listens on port 8080+N; stop all of them with Ctrl+C.
+#
+# Usage: hack/shards.sh [replicas]
+
+set -euo pipefail
+
+REPLICAS="${1:-3}"
+JAR="$(ls build/libs/*.jar | grep -v plain | head -n 1)"
+
+pids=()
+trap 'kill "${pids[@]}" 2>/dev/null' EXIT
+
+for ((ordinal = 0; ordinal < REPLICAS; ordinal++)); do
+  java -jar "${JAR}" \
+    --spring.profiles.active=debug \
+    --server.port=$((8080 + ordinal)) \
+    --certalert.sharding.enabled=true \
+    --certalert.sharding.replicas="${REPLICAS}" \
+    --certalert.sharding.ordinal="${ordinal}" &
+  pids+=("$!")
+done
+
+wait
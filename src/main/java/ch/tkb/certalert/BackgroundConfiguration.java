@@ -0,0 +1,33 @@
+package ch.tkb.certalert;
+
+import ch.tkb.certalert.cli.ScanCommand;
+import ch.tkb.certalert.collector.CertificateCollector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Starts the first scan once the application is ready and runs the scheduled scans, reloads and
+ * compactions. Left out when the application only runs a single scan ({@code certalert scan}).
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+@ConditionalOnBooleanProperty(
+    name = ScanCommand.PROPERTY,
+    havingValue = false,
+    matchIfMissing = true)
+public class BackgroundConfiguration {
+
+  private final CertificateCollector collector;
+
+  public BackgroundConfiguration(CertificateCollector collector) {
+    this.collector = collector;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void startInitialScan() {
+    collector.startInitialScan();
+  }
+}
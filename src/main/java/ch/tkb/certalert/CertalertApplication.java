@@ -1,15 +1,20 @@
 package ch.tkb.certalert;
 
+import ch.tkb.certalert.cli.ScanCommand;
+import java.util.Arrays;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
-@EnableScheduling
+@ImportRuntimeHints(CertalertRuntimeHints.class)
 public class CertalertApplication {
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals(ScanCommand.NAME)) {
+      System.exit(ScanCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+    }
     SpringApplication.run(CertalertApplication.class, args);
   }
 }
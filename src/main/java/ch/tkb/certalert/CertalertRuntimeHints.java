@@ -0,0 +1,87 @@
+package ch.tkb.certalert;
+
+import ch.tkb.certalert.collector.ReloadResult;
+import ch.tkb.certalert.history.HistoryRecord;
+import ch.tkb.certalert.model.CertificateDetails;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.notification.Transition;
+import ch.tkb.certalert.web.CertificateView;
+import java.util.List;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Registers what a native image cannot discover by static analysis.
+ *
+ * <ul>
+ *   <li>The types serialized by Jackson or rendered by Thymeleaf through reflection.
+ *   <li>The services ini4j instantiates by name when {@code Resolver} reads an INI file.
+ *   <li>The keystore, certificate factory and PKCS12 password-based algorithms of the JDK
+ *       providers. Their names are looked up at runtime from the configured entry types, so the
+ *       image would otherwise not contain them.
+ * </ul>
+ */
+public class CertalertRuntimeHints implements RuntimeHintsRegistrar {
+
+  /** Types returned by the API, sent to webhooks or rendered on the dashboard. */
+  private static final List<Class<?>> BOUND_TYPES =
+      List.of(
+          CertificateInfo.class,
+          CertificateDetails.class,
+          HistoryRecord.class,
+          ReloadResult.class,
+          Transition.class,
+          CertificateView.class);
+
+  /** Services ini4j's {@code ServiceFinder} looks up and instantiates reflectively. */
+  private static final List<String> INI_SERVICES =
+      List.of("org.ini4j.spi.IniParser", "org.ini4j.spi.IniBuilder", "org.ini4j.spi.IniFormatter");
+
+  /**
+   * JDK provider implementations behind the supported keystore types, X.509 parsing and signing.
+   */
+  static final List<String> SECURITY_SERVICES =
+      List.of(
+          "sun.security.provider.JavaKeyStore$JKS",
+          "sun.security.provider.JavaKeyStore$DualFormatJKS",
+          "sun.security.provider.DomainKeyStore$DKS",
+          "sun.security.provider.X509Factory",
+          "sun.security.pkcs12.PKCS12KeyStore",
+          "sun.security.pkcs12.PKCS12KeyStore$DualFormatPKCS12",
+          "com.sun.crypto.provider.JceKeyStore",
+          // Integrity and encryption of PKCS12 files
+          "com.sun.crypto.provider.HmacPKCS12PBECore$HmacPKCS12PBE_SHA1",
+          "com.sun.crypto.provider.HmacPKCS12PBECore$HmacPKCS12PBE_SHA256",
+          "com.sun.crypto.provider.PBES2Core$HmacSHA256AndAES_256",
+          "com.sun.crypto.provider.PBES2Parameters$General",
+          "com.sun.crypto.provider.PKCS12PBECipherCore$PBEWithSHA1AndRC2_40",
+          "com.sun.crypto.provider.PKCS12PBECipherCore$PBEWithSHA1AndDESede",
+          "com.sun.crypto.provider.PBEParameters",
+          "com.sun.crypto.provider.PBEKeyFactory$PBEWithSHA1AndRC2_40",
+          "com.sun.crypto.provider.PBEKeyFactory$PBEWithSHA1AndDESede",
+          "com.sun.crypto.provider.PBKDF2Core$HmacSHA256",
+          // Signing of S3 requests
+          "com.sun.crypto.provider.HmacCore$HmacSHA256");
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    new BindingReflectionHintsRegistrar()
+        .registerReflectionHints(hints.reflection(), BOUND_TYPES.toArray(Class<?>[]::new));
+
+    for (String service : INI_SERVICES) {
+      hints
+          .reflection()
+          .registerType(TypeReference.of(service), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+      hints.resources().registerPattern("META-INF/services/" + service);
+    }
+
+    for (String service : SECURITY_SERVICES) {
+      hints
+          .reflection()
+          .registerTypeIfPresent(classLoader, service, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package ch.tkb.certalert.archive;
+
+import com.google.common.io.ByteStreams;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams the file entries of zip (jar, war, ear), tar and gzip-compressed tar archives in one
+ * forward pass. Nothing is extracted: each entry is handed to the visitor as a stream that ends
+ * with the entry, and entries the visitor does not read are skipped.
+ */
+final class ArchiveReader {
+
+  private static final int BLOCK = 512;
+  private static final int BUFFER = 64 * 1024;
+
+  private ArchiveReader() {}
+
+  /** Supported archive formats. */
+  enum Format {
+    ZIP,
+    TAR,
+    TGZ;
+
+    /**
+     * Returns the format of an entry type ({@code jar}) or file name ({@code lib/certs.jar}), or
+     * null if it is not an archive.
+     */
+    static Format of(String typeOrName) {
+      String name = "." + typeOrName.toLowerCase();
+      if (name.endsWith(".tgz") || name.endsWith(".tar.gz")) {
+        return TGZ;
+      }
+      if (name.endsWith(".tar")) {
+        return TAR;
+      }
+      if (name.endsWith(".zip")
+          || name.endsWith(".jar")
+          || name.endsWith(".war")
+          || name.endsWith(".ear")) {
+        return ZIP;
+      }
+      return null;
+    }
+  }
+
+  /** Receives the file entries of an archive in stored order. */
+  @FunctionalInterface
+  interface Visitor {
+
+    /**
+     * Handles one entry.
+     *
+     * @param name the normalized path of the entry, e.g. {@code certs/ca.pem}
+     * @param content the entry's content; must not be closed
+     */
+    void visit(String name, InputStream content) throws Exception;
+  }
+
+  /** Reads the archive from the stream, which is consumed but not closed. */
+  static void read(Format format, InputStream in, Visitor visitor) throws Exception {
+    InputStream shielded =
+        new FilterInputStream(in) {
+          @Override
+          public void close() {
+            // the caller owns the stream
+          }
+        };
+    switch (format) {
+      case ZIP -> readZip(shielded, visitor);
+      case TAR -> readTar(shielded, visitor);
+      case TGZ -> {
+        try (InputStream gzip = new GZIPInputStream(shielded, BUFFER)) {
+          readTar(gzip, visitor);
+        }
+      }
+    }
+  }
+
+  /** Strips leading {@code ./} and {@code /} so that entry names and globs compare alike. */
+  static String normalize(String name) {
+    String normalized = name;
+    while (true) {
+      if (normalized.startsWith("./")) {
+        normalized = normalized.substring(2);
+      } else if (normalized.startsWith("/")) {
+        normalized = normalized.substring(1);
+      } else {
+        return normalized;
+      }
+    }
+  }
+
+  private static void readZip(InputStream in, Visitor visitor) throws Exception {
+    try (ZipInputStream zip = new ZipInputStream(in)) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          visitor.visit(normalize(entry.getName()), zip);
+        }
+      }
+    }
+  }
+
+  /** Reads ustar archives including GNU long names and pax path records. */
+  private static void readTar(InputStream in, Visitor visitor) throws Exception {
+    byte[] header = new byte[BLOCK];
+    String longName = null;
+    while (true) {
+      int read = in.readNBytes(header, 0, BLOCK);
+      if (read == 0 || (read == BLOCK && isZero(header))) {
+        return; // end-of-archive blocks (or a stream that just ends)
+      }
+      if (read < BLOCK) {
+        throw new IOException("Truncated tar archive");
+      }
+      verifyChecksum(header);
+
+      long size = number(header, 124, 12);
+      InputStream content = ByteStreams.limit(in, size);
+      String name = longName != null ? longName : name(header);
+      longName = null;
+      switch (header[156]) {
+        case 'L' -> longName = cString(content.readAllBytes(), 0, (int) size);
+        case 'x' -> longName = paxPath(content.readAllBytes());
+        case '0', '7', 0 -> visitor.visit(normalize(name), content);
+        default -> {
+          // directories, links, devices and global pax headers carry no certificates
+        }
+      }
+      drain(content);
+      ByteStreams.skipFully(in, (BLOCK - size % BLOCK) % BLOCK);
+    }
+  }
+
+  private static String name(byte[] header) {
+    String name = cString(header, 0, 100);
+    boolean ustar = new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar");
+    String prefix = ustar ? cString(header, 345, 155) : "";
+    return prefix.isEmpty() ? name : prefix + "/" + name;
+  }
+
+  /** Returns the {@code path} record of a pax extended header, or null if it has none. */
+  private static String paxPath(byte[] records) {
+    int pos = 0;
+    while (pos < records.length) {
+      int space = pos;
+      while (space < records.length && records[space] != ' ') {
+        space++;
+      }
+      int length;
+      try {
+        length = Integer.parseInt(new String(records, pos, space - pos, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (length <= 0 || pos + length > records.length) {
+        return null;
+      }
+      String record =
+          new String(records, space + 1, pos + length - space - 2, StandardCharsets.UTF_8);
+      if (record.startsWith("path=")) {
+        return record.substring(5);
+      }
+      pos += length;
+    }
+    return null;
+  }
+
+  /** Parses an octal number field, or a base-256 one as written by GNU tar for large values. */
+  private static long number(byte[] header, int offset, int length) throws IOException {
+    if ((header[offset] & 0x80) != 0) {
+      long value = header[offset] & 0x7f;
+      for (int i = offset + 1; i < offset + length; i++) {
+        value = (value << 8) | (header[i] & 0xff);
+      }
+      return value;
+    }
+    long value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      byte b = header[i];
+      if (b == 0 || b == ' ') {
+        if (value > 0) {
+          break;
+        }
+        continue;
+      }
+      if (b < '0' || b > '7') {
+        throw new IOException("Invalid tar header");
+      }
+      value = (value << 3) | (b - '0');
+    }
+    return value;
+  }
+
+  private static void verifyChecksum(byte[] header) throws IOException {
+    long expected = number(header, 148, 8);
+    long sum = 0;
+    for (int i = 0; i < BLOCK; i++) {
+      sum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+    }
+    if (sum != expected) {
+      throw new IOException("Not a tar archive (header checksum mismatch)");
+    }
+  }
+
+  private static boolean isZero(byte[] block) {
+    for (byte b : block) {
+      if (b != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String cString(byte[] bytes, int offset, int length) {
+    int end = offset;
+    while (end < offset + length && end < bytes.length && bytes[end] != 0) {
+      end++;
+    }
+    return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+  }
+
+  /** Skips what the visitor left of an entry; seeks on uncompressed files. */
+  private static void drain(InputStream content) throws IOException {
+    while (content.skip(Long.MAX_VALUE) > 0 || content.read() >= 0) {
+      // skip returns 0 before the end on some streams, read() tells them apart
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package ch.tkb.certalert.archive;
+
+import ch.tkb.certalert.archive.ArchiveReader.Format;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.CertificateFiles;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.FileFingerprint;
+import ch.tkb.certalert.utils.Resolver;
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads PEM files and keystores stored inside zip, jar, tar and tar.gz archives without extracting
+ * them.
+ *
+ * <p>The path of an entry is the archive followed by a glob for the inner paths, e.g. {@code
+ * app.jar!/BOOT-INF/classes/**}{@code /*.p12}; further {@code !/} segments descend into nested
+ * archives. Matching entries are parsed straight from the stream. The result is kept per entry and
+ * served again as long as the size, modification time and file key of the archive are unchanged, so
+ * an untouched archive is not even opened. Decompressing and opening keystores is expensive, so
+ * loads run in parallel.
+ */
+@Component
+public class ArchiveSource implements CertificateSource {
+
+  private static final Logger log = LoggerFactory.getLogger(ArchiveSource.class);
+
+  /** Separates the archive from the glob and nested archives from their inner globs. */
+  static final String SEPARATOR = "!/";
+
+  /** Glob used when the path names only the archive. */
+  static final String DEFAULT_GLOB = "**/*.{pem,crt,cer,jks,jceks,p12,pfx}";
+
+  private final ConcurrentMap<CacheKey, Cached> cache = new ConcurrentHashMap<>();
+  private final LongAdder archivesRead = new LongAdder();
+
+  @Override
+  public Set<String> types() {
+    return Set.of("zip", "jar", "war", "ear", "tar", "tgz", "tar.gz");
+  }
+
+  @Override
+  public Cost cost() {
+    return Cost.EXPENSIVE;
+  }
+
+  @Override
+  public int maxConcurrency() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    List<String> segments = List.of(entry.path().split(SEPARATOR, -1));
+    Path archive = Paths.get(segments.get(0)).toAbsolutePath().normalize();
+    if (!Files.isRegularFile(archive)) {
+      throw new FileNotFoundException("Archive does not exist: " + archive);
+    }
+    List<Glob> globs = new ArrayList<>();
+    for (String glob : segments.subList(1, segments.size())) {
+      globs.add(Glob.compile(glob.isEmpty() ? DEFAULT_GLOB : glob));
+    }
+    if (globs.isEmpty()) {
+      globs.add(Glob.compile(DEFAULT_GLOB));
+    }
+    Format format = Format.of(entry.type());
+    String password = Resolver.resolve(entry.password());
+
+    FileFingerprint fingerprint = FileFingerprint.of(archive);
+    CacheKey key = new CacheKey(entry.path(), format, password);
+    Cached cached = cache.get(key);
+    if (cached != null && cached.fingerprint().equals(fingerprint)) {
+      log.debug(
+          "Archive {} is unchanged, reusing {} certificates", archive, cached.loaded().size());
+      return cached.loaded();
+    }
+
+    archivesRead.increment();
+    List<LoadedCertificate> loaded = new ArrayList<>();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(archive), 64 * 1024)) {
+      scan(format, in, globs, 0, "", password, loaded);
+    }
+    if (loaded.isEmpty()) {
+      throw new IllegalArgumentException(
+          "No certificate files in " + archive + " match " + globsToString(globs));
+    }
+    List<LoadedCertificate> result = List.copyOf(loaded);
+    cache.put(key, new Cached(fingerprint, result));
+    return result;
+  }
+
+  /** Returns how many times an archive was actually read rather than served from the cache. */
+  long archivesRead() {
+    return archivesRead.sum();
+  }
+
+  /** Visits the entries of one (possibly nested) archive that match the glob of its level. */
+  private void scan(
+      Format format,
+      InputStream in,
+      List<Glob> globs,
+      int level,
+      String prefix,
+      String password,
+      List<LoadedCertificate> loaded)
+      throws Exception {
+    Glob glob = globs.get(level);
+    boolean last = level == globs.size() - 1;
+    ArchiveReader.read(
+        format,
+        in,
+        (name, content) -> {
+          if (!glob.matches(name)) {
+            return;
+          }
+          String path = prefix + name;
+          if (last) {
+            loaded.addAll(parse(path, content, password));
+            return;
+          }
+          Format nested = Format.of(name);
+          if (nested == null) {
+            log.debug("Skipping {}: not an archive", path);
+            return;
+          }
+          scan(nested, content, globs, level + 1, path + SEPARATOR, password, loaded);
+        });
+  }
+
+  /** Parses one inner file by its extension; other files are skipped. */
+  private static List<LoadedCertificate> parse(String path, InputStream content, String password) {
+    if (!CertificateFiles.isCertificateFile(path)) {
+      log.debug("Skipping {}: unknown file type", path);
+      return List.of();
+    }
+    return CertificateFiles.parse(path, content, password);
+  }
+
+  private static String globsToString(List<Glob> globs) {
+    List<String> parts = new ArrayList<>(globs.size());
+    for (Glob glob : globs) {
+      parts.add(glob.toString());
+    }
+    return String.join(SEPARATOR, parts);
+  }
+
+  /** Identifies the result of one entry; the password decides whether keystores open. */
+  private record CacheKey(String path, Format format, String password) {}
+
+  /** Cheap identity of an archive's content taken from its file attributes. */
+  private record Cached(FileFingerprint fingerprint, List<LoadedCertificate> loaded) {}
+}
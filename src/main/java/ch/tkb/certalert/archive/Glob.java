@@ -0,0 +1,75 @@
+package ch.tkb.certalert.archive;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches the slash-separated paths of archive entries against a glob: {@code *} and {@code ?} stay
+ * within one directory, {@code **} crosses directories ({@code **}{@code /} also matches no
+ * directory at all) and {@code {a,b}} matches either alternative.
+ */
+final class Glob {
+
+  private final String glob;
+  private final Pattern pattern;
+
+  private Glob(String glob, Pattern pattern) {
+    this.glob = glob;
+    this.pattern = pattern;
+  }
+
+  /** Compiles a glob; a leading slash is ignored. */
+  static Glob compile(String glob) {
+    String normalized = ArchiveReader.normalize(glob);
+    StringBuilder regex = new StringBuilder();
+    boolean inGroup = false;
+    for (int i = 0; i < normalized.length(); i++) {
+      char c = normalized.charAt(i);
+      switch (c) {
+        case '*' -> {
+          if (i + 1 < normalized.length() && normalized.charAt(i + 1) == '*') {
+            i++;
+            if (i + 1 < normalized.length() && normalized.charAt(i + 1) == '/') {
+              i++;
+              regex.append("(?:.*/)?");
+            } else {
+              regex.append(".*");
+            }
+          } else {
+            regex.append("[^/]*");
+          }
+        }
+        case '?' -> regex.append("[^/]");
+        case '{' -> {
+          if (inGroup) {
+            throw new IllegalArgumentException("Nested groups are not supported: " + glob);
+          }
+          inGroup = true;
+          regex.append("(?:");
+        }
+        case '}' -> {
+          if (!inGroup) {
+            throw new IllegalArgumentException("Unbalanced '}' in " + glob);
+          }
+          inGroup = false;
+          regex.append(')');
+        }
+        case ',' -> regex.append(inGroup ? "|" : ",");
+        default -> regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    if (inGroup) {
+      throw new IllegalArgumentException("Unbalanced '{' in " + glob);
+    }
+    return new Glob(normalized, Pattern.compile(regex.toString()));
+  }
+
+  /** Returns whether the normalized entry path matches. */
+  boolean matches(String path) {
+    return pattern.matcher(path).matches();
+  }
+
+  @Override
+  public String toString() {
+    return glob;
+  }
+}
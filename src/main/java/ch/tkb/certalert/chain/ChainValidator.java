@@ -0,0 +1,317 @@
+package ch.tkb.certalert.chain;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateInfo.ChainStatus;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.CertificateLoader;
+import ch.tkb.certalert.utils.Fingerprints;
+import java.security.KeyStore;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Validates certificate chains against the configured trust anchors.
+ *
+ * <p>Paths are built from the leaf towards an anchor by matching issuer and subject names. Whether
+ * an issuer signs a subject is verified once per scan cycle for each (issuer fingerprint, subject
+ * fingerprint) link, so intermediates shared by many keystores and bundles are only checked once.
+ * Decoded certificates are cached per cycle as well; {@link #endCycle()} drops both caches.
+ */
+@Component
+public class ChainValidator {
+
+  private static final Logger log = LoggerFactory.getLogger(ChainValidator.class);
+
+  /** Longest path that is followed before giving up. */
+  static final int MAX_DEPTH = 10;
+
+  private final boolean enabled;
+  private final Set<String> anchorFingerprints = new HashSet<>();
+  private final Map<X500Principal, List<Node>> anchorsBySubject = new HashMap<>();
+
+  private final ConcurrentMap<String, Node> decoded = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Link, Boolean> links = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** Loads the trust anchors if chain validation is enabled. */
+  public ChainValidator(CertificateConfig config) {
+    CertificateConfig.Chain settings = config.chain();
+    this.enabled = settings.enabled();
+    if (!enabled) {
+      return;
+    }
+
+    for (String file : settings.trustAnchors()) {
+      try {
+        for (byte[] der : CertificateLoader.loadAllEncoded(file)) {
+          addAnchor(new Node(Fingerprints.sha256(der), CertificateLoader.decode(der)));
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException(
+            "Cannot read trust anchors from " + file + ": " + e.getMessage(), e);
+      }
+    }
+    if (Boolean.TRUE.equals(settings.systemTrust())) {
+      for (X509Certificate cert : systemAnchors()) {
+        try {
+          addAnchor(new Node(Fingerprints.sha256(cert), cert));
+        } catch (CertificateEncodingException e) {
+          log.debug("Skipping system trust anchor {}", cert.getSubjectX500Principal());
+        }
+      }
+    }
+    if (anchorFingerprints.isEmpty()) {
+      log.warn("Chain validation is enabled without trust anchors; no chain will be trusted");
+    } else {
+      log.info("Validating chains against {} trust anchors", anchorFingerprints.size());
+    }
+  }
+
+  /** Returns whether chains are validated at all. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Indexes the certificates of one entry (and the chains presented with them) as candidate
+   * issuers. Certificates that cannot be decoded are left out.
+   */
+  public Pool pool(List<LoadedCertificate> certificates) {
+    Map<String, Node> nodes = new LinkedHashMap<>();
+    for (LoadedCertificate cert : certificates) {
+      if (cert.der() != null) {
+        addToPool(nodes, cert.der());
+      }
+      for (byte[] issuer : cert.issuers()) {
+        addToPool(nodes, issuer);
+      }
+    }
+
+    Map<X500Principal, List<Node>> bySubject = new HashMap<>();
+    for (Node node : nodes.values()) {
+      bySubject
+          .computeIfAbsent(node.cert().getSubjectX500Principal(), s -> new ArrayList<>(1))
+          .add(node);
+    }
+    return new Pool(bySubject);
+  }
+
+  /** Returns the chain status of a DER-encoded certificate using the issuers of the pool. */
+  public ChainStatus validate(byte[] der, Pool pool) {
+    Node leaf = node(der);
+    if (leaf == null) {
+      throw new IllegalArgumentException("Invalid certificate");
+    }
+    Set<String> path = new HashSet<>();
+    path.add(leaf.fingerprint());
+    return walk(leaf, pool, path, new Date());
+  }
+
+  /** Returns the decoded certificate; decoded once per cycle. */
+  public X509Certificate certificate(byte[] der) {
+    Node node = node(der);
+    if (node == null) {
+      throw new IllegalArgumentException("Invalid certificate");
+    }
+    return node.cert();
+  }
+
+  /**
+   * Returns the trust anchor or pool certificate that signed the certificate, or null if none is
+   * known. Works whether or not chain validation is enabled.
+   */
+  public X509Certificate issuerOf(byte[] der, Pool pool) {
+    Node node = node(der);
+    if (node == null) {
+      return null;
+    }
+    X500Principal issuerName = node.cert().getIssuerX500Principal();
+    for (Node anchor : anchorsBySubject.getOrDefault(issuerName, List.of())) {
+      if (signs(anchor, node)) {
+        return anchor.cert();
+      }
+    }
+    for (Node issuer : pool.bySubject.getOrDefault(issuerName, List.of())) {
+      if (!issuer.fingerprint().equals(node.fingerprint()) && signs(issuer, node)) {
+        return issuer.cert();
+      }
+    }
+    return null;
+  }
+
+  /** Drops the decoded certificates and verified links of the finished cycle. */
+  public void endCycle() {
+    log.debug(
+        "Chain validation: {} certificates, {} links, {} cached, {} verified",
+        decoded.size(),
+        links.size(),
+        hits.sumThenReset(),
+        misses.sumThenReset());
+    decoded.clear();
+    links.clear();
+  }
+
+  /** Returns how many links were verified (not served from the cache) in the current cycle. */
+  long verifiedLinks() {
+    return misses.sum();
+  }
+
+  /** Follows every issuer candidate of the node until a trust anchor is reached. */
+  private ChainStatus walk(Node node, Pool pool, Set<String> path, Date now) {
+    if (anchorFingerprints.contains(node.fingerprint())) {
+      return ChainStatus.TRUSTED;
+    }
+
+    X500Principal issuerName = node.cert().getIssuerX500Principal();
+    boolean broken = false;
+    for (Node anchor : anchorsBySubject.getOrDefault(issuerName, List.of())) {
+      if (signs(anchor, node)) {
+        return ChainStatus.TRUSTED;
+      }
+      broken = true;
+    }
+    if (path.size() >= MAX_DEPTH) {
+      return broken ? ChainStatus.BROKEN : ChainStatus.UNTRUSTED;
+    }
+
+    for (Node issuer : pool.bySubject.getOrDefault(issuerName, List.of())) {
+      if (path.contains(issuer.fingerprint())) {
+        continue;
+      }
+      if (!signs(issuer, node) || !isValidAt(issuer, now)) {
+        broken = true;
+        continue;
+      }
+      path.add(issuer.fingerprint());
+      ChainStatus status = walk(issuer, pool, path, now);
+      path.remove(issuer.fingerprint());
+      if (status == ChainStatus.TRUSTED) {
+        return status;
+      }
+      broken |= status == ChainStatus.BROKEN;
+    }
+    return broken ? ChainStatus.BROKEN : ChainStatus.UNTRUSTED;
+  }
+
+  /** Returns whether the issuer is a CA whose key verifies the subject's signature; memoized. */
+  private boolean signs(Node issuer, Node subject) {
+    Link link = new Link(issuer.fingerprint(), subject.fingerprint());
+    Boolean cached = links.get(link);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    boolean valid = verify(issuer, subject);
+    links.put(link, valid);
+    return valid;
+  }
+
+  private boolean verify(Node issuer, Node subject) {
+    // Trust anchors are trusted as they are; intermediates must be marked as CA
+    if (!anchorFingerprints.contains(issuer.fingerprint())
+        && issuer.cert().getBasicConstraints() < 0) {
+      return false;
+    }
+    try {
+      subject.cert().verify(issuer.cert().getPublicKey());
+      return true;
+    } catch (Exception e) {
+      log.debug(
+          "{} is not signed by {}: {}",
+          subject.cert().getSubjectX500Principal(),
+          issuer.cert().getSubjectX500Principal(),
+          e.getMessage());
+      return false;
+    }
+  }
+
+  private static boolean isValidAt(Node node, Date now) {
+    X509Certificate cert = node.cert();
+    return !now.before(cert.getNotBefore()) && !now.after(cert.getNotAfter());
+  }
+
+  private void addToPool(Map<String, Node> nodes, byte[] der) {
+    Node node = node(der);
+    if (node != null) {
+      nodes.putIfAbsent(node.fingerprint(), node);
+    }
+  }
+
+  /** Returns the decoded certificate, decoding it once per cycle; null if it cannot be decoded. */
+  private Node node(byte[] der) {
+    String fingerprint = Fingerprints.sha256(der);
+    Node node = decoded.get(fingerprint);
+    if (node != null) {
+      return node;
+    }
+    try {
+      node = new Node(fingerprint, CertificateLoader.decode(der));
+    } catch (Exception e) {
+      return null;
+    }
+    Node previous = decoded.putIfAbsent(fingerprint, node);
+    return previous != null ? previous : node;
+  }
+
+  private void addAnchor(Node anchor) {
+    if (anchorFingerprints.add(anchor.fingerprint())) {
+      anchorsBySubject
+          .computeIfAbsent(anchor.cert().getSubjectX500Principal(), s -> new ArrayList<>(1))
+          .add(anchor);
+    }
+  }
+
+  /** Returns the CAs of the JVM's default trust store. */
+  private static List<X509Certificate> systemAnchors() {
+    try {
+      TrustManagerFactory factory =
+          TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      factory.init((KeyStore) null);
+      List<X509Certificate> anchors = new ArrayList<>();
+      for (TrustManager manager : factory.getTrustManagers()) {
+        if (manager instanceof X509TrustManager x509) {
+          anchors.addAll(List.of(x509.getAcceptedIssuers()));
+        }
+      }
+      return anchors;
+    } catch (Exception e) {
+      log.warn("Cannot read the JVM trust store: {}", e.getMessage());
+      return List.of();
+    }
+  }
+
+  /** Candidate issuers of one entry, indexed by subject name. */
+  public static final class Pool {
+    private final Map<X500Principal, List<Node>> bySubject;
+
+    private Pool(Map<X500Principal, List<Node>> bySubject) {
+      this.bySubject = bySubject;
+    }
+  }
+
+  /** A decoded certificate with its SHA-256 fingerprint. */
+  record Node(String fingerprint, X509Certificate cert) {}
+
+  /** An issuer-subject pair whose signature has been verified. */
+  private record Link(String issuer, String subject) {}
+}
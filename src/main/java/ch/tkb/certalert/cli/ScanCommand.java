@@ -0,0 +1,139 @@
+package ch.tkb.certalert.cli;
+
+import ch.tkb.certalert.CertalertApplication;
+import ch.tkb.certalert.collector.CertificateCollector;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.Severity;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Scans all configured entries once, writes the result and returns an exit code for the worst
+ * status found.
+ *
+ * <pre>
+ * java -jar certalert.jar scan [--format=prometheus|json] [--output=FILE|-] [Spring arguments...]
+ * </pre>
+ *
+ * The configuration is read as in server mode, but neither the web server nor the scheduler is
+ * started. The result goes to stdout or replaces the output file atomically, so node_exporter's
+ * textfile collector never reads a partial file; logs go to stderr. The exit code is the ordinal of
+ * the worst {@link Severity}: 0 if all certificates are fine, 1 warning, 2 critical, 3 expired and
+ * 4 invalid.
+ */
+public final class ScanCommand {
+
+  /** First argument that selects the command. */
+  public static final String NAME = "scan";
+
+  /** Set while a single scan runs; disables the background scans. */
+  public static final String PROPERTY = "certalert.scan-once";
+
+  static final int EXIT_USAGE = 64;
+  static final int EXIT_SOFTWARE = 70;
+  static final int EXIT_IO = 74;
+
+  private static final String USAGE =
+      "Usage: certalert scan [--format=prometheus|json] [--output=FILE|-] [Spring arguments...]";
+
+  /** Output format of the scan result. */
+  enum Format {
+    PROMETHEUS,
+    JSON
+  }
+
+  /** Parsed arguments; everything that is not an option of the command goes to Spring. */
+  record Options(Format format, String output, List<String> springArgs) {
+
+    static Options parse(String[] args) {
+      Format format = Format.PROMETHEUS;
+      String output = "-";
+      List<String> springArgs = new ArrayList<>();
+      for (String arg : args) {
+        if (arg.startsWith("--format=")) {
+          String value = arg.substring("--format=".length());
+          try {
+            format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format '" + value + "'");
+          }
+        } else if (arg.startsWith("--output=")) {
+          output = arg.substring("--output=".length());
+        } else {
+          springArgs.add(arg);
+        }
+      }
+      if (output.isBlank()) {
+        throw new IllegalArgumentException("--output must name a file or '-' for stdout");
+      }
+      if (springArgs.stream().noneMatch(arg -> arg.startsWith("--logging.level.root="))) {
+        springArgs.add("--logging.level.root=WARN");
+      }
+      return new Options(format, output, List.copyOf(springArgs));
+    }
+  }
+
+  private ScanCommand() {}
+
+  /** Runs the command with the arguments following its name and returns the exit code. */
+  public static int run(String[] args) {
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      return EXIT_USAGE;
+    }
+
+    // Keep stdout for the result; the console log is written to System.out
+    PrintStream stdout = System.out;
+    System.setOut(System.err);
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(CertalertApplication.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .properties(PROPERTY + "=true")
+            .run(options.springArgs().toArray(String[]::new))) {
+      CertificateCollector collector = context.getBean(CertificateCollector.class);
+      collector.collectCertificateData();
+
+      Instant now = Instant.now();
+      CertificateConfig.Dashboard thresholds = context.getBean(CertificateConfig.class).dashboard();
+      List<CertificateInfo> certificates = collector.getCertificateInfos();
+      Severity worst = Severity.OK;
+      for (CertificateInfo info : certificates) {
+        Severity severity = Severity.of(info, now, thresholds);
+        if (severity.compareTo(worst) > 0) {
+          worst = severity;
+        }
+      }
+
+      String result =
+          switch (options.format()) {
+            case PROMETHEUS ->
+                ScanOutput.prometheus(context.getBean(PrometheusMeterRegistry.class));
+            case JSON -> ScanOutput.json(certificates, now, thresholds, worst);
+          };
+      ScanOutput.write(result, options.output(), stdout);
+      return worst.ordinal();
+    } catch (IOException e) {
+      System.err.println("Cannot write the scan result to " + options.output() + ": " + e);
+      return EXIT_IO;
+    } catch (RuntimeException e) {
+      System.err.println("Scan failed: " + e);
+      return EXIT_SOFTWARE;
+    } finally {
+      System.setOut(stdout);
+    }
+  }
+}
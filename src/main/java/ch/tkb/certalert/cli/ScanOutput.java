@@ -0,0 +1,94 @@
+package ch.tkb.certalert.cli;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.Severity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Renders and writes the result of a single scan. */
+final class ScanOutput {
+
+  private static final String METRIC_PREFIX = "certalert_";
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private ScanOutput() {}
+
+  /** Returns the certalert metrics in the Prometheus text format, without JVM and process ones. */
+  static String prometheus(PrometheusMeterRegistry registry) {
+    StringBuilder out = new StringBuilder();
+    for (String line : registry.scrape().split("\n")) {
+      String name =
+          line.startsWith("# HELP ") || line.startsWith("# TYPE ") ? line.substring(7) : line;
+      if (name.startsWith(METRIC_PREFIX)) {
+        out.append(line).append('\n');
+      }
+    }
+    return out.toString();
+  }
+
+  /** Returns the certificates with their severity and the worst severity as JSON. */
+  static String json(
+      List<CertificateInfo> certificates,
+      Instant now,
+      CertificateConfig.Dashboard thresholds,
+      Severity worst) {
+    List<Map<String, String>> entries = new ArrayList<>(certificates.size());
+    for (CertificateInfo info : certificates) {
+      Map<String, String> fields = new LinkedHashMap<>();
+      fields.put("name", info.getName());
+      fields.put("alias", info.getAlias());
+      fields.put("path", info.getPath());
+      fields.put("type", info.getType());
+      fields.put("subject", info.getSubject());
+      fields.put("notAfter", info.getNotAfter() != null ? info.getNotAfter().toString() : null);
+      fields.put("status", info.getStatus().name());
+      fields.put("severity", Severity.of(info, now, thresholds).name());
+      fields.put("chain", info.getChain() != null ? info.getChain().name() : null);
+      fields.put("revocation", info.getRevocation() != null ? info.getRevocation().name() : null);
+      entries.add(fields);
+    }
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("scannedAt", now.toString());
+    result.put("worst", worst.name());
+    result.put("certificates", entries);
+    try {
+      return MAPPER.writeValueAsString(result) + "\n";
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot encode scan result", e);
+    }
+  }
+
+  /**
+   * Writes the result to stdout if the output is {@code -}, otherwise replaces the file atomically
+   * through a temporary file next to it.
+   */
+  static void write(String result, String output, PrintStream stdout) throws IOException {
+    if (output.equals("-")) {
+      stdout.print(result);
+      stdout.flush();
+      return;
+    }
+    Path file = Paths.get(output).toAbsolutePath().normalize();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.writeString(temp, result, StandardCharsets.UTF_8);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -1,33 +1,56 @@
 package ch.tkb.certalert.collector;
 
+import ch.tkb.certalert.chain.ChainValidator;
+import ch.tkb.certalert.collector.ParsedCertificateCache.ParsedCertificate;
 import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.history.HistoryLog;
+import ch.tkb.certalert.jfr.MetricsPublishEvent;
+import ch.tkb.certalert.jfr.ScanEvent;
 import ch.tkb.certalert.metrics.CertificateMetricsPublisher;
+import ch.tkb.certalert.model.CertificateDetails;
 import ch.tkb.certalert.model.CertificateIdentity;
 import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.ChainStatus;
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
 import ch.tkb.certalert.model.CertificateInfo.Status;
-import ch.tkb.certalert.utils.CertificateLoader;
-import ch.tkb.certalert.utils.KeystoreLoader;
-import ch.tkb.certalert.utils.Resolver;
+import ch.tkb.certalert.notification.WebhookNotifier;
+import ch.tkb.certalert.revocation.RevocationChecker;
+import ch.tkb.certalert.revocation.RevocationChecker.RevocationCheck;
+import ch.tkb.certalert.search.CertificateIndex;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.snapshot.IdentityRegistry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.SourceRegistry;
+import ch.tkb.certalert.threshold.ThresholdScheduler;
+import ch.tkb.certalert.utils.Fingerprints;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
-import java.security.KeyStore;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * Collects certificate data and publishes metrics, tracking state changes and replacing stale
  * entries with a fresh snapshot.
+ *
+ * <p>The entries are split into {@link ScanGroup}s that are scanned independently on their own
+ * interval. Every group replaces only its own rows of the served snapshot.
  */
 @Component
 public class CertificateCollector {
@@ -36,61 +59,550 @@ public class CertificateCollector {
   private static final DateTimeFormatter formatter =
       DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault());
 
-  private final CertificateConfig config;
+  /** Minimum time between partial snapshots published during the first scan. */
+  private static final long PARTIAL_PUBLISH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
   private final CertificateMetricsPublisher metricsPublisher;
+  private final HistoryLog historyLog;
+  private final IdentityRegistry identityRegistry;
+  private final ScanProgress scanProgress;
+  private final ShardAssignment shardAssignment;
+  private final SourceRegistry sources;
+  private final ChainValidator chainValidator;
+  private final RevocationChecker revocationChecker;
+  private final WebhookNotifier notifier;
+  private final ThresholdScheduler thresholdScheduler;
+  private final CertificateIndex searchIndex;
+
+  /** Retained encodings and decoded details of the certificates of all groups. */
+  private final DetailsCache details;
+
+  /** Groups in configuration order; the set of groups is fixed until a restart. */
+  private final List<ScanGroup> groups = new ArrayList<>();
 
-  /** Holds the last collected certificate information. */
-  private final AtomicReference<List<CertificateInfo>> certificateInfos =
-      new AtomicReference<>(List.of());
+  /** Serializes the updates of the served snapshot by the groups. */
+  private final ReentrantLock publishLock = new ReentrantLock();
+
+  /** Serializes reloads; they do not wait for running scans. */
+  private final ReentrantLock reloadLock = new ReentrantLock();
+
+  /** Holds the last collected certificate information of all groups. */
+  private final AtomicReference<CertificateSnapshot> certificateInfos =
+      new AtomicReference<>(CertificateSnapshot.empty());
 
   private final AtomicReference<Instant> lastUpdateTime = new AtomicReference<>();
 
-  /** Construct a CertificateCollector with config and metrics publisher. */
+  /** Construct a CertificateCollector with its collaborators. */
   public CertificateCollector(
-      CertificateConfig config, CertificateMetricsPublisher metricsPublisher) {
-    this.config = config;
+      CertificateConfig config,
+      CertificateMetricsPublisher metricsPublisher,
+      HistoryLog historyLog,
+      IdentityRegistry identityRegistry,
+      ScanProgress scanProgress,
+      ShardAssignment shardAssignment,
+      SourceRegistry sources,
+      ChainValidator chainValidator,
+      RevocationChecker revocationChecker,
+      WebhookNotifier notifier,
+      ThresholdScheduler thresholdScheduler,
+      CertificateIndex searchIndex,
+      IoBudget ioBudget) {
     this.metricsPublisher = metricsPublisher;
-    log.info("Initialized; monitoring {} certificates", config.certificates().size());
+    this.historyLog = historyLog;
+    this.identityRegistry = identityRegistry;
+    this.scanProgress = scanProgress;
+    this.shardAssignment = shardAssignment;
+    this.sources = sources;
+    this.chainValidator = chainValidator;
+    this.revocationChecker = revocationChecker;
+    this.notifier = notifier;
+    this.thresholdScheduler = thresholdScheduler;
+    this.searchIndex = searchIndex;
+    this.details = new DetailsCache(config.details());
+
+    var assigned = ScanGroup.assign(config.allGroups());
+    for (CertificateConfig.Group group : config.allGroups()) {
+      groups.add(
+          new ScanGroup(
+              group, assigned.get(group.name()), config.loading(), details::retain, ioBudget));
+      scanProgress.register(group.name());
+    }
+    int entries = shardAssignment.select(allEntries(assigned)).size();
+    log.info(
+        "Initialized; monitoring {} certificates in groups {}",
+        entries,
+        groups.stream().map(ScanGroup::name).toList());
+  }
+
+  /**
+   * Restores a warm snapshot if possible, starts the threshold clock and schedules the scans of
+   * every group, starting with the first one right away. Called once the application is ready,
+   * unless it runs a single scan.
+   */
+  public void startInitialScan() {
+    restoreWarmSnapshot();
+    thresholdScheduler.start(this::applyCrossings);
+    for (ScanGroup group : groups) {
+      group.schedule(() -> collect(group));
+    }
   }
 
   /**
-   * Scheduled polling method. Polls all configured keystores or certs, publishes metrics, and
-   * prunes stale entries.
+   * Scans the entries of all groups one after the other, publishes metrics, and prunes stale
+   * entries. Groups whose scan is still running are skipped.
    */
-  @Scheduled(fixedDelayString = "${certalert.check-interval}")
   public void collectCertificateData() {
-    Map<CertificateIdentity, CertificateInfo> existing = indexByIdentity(certificateInfos.get());
-    List<CertificateInfo> collected = new ArrayList<>();
+    for (ScanGroup group : groups) {
+      collect(group);
+    }
+  }
 
-    // Process each configured certificate source
-    for (var entry : config.certificates()) {
-      try {
-        switch (entry.type().toLowerCase()) {
-          case "pem", "crt" -> {
-            List<X509Certificate> certs = CertificateLoader.loadAll(entry.path());
-            for (int i = 0; i < certs.size(); i++) {
-              String alias = certs.size() == 1 ? "default" : "cert" + (i + 1);
-              collected.add(processInfo(buildInfoFromCert(entry, alias, certs.get(i)), existing));
-            }
-          }
-          case "jceks", "jks", "dks", "p12", "pkcs11", "pkcs12" -> {
-            String pw = Resolver.resolve(entry.password());
-            KeyStore ks = KeystoreLoader.load(entry.type(), entry.path(), pw);
-            for (String alias : Collections.list(ks.aliases())) {
-              collected.add(processAlias(entry, alias, ks, existing));
+  @PreDestroy
+  public void close() {
+    groups.forEach(ScanGroup::close);
+  }
+
+  /** Scans the group unless its previous scan is still running. */
+  private void collect(ScanGroup group) {
+    if (!group.scanLock().tryLock()) {
+      log.debug("Previous scan of group {} still running; skipping", group.name());
+      return;
+    }
+    try {
+      scan(group);
+    } finally {
+      group.scanLock().unlock();
+    }
+  }
+
+  /** Scans the entries of the group and replaces its rows of the snapshot. */
+  private void scan(ScanGroup group) {
+    ScanEvent event = new ScanEvent();
+    event.begin();
+    CertificateSnapshot existing;
+    publishLock.lock();
+    try {
+      existing = group.snapshot();
+      group.expired().clear();
+      group.reloaded().clear();
+    } finally {
+      publishLock.unlock();
+    }
+    CertificateSnapshot.Builder collected = existing.toBuilder();
+    boolean progressive = !scanProgress.isReady();
+    long lastPartialPublish = System.nanoTime();
+
+    var entries = shardAssignment.owned(group.entries());
+    scanProgress.cycleStarted(group.name(), entries.size());
+    Duration window = group.window();
+    scanProgress.window(group.name(), window);
+    LoadPlan loads =
+        LoadPlan.start(entries, sources, group.loadExecutor(), group.loadGuard(), window);
+    List<PendingRevocation> revocations = new ArrayList<>();
+    for (var entry : entries) {
+      collectEntry(entry, group, loads, existing, collected, revocations);
+      scanProgress.entryDone(group.name());
+
+      // Until the first pass completes, serve what has been collected so far
+      if (progressive && System.nanoTime() - lastPartialPublish >= PARTIAL_PUBLISH_INTERVAL) {
+        publishScanned(group, collected.build());
+        lastPartialPublish = System.nanoTime();
+      }
+    }
+
+    resolveRevocations(revocations, existing, collected);
+    CertificateSnapshot snapshot = collected.build();
+    publishLock.lock();
+    try {
+      CertificateSnapshot published = publishScanned(group, snapshot);
+      CertificateSnapshot served = certificateInfos.get();
+      applyChanges(existing, snapshot, served);
+      if (published != snapshot) {
+        applyChanges(snapshot, published, served);
+      }
+    } finally {
+      publishLock.unlock();
+    }
+    group.parsedCertificates().endCycle();
+    group.loadGuard().endCycle();
+    group.scanned();
+    chainValidator.endCycle();
+    lastUpdateTime.set(Instant.now());
+    scanProgress.cycleCompleted(group.name());
+    event.end();
+    if (event.shouldCommit()) {
+      event.group = group.name();
+      event.entries = entries.size();
+      event.certificates = snapshot.size();
+      event.commit();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Snapshot of group {} with {} certificates retains ~{} KiB and shares {} leaves with the"
+              + " previous one",
+          group.name(),
+          snapshot.size(),
+          snapshot.estimatedBytes() / 1024,
+          snapshot.sharedLeaves(existing));
+    }
+  }
+
+  /** Replaces the rows of the group in the served snapshot. */
+  private void publish(ScanGroup group, CertificateSnapshot snapshot) {
+    publishLock.lock();
+    try {
+      serve(certificateInfos.get().merge(group.snapshot(), snapshot));
+      group.snapshot(snapshot);
+    } finally {
+      publishLock.unlock();
+    }
+  }
+
+  /**
+   * Publishes the rows collected by a scan of the group and returns them as published. Reloads and
+   * threshold crossings do not wait for a running scan, so the rows they changed since it started
+   * are carried over: the rows of reloaded entries are taken from the published rows of the group,
+   * and certificates that expired are kept expired unless the scan found a later expiry.
+   */
+  private CertificateSnapshot publishScanned(ScanGroup group, CertificateSnapshot scanned) {
+    publishLock.lock();
+    try {
+      CertificateSnapshot rows =
+          group.reloaded().isEmpty()
+              ? scanned
+              : replaceEntries(scanned, group.snapshot(), group.reloaded());
+      Instant now = Instant.now();
+      List<Integer> expired = new ArrayList<>();
+      for (int id : group.expired()) {
+        if (rows.contains(id)
+            && rows.statusOf(id) == Status.VALID
+            && !rows.info(id).getNotAfter().isAfter(now)) {
+          expired.add(id);
+        }
+      }
+      if (!expired.isEmpty()) {
+        rows =
+            rows.withStatus(expired.stream().mapToInt(Integer::intValue).toArray(), Status.EXPIRED);
+        for (int id : expired) {
+          publishMetrics(id, rows.info(id));
+        }
+      }
+      publish(group, rows);
+      return rows;
+    } finally {
+      publishLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the rows of {@code base} with the rows of the entries with the given keys taken from
+   * {@code source} instead, and publishes the metrics of the rows taken.
+   */
+  private CertificateSnapshot replaceEntries(
+      CertificateSnapshot base, CertificateSnapshot source, Set<EntryDiff.Key> keys) {
+    CertificateSnapshot.Builder replaced = base.toBuilder();
+    for (int row = 0; row < base.size(); row++) {
+      int id = base.idAt(row);
+      if (!keys.contains(EntryDiff.Key.of(base.identityOf(id)))) {
+        replaced.keep(id);
+      }
+    }
+    for (int row = 0; row < source.size(); row++) {
+      int id = source.idAt(row);
+      CertificateIdentity identity = source.identityOf(id);
+      if (keys.contains(EntryDiff.Key.of(identity))) {
+        CertificateInfo info = source.info(id);
+        replaced.add(id, identity, info);
+        publishMetrics(id, info);
+      }
+    }
+    return replaced.build();
+  }
+
+  /**
+   * Loads the entry of a served row with the fingerprint again and returns the encoding of the
+   * certificate, or null if there is no such row or the load fails. Batch sources are skipped, as
+   * they only load within a scan.
+   */
+  private byte[] reread(String fingerprint) {
+    CertificateSnapshot served = certificateInfos.get();
+    Set<EntryDiff.Key> holders = new HashSet<>();
+    for (int row = 0; row < served.size(); row++) {
+      int id = served.idAt(row);
+      if (fingerprint.equals(served.fingerprintOf(id))) {
+        holders.add(EntryDiff.Key.of(served.identityOf(id)));
+      }
+    }
+    for (ScanGroup group : groups) {
+      for (CertificateConfig.CertificateEntry entry : group.entries()) {
+        CertificateSource source = sources.find(entry.type());
+        if (!holders.contains(EntryDiff.Key.of(entry))
+            || source == null
+            || source.supportsBatch()) {
+          continue;
+        }
+        try {
+          for (LoadedCertificate cert : group.loadGuard().load(source, entry)) {
+            if (cert.der() != null && fingerprint.equals(Fingerprints.sha256(cert.der()))) {
+              return cert.der();
             }
           }
-          default ->
-              throw new IllegalArgumentException("Unsupported certificate type: " + entry.type());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return null;
+        } catch (Exception e) {
+          log.debug("Failed to read {} again for details: {}", entry.name(), e.getMessage());
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Serves the snapshot and updates the search index with its changed rows. */
+  private void serve(CertificateSnapshot snapshot) {
+    certificateInfos.set(snapshot);
+    searchIndex.update(snapshot);
+  }
+
+  /** Loads one configured entry and adds its certificates to the snapshot. */
+  private void collectEntry(
+      CertificateConfig.CertificateEntry entry,
+      ScanGroup group,
+      LoadPlan loads,
+      CertificateSnapshot existing,
+      CertificateSnapshot.Builder collected,
+      List<PendingRevocation> revocations) {
+    List<LoadedCertificate> certs;
+    try {
+      certs = loads.load(entry);
+    } catch (Exception e) {
+      handleLoadError(entry, e, existing, collected);
+      return;
+    }
+
+    ChainValidator.Pool issuers =
+        chainValidator.isEnabled() || revocationChecker.isEnabled()
+            ? chainValidator.pool(certs)
+            : null;
+    for (LoadedCertificate cert : certs) {
+      try {
+        if (cert.error() != null) {
+          throw new IllegalArgumentException(cert.error());
+        }
+        ParsedCertificate parsed = group.parsedCertificates().acquire(cert.der());
+        ChainStatus chain =
+            chainValidator.isEnabled() ? chainValidator.validate(cert.der(), issuers) : null;
+        CertificateInfo info =
+            buildInfoFromCert(entry, cert.alias(), parsed).toBuilder().chain(chain).build();
+        int id = processInfo(info, existing, collected);
+
+        // Revocation is resolved for all certificates at once after the entries are collected
+        X509Certificate x509 =
+            revocationChecker.isEnabled() ? chainValidator.certificate(cert.der()) : null;
+        if (x509 != null && !x509.getIssuerX500Principal().equals(x509.getSubjectX500Principal())) {
+          revocations.add(
+              new PendingRevocation(
+                  id,
+                  info,
+                  new RevocationCheck(x509, chainValidator.issuerOf(cert.der(), issuers))));
         }
       } catch (Exception e) {
-        collected.add(handleLoadError(entry, e, existing));
+        handleAliasError(
+            entry.path(), entry.type(), entry.name(), cert.alias(), e, existing, collected);
+      }
+    }
+  }
+
+  /**
+   * Serves the last recorded state of all configured entries from the history log, so the API,
+   * metrics and readiness are available before the first scan completes.
+   */
+  private void restoreWarmSnapshot() {
+    if (!historyLog.isAvailable()) {
+      return;
+    }
+
+    Map<EntryDiff.Key, ScanGroup> owners = new HashMap<>();
+    for (ScanGroup group : groups) {
+      for (var entry : shardAssignment.owned(group.entries())) {
+        owners.putIfAbsent(EntryDiff.Key.of(entry), group);
       }
     }
+    var records = historyLog.latest(identity -> owners.containsKey(EntryDiff.Key.of(identity)));
+    if (records.isEmpty()) {
+      return;
+    }
 
-    certificateInfos.set(List.copyOf(collected));
-    metricsPublisher.prune(collected);
-    lastUpdateTime.set(Instant.now());
+    Instant now = Instant.now();
+    Map<ScanGroup, CertificateSnapshot.Builder> restored = new LinkedHashMap<>();
+    for (var record : records) {
+      CertificateInfo info = record.toInfo();
+      if (info.getStatus() == Status.VALID && now.isAfter(info.getNotAfter())) {
+        info = info.toBuilder().status(Status.EXPIRED).build();
+      }
+      int id = identityRegistry.idOf(record.identity());
+      restored
+          .computeIfAbsent(
+              owners.get(EntryDiff.Key.of(record.identity())),
+              group -> CertificateSnapshot.builder())
+          .add(id, record.identity(), info);
+      publishMetrics(id, info);
+      notifier.restore(record.identity(), info);
+      thresholdScheduler.schedule(id, info.getNotAfter());
+    }
+
+    publishLock.lock();
+    try {
+      restored.forEach(
+          (group, rows) -> {
+            if (group.snapshot().isEmpty()) {
+              publish(group, rows.build());
+            }
+          });
+    } finally {
+      publishLock.unlock();
+    }
+    scanProgress.restored();
+    log.info("Restored {} certificates from the history log", records.size());
+  }
+
+  /**
+   * Applies the reloaded entries of every group. Only added and changed entries are loaded and only
+   * the certificates of removed entries are pruned; rows, metrics and cached certificates of
+   * unchanged entries are kept as they are. Groups that were added or removed take effect after a
+   * restart. Running scans are not waited for; they keep the reloaded rows when they publish.
+   */
+  public ReloadResult reload(CertificateConfig updated) {
+    var assigned = ScanGroup.assign(updated.allGroups());
+    Set<String> known = new HashSet<>();
+    for (ScanGroup group : groups) {
+      known.add(group.name());
+      if (!assigned.containsKey(group.name())) {
+        log.warn("Group {} was removed; it is scanned until the next restart", group.name());
+      }
+    }
+    for (String name : assigned.keySet()) {
+      if (!known.contains(name)) {
+        log.warn("Group {} was added; it is scanned after the next restart", name);
+      }
+    }
+
+    reloadLock.lock();
+    try {
+      shardAssignment.select(allEntries(assigned));
+      Map<ScanGroup, EntryDiff> diffs = new LinkedHashMap<>();
+      List<String> added = new ArrayList<>();
+      List<String> removed = new ArrayList<>();
+      List<String> changed = new ArrayList<>();
+      int unchanged = 0;
+      for (ScanGroup group : groups) {
+        List<CertificateConfig.CertificateEntry> entries = assigned.get(group.name());
+        if (entries == null) {
+          continue;
+        }
+        EntryDiff diff =
+            EntryDiff.between(
+                shardAssignment.owned(group.entries()), shardAssignment.owned(entries));
+        group.entries(entries);
+        ReloadResult result = diff.toResult();
+        added.addAll(result.added());
+        removed.addAll(result.removed());
+        changed.addAll(result.changed());
+        unchanged += result.unchanged();
+        if (!diff.isEmpty()) {
+          diffs.put(group, diff);
+        }
+      }
+      Map<ScanGroup, CertificateSnapshot> reloaded = new LinkedHashMap<>();
+      diffs.forEach((group, diff) -> reloaded.put(group, reload(group, diff)));
+      publishReloaded(reloaded, diffs);
+      if (added.isEmpty() && removed.isEmpty() && changed.isEmpty()) {
+        log.debug("Reloaded configuration has no changed entries");
+      } else {
+        log.info(
+            "Reloaded configuration: {} added, {} removed, {} changed, {} unchanged",
+            added.size(),
+            removed.size(),
+            changed.size(),
+            unchanged);
+      }
+      return new ReloadResult(added, removed, changed, unchanged);
+    } finally {
+      reloadLock.unlock();
+    }
+  }
+
+  /** Loads the added and changed entries of the group and returns its new rows. */
+  private CertificateSnapshot reload(ScanGroup group, EntryDiff diff) {
+    CertificateSnapshot existing = group.snapshot();
+    Map<EntryDiff.Key, List<Integer>> idsByEntry = new HashMap<>();
+    for (int row = 0; row < existing.size(); row++) {
+      int id = existing.idAt(row);
+      idsByEntry
+          .computeIfAbsent(EntryDiff.Key.of(existing.identityOf(id)), k -> new ArrayList<>())
+          .add(id);
+    }
+
+    List<CertificateConfig.CertificateEntry> toLoad =
+        diff.entries().stream().filter(entry -> !diff.isUnchanged(entry)).toList();
+    LoadPlan loads = LoadPlan.start(toLoad, sources, group.loadExecutor(), group.loadGuard());
+    List<PendingRevocation> revocations = new ArrayList<>();
+    CertificateSnapshot.Builder collected = existing.toBuilder();
+    for (var entry : diff.entries()) {
+      if (!diff.isUnchanged(entry)) {
+        collectEntry(entry, group, loads, existing, collected, revocations);
+        continue;
+      }
+      // Carry unchanged rows over once, even if the entry is configured more than once
+      List<Integer> ids = idsByEntry.remove(EntryDiff.Key.of(entry));
+      if (ids != null) {
+        ids.forEach(collected::keep);
+      }
+    }
+
+    resolveRevocations(revocations, existing, collected);
+    return collected.build();
+  }
+
+  /**
+   * Replaces the rows of the reloaded entries, applying all removals before any addition so the row
+   * of an entry moved to another group is kept, and prunes what is no longer served. The other rows
+   * are kept as published since the reload started, and a running scan keeps the reloaded rows.
+   */
+  private void publishReloaded(
+      Map<ScanGroup, CertificateSnapshot> loaded, Map<ScanGroup, EntryDiff> diffs) {
+    publishLock.lock();
+    try {
+      CertificateSnapshot before = certificateInfos.get();
+      CertificateSnapshot served = before;
+      Map<ScanGroup, CertificateSnapshot> reloaded = new LinkedHashMap<>();
+      for (var group : loaded.entrySet()) {
+        Set<EntryDiff.Key> touched = diffs.get(group.getKey()).touched();
+        reloaded.put(
+            group.getKey(), replaceEntries(group.getKey().snapshot(), group.getValue(), touched));
+        group.getKey().reloaded().addAll(touched);
+      }
+      Map<ScanGroup, CertificateSnapshot> retained = new LinkedHashMap<>();
+      for (var group : reloaded.entrySet()) {
+        CertificateSnapshot previous = group.getKey().snapshot();
+        CertificateSnapshot.Builder kept = previous.toBuilder();
+        for (int row = 0; row < previous.size(); row++) {
+          if (group.getValue().contains(previous.idAt(row))) {
+            kept.keep(previous.idAt(row));
+          }
+        }
+        retained.put(group.getKey(), kept.build());
+        served = served.merge(previous, retained.get(group.getKey()));
+      }
+      for (var group : reloaded.entrySet()) {
+        served = served.merge(retained.get(group.getKey()), group.getValue());
+        group.getKey().snapshot(group.getValue());
+      }
+      serve(served);
+      applyChanges(before, served, served);
+    } finally {
+      publishLock.unlock();
+    }
   }
 
   /** Return a snapshot of current certificate info. */
@@ -98,45 +610,147 @@ public class CertificateCollector {
     return certificateInfos.get();
   }
 
-  /** Return the timestamp of the last scan. */
-  public Instant getLastUpdateTime() {
-    return lastUpdateTime.get();
+  /** Return the current columnar snapshot. */
+  public CertificateSnapshot getSnapshot() {
+    return certificateInfos.get();
   }
 
-  /** Handle alias inside a keystore. */
-  private CertificateInfo processAlias(
-      CertificateConfig.CertificateEntry entry,
-      String alias,
-      KeyStore ks,
-      Map<CertificateIdentity, CertificateInfo> existing) {
-    try {
-      return processInfo(buildInfo(entry.path(), entry.type(), entry.name(), alias, ks), existing);
-    } catch (Exception e) {
-      return handleAliasError(entry.path(), entry.type(), entry.name(), alias, e, existing);
-    }
+  /**
+   * Returns the details of a served certificate, decoded on first request. Encodings evicted from
+   * the retained ones are read again from the source of an entry holding the certificate.
+   *
+   * @return the details, or null if the certificate is unknown
+   */
+  public CertificateDetails getDetails(String fingerprint) {
+    return details.details(fingerprint, this::reread);
   }
 
-  /** Publishes and logs changes for a collected certificate. */
-  private CertificateInfo processInfo(
-      CertificateInfo newInfo, Map<CertificateIdentity, CertificateInfo> existing) {
-    CertificateInfo oldInfo = existing.get(CertificateIdentity.from(newInfo));
+  /** Return the timestamp of the last scan. */
+  public Instant getLastUpdateTime() {
+    return lastUpdateTime.get();
+  }
 
-    if (oldInfo != null) {
-      if (!newInfo.equals(oldInfo)) {
+  /**
+   * Publishes and logs changes for a collected certificate and adds it to the snapshot.
+   *
+   * @return the identity id of the certificate
+   */
+  private int processInfo(
+      CertificateInfo newInfo,
+      CertificateSnapshot existing,
+      CertificateSnapshot.Builder collected) {
+    CertificateIdentity identity = CertificateIdentity.from(newInfo);
+    int id = identityRegistry.idOf(identity);
+    collected.add(id, identity, newInfo);
+    notifier.observe(identity, newInfo);
+    thresholdScheduler.schedule(id, newInfo.getNotAfter());
+    if (existing.contains(id)) {
+      if (!existing.sameState(id, newInfo)) {
         log.info(
             "Certificate {}:{} changed {} → {}",
             newInfo.getName(),
             newInfo.getAlias(),
-            oldInfo.getStatus(),
+            existing.statusOf(id),
             newInfo.getStatus());
-        publishMetrics(newInfo);
+        publishMetrics(id, newInfo);
+        historyLog.append(newInfo);
+      } else if (existing.chainOf(id) != newInfo.getChain()) {
+        if (existing.hasChain(id)) {
+          log.info(
+              "Chain of {}:{} changed {} → {}",
+              newInfo.getName(),
+              newInfo.getAlias(),
+              existing.chainOf(id),
+              newInfo.getChain());
+        }
+        publishMetrics(id, newInfo);
       }
-      return newInfo;
+      return id;
     }
 
     logNewCertificate(newInfo);
-    publishMetrics(newInfo);
-    return newInfo;
+    publishMetrics(id, newInfo);
+    historyLog.append(newInfo);
+    return id;
+  }
+
+  /**
+   * Applies the thresholds crossed since the last tick without a rescan: expired certificates get
+   * their status, and metrics and notifications are updated. Running scans are not waited for; they
+   * keep the expired status when they publish.
+   */
+  private void applyCrossings(List<ThresholdScheduler.Crossing> crossings) {
+    publishLock.lock();
+    try {
+      for (ScanGroup group : groups) {
+        applyCrossings(group, crossings);
+      }
+    } finally {
+      publishLock.unlock();
+    }
+  }
+
+  /** Applies the crossings of the certificates in the group. */
+  private void applyCrossings(ScanGroup group, List<ThresholdScheduler.Crossing> crossings) {
+    CertificateSnapshot snapshot = group.snapshot();
+    List<Integer> expired = new ArrayList<>();
+    for (var crossing : crossings) {
+      CertificateInfo info = snapshot.info(crossing.id());
+      if (info == null) {
+        continue;
+      }
+      if (crossing.threshold() == ThresholdScheduler.Threshold.EXPIRY
+          && info.getStatus() == Status.VALID) {
+        info = info.toBuilder().status(Status.EXPIRED).build();
+        expired.add(crossing.id());
+        log.info("Certificate {}:{} expired", info.getName(), info.getAlias());
+        historyLog.append(info);
+      }
+      publishMetrics(crossing.id(), info);
+      notifier.observe(snapshot.identityOf(crossing.id()), info);
+    }
+    if (!expired.isEmpty()) {
+      group.expired().addAll(expired);
+      publish(
+          group,
+          snapshot.withStatus(
+              expired.stream().mapToInt(Integer::intValue).toArray(), Status.EXPIRED));
+    }
+  }
+
+  /** Checks the revocation status of the collected certificates and adds it to their rows. */
+  private void resolveRevocations(
+      List<PendingRevocation> pending,
+      CertificateSnapshot existing,
+      CertificateSnapshot.Builder collected) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<RevocationStatus> statuses =
+        revocationChecker.check(pending.stream().map(PendingRevocation::check).toList());
+    for (int i = 0; i < pending.size(); i++) {
+      PendingRevocation revocation = pending.get(i);
+      RevocationStatus status = statuses.get(i);
+      collected.revocation(revocation.id(), status);
+
+      RevocationStatus previous =
+          existing.contains(revocation.id()) ? existing.revocationOf(revocation.id()) : null;
+      if (status == previous) {
+        continue;
+      }
+      CertificateInfo info = revocation.info();
+      if (status == RevocationStatus.REVOKED) {
+        log.warn("Certificate {}:{} is revoked", info.getName(), info.getAlias());
+      } else if (previous != null) {
+        log.info(
+            "Revocation of {}:{} changed {} → {}",
+            info.getName(),
+            info.getAlias(),
+            previous,
+            status);
+      }
+      publishMetrics(revocation.id(), info.toBuilder().revocation(status).build());
+    }
   }
 
   private void logNewCertificate(CertificateInfo info) {
@@ -152,17 +766,18 @@ public class CertificateCollector {
   }
 
   private CertificateInfo buildInfoFromCert(
-      CertificateConfig.CertificateEntry entry, String alias, X509Certificate cert) {
+      CertificateConfig.CertificateEntry entry, String alias, ParsedCertificate cert) {
     return buildInfoFromCert(entry.path(), entry.type(), entry.name(), alias, cert);
   }
 
-  /** Extracts X509 info from a single certificate. */
+  /** Builds certificate info from the extracted fields of a single certificate. */
   private CertificateInfo buildInfoFromCert(
-      String path, String type, String name, String alias, X509Certificate cert) {
-    Instant nb = cert.getNotBefore().toInstant();
-    Instant na = cert.getNotAfter().toInstant();
+      String path, String type, String name, String alias, ParsedCertificate cert) {
+    Instant na = cert.notAfter();
     Status status = Instant.now().isAfter(na) ? Status.EXPIRED : Status.VALID;
-    File f = new File(path);
+    // Archive entries name the archive before "!/" and the glob of the inner paths after it
+    int archiveEnd = path.indexOf("!/");
+    File f = new File(archiveEnd >= 0 ? path.substring(0, archiveEnd) : path);
     String fileName = f.getName();
 
     return CertificateInfo.builder()
@@ -171,37 +786,23 @@ public class CertificateCollector {
         .name(name)
         .type(type)
         .alias(alias)
-        .subject(cert.getSubjectX500Principal().getName())
-        .notBefore(nb)
+        .subject(cert.subject())
+        .issuer(cert.issuer())
+        .subjectAltNames(cert.subjectAltNames())
+        .notBefore(cert.notBefore())
         .notAfter(na)
         .status(status)
+        .fingerprint(cert.fingerprint())
         .build();
   }
 
-  /** Extracts X509 info from a keystore alias. */
-  private CertificateInfo buildInfo(
-      String path, String type, String name, String alias, KeyStore ks) throws Exception {
-    X509Certificate cert = (X509Certificate) ks.getCertificate(alias);
-    if (cert == null) {
-      return CertificateInfo.builder()
-          .path(path)
-          .name(name)
-          .type(type)
-          .alias(alias)
-          .subject("certificate is missing")
-          .notBefore(null)
-          .notAfter(null)
-          .status(Status.INVALID)
-          .build();
-    }
-    return buildInfoFromCert(path, type, name, alias, cert);
-  }
-
   /** Publishes metrics for a certificate. */
-  private void publishMetrics(CertificateInfo info) {
+  private void publishMetrics(int id, CertificateInfo info) {
     try {
-      metricsPublisher.publishExpiration(info);
-      metricsPublisher.publishValidity(info, info.getStatus() == Status.VALID);
+      metricsPublisher.publishExpiration(id, info);
+      metricsPublisher.publishValidity(id, info, info.getStatus() == Status.VALID);
+      metricsPublisher.publishChain(id, info);
+      metricsPublisher.publishRevocation(id, info);
     } catch (RuntimeException e) {
       log.warn(
           "Failed to publish metrics for {}:{}: {}",
@@ -212,13 +813,14 @@ public class CertificateCollector {
   }
 
   /** Handles alias-level load/parse errors. */
-  private CertificateInfo handleAliasError(
+  private void handleAliasError(
       String path,
       String type,
       String name,
       String alias,
       Exception e,
-      Map<CertificateIdentity, CertificateInfo> existing) {
+      CertificateSnapshot existing,
+      CertificateSnapshot.Builder collected) {
     var errInfo =
         CertificateInfo.builder()
             .path(path)
@@ -228,33 +830,84 @@ public class CertificateCollector {
             .subject(e.getMessage())
             .status(Status.INVALID)
             .build();
-    publishMetrics(errInfo);
+    CertificateIdentity identity = new CertificateIdentity(path, type, name, alias);
+    int id = identityRegistry.idOf(identity);
+    collected.add(id, identity, errInfo);
+    publishMetrics(id, errInfo);
+    notifier.observe(identity, errInfo);
+    thresholdScheduler.cancel(id);
 
-    CertificateInfo oldInfo = existing.get(new CertificateIdentity(path, type, name, alias));
-    if (oldInfo != null) {
-      if (!errInfo.equals(oldInfo)) {
+    if (existing.contains(id)) {
+      if (!existing.sameState(id, errInfo)) {
         log.warn("Error for {}:{} changed {}", name, alias, e.getMessage());
+        historyLog.append(errInfo);
       }
-      return errInfo;
+      return;
     }
     log.error("Error loading {}:{} {}", name, alias, e.getMessage());
-    return errInfo;
+    historyLog.append(errInfo);
   }
 
-  /** Handles total keystore load failure. */
-  private CertificateInfo handleLoadError(
+  /** Handles a failure to load the whole entry. */
+  private void handleLoadError(
       CertificateConfig.CertificateEntry entry,
       Exception e,
-      Map<CertificateIdentity, CertificateInfo> existing) {
-    return handleAliasError(entry.path(), entry.type(), entry.name(), "unknown", e, existing);
+      CertificateSnapshot existing,
+      CertificateSnapshot.Builder collected) {
+    handleAliasError(entry.path(), entry.type(), entry.name(), "unknown", e, existing, collected);
   }
 
-  /** Builds a lookup of previously collected certificates. */
-  private Map<CertificateIdentity, CertificateInfo> indexByIdentity(List<CertificateInfo> infos) {
-    Map<CertificateIdentity, CertificateInfo> index = new HashMap<>();
-    for (CertificateInfo info : infos) {
-      index.put(CertificateIdentity.from(info), info);
+  /**
+   * Prunes the metrics of the rows that changed between two snapshots and releases the ids of the
+   * removed ones that are no longer served. Only the changed parts of the snapshots are visited.
+   */
+  private void applyChanges(
+      CertificateSnapshot previous, CertificateSnapshot current, CertificateSnapshot served) {
+    MetricsPublishEvent event = new MetricsPublishEvent();
+    event.begin();
+    int[] counts = new int[3];
+    current.diff(
+        previous,
+        new CertificateSnapshot.Changes() {
+          @Override
+          public void added(int id) {
+            counts[0]++;
+            metricsPublisher.prune(id, served);
+          }
+
+          @Override
+          public void changed(int id) {
+            counts[1]++;
+            metricsPublisher.prune(id, served);
+          }
+
+          @Override
+          public void removed(int id) {
+            counts[2]++;
+            metricsPublisher.prune(id, served);
+            if (!served.contains(id)) {
+              notifier.forget(previous.identityOf(id));
+              thresholdScheduler.cancel(id);
+              identityRegistry.release(id);
+            }
+          }
+        });
+    event.end();
+    if (event.shouldCommit()) {
+      event.certificates = served.size();
+      event.added = counts[0];
+      event.changed = counts[1];
+      event.removed = counts[2];
+      event.commit();
     }
-    return index;
+    log.debug("{} certificates added, {} changed, {} removed", counts[0], counts[1], counts[2]);
   }
+
+  private static List<CertificateConfig.CertificateEntry> allEntries(
+      Map<String, List<CertificateConfig.CertificateEntry>> assigned) {
+    return assigned.values().stream().flatMap(List::stream).toList();
+  }
+
+  /** A collected certificate whose row awaits its revocation status. */
+  private record PendingRevocation(int id, CertificateInfo info, RevocationCheck check) {}
 }
@@ -0,0 +1,191 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.utils.Fingerprints;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-reads the configuration files when they change (or on request) and applies the new lists of
+ * certificate entries of every group to the {@link CertificateCollector}.
+ *
+ * <p>The files are re-read into a copy of the environment's property sources, so environment
+ * variables and command line arguments keep their precedence and a broken file leaves the running
+ * configuration untouched. Files are compared by content digest, which also detects Kubernetes
+ * ConfigMap updates that swap symlinks without touching modification times.
+ */
+@Component
+public class ConfigReloader {
+
+  private static final Logger log = LoggerFactory.getLogger(ConfigReloader.class);
+
+  private final ConfigurableEnvironment environment;
+  private final Validator validator;
+  private final CertificateCollector collector;
+  private final CertificateConfig.Reload settings;
+  private final YamlPropertySourceLoader yamlLoader = new YamlPropertySourceLoader();
+
+  /** Last seen content digest per watched file; empty for missing files. */
+  private final Map<Path, String> digests = new HashMap<>();
+
+  /** Construct a ConfigReloader and record the current state of the watched files. */
+  public ConfigReloader(
+      CertificateConfig config,
+      ConfigurableEnvironment environment,
+      Validator validator,
+      CertificateCollector collector) {
+    this.environment = environment;
+    this.validator = validator;
+    this.collector = collector;
+    this.settings = config.reload();
+    for (String file : settings.files()) {
+      Path path = Paths.get(file);
+      digests.put(path, digest(path));
+    }
+  }
+
+  /** Reloads the configuration if one of the watched files changed. */
+  @Scheduled(
+      fixedDelayString = "${certalert.reload.poll-interval:10s}",
+      initialDelayString = "${certalert.reload.poll-interval:10s}")
+  public void pollConfigFiles() {
+    if (!settings.enabled() || !filesChanged()) {
+      return;
+    }
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.warn("Configuration reload failed; keeping current entries: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Re-reads the watched files and applies the certificate entries.
+   *
+   * @throws IllegalArgumentException if the configuration cannot be read or is invalid
+   */
+  public synchronized ReloadResult reload() {
+    filesChanged();
+    CertificateConfig updated = bind();
+    return collector.reload(updated);
+  }
+
+  /** Binds the certalert properties from the current environment with the files re-read. */
+  CertificateConfig bind() {
+    MutablePropertySources sources = new MutablePropertySources(environment.getPropertySources());
+    for (String file : settings.files()) {
+      replaceFileSource(sources, file);
+    }
+
+    CertificateConfig updated =
+        new Binder(
+                ConfigurationPropertySources.from(sources),
+                new PropertySourcesPlaceholdersResolver(sources))
+            .bindOrCreate("certalert", CertificateConfig.class);
+
+    Set<ConstraintViolation<CertificateConfig>> violations = validator.validate(updated);
+    if (!violations.isEmpty()) {
+      throw new IllegalArgumentException(
+          violations.stream()
+              .map(v -> v.getPropertyPath() + " " + v.getMessage())
+              .collect(Collectors.joining(", ")));
+    }
+    return updated;
+  }
+
+  /** Replaces the property sources loaded from the file with its current content. */
+  private void replaceFileSource(MutablePropertySources sources, String file) {
+    String marker = "file [" + file + "]";
+    String anchor = null;
+    for (PropertySource<?> source : sources.stream().toList()) {
+      if (source.getName().contains(marker)) {
+        if (anchor == null) {
+          anchor = source.getName();
+        } else {
+          sources.remove(source.getName());
+        }
+      }
+    }
+
+    List<PropertySource<?>> loaded = load(file);
+    if (anchor != null) {
+      for (PropertySource<?> source : loaded) {
+        sources.addBefore(anchor, source);
+      }
+      sources.remove(anchor);
+      return;
+    }
+
+    // Imported files rank above the application configuration they are imported from
+    String firstConfig =
+        sources.stream()
+            .map(PropertySource::getName)
+            .filter(name -> name.startsWith("Config resource"))
+            .findFirst()
+            .orElse(null);
+    for (PropertySource<?> source : loaded) {
+      if (firstConfig != null) {
+        sources.addBefore(firstConfig, source);
+      } else {
+        sources.addLast(source);
+      }
+    }
+  }
+
+  private List<PropertySource<?>> load(String file) {
+    Path path = Paths.get(file);
+    if (!Files.isRegularFile(path)) {
+      return List.of();
+    }
+    try {
+      return yamlLoader.load(
+          "Reloaded config resource 'file [" + file + "]'", new FileSystemResource(path));
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot read " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  /** Updates the recorded digests and returns whether any watched file changed. */
+  private synchronized boolean filesChanged() {
+    boolean changed = false;
+    for (var entry : digests.entrySet()) {
+      String current = digest(entry.getKey());
+      if (!current.equals(entry.getValue())) {
+        log.info("Configuration file {} changed", entry.getKey());
+        entry.setValue(current);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private static String digest(Path path) {
+    try {
+      return Files.isRegularFile(path) ? Fingerprints.sha256(Files.readAllBytes(path)) : "";
+    } catch (IOException e) {
+      log.warn("Cannot read configuration file {}: {}", path, e.getMessage());
+      return "";
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateDetails;
+import ch.tkb.certalert.utils.CertificateLoader;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retains the DER encodings of scanned certificates within a heap budget and decodes their details
+ * on request.
+ *
+ * <p>Encodings are retained when a certificate is first decoded by a scan and evicted least
+ * recently used first once the budget is exceeded. Details of an evicted certificate are decoded
+ * from an encoding read again from its source. Decoded details are cached for repeated requests.
+ */
+final class DetailsCache {
+
+  private static final Logger log = LoggerFactory.getLogger(DetailsCache.class);
+
+  private final Cache<String, byte[]> encoded;
+  private final Cache<String, CertificateDetails> decoded;
+
+  DetailsCache(CertificateConfig.Details config) {
+    // One segment, so the budget is not split; encodings are only added on the first decode
+    this.encoded =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(config.retainedSize().toBytes())
+            .<String, byte[]>weigher((fingerprint, der) -> der.length)
+            .build();
+    this.decoded = CacheBuilder.newBuilder().maximumSize(config.decodedEntries()).build();
+  }
+
+  /** Retains the DER encoding of a certificate unless it is retained already. */
+  void retain(String fingerprint, byte[] der) {
+    encoded.asMap().putIfAbsent(fingerprint, der);
+  }
+
+  /**
+   * Returns the details of the certificate with the fingerprint, decoding them from the retained
+   * encoding or from the one returned by {@code reread}.
+   *
+   * @param reread reads the encoding from the source; returns null if the certificate is unknown
+   * @return the details, or null if the certificate is neither retained nor found by reread
+   */
+  CertificateDetails details(String fingerprint, Function<String, byte[]> reread) {
+    CertificateDetails details = decoded.getIfPresent(fingerprint);
+    if (details != null) {
+      return details;
+    }
+    byte[] der = encoded.getIfPresent(fingerprint);
+    if (der == null) {
+      der = reread.apply(fingerprint);
+      if (der == null) {
+        return null;
+      }
+      retain(fingerprint, der);
+    }
+    try {
+      details = CertificateDetails.of(fingerprint, CertificateLoader.decode(der));
+    } catch (Exception e) {
+      log.warn("Failed to decode details of {}: {}", fingerprint, e.getMessage());
+      return null;
+    }
+    decoded.put(fingerprint, details);
+    return details;
+  }
+
+  /** Returns the number of retained encodings. */
+  long retained() {
+    return encoded.size();
+  }
+}
@@ -0,0 +1,100 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.model.CertificateIdentity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Difference between two lists of configured entries.
+ *
+ * <p>Entries are matched by path, type and name. A matched entry whose other settings (e.g. the
+ * password) differ is reported as changed.
+ */
+record EntryDiff(
+    List<CertificateEntry> entries, // Entries of the new list, in configuration order
+    List<CertificateEntry> added, // Entries only present in the new list
+    List<CertificateEntry> removed, // Entries only present in the old list
+    List<CertificateEntry> changed, // Matched entries with different settings
+    Set<Key> unchanged // Keys of matched entries with equal settings
+    ) {
+
+  /** Computes the difference from the previous to the updated entries. */
+  static EntryDiff between(List<CertificateEntry> previous, List<CertificateEntry> updated) {
+    Map<Key, CertificateEntry> before = index(previous);
+    Map<Key, CertificateEntry> after = index(updated);
+
+    List<CertificateEntry> added = new ArrayList<>();
+    List<CertificateEntry> changed = new ArrayList<>();
+    Set<Key> unchanged = new HashSet<>();
+    for (var entry : after.entrySet()) {
+      CertificateEntry old = before.get(entry.getKey());
+      if (old == null) {
+        added.add(entry.getValue());
+      } else if (old.equals(entry.getValue())) {
+        unchanged.add(entry.getKey());
+      } else {
+        changed.add(entry.getValue());
+      }
+    }
+
+    List<CertificateEntry> removed = new ArrayList<>();
+    for (var entry : before.entrySet()) {
+      if (!after.containsKey(entry.getKey())) {
+        removed.add(entry.getValue());
+      }
+    }
+    return new EntryDiff(List.copyOf(updated), added, removed, changed, unchanged);
+  }
+
+  /** Returns whether the lists describe the same entries. */
+  boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+  }
+
+  /** Returns the keys of the added, removed and changed entries. */
+  Set<Key> touched() {
+    Set<Key> touched = new HashSet<>();
+    for (List<CertificateEntry> entries : List.of(added, removed, changed)) {
+      entries.forEach(entry -> touched.add(Key.of(entry)));
+    }
+    return touched;
+  }
+
+  /** Returns whether the entry was configured before with the same settings. */
+  boolean isUnchanged(CertificateEntry entry) {
+    return unchanged.contains(Key.of(entry));
+  }
+
+  /** Summarizes the difference by entry name. */
+  ReloadResult toResult() {
+    return new ReloadResult(names(added), names(removed), names(changed), unchanged.size());
+  }
+
+  private static Map<Key, CertificateEntry> index(List<CertificateEntry> entries) {
+    Map<Key, CertificateEntry> index = new LinkedHashMap<>();
+    for (var entry : entries) {
+      index.putIfAbsent(Key.of(entry), entry);
+    }
+    return index;
+  }
+
+  private static List<String> names(List<CertificateEntry> entries) {
+    return entries.stream().map(CertificateEntry::name).toList();
+  }
+
+  /** Identifies a configured entry independent of its aliases. */
+  record Key(String path, String type, String name) {
+    static Key of(CertificateEntry entry) {
+      return new Key(entry.path(), entry.type(), entry.name());
+    }
+
+    static Key of(CertificateIdentity identity) {
+      return new Key(identity.path(), identity.type(), identity.name());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared I/O budget of the loads that read files, across all scan groups.
+ *
+ * <p>Loads wait for their turn under the files-per-second limit and for the bytes read by earlier
+ * loads to be paid off under the bytes-per-second limit, then take one of the open-file slots. The
+ * size of a file is only known once it is read, so concurrent loads may exceed the byte rate for a
+ * moment; on average they stay within it. The bytes and files read are exported as counters, so the
+ * read rate can be graphed regardless of the limits.
+ */
+@Component
+public class IoBudget {
+
+  private final CertificateConfig.Pacing settings;
+  private final Semaphore openFiles; // null if unlimited
+  private final AtomicInteger open = new AtomicInteger();
+  private final Counter bytesRead;
+  private final Counter filesRead;
+
+  private long filesFreeAt; // nanoTime from which the next load may start; guarded by this
+  private long bytesFreeAt; // nanoTime at which the bytes read so far are paid off; guarded by this
+
+  public IoBudget(CertificateConfig config, MeterRegistry meterRegistry) {
+    this.settings = config.pacing();
+    this.openFiles =
+        settings.maxOpenFiles() != null ? new Semaphore(settings.maxOpenFiles()) : null;
+    this.bytesRead =
+        Counter.builder("certalert_io_read_bytes_total")
+            .description("Bytes read by loads of files")
+            .register(meterRegistry);
+    this.filesRead =
+        Counter.builder("certalert_io_read_files_total")
+            .description("Loads of files that completed")
+            .register(meterRegistry);
+    Gauge.builder("certalert_io_open_files", open, AtomicInteger::get)
+        .description("Loads of files in flight")
+        .register(meterRegistry);
+    long now = System.nanoTime();
+    this.filesFreeAt = now;
+    this.bytesFreeAt = now;
+  }
+
+  /** Returns the pacing settings. */
+  public CertificateConfig.Pacing settings() {
+    return settings;
+  }
+
+  /** Waits until a load fits the rate limits and takes an open-file slot. */
+  void acquire() throws InterruptedException {
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      long start = Math.max(now, Math.max(filesFreeAt, bytesFreeAt));
+      if (settings.filesPerSecond() != null) {
+        filesFreeAt = start + (long) (TimeUnit.SECONDS.toNanos(1) / settings.filesPerSecond());
+      }
+      wait = start - now;
+    }
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+    if (openFiles != null) {
+      openFiles.acquire();
+    }
+    open.incrementAndGet();
+  }
+
+  /** Returns the open-file slot taken by {@link #acquire()}. */
+  void release() {
+    open.decrementAndGet();
+    if (openFiles != null) {
+      openFiles.release();
+    }
+  }
+
+  /** Counts a completed load and charges its bytes against the byte rate. */
+  void read(long bytes) {
+    bytesRead.increment(bytes);
+    filesRead.increment();
+    if (settings.bytesPerSecond() != null) {
+      synchronized (this) {
+        long cost = (long) (bytes * 1e9 / settings.bytesPerSecond().toBytes());
+        bytesFreeAt = Math.max(System.nanoTime(), bytesFreeAt) + cost;
+      }
+    }
+  }
+
+  /**
+   * Returns how long loading the given number of files and bytes takes at least under the limits.
+   */
+  Duration minimumDuration(long files, long bytes) {
+    double seconds = 0;
+    if (settings.filesPerSecond() != null) {
+      seconds = files / settings.filesPerSecond();
+    }
+    if (settings.bytesPerSecond() != null) {
+      seconds = Math.max(seconds, (double) bytes / settings.bytesPerSecond().toBytes());
+    }
+    return Duration.ofNanos((long) (seconds * 1e9));
+  }
+}
@@ -0,0 +1,356 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.collector.LoadPlan.LoadKey;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.jfr.EntryLoadEvent;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.FileFingerprint;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs entry loads with a deadline, a bulkhead per source and a circuit breaker per entry.
+ *
+ * <ul>
+ *   <li>Every load runs on the executor and is given up after the timeout, so a hung mount stalls
+ *       one entry rather than the whole scan. The worker is interrupted but may stay blocked.
+ *   <li>At most {@code bulkhead} loads of a source are in flight. Timed out loads keep their permit
+ *       until they return, so a hung source cannot take over the executor.
+ *   <li>With a concurrency limit, at most that many loads of all sources are in flight; further
+ *       loads wait for a slot within their deadline.
+ *   <li>After {@code failureThreshold} consecutive failures an entry is skipped with exponential
+ *       backoff and reports its last error instead.
+ *   <li>A failed entry whose file still has the same fingerprint is not loaded again; the last
+ *       error is reported until the file changes.
+ *   <li>With an {@link IoBudget}, loads of sources that read files first wait for the shared rate
+ *       limits and an open-file slot; the wait does not count against the deadline.
+ * </ul>
+ *
+ * Thread-safe.
+ */
+final class LoadGuard {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadGuard.class);
+
+  /** Separates an archive from the path of its entries. */
+  private static final String NESTED_SEPARATOR = "!/";
+
+  private final Executor executor;
+  private final Duration timeout;
+  private final int bulkhead;
+  private final int failureThreshold;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final Semaphore slots; // null if the concurrency is unlimited
+  private final IoBudget budget; // null if the I/O is unlimited
+  private final ConcurrentMap<CertificateSource, Semaphore> bulkheads = new ConcurrentHashMap<>();
+  private final ConcurrentMap<LoadKey, Health> health = new ConcurrentHashMap<>();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder cycleFiles = new LongAdder();
+  private final LongAdder cycleBytes = new LongAdder();
+  private volatile Duration minimumCycle = Duration.ZERO;
+
+  /** Creates a guard running the loads on the given executor. */
+  LoadGuard(Executor executor, CertificateConfig.Loading settings) {
+    this(executor, settings, null);
+  }
+
+  /** Creates a guard running at most {@code concurrency} loads at a time; null is unlimited. */
+  LoadGuard(Executor executor, CertificateConfig.Loading settings, Integer concurrency) {
+    this(executor, settings, concurrency, null);
+  }
+
+  /** Creates a guard whose loads of files are paced by the budget; null is unlimited. */
+  LoadGuard(
+      Executor executor, CertificateConfig.Loading settings, Integer concurrency, IoBudget budget) {
+    this.executor = executor;
+    this.slots = concurrency != null ? new Semaphore(concurrency) : null;
+    this.budget = budget;
+    this.timeout = settings.timeout();
+    this.bulkhead = settings.bulkhead();
+    this.failureThreshold = settings.failureThreshold();
+    this.initialBackoff = settings.initialBackoff();
+    this.maxBackoff = settings.maxBackoff();
+  }
+
+  /**
+   * Loads the entry with the given source, or reports the last error of an entry that is skipped.
+   *
+   * @throws TimeoutException if the load does not finish in time
+   * @throws RejectedExecutionException if the bulkhead of the source is full
+   * @throws Exception if the source fails to load the entry
+   */
+  List<LoadedCertificate> load(CertificateSource source, CertificateEntry entry) throws Exception {
+    EntryLoadEvent event = new EntryLoadEvent();
+    event.begin();
+    Health state = health.computeIfAbsent(LoadKey.of(entry), key -> new Health());
+    Exception open = state.open(System.nanoTime(), failureThreshold);
+    if (open != null) {
+      skipped.increment();
+      commit(event, entry, EntryLoadEvent.SKIPPED, 0, 0);
+      throw open;
+    }
+
+    boolean budgeted = budget != null && source.readsFiles();
+    if (budgeted) {
+      budget.acquire();
+    }
+    FutureTask<List<LoadedCertificate>> task =
+        new FutureTask<>(() -> attempt(source, entry, state, budgeted));
+    long deadline;
+    boolean started = false;
+    try {
+      Semaphore permits =
+          bulkheads.computeIfAbsent(
+              source, s -> new Semaphore(Math.max(bulkhead, s.maxConcurrency())));
+      if (!permits.tryAcquire()) {
+        commit(event, entry, EntryLoadEvent.REJECTED, 0, 0);
+        throw new RejectedExecutionException(
+            "Too many loads of " + source.getClass().getSimpleName() + " in flight");
+      }
+      deadline = System.nanoTime() + timeout.toNanos();
+      if (slots != null && !acquireSlot(permits, deadline)) {
+        commit(event, entry, EntryLoadEvent.TIMED_OUT, 0, 0);
+        throw new TimeoutException("No load slot became free within " + timeout);
+      }
+      try {
+        executor.execute(
+            () -> {
+              try {
+                task.run();
+              } finally {
+                release(permits, budgeted);
+              }
+            });
+        started = true;
+      } catch (RejectedExecutionException e) {
+        release(permits, false);
+        commit(event, entry, EntryLoadEvent.REJECTED, 0, 0);
+        throw e;
+      }
+    } finally {
+      if (budgeted && !started) {
+        budget.release();
+      }
+    }
+
+    try {
+      return task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    } catch (TimeoutException e) {
+      task.cancel(true);
+      commit(event, entry, EntryLoadEvent.TIMED_OUT, 0, 0);
+      TimeoutException error =
+          new TimeoutException("Load of " + entry.path() + " did not finish within " + timeout);
+      failed(state, entry, error, null);
+      throw error;
+    } catch (InterruptedException e) {
+      task.cancel(true);
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for a free slot until the deadline and releases the permit of the source if none becomes
+   * free. Timed out loads keep their slot until they return.
+   */
+  private boolean acquireSlot(Semaphore permits, long deadline) throws InterruptedException {
+    boolean acquired = false;
+    try {
+      acquired = slots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      return acquired;
+    } finally {
+      if (!acquired) {
+        permits.release();
+      }
+    }
+  }
+
+  private void release(Semaphore permits, boolean budgeted) {
+    permits.release();
+    if (slots != null) {
+      slots.release();
+    }
+    if (budgeted) {
+      budget.release();
+    }
+  }
+
+  /**
+   * Forgets entries that were not loaded since the last call, logs the skipped loads and updates
+   * the {@link #minimumCycle()}.
+   */
+  void endCycle() {
+    health.values().removeIf(state -> !state.touch());
+    long files = cycleFiles.sumThenReset();
+    long bytes = cycleBytes.sumThenReset();
+    minimumCycle = budget != null ? budget.minimumDuration(files, bytes) : Duration.ZERO;
+    log.debug(
+        "Load guard: {} failing entries, {} loads skipped", health.size(), skipped.sumThenReset());
+  }
+
+  /** Returns how long the files read in the last cycle take at least to read under the budget. */
+  Duration minimumCycle() {
+    return minimumCycle;
+  }
+
+  /** Returns the number of entries with failed loads. */
+  int failing() {
+    return (int) health.values().stream().filter(Health::isFailing).count();
+  }
+
+  /** Loads the entry on a worker, unless its file is unchanged since the last failure. */
+  private List<LoadedCertificate> attempt(
+      CertificateSource source, CertificateEntry entry, Health state, boolean budgeted)
+      throws Exception {
+    EntryLoadEvent event = new EntryLoadEvent();
+    event.begin();
+    FileFingerprint fingerprint = fingerprintOf(entry.path());
+    long fileSize = fingerprint != null ? fingerprint.size() : 0;
+    Exception known = state.knownFailure(fingerprint);
+    if (known != null) {
+      skipped.increment();
+      commit(event, entry, EntryLoadEvent.KNOWN_FAILURE, 0, 0);
+      throw known;
+    }
+    try {
+      List<LoadedCertificate> loaded = source.load(entry);
+      state.succeeded();
+      long bytes = fingerprint != null ? fileSize : encodedSize(loaded);
+      if (budgeted) {
+        budget.read(bytes);
+        cycleFiles.increment();
+        cycleBytes.add(bytes);
+      }
+      commit(event, entry, EntryLoadEvent.LOADED, bytes, loaded.size());
+      return loaded;
+    } catch (Exception e) {
+      failed(state, entry, e, fingerprint);
+      commit(event, entry, EntryLoadEvent.FAILED, fileSize, 0);
+      throw e;
+    }
+  }
+
+  /**
+   * Records the outcome of a load. Loads run in {@link #attempt} record themselves on the worker;
+   * {@link #load} records the ones that never got there or were given up.
+   */
+  private static void commit(
+      EntryLoadEvent event, CertificateEntry entry, String outcome, long bytes, int aliases) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.name = entry.name();
+      event.type = entry.type();
+      event.path = entry.path();
+      event.bytes = bytes;
+      event.aliases = aliases;
+      event.outcome = outcome;
+      event.commit();
+    }
+  }
+
+  private static long encodedSize(List<LoadedCertificate> loaded) {
+    long bytes = 0;
+    for (LoadedCertificate certificate : loaded) {
+      bytes += certificate.der() != null ? certificate.der().length : 0;
+    }
+    return bytes;
+  }
+
+  private void failed(Health state, CertificateEntry entry, Exception error, FileFingerprint file) {
+    int failures = state.failed(error, file);
+    if (failures < failureThreshold) {
+      return;
+    }
+    int doublings = Math.min(failures - failureThreshold, 30);
+    Duration backoff = initialBackoff.multipliedBy(1L << doublings);
+    if (backoff.compareTo(maxBackoff) > 0) {
+      backoff = maxBackoff;
+    }
+    state.retryAfter(System.nanoTime() + backoff.toNanos());
+    log.warn(
+        "Loading {}:{} failed {} times in a row; skipping it for {}",
+        entry.name(),
+        entry.path(),
+        failures,
+        backoff);
+  }
+
+  /** Returns the fingerprint of the local file behind a path, or null if there is none. */
+  private static FileFingerprint fingerprintOf(String path) {
+    int nested = path.indexOf(NESTED_SEPARATOR);
+    try {
+      Path file = Paths.get(nested >= 0 ? path.substring(0, nested) : path);
+      return Files.isRegularFile(file) ? FileFingerprint.of(file) : null;
+    } catch (InvalidPathException | IOException e) {
+      return null;
+    }
+  }
+
+  /** Failure state of one load key. */
+  private static final class Health {
+    private int failures; // consecutive failures
+    private long retryAt; // nanoTime before which the entry is skipped
+    private Exception error; // last failure
+    private FileFingerprint fingerprint; // file at the last failure; null if unknown
+    private boolean used = true; // loaded since the last endCycle
+
+    /** Returns the last error while the entry is skipped, otherwise null. */
+    synchronized Exception open(long now, int threshold) {
+      used = true;
+      return failures >= threshold && retryAt - now > 0 ? error : null;
+    }
+
+    /** Returns the last error if the file has not changed since it occurred, otherwise null. */
+    synchronized Exception knownFailure(FileFingerprint current) {
+      return error != null && fingerprint != null && fingerprint.equals(current) ? error : null;
+    }
+
+    synchronized int failed(Exception error, FileFingerprint fingerprint) {
+      this.error = error;
+      this.fingerprint = fingerprint;
+      return ++failures;
+    }
+
+    synchronized void retryAfter(long retryAt) {
+      this.retryAt = retryAt;
+    }
+
+    synchronized void succeeded() {
+      failures = 0;
+      error = null;
+      fingerprint = null;
+    }
+
+    synchronized boolean isFailing() {
+      return error != null;
+    }
+
+    /** Returns whether the entry was used since the last call and resets the flag. */
+    synchronized boolean touch() {
+      boolean wasUsed = used;
+      used = false;
+      return wasUsed;
+    }
+  }
+}
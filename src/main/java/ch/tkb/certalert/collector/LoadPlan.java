@@ -0,0 +1,201 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.SourceRegistry;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the loads of one scan according to the cost hints of their sources.
+ *
+ * <ul>
+ *   <li>Batch sources receive all of their entries up front through {@link
+ *       CertificateSource#prepare(List)}.
+ *   <li>Loads of expensive sources start immediately on the executor, with at most {@link
+ *       CertificateSource#maxConcurrency()} loads per source running at a time.
+ *   <li>Loads of cheap sources run inline when their entry is collected.
+ * </ul>
+ *
+ * Entries sharing path, type, password and SNI are loaded once and share the result (or failure).
+ * Every load goes through the {@link LoadGuard}, which bounds its duration and skips failing
+ * entries. With a window, the loads of cheap and expensive sources are spread evenly across it. Not
+ * thread-safe; {@link #load(CertificateEntry)} is called from the scan thread only.
+ */
+final class LoadPlan {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadPlan.class);
+
+  private final SourceRegistry sources;
+  private final LoadGuard guard;
+  private final Pacer pacer;
+  private final Map<LoadKey, CompletableFuture<List<LoadedCertificate>>> parallel = new HashMap<>();
+  private final Map<LoadKey, LoadResult> inline = new HashMap<>();
+
+  private LoadPlan(SourceRegistry sources, LoadGuard guard, Pacer pacer) {
+    this.sources = sources;
+    this.guard = guard;
+    this.pacer = pacer;
+  }
+
+  /** Prepares batch sources and starts the loads of expensive sources for the entries. */
+  static LoadPlan start(
+      List<CertificateEntry> entries, SourceRegistry sources, Executor executor, LoadGuard guard) {
+    return start(entries, sources, executor, guard, Duration.ZERO);
+  }
+
+  /**
+   * Prepares batch sources and starts the loads of expensive sources for the entries, spreading the
+   * loads that are not batched across the window.
+   */
+  static LoadPlan start(
+      List<CertificateEntry> entries,
+      SourceRegistry sources,
+      Executor executor,
+      LoadGuard guard,
+      Duration window) {
+    Map<CertificateSource, List<CertificateEntry>> bySource = new IdentityHashMap<>();
+    Set<LoadKey> paced = new HashSet<>();
+    for (CertificateEntry entry : entries) {
+      CertificateSource source = sources.find(entry.type());
+      if (source != null) {
+        bySource.computeIfAbsent(source, s -> new ArrayList<>()).add(entry);
+        if (!source.supportsBatch()) {
+          paced.add(LoadKey.of(entry));
+        }
+      }
+    }
+    Pacer pacer =
+        !window.isZero() && !window.isNegative() ? new Pacer(paced.size(), window) : Pacer.NONE;
+    LoadPlan plan = new LoadPlan(sources, guard, pacer);
+
+    for (var group : bySource.entrySet()) {
+      CertificateSource source = group.getKey();
+      if (source.supportsBatch()) {
+        source.prepare(group.getValue());
+      } else if (source.cost() == CertificateSource.Cost.EXPENSIVE) {
+        plan.startParallel(source, group.getValue(), executor);
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the certificates of the entry, waiting for a parallel load or loading it inline.
+   *
+   * @throws IllegalArgumentException if no source supports the entry type
+   * @throws Exception if the source fails to load the entry
+   */
+  List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    CertificateSource source = sources.find(entry.type());
+    if (source == null) {
+      throw new IllegalArgumentException("Unsupported certificate type: " + entry.type());
+    }
+
+    LoadKey key = LoadKey.of(entry);
+    CompletableFuture<List<LoadedCertificate>> future = parallel.get(key);
+    if (future != null) {
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception cause ? cause : e;
+      }
+    }
+
+    LoadResult result = inline.get(key);
+    if (result == null) {
+      try {
+        if (!source.supportsBatch()) {
+          pacer.await();
+        }
+        result = new LoadResult(guard.load(source, entry), null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result = new LoadResult(null, e);
+      } catch (Exception e) {
+        result = new LoadResult(null, e);
+      }
+      inline.put(key, result);
+    } else {
+      log.debug("Reusing load of {} for {}", entry.path(), entry.name());
+    }
+
+    if (result.error() != null) {
+      throw result.error();
+    }
+    return result.value();
+  }
+
+  /** Runs the loads of one source on at most maxConcurrency workers draining a shared queue. */
+  private void startParallel(
+      CertificateSource source, List<CertificateEntry> entries, Executor executor) {
+    Map<LoadKey, CertificateEntry> distinct = new LinkedHashMap<>();
+    for (CertificateEntry entry : entries) {
+      distinct.putIfAbsent(LoadKey.of(entry), entry);
+    }
+
+    Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    for (var load : distinct.entrySet()) {
+      CompletableFuture<List<LoadedCertificate>> future = new CompletableFuture<>();
+      parallel.put(load.getKey(), future);
+      queue.add(
+          () -> {
+            try {
+              pacer.await();
+              future.complete(guard.load(source, load.getValue()));
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              future.completeExceptionally(e);
+            } catch (Throwable e) {
+              future.completeExceptionally(e);
+            }
+          });
+    }
+
+    int workers = Math.max(1, Math.min(source.maxConcurrency(), distinct.size()));
+    for (int i = 0; i < workers; i++) {
+      executor.execute(
+          () -> {
+            Runnable load;
+            while ((load = queue.poll()) != null) {
+              load.run();
+            }
+          });
+    }
+    log.debug(
+        "Loading {} entries of {} on {} workers",
+        distinct.size(),
+        source.getClass().getSimpleName(),
+        workers);
+  }
+
+  /** Identifies loads that can be shared between entries within one scan. */
+  record LoadKey(String path, String type, String password, String sni) {
+    static LoadKey of(CertificateEntry entry) {
+      return new LoadKey(
+          Paths.get(entry.path()).toAbsolutePath().normalize().toString(),
+          entry.type().toLowerCase(),
+          entry.password(),
+          entry.sni());
+    }
+  }
+
+  /** Outcome of an inline load; exactly one of value and error is set. */
+  private record LoadResult(List<LoadedCertificate> value, Exception error) {}
+}
@@ -0,0 +1,34 @@
+package ch.tkb.certalert.collector;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the loads of one scan evenly across a window: the n-th load starts no earlier than n
+ * times the window divided by the number of loads after the scan started. Thread-safe.
+ */
+final class Pacer {
+
+  /** Starts every load right away. */
+  static final Pacer NONE = new Pacer(0, Duration.ZERO);
+
+  private final long start = System.nanoTime();
+  private final long spacing;
+  private final AtomicInteger started = new AtomicInteger();
+
+  Pacer(int loads, Duration window) {
+    this.spacing = loads > 0 ? window.toNanos() / loads : 0;
+  }
+
+  /** Waits until the next load is due. */
+  void await() throws InterruptedException {
+    if (spacing == 0) {
+      return;
+    }
+    long wait = start + started.getAndIncrement() * spacing - System.nanoTime();
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.utils.CertificateLoader;
+import ch.tkb.certalert.utils.Fingerprints;
+import ch.tkb.certalert.utils.SubjectAltNames;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference-counted cache of extracted certificate fields keyed by SHA-256 fingerprint.
+ *
+ * <p>Certificates shared by many keystores or bundles (e.g. root and intermediate CAs) are decoded
+ * and extracted once. Every use within a scan cycle acquires a reference; {@link #endCycle()}
+ * evicts entries that were not referenced during the cycle. The DER encoding of every newly decoded
+ * certificate is handed to a retainer, which keeps it for decoding further fields on demand.
+ */
+final class ParsedCertificateCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ParsedCertificateCache.class);
+
+  private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final BiConsumer<String, byte[]> retainer;
+
+  /**
+   * Creates a cache that passes the fingerprint and DER of decoded certificates to the retainer.
+   */
+  ParsedCertificateCache(BiConsumer<String, byte[]> retainer) {
+    this.retainer = retainer;
+  }
+
+  /**
+   * Returns the extracted fields of a DER-encoded certificate, decoding it only if its fingerprint
+   * is not cached yet.
+   */
+  ParsedCertificate acquire(byte[] der) {
+    String fingerprint = Fingerprints.sha256(der);
+    Slot slot = slots.get(fingerprint);
+    if (slot == null) {
+      slot = slots.computeIfAbsent(fingerprint, fp -> decoded(fp, der, decode(der)));
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    slot.refs.incrementAndGet();
+    return slot.parsed;
+  }
+
+  /** Returns the extracted fields of an already decoded certificate. */
+  ParsedCertificate acquire(X509Certificate cert) throws CertificateEncodingException {
+    byte[] der = cert.getEncoded();
+    String fingerprint = Fingerprints.sha256(der);
+    Slot slot = slots.get(fingerprint);
+    if (slot == null) {
+      slot = slots.computeIfAbsent(fingerprint, fp -> decoded(fp, der, cert));
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    slot.refs.incrementAndGet();
+    return slot.parsed;
+  }
+
+  /** Evicts entries without references in the finished cycle and resets all counters. */
+  void endCycle() {
+    slots.values().removeIf(slot -> slot.refs.getAndSet(0) == 0);
+    log.debug(
+        "Parsed certificate cache: {} entries, {} hits, {} misses",
+        slots.size(),
+        hits.sumThenReset(),
+        misses.sumThenReset());
+  }
+
+  /** Returns the number of cached certificates. */
+  int size() {
+    return slots.size();
+  }
+
+  private Slot decoded(String fingerprint, byte[] der, X509Certificate cert) {
+    Slot slot = new Slot(extract(fingerprint, cert));
+    retainer.accept(fingerprint, der);
+    return slot;
+  }
+
+  private static X509Certificate decode(byte[] der) {
+    try {
+      return CertificateLoader.decode(der);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid certificate: " + e.getMessage(), e);
+    }
+  }
+
+  private static ParsedCertificate extract(String fingerprint, X509Certificate cert) {
+    return new ParsedCertificate(
+        fingerprint,
+        cert.getSubjectX500Principal().getName(),
+        cert.getIssuerX500Principal().getName(),
+        SubjectAltNames.of(cert),
+        cert.getNotBefore().toInstant(),
+        cert.getNotAfter().toInstant());
+  }
+
+  /** Fields extracted from one certificate. */
+  record ParsedCertificate(
+      String fingerprint,
+      String subject,
+      String issuer,
+      List<String> subjectAltNames,
+      Instant notBefore,
+      Instant notAfter) {}
+
+  private static final class Slot {
+    private final ParsedCertificate parsed;
+    private final AtomicInteger refs = new AtomicInteger();
+
+    private Slot(ParsedCertificate parsed) {
+      this.parsed = parsed;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package ch.tkb.certalert.collector;
+
+import java.util.List;
+
+/** Outcome of applying a reloaded configuration, listing the affected entries by name. */
+public record ReloadResult(
+    List<String> added, // Entries loaded for the first time
+    List<String> removed, // Entries whose certificates and metrics were pruned
+    List<String> changed, // Entries reloaded because their settings changed
+    int unchanged // Number of entries kept as they were
+    ) {}
@@ -0,0 +1,249 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entries that are scanned together on their own schedule. Every group has its own scan thread,
+ * load workers, load guard and parse cache, and holds the snapshot of its own rows; the collector
+ * merges the rows of all groups into the snapshot it serves.
+ *
+ * <p>With {@code certalert.pacing.spread}, every scan after the first spreads its loads across 90%
+ * of the interval and the next scan starts one interval after the previous one started, so a scan
+ * that overruns is followed immediately instead of an interval later.
+ */
+final class ScanGroup {
+
+  private static final Logger log = LoggerFactory.getLogger(ScanGroup.class);
+
+  private final String name;
+  private final Duration interval;
+  private final AtomicReference<List<CertificateEntry>> entries;
+
+  /** Rows of the group as last merged into the served snapshot. */
+  private final AtomicReference<CertificateSnapshot> snapshot =
+      new AtomicReference<>(CertificateSnapshot.empty());
+
+  /** Prevents scans of the group from overlapping. */
+  private final ReentrantLock scanLock = new ReentrantLock();
+
+  /** Ids set to expired by threshold crossings since the running scan started. */
+  private final Set<Integer> expired = new HashSet<>();
+
+  /** Entries added, changed or removed by reloads since the running scan started. */
+  private final Set<EntryDiff.Key> reloaded = new HashSet<>();
+
+  /** Runs the loads of expensive sources; each source bounds its own concurrency. */
+  private final ExecutorService loadExecutor;
+
+  private final LoadGuard loadGuard;
+  private final ParsedCertificateCache parsedCertificates;
+  private final CertificateConfig.Pacing pacing;
+  private ScheduledExecutorService scheduler;
+  private volatile boolean scanned; // a scan of the group completed
+  private boolean fits = true; // the last window fit the interval; used by the scan thread only
+
+  ScanGroup(
+      CertificateConfig.Group config,
+      List<CertificateEntry> entries,
+      CertificateConfig.Loading loading,
+      BiConsumer<String, byte[]> retainer,
+      IoBudget budget) {
+    this.name = config.name();
+    this.interval = config.checkInterval();
+    this.entries = new AtomicReference<>(List.copyOf(entries));
+    this.loadExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("certalert-load-" + name.replace("%", "%%") + "-%d")
+                .setDaemon(true)
+                .build());
+    this.loadGuard = new LoadGuard(loadExecutor, loading, config.concurrency(), budget);
+    this.parsedCertificates = new ParsedCertificateCache(retainer);
+    this.pacing = budget.settings();
+  }
+
+  /**
+   * Returns the entries of every group by name. An entry listed in more than one group is only
+   * scanned by the first one, since both would report the same certificates.
+   */
+  static Map<String, List<CertificateEntry>> assign(List<CertificateConfig.Group> groups) {
+    Map<EntryDiff.Key, String> owners = new HashMap<>();
+    Map<String, List<CertificateEntry>> assigned = new LinkedHashMap<>();
+    for (CertificateConfig.Group group : groups) {
+      List<CertificateEntry> entries = new ArrayList<>(group.certificates().size());
+      for (CertificateEntry entry : group.certificates()) {
+        String owner = owners.putIfAbsent(EntryDiff.Key.of(entry), group.name());
+        if (owner == null || owner.equals(group.name())) {
+          entries.add(entry);
+        } else {
+          log.warn(
+              "Entry {} of group {} is already part of group {}; ignoring it",
+              entry.name(),
+              group.name(),
+              owner);
+        }
+      }
+      assigned.put(group.name(), List.copyOf(entries));
+    }
+    return assigned;
+  }
+
+  String name() {
+    return name;
+  }
+
+  Duration interval() {
+    return interval;
+  }
+
+  List<CertificateEntry> entries() {
+    return entries.get();
+  }
+
+  void entries(List<CertificateEntry> updated) {
+    entries.set(List.copyOf(updated));
+  }
+
+  CertificateSnapshot snapshot() {
+    return snapshot.get();
+  }
+
+  void snapshot(CertificateSnapshot updated) {
+    snapshot.set(updated);
+  }
+
+  ReentrantLock scanLock() {
+    return scanLock;
+  }
+
+  /**
+   * Returns the ids expired by threshold crossings since the running scan started. Guarded by the
+   * publish lock of the collector.
+   */
+  Set<Integer> expired() {
+    return expired;
+  }
+
+  /**
+   * Returns the keys of the entries reloaded since the running scan started. Guarded by the publish
+   * lock of the collector.
+   */
+  Set<EntryDiff.Key> reloaded() {
+    return reloaded;
+  }
+
+  ExecutorService loadExecutor() {
+    return loadExecutor;
+  }
+
+  LoadGuard loadGuard() {
+    return loadGuard;
+  }
+
+  ParsedCertificateCache parsedCertificates() {
+    return parsedCertificates;
+  }
+
+  /** Marks that a scan of the group completed, so the following scans are spread. */
+  void scanned() {
+    scanned = true;
+  }
+
+  /**
+   * Returns the window to spread the loads of the next scan across, or zero if they start right
+   * away. The window is stretched to the time the loads of the last scan need under the I/O budget
+   * if they do not fit 90% of the interval.
+   */
+  Duration window() {
+    if (!pacing.spread() || !scanned) {
+      return Duration.ZERO;
+    }
+    Duration window = interval.multipliedBy(9).dividedBy(10);
+    Duration minimum = loadGuard.minimumCycle();
+    if (minimum.compareTo(window) > 0) {
+      if (fits) {
+        log.warn(
+            "Loads of group {} need at least {} under the I/O limits; spreading them across that"
+                + " instead of 90% of the interval of {}",
+            name, minimum, interval);
+        fits = false;
+      }
+      return minimum;
+    }
+    if (!fits) {
+      log.info("Loads of group {} fit the interval of {} again", name, interval);
+      fits = true;
+    }
+    return window;
+  }
+
+  /**
+   * Runs the scan now and then with the interval of the group between the end and next start. With
+   * jitter, later scans start the interval plus a random part of the jitter after the first one, at
+   * a fixed rate.
+   */
+  synchronized void schedule(Runnable scan) {
+    if (scheduler != null) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("certalert-scan-" + name.replace("%", "%%"))
+                .setDaemon(true)
+                .build());
+    Runnable task =
+        () -> {
+          try {
+            scan.run();
+          } catch (RuntimeException e) {
+            log.error("Scan of group {} failed", name, e);
+          }
+        };
+    long period = Math.max(1, interval.toMillis());
+    Duration jitter = pacing.jitterFor(interval);
+    if (!jitter.isZero()) {
+      long offset = ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+      scheduler.execute(task);
+      scheduler.scheduleAtFixedRate(task, period + offset, period, TimeUnit.MILLISECONDS);
+      log.info(
+          "Scanning {} entries of group {} every {}, offset by {} ms",
+          entries().size(),
+          name,
+          interval,
+          offset);
+      return;
+    }
+    scheduler.scheduleWithFixedDelay(task, 0, period, TimeUnit.MILLISECONDS);
+    log.info("Scanning {} entries of group {} every {}", entries().size(), name, interval);
+  }
+
+  /** Stops the scans and interrupts running loads. */
+  synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    loadExecutor.shutdownNow();
+  }
+}
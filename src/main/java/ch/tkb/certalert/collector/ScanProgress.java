@@ -0,0 +1,142 @@
+package ch.tkb.certalert.collector;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the progress of the running scans and whether certalert has data worth serving.
+ *
+ * <p>The state is updated by the collector as entries complete, so readers such as health probes
+ * only read a few volatile fields instead of walking the snapshot. Every scan group reports its own
+ * gauges, tagged with the group name; the totals cover all groups.
+ */
+@Component
+public class ScanProgress {
+
+  /** Lifecycle of the collected data. */
+  public enum Phase {
+    STARTING, // Nothing collected yet
+    RESTORED, // A warm snapshot from the history log is served while the first scan runs
+    READY // At least one full scan of every group has completed
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, GroupProgress> groups = new ConcurrentHashMap<>();
+  private volatile Phase phase = Phase.STARTING;
+  private volatile Instant firstPassCompletedAt;
+
+  /** Registers the readiness gauge. */
+  public ScanProgress(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("certalert_ready", this, progress -> progress.isReady() ? 1 : 0)
+        .description("Indicates if certalert serves collected data (1 = ready, 0 = starting)")
+        .register(meterRegistry);
+  }
+
+  /** Registers the gauges of a group; the first pass is complete once every group completed. */
+  void register(String group) {
+    groups.computeIfAbsent(group, this::createGroup);
+  }
+
+  /** Marks that a warm snapshot was restored and can be served. */
+  void restored() {
+    if (phase == Phase.STARTING) {
+      phase = Phase.RESTORED;
+    }
+  }
+
+  /** Resets the counters of the group for a new scan over the given number of entries. */
+  void cycleStarted(String group, int total) {
+    GroupProgress progress = groups.computeIfAbsent(group, this::createGroup);
+    progress.startedAt = System.nanoTime();
+    progress.entriesDone.set(0);
+    progress.entriesTotal.set(total);
+  }
+
+  /** Records the window the loads of the running scan of the group are spread across. */
+  void window(String group, Duration window) {
+    groups.get(group).windowSeconds = window.toNanos() / 1e9;
+  }
+
+  /** Counts one completed entry of the group. */
+  void entryDone(String group) {
+    groups.get(group).entriesDone.incrementAndGet();
+  }
+
+  /** Marks the running scan of the group as complete. */
+  void cycleCompleted(String group) {
+    GroupProgress progress = groups.get(group);
+    progress.lastDurationSeconds = (System.nanoTime() - progress.startedAt) / 1e9;
+    progress.completed = true;
+    if (phase != Phase.READY && groups.values().stream().allMatch(g -> g.completed)) {
+      firstPassCompletedAt = Instant.now();
+      phase = Phase.READY;
+    }
+  }
+
+  /** Returns whether data from a full scan or a warm snapshot is available. */
+  public boolean isReady() {
+    return phase != Phase.STARTING;
+  }
+
+  /** Returns whether at least one full scan of every group has completed. */
+  public boolean isFirstPassComplete() {
+    return phase == Phase.READY;
+  }
+
+  public Phase getPhase() {
+    return phase;
+  }
+
+  /** Returns the number of entries in the running or last scan of all groups. */
+  public int getEntriesTotal() {
+    return groups.values().stream().mapToInt(g -> g.entriesTotal.get()).sum();
+  }
+
+  /** Returns the number of completed entries in the running or last scan of all groups. */
+  public int getEntriesDone() {
+    return groups.values().stream().mapToInt(g -> g.entriesDone.get()).sum();
+  }
+
+  /** Returns when the first full scan completed, or null if it is still running. */
+  public Instant getFirstPassCompletedAt() {
+    return firstPassCompletedAt;
+  }
+
+  private GroupProgress createGroup(String group) {
+    GroupProgress progress = new GroupProgress();
+    Gauge.builder("certalert_scan_entries_configured", progress.entriesTotal, AtomicInteger::get)
+        .description("Number of configured entries in the running or last scan")
+        .tag("group", group)
+        .register(meterRegistry);
+    Gauge.builder("certalert_scan_entries_done", progress.entriesDone, AtomicInteger::get)
+        .description("Number of entries completed in the running or last scan")
+        .tag("group", group)
+        .register(meterRegistry);
+    Gauge.builder("certalert_scan_duration_seconds", progress, p -> p.lastDurationSeconds)
+        .description("Duration of the last completed scan")
+        .tag("group", group)
+        .register(meterRegistry);
+    Gauge.builder("certalert_scan_window_seconds", progress, p -> p.windowSeconds)
+        .description("Window the loads of the running or last scan are spread across (0 = none)")
+        .tag("group", group)
+        .register(meterRegistry);
+    return progress;
+  }
+
+  /** Progress of the scans of one group. */
+  private static final class GroupProgress {
+    private final AtomicInteger entriesTotal = new AtomicInteger();
+    private final AtomicInteger entriesDone = new AtomicInteger();
+    private volatile long startedAt = System.nanoTime();
+    private volatile double lastDurationSeconds;
+    private volatile double windowSeconds;
+    private volatile boolean completed;
+  }
+}
@@ -0,0 +1,109 @@
+package ch.tkb.certalert.collector;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateIdentity;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns configured entries to replicas using rendezvous (highest random weight) hashing.
+ *
+ * <p>Every replica computes a score per (entry, replica) pair and owns the entries for which its
+ * own score is the highest. Only the replicas' ordinals and the replica count are needed, so no
+ * coordination is required. When the replica count changes, only the entries whose winning replica
+ * was added or removed move.
+ */
+@Component
+public class ShardAssignment {
+
+  private static final Logger log = LoggerFactory.getLogger(ShardAssignment.class);
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final boolean enabled;
+  private final int replicas;
+  private final int ordinal;
+  private final AtomicInteger ownedEntries = new AtomicInteger();
+
+  /** Creates the assignment from the sharding settings and registers the shard gauge. */
+  public ShardAssignment(CertificateConfig config, MeterRegistry meterRegistry) {
+    CertificateConfig.Sharding sharding = config.sharding();
+    this.enabled = sharding.enabled() && sharding.replicas() > 1;
+    this.replicas = sharding.replicas();
+    this.ordinal = sharding.ordinal();
+
+    if (sharding.enabled() && (ordinal < 0 || ordinal >= replicas)) {
+      throw new IllegalArgumentException(
+          "Shard ordinal " + ordinal + " is outside of 0.." + (replicas - 1));
+    }
+    if (enabled) {
+      log.info("Sharding enabled; this is replica {} of {}", ordinal, replicas);
+    }
+
+    Gauge.builder("certalert_shard_entries", ownedEntries, AtomicInteger::get)
+        .description("Number of configured entries assigned to this replica")
+        .tags(
+            "ordinal", String.valueOf(ordinal), "replicas", String.valueOf(enabled ? replicas : 1))
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns the entries owned by this replica and updates the shard gauge. Pass all configured
+   * entries; use {@link #owned(List)} for a part of them.
+   */
+  public List<CertificateConfig.CertificateEntry> select(
+      List<CertificateConfig.CertificateEntry> entries) {
+    List<CertificateConfig.CertificateEntry> owned = owned(entries);
+    ownedEntries.set(owned.size());
+    return owned;
+  }
+
+  /** Returns the entries owned by this replica without updating the shard gauge. */
+  public List<CertificateConfig.CertificateEntry> owned(
+      List<CertificateConfig.CertificateEntry> entries) {
+    return enabled ? entries.stream().filter(this::owns).toList() : entries;
+  }
+
+  /** Returns whether this replica owns the entry. */
+  public boolean owns(CertificateConfig.CertificateEntry entry) {
+    return !enabled || ownerOf(entry, replicas) == ordinal;
+  }
+
+  /** Returns whether this replica owns entries of the identity. */
+  public boolean owns(CertificateIdentity identity) {
+    return !enabled || ownerOf(entryKey(identity), replicas) == ordinal;
+  }
+
+  /** Returns the ordinal of the replica owning the entry among the given number of replicas. */
+  public static int ownerOf(CertificateConfig.CertificateEntry entry, int replicas) {
+    return ownerOf(
+        entryKey(new CertificateIdentity(entry.path(), entry.type(), entry.name(), null)),
+        replicas);
+  }
+
+  private static int ownerOf(String key, int replicas) {
+    int owner = 0;
+    long best = Long.MIN_VALUE;
+    for (int replica = 0; replica < replicas; replica++) {
+      long score =
+          HASH.newHasher().putString(key, StandardCharsets.UTF_8).putInt(replica).hash().asLong();
+      if (score > best) {
+        best = score;
+        owner = replica;
+      }
+    }
+    return owner;
+  }
+
+  /** Entries are assigned as a whole, so all aliases of an entry land on the same replica. */
+  private static String entryKey(CertificateIdentity identity) {
+    return identity.path() + '\0' + identity.type() + '\0' + identity.name();
+  }
+}
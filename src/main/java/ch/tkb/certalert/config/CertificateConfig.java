@@ -4,10 +4,14 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /** Configuration properties mapped from 'certalert' prefix in YAML/properties. */
@@ -16,14 +20,72 @@ import org.springframework.validation.annotation.Validated;
 public record CertificateConfig(
     Duration checkInterval, // Interval between checks (e.g., PT2M)
     List<@Valid CertificateEntry> certificates, // List of configured certificates
-    Dashboard dashboard // Dashboard-specific settings
+    Dashboard dashboard, // Dashboard-specific settings
+    History history, // Rotation history log settings
+    Sharding sharding, // Distribution of entries across replicas
+    Reload reload, // Reloading of the certificate entries at runtime
+    Kubernetes kubernetes, // API server access for k8s-secret entries
+    Tls tls, // Handshake settings for tls entries
+    Chain chain, // Chain validation against trust anchors
+    Revocation revocation, // Revocation checks via CRL and OCSP
+    Notifications notifications, // Webhook notifications on status transitions
+    Loading loading, // Deadlines and failure handling of entry loads
+    List<@Valid Group> groups, // Entry groups scanned on their own schedule
+    Details details, // Retention of encoded certificates for on-demand details
+    Pacing pacing, // Spreading and rate limits of file loads
+    ObjectStorage objectStorage // S3-compatible object storage for s3 entries
     ) {
 
-  /** Initializes defaults for checkInterval, dashboard, and certificates if null. */
+  /** Initializes defaults for all settings. */
   public CertificateConfig {
     checkInterval = checkInterval != null ? checkInterval : Duration.ofMinutes(10);
     dashboard = dashboard != null ? dashboard : new Dashboard(null, null, null);
+    history = history != null ? history : new History(false, null, null, null, null);
+    sharding = sharding != null ? sharding : new Sharding(false, null, null, null);
+    reload = reload != null ? reload : new Reload(null, null, null, null);
+    kubernetes = kubernetes != null ? kubernetes : new Kubernetes(null, null, null, null, null);
+    tls = tls != null ? tls : new Tls(null, null, null);
+    chain = chain != null ? chain : new Chain(false, null, null);
+    revocation =
+        revocation != null ? revocation : new Revocation(false, null, null, null, null, null, null);
+    notifications =
+        notifications != null
+            ? notifications
+            : new Notifications(false, null, null, null, null, null, null, null, null);
+    loading = loading != null ? loading : new Loading(null, null, null, null, null);
     certificates = certificates != null ? certificates : List.of();
+    groups = groups != null ? withDefaults(groups, checkInterval) : List.of();
+    details = details != null ? details : new Details(null, null);
+    pacing = pacing != null ? pacing : new Pacing(false, null, null, null, null);
+    objectStorage =
+        objectStorage != null
+            ? objectStorage
+            : new ObjectStorage(null, null, null, null, null, null, null);
+  }
+
+  /** Returns the default group of the top-level certificates followed by the named groups. */
+  public List<Group> allGroups() {
+    List<Group> all = new ArrayList<>(groups.size() + 1);
+    all.add(new Group(Group.DEFAULT_NAME, checkInterval, null, certificates));
+    all.addAll(groups);
+    return all;
+  }
+
+  /** Fills in the interval of the groups that have none and rejects duplicate names. */
+  private static List<Group> withDefaults(List<Group> groups, Duration checkInterval) {
+    Set<String> names = new HashSet<>();
+    names.add(Group.DEFAULT_NAME);
+    List<Group> resolved = new ArrayList<>(groups.size());
+    for (Group group : groups) {
+      if (group.name() != null && !names.add(group.name())) {
+        throw new IllegalArgumentException("Duplicate group name '" + group.name() + "'");
+      }
+      resolved.add(
+          group.checkInterval() != null
+              ? group
+              : new Group(group.name(), checkInterval, group.concurrency(), group.certificates()));
+    }
+    return List.copyOf(resolved);
   }
 
   /** Dashboard settings including thresholds and date format. */
@@ -67,11 +129,405 @@ public record CertificateConfig(
     }
   }
 
+  /** Settings for the append-only certificate rotation history log. */
+  public record History(
+      boolean enabled, // Write detected changes to the history log
+      String directory, // Directory holding the log segments
+      DataSize segmentSize, // Roll to a new segment once the active one reaches this size
+      Integer retainVersions, // Versions kept per certificate identity by compaction
+      Duration compactionInterval // Interval between background compactions
+      ) {
+
+    // Default values for history settings
+    public static final String DEFAULT_DIRECTORY = "./history";
+    public static final DataSize DEFAULT_SEGMENT_SIZE = DataSize.ofMegabytes(4);
+    public static final int DEFAULT_RETAIN_VERSIONS = 10;
+    public static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.ofHours(1);
+
+    /** Initializes defaults and clamps retainVersions to at least one. */
+    public History {
+      directory = directory != null && !directory.isBlank() ? directory : DEFAULT_DIRECTORY;
+      segmentSize = segmentSize != null ? segmentSize : DEFAULT_SEGMENT_SIZE;
+      retainVersions =
+          retainVersions != null ? Math.max(1, retainVersions) : DEFAULT_RETAIN_VERSIONS;
+      compactionInterval =
+          compactionInterval != null ? compactionInterval : DEFAULT_COMPACTION_INTERVAL;
+    }
+  }
+
+  /**
+   * Settings for splitting the configured entries across replicas. Each replica scans and exports
+   * only the entries assigned to its ordinal.
+   */
+  public record Sharding(
+      boolean enabled, // Only scan the entries assigned to this replica
+      Integer replicas, // Total number of replicas
+      Integer ordinal, // Ordinal of this replica (0-based); derived from hostname if unset
+      String hostname // Hostname to derive the ordinal from (StatefulSet pod name)
+      ) {
+
+    /**
+     * Initializes defaults; the hostname defaults to the HOSTNAME environment variable.
+     *
+     * @throws IllegalArgumentException if sharding is enabled without an ordinal and the hostname
+     *     has no numeric suffix
+     */
+    public Sharding {
+      replicas = replicas != null ? Math.max(1, replicas) : 1;
+      hostname = hostname != null ? hostname : System.getenv("HOSTNAME");
+      if (ordinal == null) {
+        ordinal = enabled ? ordinalFromHostname(hostname) : 0;
+      }
+    }
+
+    /**
+     * Extracts the ordinal from a StatefulSet pod name such as {@code certalert-2}.
+     *
+     * @throws IllegalArgumentException if the hostname has no numeric suffix
+     */
+    public static int ordinalFromHostname(String hostname) {
+      String suffix = hostname != null ? hostname.substring(hostname.lastIndexOf('-') + 1) : "";
+      try {
+        return Integer.parseInt(suffix);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "Cannot derive the shard ordinal from hostname '"
+                + hostname
+                + "'; set certalert.sharding.ordinal or run as a StatefulSet");
+      }
+    }
+  }
+
+  /**
+   * Settings for reloading the certificate entries without a restart. Only {@code certificates} is
+   * applied at runtime; all other settings still require a restart.
+   */
+  public record Reload(
+      Boolean enabled, // Watch the configuration files for changes
+      List<String> files, // Configuration files to watch and re-read
+      Duration pollInterval, // Interval between checks for changed files
+      Boolean endpoint // Accept unauthenticated POST /api/reload requests
+      ) {
+
+    // Default values for reload settings
+    public static final List<String> DEFAULT_FILES =
+        List.of("certalert.yaml", "/config/certalert.yaml");
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * Initializes defaults; watching is enabled unless turned off explicitly, the endpoint only if
+     * turned on.
+     */
+    public Reload {
+      enabled = enabled != null ? enabled : true;
+      endpoint = endpoint != null ? endpoint : false;
+      files = files != null && !files.isEmpty() ? List.copyOf(files) : DEFAULT_FILES;
+      pollInterval = pollInterval != null ? pollInterval : DEFAULT_POLL_INTERVAL;
+    }
+  }
+
+  /**
+   * Settings for reading {@code k8s-secret} entries from the Kubernetes API. Defaults to the
+   * in-cluster service account.
+   */
+  public record Kubernetes(
+      String apiServer, // Base URL of the API server
+      String tokenFile, // Bearer token file (re-read on every request)
+      String caFile, // CA bundle to verify the API server; system trust store if missing
+      String namespace, // Namespace for secrets referenced without one
+      Duration syncTimeout // Longest time a load waits for the first list of a namespace
+      ) {
+
+    // Default values for the in-cluster service account
+    public static final String SERVICE_ACCOUNT_DIR =
+        "/var/run/secrets/kubernetes.io/serviceaccount";
+    public static final String DEFAULT_API_SERVER = "https://kubernetes.default.svc";
+    public static final Duration DEFAULT_SYNC_TIMEOUT = Duration.ofSeconds(10);
+
+    /** Initializes defaults from the service account and the Kubernetes service variables. */
+    public Kubernetes {
+      if (apiServer == null || apiServer.isBlank()) {
+        String host = System.getenv("KUBERNETES_SERVICE_HOST");
+        String port = System.getenv("KUBERNETES_SERVICE_PORT");
+        apiServer =
+            host != null
+                ? "https://"
+                    + (host.contains(":") ? "[" + host + "]" : host)
+                    + ":"
+                    + (port != null ? port : "443")
+                : DEFAULT_API_SERVER;
+      }
+      apiServer =
+          apiServer.endsWith("/") ? apiServer.substring(0, apiServer.length() - 1) : apiServer;
+      tokenFile = tokenFile != null ? tokenFile : SERVICE_ACCOUNT_DIR + "/token";
+      caFile = caFile != null ? caFile : SERVICE_ACCOUNT_DIR + "/ca.crt";
+      syncTimeout = syncTimeout != null ? syncTimeout : DEFAULT_SYNC_TIMEOUT;
+    }
+  }
+
+  /** Settings for probing remote endpoints of {@code tls} entries. */
+  public record Tls(
+      Integer concurrency, // Maximum number of concurrent handshakes
+      Duration timeout, // Deadline for connecting and for the handshake
+      Double perHostRate // Maximum handshakes per second to the same host
+      ) {
+
+    // Default values for tls settings
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    public static final double DEFAULT_PER_HOST_RATE = 5.0;
+
+    /** Initializes defaults and clamps concurrency to at least one. */
+    public Tls {
+      concurrency = concurrency != null ? Math.max(1, concurrency) : DEFAULT_CONCURRENCY;
+      timeout = timeout != null ? timeout : DEFAULT_TIMEOUT;
+      perHostRate = perHostRate != null && perHostRate > 0 ? perHostRate : DEFAULT_PER_HOST_RATE;
+    }
+  }
+
+  /**
+   * Settings for validating the chain of every certificate. A certificate is trusted if a path of
+   * valid signatures leads from it to one of the trust anchors, using the certificates of its own
+   * keystore alias, bundle or handshake as intermediates.
+   */
+  public record Chain(
+      boolean enabled, // Validate chains and export their status
+      List<String> trustAnchors, // PEM/CRT files holding additional trust anchors
+      Boolean systemTrust // Also trust the CAs of the JVM trust store
+      ) {
+
+    /** Initializes defaults; the JVM trust store is used unless turned off explicitly. */
+    public Chain {
+      trustAnchors = trustAnchors != null ? List.copyOf(trustAnchors) : List.of();
+      systemTrust = systemTrust != null ? systemTrust : true;
+    }
+  }
+
+  /**
+   * Settings for checking the revocation status of every certificate. A CRL of the issuer is used
+   * when one is configured or published; otherwise the issuer's OCSP responder is asked.
+   */
+  public record Revocation(
+      boolean enabled, // Check revocation status
+      String ocspResponder, // OCSP responder to ask instead of the one in the certificate
+      List<String> crlFiles, // Local CRL files (PEM or DER); preferred over downloads
+      Integer maxInFlight, // Maximum concurrent OCSP and CRL requests
+      Integer batchSize, // Maximum certificates per OCSP request
+      Duration timeout, // Timeout per request
+      Duration cacheTtl // How long responses without nextUpdate are used
+      ) {
+
+    // Default values for revocation settings
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(1);
+
+    /** Initializes defaults and clamps the limits to at least one. */
+    public Revocation {
+      ocspResponder = ocspResponder != null && !ocspResponder.isBlank() ? ocspResponder : null;
+      crlFiles = crlFiles != null ? List.copyOf(crlFiles) : List.of();
+      maxInFlight = maxInFlight != null ? Math.max(1, maxInFlight) : DEFAULT_MAX_IN_FLIGHT;
+      batchSize = batchSize != null ? Math.max(1, batchSize) : DEFAULT_BATCH_SIZE;
+      timeout = timeout != null ? timeout : DEFAULT_TIMEOUT;
+      cacheTtl = cacheTtl != null ? cacheTtl : DEFAULT_CACHE_TTL;
+    }
+  }
+
+  /**
+   * Settings for sending status transitions (entering warning, critical, expired or invalid) to
+   * webhooks. Transitions are coalesced per window into batches that are queued on disk until
+   * delivered.
+   */
+  public record Notifications(
+      boolean enabled, // Send notifications
+      List<String> webhooks, // URLs receiving the batches as JSON POST requests
+      Duration window, // Transitions within this window are sent together
+      Integer maxBatchSize, // Maximum transitions per request
+      Double requestsPerSecond, // Rate limit per webhook
+      Duration timeout, // Timeout per request
+      String queueDirectory, // Directory holding undelivered batches
+      Integer queueCapacity, // Maximum undelivered batches per webhook; the oldest are dropped
+      Duration maxBackoff // Longest wait between retries of a failing webhook
+      ) {
+
+    // Default values for notification settings
+    public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 1;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    public static final String DEFAULT_QUEUE_DIRECTORY = "./notifications";
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(10);
+
+    /** Initializes defaults and clamps the limits to sensible minimums. */
+    public Notifications {
+      webhooks = webhooks != null ? List.copyOf(webhooks) : List.of();
+      window = window != null && !window.isNegative() && !window.isZero() ? window : DEFAULT_WINDOW;
+      maxBatchSize = maxBatchSize != null ? Math.max(1, maxBatchSize) : DEFAULT_MAX_BATCH_SIZE;
+      requestsPerSecond =
+          requestsPerSecond != null && requestsPerSecond > 0
+              ? requestsPerSecond
+              : DEFAULT_REQUESTS_PER_SECOND;
+      timeout = timeout != null ? timeout : DEFAULT_TIMEOUT;
+      queueDirectory = queueDirectory != null ? queueDirectory : DEFAULT_QUEUE_DIRECTORY;
+      queueCapacity = queueCapacity != null ? Math.max(1, queueCapacity) : DEFAULT_QUEUE_CAPACITY;
+      maxBackoff =
+          maxBackoff != null && !maxBackoff.isNegative() && !maxBackoff.isZero()
+              ? maxBackoff
+              : DEFAULT_MAX_BACKOFF;
+    }
+  }
+
+  /**
+   * Deadlines and failure handling of entry loads. Every load runs on a worker thread and is given
+   * up after the timeout; entries that keep failing are skipped with exponential backoff, and
+   * entries whose file has not changed since a failed load are not loaded again.
+   */
+  public record Loading(
+      Duration timeout, // Deadline of a single load
+      Integer bulkhead, // Loads per source that may be in flight, including timed out ones
+      Integer failureThreshold, // Consecutive failures before an entry is skipped
+      Duration initialBackoff, // First pause of a failing entry; doubles with every failure
+      Duration maxBackoff // Longest pause of a failing entry
+      ) {
+
+    // Default values for load settings
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    public static final int DEFAULT_BULKHEAD = 4;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofHours(6);
+
+    /** Initializes defaults and clamps the limits to sensible minimums. */
+    public Loading {
+      timeout =
+          timeout != null && !timeout.isNegative() && !timeout.isZero() ? timeout : DEFAULT_TIMEOUT;
+      bulkhead = bulkhead != null ? Math.max(1, bulkhead) : DEFAULT_BULKHEAD;
+      failureThreshold =
+          failureThreshold != null ? Math.max(1, failureThreshold) : DEFAULT_FAILURE_THRESHOLD;
+      initialBackoff =
+          initialBackoff != null && !initialBackoff.isNegative()
+              ? initialBackoff
+              : DEFAULT_INITIAL_BACKOFF;
+      maxBackoff = maxBackoff != null ? maxBackoff : DEFAULT_MAX_BACKOFF;
+      if (maxBackoff.compareTo(initialBackoff) < 0) {
+        maxBackoff = initialBackoff;
+      }
+    }
+  }
+
+  /**
+   * Entries that are scanned together, on their own interval and with their own load workers, so a
+   * slow group does not hold up the others. The top-level certificates form the group {@value
+   * #DEFAULT_NAME}.
+   */
+  public record Group(
+      @NotEmpty String name, // Name of the group; exported as the group label of the scan metrics
+      Duration checkInterval, // Interval between scans; defaults to certalert.check-interval
+      Integer concurrency, // Loads of the group in flight at a time; unlimited if unset
+      List<@Valid CertificateEntry> certificates // Entries of the group
+      ) {
+
+    /** Name of the group holding the top-level certificates. */
+    public static final String DEFAULT_NAME = "default";
+
+    /** Initializes defaults and clamps concurrency to at least one. */
+    public Group {
+      concurrency = concurrency != null ? Math.max(1, concurrency) : null;
+      certificates = certificates != null ? List.copyOf(certificates) : List.of();
+    }
+  }
+
+  /**
+   * Settings for the certificate details that are decoded on request. The DER encodings of scanned
+   * certificates are retained up to {@code retainedSize}; evicted ones are read from their source
+   * again when requested.
+   */
+  public record Details(
+      DataSize retainedSize, // Heap for retained DER encodings; 0 always reads from the source
+      Integer decodedEntries // Decoded details kept for repeated requests
+      ) {
+
+    // Default values for details settings
+    public static final DataSize DEFAULT_RETAINED_SIZE = DataSize.ofMegabytes(16);
+    public static final int DEFAULT_DECODED_ENTRIES = 1024;
+
+    /** Initializes defaults and clamps negative limits to zero. */
+    public Details {
+      retainedSize =
+          retainedSize != null && !retainedSize.isNegative() ? retainedSize : DEFAULT_RETAINED_SIZE;
+      decodedEntries =
+          decodedEntries != null ? Math.max(0, decodedEntries) : DEFAULT_DECODED_ENTRIES;
+    }
+  }
+
+  /**
+   * Settings for reading {@code s3} entries from Amazon S3 or a compatible object storage. Requests
+   * are signed with Signature Version 4 if an access key is configured, otherwise they are sent
+   * anonymously.
+   */
+  public record ObjectStorage(
+      String endpoint, // Base URL of the service, e.g. https://s3.eu-central-2.amazonaws.com
+      String region, // Region the requests are signed for
+      String accessKey, // Access key ID; resolved like passwords, e.g. env:AWS_ACCESS_KEY_ID
+      String secretKey, // Secret access key; resolved like passwords
+      Boolean pathStyle, // Address buckets as endpoint/bucket instead of bucket.endpoint
+      Integer concurrency, // Downloads in flight at a time across all s3 entries
+      Duration listInterval // How long a listing is reused; objects are revalidated meanwhile
+      ) {
+
+    // Default values for object storage settings
+    public static final String DEFAULT_ENDPOINT = "https://s3.amazonaws.com";
+    public static final String DEFAULT_REGION = "us-east-1";
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /** Initializes defaults for a path-style endpoint in us-east-1. */
+    public ObjectStorage {
+      endpoint = endpoint != null && !endpoint.isBlank() ? endpoint : DEFAULT_ENDPOINT;
+      endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+      region = region != null && !region.isBlank() ? region : DEFAULT_REGION;
+      pathStyle = pathStyle != null ? pathStyle : true;
+      concurrency = concurrency != null ? Math.max(1, concurrency) : DEFAULT_CONCURRENCY;
+      listInterval =
+          listInterval != null && !listInterval.isNegative() ? listInterval : Duration.ZERO;
+    }
+  }
+
+  /**
+   * Settings for smoothing the I/O of scans. With {@code spread}, the loads of every scan after the
+   * first are spread evenly across the check interval. The limits apply to the loads of all groups
+   * that read files; loads wait for them before their deadline starts.
+   */
+  public record Pacing(
+      boolean spread, // Spread the loads of a scan evenly across the check interval
+      Duration jitter, // Largest random offset of the scans of this instance; interval if spread
+      DataSize bytesPerSecond, // Bytes read per second; unlimited if unset
+      Double filesPerSecond, // Loads started per second; unlimited if unset
+      Integer maxOpenFiles // Loads in flight at a time; unlimited if unset
+      ) {
+
+    /** Ignores negative and zero limits. */
+    public Pacing {
+      jitter = jitter != null && !jitter.isNegative() ? jitter : null;
+      bytesPerSecond =
+          bytesPerSecond != null && bytesPerSecond.toBytes() > 0 ? bytesPerSecond : null;
+      filesPerSecond = filesPerSecond != null && filesPerSecond > 0 ? filesPerSecond : null;
+      maxOpenFiles = maxOpenFiles != null ? Math.max(1, maxOpenFiles) : null;
+    }
+
+    /** Returns the jitter for scans with the given interval. */
+    public Duration jitterFor(Duration interval) {
+      return jitter != null ? jitter : spread ? interval : Duration.ZERO;
+    }
+  }
+
   /** Describes a certificate entry with metadata and optional password. */
   public record CertificateEntry(
       @NotEmpty String name, // Logical name of the certificate
-      @NotEmpty String path, // Path to the certificate file
+      @NotEmpty String path, // Path to the certificate file (host:port for tls entries)
       @NotEmpty String type, // Type (e.g., JKS, PKCS12)
-      String password // Optional password (may be null)
+      String password, // Optional password (may be null)
+      String sni // Optional SNI server name for tls entries (defaults to the host)
       ) {}
 }
@@ -0,0 +1,55 @@
+package ch.tkb.certalert.health;
+
+import ch.tkb.certalert.collector.ScanProgress;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports {@code OUT_OF_SERVICE} until the first full scan completed or a warm snapshot was
+ * restored. Include it in the readiness group so Kubernetes only routes traffic to pods with data.
+ *
+ * <p>The last {@link Health} is reused as long as the progress did not change, so probes never
+ * touch the snapshot.
+ */
+@Component
+public class CertificateScanHealthIndicator implements HealthIndicator {
+
+  private final ScanProgress progress;
+  private volatile Cached cached;
+
+  public CertificateScanHealthIndicator(ScanProgress progress) {
+    this.progress = progress;
+  }
+
+  @Override
+  public Health health() {
+    ScanProgress.Phase phase = progress.getPhase();
+    int done = progress.getEntriesDone();
+    int total = progress.getEntriesTotal();
+
+    Cached current = cached;
+    if (current != null && current.matches(phase, done, total)) {
+      return current.health();
+    }
+
+    Health.Builder builder = progress.isReady() ? Health.up() : Health.outOfService();
+    builder
+        .withDetail("phase", phase.name().toLowerCase())
+        .withDetail("entriesDone", done)
+        .withDetail("entriesTotal", total);
+    if (progress.getFirstPassCompletedAt() != null) {
+      builder.withDetail("firstPassCompletedAt", progress.getFirstPassCompletedAt().toString());
+    }
+    Health health = builder.build();
+    cached = new Cached(phase, done, total, health);
+    return health;
+  }
+
+  /** Health computed for one progress state. */
+  private record Cached(ScanProgress.Phase phase, int done, int total, Health health) {
+    boolean matches(ScanProgress.Phase otherPhase, int otherDone, int otherTotal) {
+      return phase == otherPhase && done == otherDone && total == otherTotal;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package ch.tkb.certalert.health;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.health.actuate.endpoint.AdditionalHealthEndpointPath;
+import org.springframework.boot.health.actuate.endpoint.HealthEndpointGroup;
+import org.springframework.boot.health.actuate.endpoint.HealthEndpointGroups;
+import org.springframework.boot.health.actuate.endpoint.HealthEndpointGroupsPostProcessor;
+import org.springframework.boot.health.actuate.endpoint.HttpCodeStatusMapper;
+import org.springframework.boot.health.actuate.endpoint.StatusAggregator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes readiness-only indicators from the root {@code /health} endpoint. The root group always
+ * contains every indicator, so without this a pod that is still running its first scan would report
+ * {@code OUT_OF_SERVICE} on {@code /health} although it is alive; the indicators stay in the groups
+ * that include them, e.g. {@code readiness}.
+ */
+@Component
+public class ReadinessOnlyHealthGroups implements HealthEndpointGroupsPostProcessor {
+
+  /** Indicators that only belong to groups including them explicitly. */
+  static final Set<String> READINESS_ONLY = Set.of("certificateScan");
+
+  @Override
+  public HealthEndpointGroups postProcessHealthEndpointGroups(HealthEndpointGroups groups) {
+    Map<String, HealthEndpointGroup> named = new HashMap<>();
+    for (String name : groups.getNames()) {
+      named.put(name, groups.get(name));
+    }
+    return HealthEndpointGroups.of(new Primary(groups.getPrimary()), named);
+  }
+
+  /** Root group without the readiness-only indicators. */
+  private record Primary(HealthEndpointGroup delegate) implements HealthEndpointGroup {
+
+    @Override
+    public boolean isMember(String name) {
+      return !READINESS_ONLY.contains(name) && delegate.isMember(name);
+    }
+
+    @Override
+    public boolean showComponents(SecurityContext securityContext) {
+      return delegate.showComponents(securityContext);
+    }
+
+    @Override
+    public boolean showDetails(SecurityContext securityContext) {
+      return delegate.showDetails(securityContext);
+    }
+
+    @Override
+    public StatusAggregator getStatusAggregator() {
+      return delegate.getStatusAggregator();
+    }
+
+    @Override
+    public HttpCodeStatusMapper getHttpCodeStatusMapper() {
+      return delegate.getHttpCodeStatusMapper();
+    }
+
+    @Override
+    public AdditionalHealthEndpointPath getAdditionalPath() {
+      return delegate.getAdditionalPath();
+    }
+  }
+}
@@ -0,0 +1,494 @@
+package ch.tkb.certalert.history;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only, segmented log of certificate state changes.
+ *
+ * <p>Each record is written as a length-prefixed binary entry to the active segment, which is
+ * rolled once it reaches the configured size. Only the positions of the last {@code retainVersions}
+ * records per identity are kept in memory; queries read exactly those positions from disk. Sealed
+ * segments are compacted in the background so that they only contain records still referenced by
+ * the index.
+ */
+@Component
+public class HistoryLog {
+
+  private static final Logger log = LoggerFactory.getLogger(HistoryLog.class);
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String COMPACT_SUFFIX = ".compact";
+
+  /** Upper bound for a single record; protects against reading garbage as a length. */
+  private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+  private final CertificateConfig.History settings;
+  private final Path directory;
+
+  /** Segment files keyed by id; the highest id is the active segment. */
+  private final NavigableMap<Long, Path> segments = new TreeMap<>();
+
+  /** Retained record positions per identity, oldest first. */
+  private final Map<CertificateIdentity, IdentityIndex> index = new HashMap<>();
+
+  private FileChannel active;
+  private long activeId;
+  private long activeSize;
+  private boolean available;
+
+  /** Opens the history log and rebuilds its index if history is enabled. */
+  public HistoryLog(CertificateConfig config) {
+    this.settings = config.history();
+    this.directory = Paths.get(settings.directory()).toAbsolutePath().normalize();
+    if (settings.enabled()) {
+      open();
+    }
+  }
+
+  /** Returns whether the log is enabled and could be opened. */
+  public synchronized boolean isAvailable() {
+    return available;
+  }
+
+  /**
+   * Appends the state of a certificate to the log. Does nothing if the latest retained record for
+   * the identity already describes the same state, e.g. after a restart.
+   */
+  public synchronized void append(CertificateInfo info) {
+    if (!available) {
+      return;
+    }
+
+    HistoryRecord record = HistoryRecord.of(info, Instant.now());
+    IdentityIndex idx = index.computeIfAbsent(record.identity(), key -> new IdentityIndex());
+    if (record.sameState(idx.last)) {
+      return;
+    }
+
+    try {
+      long offset = write(record.encode());
+      idx.add(new Position(activeId, offset), settings.retainVersions());
+      idx.last = record;
+      if (activeSize >= settings.segmentSize().toBytes()) {
+        roll();
+      }
+    } catch (IOException e) {
+      log.warn(
+          "Failed to append history for {}:{}: {}",
+          info.getName(),
+          info.getAlias(),
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the retained records of all identities matching the filter, newest first. The records
+   * are read after the lock is released, so appends do not wait for the read.
+   *
+   * @param filter selects the identities to include
+   * @param limit maximum number of records to return
+   */
+  public List<HistoryRecord> query(Predicate<CertificateIdentity> filter, int limit) {
+    PendingRead pending;
+    synchronized (this) {
+      if (!available || limit <= 0) {
+        return List.of();
+      }
+
+      List<Position> matches = new ArrayList<>();
+      for (var entry : index.entrySet()) {
+        if (filter.test(entry.getKey())) {
+          matches.addAll(entry.getValue().positions);
+        }
+      }
+      matches.sort(
+          Comparator.comparingLong(Position::segmentId).thenComparingLong(Position::offset));
+
+      List<Position> newest = new ArrayList<>(Math.min(limit, matches.size()));
+      for (int i = matches.size() - 1; i >= 0 && newest.size() < limit; i--) {
+        newest.add(matches.get(i));
+      }
+      pending = open(newest);
+    }
+    return pending.read();
+  }
+
+  /**
+   * Returns the most recent record of every identity matching the filter. Reads one record per
+   * identity, e.g. to restore the last known state after a restart.
+   */
+  public List<HistoryRecord> latest(Predicate<CertificateIdentity> filter) {
+    PendingRead pending;
+    synchronized (this) {
+      if (!available) {
+        return List.of();
+      }
+
+      List<Position> matches = new ArrayList<>();
+      for (var entry : index.entrySet()) {
+        if (filter.test(entry.getKey()) && !entry.getValue().positions.isEmpty()) {
+          matches.add(entry.getValue().positions.getLast());
+        }
+      }
+      pending = open(matches);
+    }
+    return pending.read();
+  }
+
+  /**
+   * Rewrites sealed segments so they only contain records still referenced by the index. Segments
+   * without any live record are deleted.
+   */
+  @Scheduled(
+      fixedDelayString = "${certalert.history.compaction-interval:1h}",
+      initialDelayString = "${certalert.history.compaction-interval:1h}")
+  public void compact() {
+    List<Long> sealed;
+    synchronized (this) {
+      if (!available) {
+        return;
+      }
+      sealed = new ArrayList<>(segments.headMap(activeId, false).keySet());
+    }
+
+    for (long segmentId : sealed) {
+      synchronized (this) {
+        try {
+          compactSegment(segmentId);
+        } catch (IOException e) {
+          log.warn("Failed to compact history segment {}: {}", segmentId, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens the segments of the given positions. Called under the lock, so a compaction cannot
+   * rewrite or delete them first; an open channel keeps reading the file it was opened on, and the
+   * records before the end of the active segment are complete.
+   */
+  private PendingRead open(List<Position> positions) {
+    Map<Long, FileChannel> channels = new HashMap<>();
+    try {
+      for (Position pos : positions) {
+        if (!channels.containsKey(pos.segmentId())) {
+          channels.put(
+              pos.segmentId(),
+              FileChannel.open(segments.get(pos.segmentId()), StandardOpenOption.READ));
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Failed to read history: {}", e.getMessage());
+      channels.values().forEach(HistoryLog::closeQuietly);
+      return new PendingRead(List.of(), Map.of());
+    }
+    return new PendingRead(positions, channels);
+  }
+
+  /** Closes the active segment. */
+  @PreDestroy
+  public synchronized void close() {
+    if (active != null) {
+      closeQuietly(active);
+      active = null;
+    }
+    available = false;
+  }
+
+  /** Opens the directory, rebuilds the index from existing segments and opens the active one. */
+  private synchronized void open() {
+    try {
+      Files.createDirectories(directory);
+      try (Stream<Path> files = Files.list(directory)) {
+        files.forEach(this::registerSegment);
+      }
+      for (var segment : segments.entrySet()) {
+        boolean last = segment.getKey().equals(segments.lastKey());
+        rebuildIndex(segment.getKey(), segment.getValue(), last);
+      }
+      openActive(segments.isEmpty() ? 1 : segments.lastKey());
+      available = true;
+      log.info(
+          "History log opened at {} with {} segments and {} identities",
+          directory,
+          segments.size(),
+          index.size());
+    } catch (IOException e) {
+      log.error("Failed to open history log at {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /** Adds a segment file to the segment map, removing leftovers of interrupted compactions. */
+  private void registerSegment(Path file) {
+    String fileName = file.getFileName().toString();
+    if (fileName.endsWith(COMPACT_SUFFIX)) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        log.warn("Failed to remove stale compaction file {}: {}", file, e.getMessage());
+      }
+      return;
+    }
+    if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+      return;
+    }
+    String id =
+        fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length());
+    try {
+      segments.put(Long.parseLong(id), file);
+    } catch (NumberFormatException e) {
+      log.warn("Ignoring unexpected file in history directory: {}", file);
+    }
+  }
+
+  /**
+   * Streams through a segment and records the positions of its entries. A truncated record at the
+   * end of the last segment (e.g. after a crash) is cut off.
+   */
+  private void rebuildIndex(long segmentId, Path file, boolean last) throws IOException {
+    long offset = 0;
+    try (InputStream raw = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        if (length <= 0 || length > MAX_RECORD_SIZE) {
+          throw new EOFException("invalid record length " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+
+        HistoryRecord record = HistoryRecord.decode(payload);
+        IdentityIndex idx = index.computeIfAbsent(record.identity(), key -> new IdentityIndex());
+        idx.add(new Position(segmentId, offset), settings.retainVersions());
+        idx.last = record;
+        offset += Integer.BYTES + length;
+      }
+    } catch (EOFException e) {
+      if (!last) {
+        log.warn("History segment {} is truncated at offset {}", file, offset);
+        return;
+      }
+      log.warn("Truncating incomplete history record in {} at offset {}", file, offset);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(offset);
+      }
+    }
+  }
+
+  /** Writes a length-prefixed payload to the active segment and returns its offset. */
+  private long write(byte[] payload) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length);
+    buffer.putInt(payload.length).put(payload).flip();
+
+    long offset = activeSize;
+    while (buffer.hasRemaining()) {
+      active.write(buffer);
+    }
+    activeSize += Integer.BYTES + payload.length;
+    return offset;
+  }
+
+  /** Seals the active segment and opens the next one. */
+  private void roll() throws IOException {
+    active.force(false);
+    active.close();
+    openActive(activeId + 1);
+    log.debug("Rolled history log to segment {}", activeId);
+  }
+
+  private void openActive(long segmentId) throws IOException {
+    Path file = segmentPath(segmentId);
+    active =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    activeId = segmentId;
+    activeSize = active.size();
+    segments.put(segmentId, file);
+  }
+
+  /** Rewrites one sealed segment keeping only records referenced by the index. */
+  private void compactSegment(long segmentId) throws IOException {
+    Path file = segments.get(segmentId);
+    if (file == null) {
+      return;
+    }
+
+    List<Position> live = new ArrayList<>();
+    for (IdentityIndex idx : index.values()) {
+      for (Position pos : idx.positions) {
+        if (pos.segmentId() == segmentId) {
+          live.add(pos);
+        }
+      }
+    }
+
+    if (live.isEmpty()) {
+      Files.deleteIfExists(file);
+      segments.remove(segmentId);
+      log.debug("Removed history segment {} without live records", segmentId);
+      return;
+    }
+
+    live.sort(Comparator.comparingLong(Position::offset));
+    Path target = file.resolveSibling(file.getFileName() + COMPACT_SUFFIX);
+    Map<Position, Long> moved = new HashMap<>();
+    try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+        FileChannel out =
+            FileChannel.open(
+                target,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+      if (live.size() == countRecords(source)) {
+        Files.deleteIfExists(target);
+        return;
+      }
+      for (Position pos : live) {
+        byte[] payload = readPayload(source, pos.offset());
+        moved.put(pos, out.position());
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length);
+        buffer.putInt(payload.length).put(payload).flip();
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+      }
+      out.force(false);
+    }
+
+    Files.move(target, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    for (IdentityIndex idx : index.values()) {
+      idx.relocate(moved);
+    }
+    log.debug("Compacted history segment {} to {} records", segmentId, live.size());
+  }
+
+  /** Counts the records of a segment by walking its length prefixes. */
+  private static long countRecords(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    long offset = 0;
+    long count = 0;
+    long size = channel.size();
+    while (offset + Integer.BYTES <= size) {
+      header.clear();
+      channel.read(header, offset);
+      offset += Integer.BYTES + header.getInt(0);
+      count++;
+    }
+    return count;
+  }
+
+  /** Reads the payload of the record at the given offset. */
+  private static byte[] readPayload(FileChannel channel, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    readFully(channel, header, offset);
+    int length = header.getInt(0);
+    if (length <= 0 || length > MAX_RECORD_SIZE) {
+      throw new IOException("Invalid history record length " + length + " at offset " + offset);
+    }
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    readFully(channel, payload, offset + Integer.BYTES);
+    return payload.array();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long offset)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, offset + buffer.position());
+      if (read < 0) {
+        throw new EOFException("Unexpected end of history segment at offset " + offset);
+      }
+    }
+  }
+
+  private Path segmentPath(long segmentId) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.debug("Failed to close history segment: {}", e.getMessage());
+    }
+  }
+
+  /** Location of one record in the log. */
+  private record Position(long segmentId, long offset) {}
+
+  /** Positions to read with the segments they are in, opened under the lock. */
+  private record PendingRead(List<Position> positions, Map<Long, FileChannel> channels) {
+
+    /** Reads the records at the positions, keeping their order, and closes the segments. */
+    List<HistoryRecord> read() {
+      List<HistoryRecord> result = new ArrayList<>(positions.size());
+      try {
+        for (Position pos : positions) {
+          result.add(
+              HistoryRecord.decode(readPayload(channels.get(pos.segmentId()), pos.offset())));
+        }
+      } catch (IOException e) {
+        log.warn("Failed to read history: {}", e.getMessage());
+      } finally {
+        channels.values().forEach(HistoryLog::closeQuietly);
+      }
+      return result;
+    }
+  }
+
+  /** Retained positions and the latest record of one identity. */
+  private static final class IdentityIndex {
+    private final ArrayDeque<Position> positions = new ArrayDeque<>();
+    private HistoryRecord last;
+
+    private void add(Position pos, int retain) {
+      positions.addLast(pos);
+      while (positions.size() > retain) {
+        positions.removeFirst();
+      }
+    }
+
+    /** Replaces positions that were moved by a compaction. */
+    private void relocate(Map<Position, Long> moved) {
+      for (int i = positions.size(); i > 0; i--) {
+        Position pos = positions.removeFirst();
+        Long offset = moved.get(pos);
+        positions.addLast(offset != null ? new Position(pos.segmentId(), offset) : pos);
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package ch.tkb.certalert.history;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Objects;
+
+/** One recorded state of a certificate identity in the rotation history log. */
+public record HistoryRecord(
+    Instant recordedAt, // When the change was detected
+    CertificateIdentity identity, // Certificate identity the record belongs to
+    Status status, // Status at the time of the change
+    Instant notBefore, // Validity start (null for load errors)
+    Instant notAfter, // Validity end (null for load errors)
+    String subject, // Subject DN or error message
+    String fingerprint // SHA-256 fingerprint (null for load errors)
+    ) {
+
+  /** Longest subject or error message stored per record. */
+  static final int MAX_SUBJECT_LENGTH = 1024;
+
+  /** Marker for absent instants in the binary encoding. */
+  private static final long NO_INSTANT = Long.MIN_VALUE;
+
+  /** Creates a record from the collected certificate state. */
+  public static HistoryRecord of(CertificateInfo info, Instant recordedAt) {
+    String subject = info.getSubject();
+    if (subject != null && subject.length() > MAX_SUBJECT_LENGTH) {
+      subject = subject.substring(0, MAX_SUBJECT_LENGTH);
+    }
+    return new HistoryRecord(
+        recordedAt,
+        CertificateIdentity.from(info),
+        info.getStatus(),
+        info.getNotBefore(),
+        info.getNotAfter(),
+        subject,
+        info.getFingerprint());
+  }
+
+  /** Converts the record back into certificate info as it was recorded. */
+  public CertificateInfo toInfo() {
+    return CertificateInfo.builder()
+        .path(identity.path())
+        .fileName(notAfter != null ? new File(identity.path()).getName() : null)
+        .name(identity.name())
+        .type(identity.type())
+        .alias(identity.alias())
+        .subject(subject)
+        .notBefore(notBefore)
+        .notAfter(notAfter)
+        .status(status)
+        .fingerprint(fingerprint)
+        .build();
+  }
+
+  /** Returns whether both records describe the same certificate state, ignoring the timestamp. */
+  boolean sameState(HistoryRecord other) {
+    return other != null
+        && status == other.status
+        && Objects.equals(notBefore, other.notBefore)
+        && Objects.equals(notAfter, other.notAfter)
+        && Objects.equals(subject, other.subject)
+        && Objects.equals(fingerprint, other.fingerprint);
+  }
+
+  /** Encodes the record into its compact binary form (without the length prefix). */
+  byte[] encode() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeLong(recordedAt.toEpochMilli());
+      out.writeUTF(status.name());
+      out.writeLong(toMillis(notBefore));
+      out.writeLong(toMillis(notAfter));
+      out.writeUTF(nullToEmpty(identity.path()));
+      out.writeUTF(nullToEmpty(identity.type()));
+      out.writeUTF(nullToEmpty(identity.name()));
+      out.writeUTF(nullToEmpty(identity.alias()));
+      out.writeUTF(nullToEmpty(subject));
+      out.writeUTF(nullToEmpty(fingerprint));
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Decodes a record previously written by {@link #encode()}. */
+  static HistoryRecord decode(byte[] payload) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      Instant recordedAt = Instant.ofEpochMilli(in.readLong());
+      Status status = Status.valueOf(in.readUTF());
+      Instant notBefore = fromMillis(in.readLong());
+      Instant notAfter = fromMillis(in.readLong());
+      CertificateIdentity identity =
+          new CertificateIdentity(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+      String subject = in.readUTF();
+      String fingerprint = in.readUTF();
+      return new HistoryRecord(
+          recordedAt,
+          identity,
+          status,
+          notBefore,
+          notAfter,
+          emptyToNull(subject),
+          emptyToNull(fingerprint));
+    }
+  }
+
+  private static long toMillis(Instant instant) {
+    return instant != null ? instant.toEpochMilli() : NO_INSTANT;
+  }
+
+  private static Instant fromMillis(long millis) {
+    return millis != NO_INSTANT ? Instant.ofEpochMilli(millis) : null;
+  }
+
+  private static String nullToEmpty(String value) {
+    return value != null ? value : "";
+  }
+
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+}
@@ -0,0 +1,56 @@
+package ch.tkb.certalert.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** The load of one configured entry by its source, or why it was not loaded. */
+@Name("ch.tkb.certalert.EntryLoad")
+@Label("Entry Load")
+@Category("certalert")
+@Description("Load of a configured entry")
+@StackTrace(false)
+public class EntryLoadEvent extends Event {
+
+  /** Certificates were read. */
+  public static final String LOADED = "loaded";
+
+  /** The source failed to read the entry. */
+  public static final String FAILED = "failed";
+
+  /** Not read again because the file is unchanged since the last failure. */
+  public static final String KNOWN_FAILURE = "known-failure";
+
+  /** Skipped while the entry backs off after repeated failures. */
+  public static final String SKIPPED = "skipped";
+
+  /** Rejected because the bulkhead of the source was full. */
+  public static final String REJECTED = "rejected";
+
+  /** Given up after the load timeout; the load may still be running. */
+  public static final String TIMED_OUT = "timed-out";
+
+  @Label("Name")
+  public String name;
+
+  @Label("Type")
+  public String type;
+
+  @Label("Path")
+  public String path;
+
+  @Label("Bytes Read")
+  @Description("Size of the file, or of the certificates read if there is no local file")
+  @DataAmount
+  public long bytes;
+
+  @Label("Aliases")
+  public int aliases;
+
+  @Label("Outcome")
+  public String outcome;
+}
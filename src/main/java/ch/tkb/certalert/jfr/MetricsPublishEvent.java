@@ -0,0 +1,29 @@
+package ch.tkb.certalert.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Publication of a new snapshot and the pruning of the metrics of its changed rows. */
+@Name("ch.tkb.certalert.MetricsPublish")
+@Label("Metrics Publish")
+@Category("certalert")
+@Description("Publication of a snapshot and its metric changes")
+@StackTrace(false)
+public class MetricsPublishEvent extends Event {
+
+  @Label("Certificates")
+  public int certificates;
+
+  @Label("Added")
+  public int added;
+
+  @Label("Changed")
+  public int changed;
+
+  @Label("Removed")
+  public int removed;
+}
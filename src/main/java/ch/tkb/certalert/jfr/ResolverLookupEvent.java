@@ -0,0 +1,28 @@
+package ch.tkb.certalert.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A lookup of a value such as a password by {@code Resolver}; the value is not recorded. */
+@Name("ch.tkb.certalert.ResolverLookup")
+@Label("Resolver Lookup")
+@Category("certalert")
+@Description("Lookup of a value from the environment or a file")
+@StackTrace(false)
+public class ResolverLookupEvent extends Event {
+
+  @Label("Scheme")
+  @Description("env, file, json, yaml, ini, properties or toml")
+  public String scheme;
+
+  @Label("Location")
+  @Description("Variable name, or file and key of the value")
+  public String location;
+
+  @Label("Found")
+  public boolean found;
+}
@@ -0,0 +1,29 @@
+package ch.tkb.certalert.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One scan of a group of entries, from the first load to the published snapshot. */
+@Name("ch.tkb.certalert.Scan")
+@Label("Certificate Scan")
+@Category("certalert")
+@Description("A scan of the entries of one group")
+@StackTrace(false)
+public class ScanEvent extends Event {
+
+  @Label("Group")
+  @Description("Name of the scanned group")
+  public String group;
+
+  @Label("Entries")
+  @Description("Configured entries scanned by this replica")
+  public int entries;
+
+  @Label("Certificates")
+  @Description("Certificates in the resulting snapshot")
+  public int certificates;
+}
@@ -0,0 +1,117 @@
+package ch.tkb.certalert.kubernetes;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.utils.CertificateLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/** Minimal client for the read-only Kubernetes API calls of the {@link SecretInformer}. */
+final class KubernetesApiClient {
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private final String apiServer;
+  private final Path tokenFile;
+  private final HttpClient http;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /** Creates a client for the configured API server, trusting the configured CA if present. */
+  KubernetesApiClient(CertificateConfig.Kubernetes settings) {
+    this.apiServer = settings.apiServer();
+    this.tokenFile = Paths.get(settings.tokenFile());
+    HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT);
+    Path caFile = Paths.get(settings.caFile());
+    if (Files.isRegularFile(caFile)) {
+      builder.sslContext(sslContext(caFile));
+    }
+    this.http = builder.build();
+  }
+
+  /** Performs a GET request and parses the JSON response. */
+  JsonNode get(String path) throws IOException, InterruptedException {
+    HttpResponse<InputStream> response =
+        http.send(
+            request(path).timeout(REQUEST_TIMEOUT).build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+    try (InputStream body = response.body()) {
+      checkStatus(path, response.statusCode(), body);
+      return mapper.readTree(body);
+    }
+  }
+
+  /** Opens a streaming GET request (e.g. a watch); the caller closes the stream. */
+  InputStream stream(String path) throws IOException, InterruptedException {
+    HttpResponse<InputStream> response =
+        http.send(request(path).build(), HttpResponse.BodyHandlers.ofInputStream());
+    InputStream body = response.body();
+    try {
+      checkStatus(path, response.statusCode(), body);
+    } catch (IOException e) {
+      body.close();
+      throw e;
+    }
+    return body;
+  }
+
+  private HttpRequest.Builder request(String path) throws IOException {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(URI.create(apiServer + path))
+            .header("Accept", "application/json")
+            .GET();
+    // Projected service account tokens are rotated, so the file is read on every request
+    if (Files.isRegularFile(tokenFile)) {
+      request.header("Authorization", "Bearer " + Files.readString(tokenFile).trim());
+    }
+    return request;
+  }
+
+  private static void checkStatus(String path, int status, InputStream body) throws IOException {
+    if (status != 200) {
+      byte[] message = body.readNBytes(512);
+      throw new IOException(
+          "GET "
+              + path
+              + " returned status "
+              + status
+              + ": "
+              + new String(message, StandardCharsets.UTF_8));
+    }
+  }
+
+  private static SSLContext sslContext(Path caFile) {
+    try {
+      KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+      trustStore.load(null, null);
+      List<X509Certificate> cas = CertificateLoader.loadAll(caFile.toString());
+      for (int i = 0; i < cas.size(); i++) {
+        trustStore.setCertificateEntry("ca" + i, cas.get(i));
+      }
+      TrustManagerFactory trustManagers =
+          TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagers.init(trustStore);
+      SSLContext context = SSLContext.getInstance("TLS");
+      context.init(null, trustManagers.getTrustManagers(), null);
+      return context;
+    } catch (Exception e) {
+      throw new IllegalArgumentException(
+          "Cannot load Kubernetes CA from " + caFile + ": " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package ch.tkb.certalert.kubernetes;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/** Serves {@code k8s-secret} entries from the {@link SecretInformer} cache; loads are cheap. */
+@Component
+public class KubernetesSecretSource implements CertificateSource {
+
+  /** Entry type served by this source. */
+  static final String TYPE = "k8s-secret";
+
+  private final SecretInformer secretInformer;
+
+  public KubernetesSecretSource(SecretInformer secretInformer) {
+    this.secretInformer = secretInformer;
+  }
+
+  @Override
+  public Set<String> types() {
+    return Set.of(TYPE);
+  }
+
+  @Override
+  public boolean readsFiles() {
+    return false;
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    return LoadedCertificate.bundle(secretInformer.certificates(entry.path()));
+  }
+}
@@ -0,0 +1,323 @@
+package ch.tkb.certalert.kubernetes;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.utils.CertificateLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local cache of {@code kubernetes.io/tls} Secrets, kept up to date with list+watch.
+ *
+ * <p>Each referenced namespace is listed once and then watched from the list's resourceVersion.
+ * Secrets are only parsed when their resourceVersion changes, so scans read the cached certificates
+ * without contacting the API server. An expired resourceVersion (410 Gone) triggers a relist;
+ * connection failures are retried with backoff.
+ *
+ * <p>The namespaces of the configured entries are listed as soon as the application has started, so
+ * the first scan rarely has to wait for them. The API client and the service account files are only
+ * touched once a namespace is watched, i.e. never without {@code k8s-secret} entries.
+ */
+@Component
+public class SecretInformer {
+
+  private static final Logger log = LoggerFactory.getLogger(SecretInformer.class);
+
+  /** Data key holding the certificate chain of a TLS Secret. */
+  static final String TLS_CERT_KEY = "tls.crt";
+
+  /** Server-side timeout of a single watch request. */
+  private static final int WATCH_TIMEOUT_SECONDS = 300;
+
+  private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+  private static final String TLS_SELECTOR = "fieldSelector=type%3Dkubernetes.io%2Ftls";
+  private static final ObjectReader EVENT_READER = new ObjectMapper().readerFor(JsonNode.class);
+
+  private final CertificateConfig config;
+  private final CertificateConfig.Kubernetes settings;
+  private final ConcurrentMap<String, NamespaceWatch> watches = new ConcurrentHashMap<>();
+  private final AtomicLong parses = new AtomicLong();
+  private volatile boolean closed;
+  private KubernetesApiClient client;
+  private String defaultNamespace;
+
+  /** Creates the informer; namespaces are only listed and watched once they are referenced. */
+  public SecretInformer(CertificateConfig config) {
+    this.config = config;
+    this.settings = config.kubernetes();
+  }
+
+  /** Starts watching the namespaces of the configured {@code k8s-secret} entries. */
+  @EventListener(ApplicationStartedEvent.class)
+  public void start() {
+    for (CertificateConfig.Group group : config.allGroups()) {
+      for (CertificateEntry entry : group.certificates()) {
+        if (KubernetesSecretSource.TYPE.equalsIgnoreCase(entry.type())) {
+          watches.computeIfAbsent(namespaceOf(entry.path()), this::startWatch);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the DER-encoded certificates of a TLS Secret.
+   *
+   * @param reference the Secret as {@code namespace/name}, or {@code name} for the default
+   *     namespace
+   * @throws IllegalArgumentException if the Secret does not exist or holds no certificates
+   * @throws IllegalStateException if the namespace has not been listed within the sync timeout
+   */
+  public List<byte[]> certificates(String reference) throws InterruptedException {
+    String namespace = namespaceOf(reference);
+    String name = reference.substring(reference.indexOf('/') + 1);
+
+    NamespaceWatch watch = watches.computeIfAbsent(namespace, this::startWatch);
+    if (!watch.synced.await(settings.syncTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+      throw new IllegalStateException("Secrets of namespace " + namespace + " are not synced yet");
+    }
+    CachedSecret secret = watch.secrets.get(name);
+    if (secret == null) {
+      throw new IllegalArgumentException("Secret " + namespace + "/" + name + " does not exist");
+    }
+    if (secret.error() != null) {
+      throw new IllegalArgumentException(secret.error());
+    }
+    return secret.certificates();
+  }
+
+  /** Returns how many Secret versions have been parsed so far. */
+  long parseCount() {
+    return parses.get();
+  }
+
+  /** Stops all watches. */
+  @PreDestroy
+  public void close() {
+    closed = true;
+    for (NamespaceWatch watch : watches.values()) {
+      watch.stop();
+    }
+  }
+
+  private NamespaceWatch startWatch(String namespace) {
+    NamespaceWatch watch = new NamespaceWatch(namespace);
+    watch.thread.start();
+    return watch;
+  }
+
+  /** Returns the namespace of a {@code namespace/name} reference or the default namespace. */
+  private String namespaceOf(String reference) {
+    int slash = reference.indexOf('/');
+    return slash > 0 ? reference.substring(0, slash) : defaultNamespace();
+  }
+
+  private synchronized String defaultNamespace() {
+    if (defaultNamespace == null) {
+      defaultNamespace =
+          settings.namespace() != null ? settings.namespace() : serviceAccountNamespace();
+    }
+    return defaultNamespace;
+  }
+
+  /** Returns the API client, creating it when the first namespace is listed. */
+  private synchronized KubernetesApiClient client() {
+    if (client == null) {
+      client = new KubernetesApiClient(settings);
+    }
+    return client;
+  }
+
+  private static String serviceAccountNamespace() {
+    Path file = Paths.get(CertificateConfig.Kubernetes.SERVICE_ACCOUNT_DIR, "namespace");
+    try {
+      return Files.isRegularFile(file) ? Files.readString(file).trim() : "default";
+    } catch (IOException e) {
+      return "default";
+    }
+  }
+
+  /** Parsed state of one Secret version; exactly one of certificates and error is set. */
+  private record CachedSecret(String resourceVersion, List<byte[]> certificates, String error) {}
+
+  /** Lists and watches the TLS Secrets of one namespace on a dedicated thread. */
+  private final class NamespaceWatch implements Runnable {
+    private final String namespace;
+    private final String path;
+    private final Map<String, CachedSecret> secrets = new ConcurrentHashMap<>();
+    private final CountDownLatch synced = new CountDownLatch(1);
+    private final Thread thread;
+
+    /** Resource version to watch from; null forces a relist. */
+    private String resourceVersion;
+
+    private volatile InputStream activeWatch;
+
+    private NamespaceWatch(String namespace) {
+      this.namespace = namespace;
+      this.path = "/api/v1/namespaces/" + namespace + "/secrets";
+      this.thread = new Thread(this, "certalert-secrets-" + namespace);
+      this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      Duration backoff = MIN_BACKOFF;
+      while (!closed) {
+        try {
+          if (resourceVersion == null) {
+            list();
+          }
+          watch();
+          backoff = MIN_BACKOFF;
+        } catch (IOException | RuntimeException e) {
+          if (closed) {
+            return;
+          }
+          log.warn(
+              "Watching secrets in {} failed; retrying in {}s: {}",
+              namespace,
+              backoff.toSeconds(),
+              e.getMessage());
+          try {
+            Thread.sleep(backoff.toMillis());
+          } catch (InterruptedException interrupted) {
+            return;
+          }
+          backoff =
+              backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0
+                  ? MAX_BACKOFF
+                  : backoff.multipliedBy(2);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+
+    /** Replaces the cache with a full list and remembers its resourceVersion. */
+    private void list() throws IOException, InterruptedException {
+      JsonNode list = client().get(path + "?" + TLS_SELECTOR);
+      Set<String> listed = new HashSet<>();
+      for (JsonNode item : list.path("items")) {
+        listed.add(apply(item));
+      }
+      secrets.keySet().retainAll(listed);
+      resourceVersion = list.path("metadata").path("resourceVersion").asText();
+      synced.countDown();
+      log.debug(
+          "Listed {} TLS secrets in {} at version {}", listed.size(), namespace, resourceVersion);
+    }
+
+    /** Applies watch events until the server ends the watch or the version expires. */
+    private void watch() throws IOException, InterruptedException {
+      String query =
+          "?watch=true&allowWatchBookmarks=true&"
+              + TLS_SELECTOR
+              + "&timeoutSeconds="
+              + WATCH_TIMEOUT_SECONDS
+              + "&resourceVersion="
+              + resourceVersion;
+      try (InputStream stream = client().stream(path + query);
+          MappingIterator<JsonNode> events = EVENT_READER.readValues(stream)) {
+        activeWatch = stream;
+        while (!closed && events.hasNextValue()) {
+          if (!handle(events.nextValue())) {
+            return;
+          }
+        }
+      } finally {
+        activeWatch = null;
+      }
+    }
+
+    /**
+     * Applies one watch event.
+     *
+     * @return false if the watch must be restarted with a relist
+     */
+    private boolean handle(JsonNode event) throws IOException {
+      JsonNode object = event.path("object");
+      switch (event.path("type").asText()) {
+        case "ADDED", "MODIFIED" -> apply(object);
+        case "DELETED" -> secrets.remove(object.path("metadata").path("name").asText());
+        case "BOOKMARK" -> {}
+        case "ERROR" -> {
+          if (object.path("code").asInt() == 410) {
+            log.debug("Watch version of {} expired; relisting", namespace);
+            resourceVersion = null;
+            return false;
+          }
+          throw new IOException("Watch error: " + object.path("message").asText());
+        }
+        default -> log.debug("Ignoring watch event {}", event.path("type").asText());
+      }
+      resourceVersion = object.path("metadata").path("resourceVersion").asText(resourceVersion);
+      return true;
+    }
+
+    /** Caches the Secret, parsing it only if its resourceVersion changed; returns its name. */
+    private String apply(JsonNode secret) {
+      String name = secret.path("metadata").path("name").asText();
+      String version = secret.path("metadata").path("resourceVersion").asText();
+      CachedSecret cached = secrets.get(name);
+      if (cached != null && cached.resourceVersion().equals(version)) {
+        return name;
+      }
+
+      parses.incrementAndGet();
+      String data = secret.path("data").path(TLS_CERT_KEY).asText(null);
+      CachedSecret parsed;
+      try {
+        if (data == null) {
+          throw new IllegalArgumentException("Secret has no " + TLS_CERT_KEY);
+        }
+        List<byte[]> certificates =
+            CertificateLoader.encodedCertificates(Base64.getDecoder().decode(data));
+        if (certificates.isEmpty()) {
+          throw new IllegalArgumentException("No certificates found in " + TLS_CERT_KEY);
+        }
+        parsed = new CachedSecret(version, certificates, null);
+      } catch (Exception e) {
+        parsed = new CachedSecret(version, null, e.getMessage());
+      }
+      secrets.put(name, parsed);
+      return name;
+    }
+
+    private void stop() {
+      InputStream stream = activeWatch;
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (IOException e) {
+          // closing only interrupts the blocked read
+        }
+      }
+      thread.interrupt();
+    }
+  }
+}
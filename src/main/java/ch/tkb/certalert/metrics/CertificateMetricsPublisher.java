@@ -1,37 +1,40 @@
 package ch.tkb.certalert.metrics;
 
-import ch.tkb.certalert.model.CertificateIdentity;
 import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.ChainStatus;
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.utils.IntObjectMap;
 import com.google.common.util.concurrent.AtomicDouble;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.Collection;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
 import org.springframework.stereotype.Component;
 
-/** Publishes certificate metrics to the configured MeterRegistry. */
+/**
+ * Publishes certificate metrics to the configured MeterRegistry. Metrics are keyed by the identity
+ * id assigned by {@link ch.tkb.certalert.snapshot.IdentityRegistry}.
+ */
 @Component
 public class CertificateMetricsPublisher {
 
   private final MeterRegistry meterRegistry;
 
-  /** Holds registered expiration metrics keyed by certificate identity. */
-  private final ConcurrentMap<CertificateIdentity, MetricState> certExpirationMetrics =
-      new ConcurrentHashMap<>();
+  /** Holds registered expiration metrics keyed by identity id. */
+  private final IntObjectMap<MetricState> certExpirationMetrics = new IntObjectMap<>();
 
-  /** Holds registered remaining-days metrics keyed by certificate identity. */
-  private final ConcurrentMap<CertificateIdentity, MetricState> certDaysRemainingMetrics =
-      new ConcurrentHashMap<>();
+  /** Holds registered remaining-days metrics keyed by identity id. */
+  private final IntObjectMap<MetricState> certDaysRemainingMetrics = new IntObjectMap<>();
 
-  /** Holds registered validity metrics keyed by certificate identity. */
-  private final ConcurrentMap<CertificateIdentity, MetricState> certValidityMetrics =
-      new ConcurrentHashMap<>();
+  /** Holds registered validity metrics keyed by identity id. */
+  private final IntObjectMap<MetricState> certValidityMetrics = new IntObjectMap<>();
+
+  /** Holds registered chain status metrics keyed by identity id. */
+  private final IntObjectMap<MetricState> certChainMetrics = new IntObjectMap<>();
+
+  /** Holds registered revocation status metrics keyed by identity id. */
+  private final IntObjectMap<MetricState> certRevocationMetrics = new IntObjectMap<>();
 
   /** Initializes the publisher with a MeterRegistry. */
   public CertificateMetricsPublisher(MeterRegistry meterRegistry) {
@@ -39,19 +42,17 @@ public class CertificateMetricsPublisher {
   }
 
   /** Publishes or updates the expiration metric for a given certificate. */
-  public void publishExpiration(CertificateInfo certInfo) {
+  public synchronized void publishExpiration(int id, CertificateInfo certInfo) {
     Instant expiry = certInfo.getNotAfter();
     if (expiry == null) {
       return;
     }
 
     long epochSeconds = expiry.getEpochSecond();
-    double daysRemaining = Duration.between(Instant.now(), expiry).toSeconds() / 86_400.0;
-    CertificateIdentity key = CertificateIdentity.from(certInfo);
 
     certExpirationMetrics
         .computeIfAbsent(
-            key,
+            id,
             metricKey -> {
               AtomicDouble holder = new AtomicDouble(epochSeconds);
               Gauge gauge =
@@ -71,11 +72,16 @@ public class CertificateMetricsPublisher {
 
     certDaysRemainingMetrics
         .computeIfAbsent(
-            key,
+            id,
             metricKey -> {
-              AtomicDouble holder = new AtomicDouble(daysRemaining);
+              // Holds the expiry; the remaining days are computed when the gauge is read
+              AtomicDouble holder = new AtomicDouble(epochSeconds);
               Gauge gauge =
-                  Gauge.builder("certalert_certificate_days_remaining", holder, AtomicDouble::get)
+                  Gauge.builder(
+                          "certalert_certificate_days_remaining",
+                          holder,
+                          expirySeconds ->
+                              (expirySeconds.get() - Instant.now().getEpochSecond()) / 86_400.0)
                       .description("Days until certificate expiration")
                       .tags(
                           "certificate_name", certInfo.getName(),
@@ -86,17 +92,16 @@ public class CertificateMetricsPublisher {
               return new MetricState(holder, gauge);
             })
         .holder()
-        .set(daysRemaining);
+        .set(epochSeconds);
   }
 
   /** Publishes or updates the validity metric for a given certificate. */
-  public void publishValidity(CertificateInfo certInfo, boolean isValid) {
-    CertificateIdentity key = CertificateIdentity.from(certInfo);
+  public synchronized void publishValidity(int id, CertificateInfo certInfo, boolean isValid) {
     double status = isValid ? 0 : 1;
 
     certValidityMetrics
         .computeIfAbsent(
-            key,
+            id,
             metricKey -> {
               AtomicDouble holder = new AtomicDouble(status);
               Gauge gauge =
@@ -114,34 +119,84 @@ public class CertificateMetricsPublisher {
         .set(status);
   }
 
-  /** Removes metrics for certificate identities that are no longer present. */
-  public void prune(Collection<CertificateInfo> activeCertificates) {
-    Set<CertificateIdentity> activeKeys =
-        activeCertificates.stream().map(CertificateIdentity::from).collect(Collectors.toSet());
-    Set<CertificateIdentity> expiringKeys =
-        activeCertificates.stream()
-            .filter(certInfo -> certInfo.getNotAfter() != null)
-            .map(CertificateIdentity::from)
-            .collect(Collectors.toSet());
-
-    removeInactive(certValidityMetrics, activeKeys);
-    removeInactive(certExpirationMetrics, expiringKeys);
-    removeInactive(certDaysRemainingMetrics, expiringKeys);
+  /** Publishes or updates the chain status metric for a certificate with a validated chain. */
+  public synchronized void publishChain(int id, CertificateInfo certInfo) {
+    ChainStatus chain = certInfo.getChain();
+    if (chain == null) {
+      return;
+    }
+
+    certChainMetrics
+        .computeIfAbsent(
+            id,
+            metricKey -> {
+              AtomicDouble holder = new AtomicDouble(chain.ordinal());
+              Gauge gauge =
+                  Gauge.builder("certalert_certificate_chain_status", holder, AtomicDouble::get)
+                      .description(
+                          "Result of the chain validation (0 = trusted, 1 = untrusted, 2 = broken)")
+                      .tags(
+                          "certificate_name", certInfo.getName(),
+                          "alias", certInfo.getAlias(),
+                          "path", certInfo.getPath(),
+                          "type", certInfo.getType())
+                      .register(meterRegistry);
+              return new MetricState(holder, gauge);
+            })
+        .holder()
+        .set(chain.ordinal());
   }
 
-  private void removeInactive(
-      ConcurrentMap<CertificateIdentity, MetricState> metrics,
-      Set<CertificateIdentity> activeKeys) {
-    metrics
-        .entrySet()
-        .removeIf(
-            entry -> {
-              if (activeKeys.contains(entry.getKey())) {
-                return false;
-              }
-              meterRegistry.remove(entry.getValue().gauge());
-              return true;
-            });
+  /** Publishes or updates the revocation status metric for a checked certificate. */
+  public synchronized void publishRevocation(int id, CertificateInfo certInfo) {
+    RevocationStatus revocation = certInfo.getRevocation();
+    if (revocation == null) {
+      return;
+    }
+
+    certRevocationMetrics
+        .computeIfAbsent(
+            id,
+            metricKey -> {
+              AtomicDouble holder = new AtomicDouble(revocation.ordinal());
+              Gauge gauge =
+                  Gauge.builder(
+                          "certalert_certificate_revocation_status", holder, AtomicDouble::get)
+                      .description(
+                          "Result of the revocation check (0 = good, 1 = revoked, 2 = unknown)")
+                      .tags(
+                          "certificate_name", certInfo.getName(),
+                          "alias", certInfo.getAlias(),
+                          "path", certInfo.getPath(),
+                          "type", certInfo.getType())
+                      .register(meterRegistry);
+              return new MetricState(holder, gauge);
+            })
+        .holder()
+        .set(revocation.ordinal());
+  }
+
+  /**
+   * Removes the metrics of an identity that no longer apply to its row in the snapshot, or all of
+   * them if the identity is gone. Called for the ids that changed between two snapshots.
+   */
+  public synchronized void prune(int id, CertificateSnapshot snapshot) {
+    boolean present = snapshot.contains(id);
+    removeUnless(certValidityMetrics, id, present);
+    removeUnless(certExpirationMetrics, id, snapshot.hasNotAfter(id));
+    removeUnless(certDaysRemainingMetrics, id, snapshot.hasNotAfter(id));
+    removeUnless(certChainMetrics, id, snapshot.hasChain(id));
+    removeUnless(certRevocationMetrics, id, snapshot.hasRevocation(id));
+  }
+
+  private void removeUnless(IntObjectMap<MetricState> metrics, int id, boolean keep) {
+    if (keep) {
+      return;
+    }
+    MetricState state = metrics.remove(id);
+    if (state != null) {
+      meterRegistry.remove(state.gauge());
+    }
   }
 
   private record MetricState(AtomicDouble holder, Meter gauge) {}
@@ -0,0 +1,72 @@
+package ch.tkb.certalert.model;
+
+import ch.tkb.certalert.utils.SubjectAltNames;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.interfaces.XECPublicKey;
+import java.security.spec.NamedParameterSpec;
+import java.time.Instant;
+import java.util.List;
+
+/** Fields of a certificate that are decoded on request rather than on every scan. */
+public record CertificateDetails(
+    String fingerprint, // SHA-256 of the DER encoding
+    String subject, // Subject DN (RFC 2253)
+    String issuer, // Issuer DN (RFC 2253)
+    String serialNumber, // Serial number in hex
+    int version, // X.509 version, usually 3
+    Instant notBefore, // Start of validity
+    Instant notAfter, // End of validity
+    List<String> subjectAltNames, // DNS, IP, email and URI entries, e.g. "DNS:example.com"
+    String keyAlgorithm, // Algorithm of the public key, e.g. RSA or EC
+    Integer keySize, // Size of the public key in bits; null if unknown for the algorithm
+    String signatureAlgorithm // Algorithm the issuer signed with, e.g. SHA256withRSA
+    ) {
+
+  /** Decodes the details of a certificate. */
+  public static CertificateDetails of(String fingerprint, X509Certificate cert) {
+    return new CertificateDetails(
+        fingerprint,
+        cert.getSubjectX500Principal().getName(),
+        cert.getIssuerX500Principal().getName(),
+        cert.getSerialNumber().toString(16),
+        cert.getVersion(),
+        cert.getNotBefore().toInstant(),
+        cert.getNotAfter().toInstant(),
+        SubjectAltNames.of(cert),
+        cert.getPublicKey().getAlgorithm(),
+        keySize(cert.getPublicKey()),
+        cert.getSigAlgName());
+  }
+
+  private static Integer keySize(PublicKey key) {
+    if (key instanceof RSAPublicKey rsa) {
+      return rsa.getModulus().bitLength();
+    }
+    if (key instanceof ECPublicKey ec) {
+      return ec.getParams().getOrder().bitLength();
+    }
+    if (key instanceof DSAPublicKey dsa) {
+      return dsa.getParams().getP().bitLength();
+    }
+    if (key instanceof EdECPublicKey edec) {
+      return curveSize(edec.getParams());
+    }
+    if (key instanceof XECPublicKey xec && xec.getParams() instanceof NamedParameterSpec named) {
+      return curveSize(named);
+    }
+    return null;
+  }
+
+  private static Integer curveSize(NamedParameterSpec curve) {
+    return switch (curve.getName()) {
+      case "Ed25519", "X25519" -> 255;
+      case "Ed448", "X448" -> 448;
+      default -> null;
+    };
+  }
+}
@@ -1,12 +1,13 @@
 package ch.tkb.certalert.model;
 
 import java.time.Instant;
+import java.util.List;
 import lombok.Builder;
 import lombok.Value;
 
 /** Holds certificate metadata and its current validation status. */
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class CertificateInfo {
   String name;
   String path;
@@ -14,13 +15,32 @@ public class CertificateInfo {
   String type;
   String alias;
   String subject;
+  String issuer;
+  List<String> subjectAltNames; // DNS, IP, email and URI entries, e.g. "DNS:example.com"
   Instant notBefore;
   Instant notAfter;
   Status status;
+  String fingerprint;
+  ChainStatus chain;
+  RevocationStatus revocation;
 
   public enum Status {
     VALID,
     EXPIRED,
     INVALID
   }
+
+  /** Result of the chain validation; null if chains are not validated. */
+  public enum ChainStatus {
+    TRUSTED, // Valid signatures lead to a trust anchor
+    UNTRUSTED, // The chain ends before a trust anchor is reached
+    BROKEN // An issuer does not match its signature or is not valid (anymore)
+  }
+
+  /** Result of the revocation check; null if revocation is not checked or not applicable. */
+  public enum RevocationStatus {
+    GOOD, // Not revoked according to the CRL or OCSP responder
+    REVOKED, // Revoked by the issuer
+    UNKNOWN // No issuer, CRL or responder available, or the check failed
+  }
 }
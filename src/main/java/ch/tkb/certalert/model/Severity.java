@@ -0,0 +1,37 @@
+package ch.tkb.certalert.model;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import java.time.Duration;
+import java.time.Instant;
+
+/** Urgency of a certificate by its status and the dashboard thresholds, least urgent first. */
+public enum Severity {
+  OK,
+  WARNING,
+  CRITICAL,
+  EXPIRED,
+  INVALID;
+
+  /** Classifies a certificate at the given time. */
+  public static Severity of(
+      CertificateInfo info, Instant now, CertificateConfig.Dashboard thresholds) {
+    if (info.getStatus() == Status.INVALID) {
+      return INVALID;
+    }
+    if (info.getNotAfter() == null) {
+      return OK;
+    }
+    if (info.getStatus() == Status.EXPIRED || !now.isBefore(info.getNotAfter())) {
+      return EXPIRED;
+    }
+    Duration remaining = Duration.between(now, info.getNotAfter());
+    if (remaining.compareTo(thresholds.criticalThreshold()) <= 0) {
+      return CRITICAL;
+    }
+    if (remaining.compareTo(thresholds.warningThreshold()) <= 0) {
+      return WARNING;
+    }
+    return OK;
+  }
+}
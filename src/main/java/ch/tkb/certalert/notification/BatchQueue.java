@@ -0,0 +1,110 @@
+package ch.tkb.certalert.notification;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded FIFO of serialized batches backed by one file per batch, so undelivered batches survive a
+ * restart. Only the file names are kept in memory. Once the capacity is reached the oldest batch is
+ * dropped. Not thread-safe.
+ */
+final class BatchQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchQueue.class);
+  private static final String SUFFIX = ".json";
+
+  private final Path directory;
+  private final int capacity;
+  private final Deque<Path> files = new ArrayDeque<>();
+  private long nextSequence;
+
+  /** Opens the queue and picks up the batches left in the directory. */
+  BatchQueue(Path directory, int capacity) throws IOException {
+    this.directory = directory;
+    this.capacity = capacity;
+    Files.createDirectories(directory);
+    List<Path> existing;
+    try (Stream<Path> list = Files.list(directory)) {
+      existing =
+          list.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+    }
+    for (Path file : existing) {
+      files.add(file);
+      nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+    }
+    while (files.size() > capacity) {
+      drop();
+    }
+  }
+
+  /**
+   * Appends a batch.
+   *
+   * @return whether the oldest batch had to be dropped to make room
+   */
+  boolean offer(byte[] batch) throws IOException {
+    Path file = directory.resolve(String.format("%019d%s", nextSequence++, SUFFIX));
+    Path temp = directory.resolve(file.getFileName() + ".tmp");
+    Files.write(temp, batch);
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    files.add(file);
+    if (files.size() > capacity) {
+      drop();
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns the oldest batch without removing it, or null if the queue is empty. */
+  byte[] peek() throws IOException {
+    Path file = files.peekFirst();
+    return file != null ? Files.readAllBytes(file) : null;
+  }
+
+  /** Removes the oldest batch. */
+  void remove() {
+    Path file = files.pollFirst();
+    if (file != null) {
+      delete(file);
+    }
+  }
+
+  boolean isEmpty() {
+    return files.isEmpty();
+  }
+
+  int size() {
+    return files.size();
+  }
+
+  private void drop() {
+    Path oldest = files.pollFirst();
+    log.warn("Notification queue {} is full; dropping {}", directory, oldest.getFileName());
+    delete(oldest);
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Cannot delete notification batch {}: {}", file, e.getMessage());
+    }
+  }
+
+  private static long sequenceOf(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
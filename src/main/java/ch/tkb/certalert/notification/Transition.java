@@ -0,0 +1,15 @@
+package ch.tkb.certalert.notification;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.Severity;
+import java.time.Instant;
+
+/** A certificate that moved from one severity to another. */
+public record Transition(
+    CertificateIdentity identity, // Certificate that changed
+    String subject, // Subject, or the error message of invalid entries
+    Instant notAfter, // Expiry; null for invalid entries
+    Severity from, // Severity before the change; null if the certificate is new
+    Severity to, // Severity after the change
+    Instant at // When the change was detected
+    ) {}
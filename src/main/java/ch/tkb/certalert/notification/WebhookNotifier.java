@@ -0,0 +1,363 @@
+package ch.tkb.certalert.notification;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.Severity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends certificates entering a warning, critical, expired or invalid state to webhooks.
+ *
+ * <p>The collector reports every certificate it sees; only changes of the {@link Severity} become
+ * transitions. Transitions are coalesced per window and deduplicated per identity (a certificate
+ * that went from warning to critical to expired within one window is sent once, from warning to
+ * expired), then split into batches that are written to a bounded queue on disk per webhook. A
+ * single thread delivers the queues, rate-limited per webhook and with exponential backoff while a
+ * webhook fails, so a mass expiry or an outage costs neither memory nor threads.
+ */
+@Component
+public class WebhookNotifier {
+
+  private static final Logger log = LoggerFactory.getLogger(WebhookNotifier.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Wait before the first retry of a failing webhook; doubled up to the configured maximum. */
+  static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+  private final CertificateConfig.Notifications settings;
+  private final CertificateConfig.Dashboard thresholds;
+  private final boolean enabled;
+  private final List<Webhook> webhooks = new ArrayList<>();
+  private final HttpClient http;
+  private final ScheduledExecutorService scheduler;
+  private final Counter delivered;
+  private final Counter failed;
+  private final Counter dropped;
+
+  /** Last severity per identity. */
+  private final Map<CertificateIdentity, Severity> severities = new ConcurrentHashMap<>();
+
+  /** Transitions of the current window, one per identity; guarded by itself. */
+  private final Map<CertificateIdentity, Transition> pending = new LinkedHashMap<>();
+
+  private ScheduledFuture<?> nextDelivery;
+
+  /** Opens the queues and starts the delivery thread if notifications are enabled. */
+  public WebhookNotifier(CertificateConfig config, MeterRegistry meterRegistry) {
+    this.settings = config.notifications();
+    this.thresholds = config.dashboard();
+    this.enabled = settings.enabled() && !settings.webhooks().isEmpty();
+    this.delivered = batchCounter(meterRegistry, "delivered");
+    this.failed = batchCounter(meterRegistry, "failed");
+    this.dropped = batchCounter(meterRegistry, "dropped");
+    if (!enabled) {
+      if (settings.enabled()) {
+        log.warn("Notifications are enabled without webhooks; nothing will be sent");
+      }
+      this.http = null;
+      this.scheduler = null;
+      return;
+    }
+
+    Path directory = Paths.get(settings.queueDirectory()).toAbsolutePath().normalize();
+    for (String url : settings.webhooks()) {
+      String key = Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString();
+      try {
+        webhooks.add(
+            new Webhook(
+                URI.create(url),
+                new BatchQueue(directory.resolve(key.substring(0, 16)), settings.queueCapacity()),
+                RateLimiter.create(settings.requestsPerSecond())));
+      } catch (IOException e) {
+        throw new IllegalStateException(
+            "Cannot open the notification queue in " + directory + ": " + e.getMessage(), e);
+      }
+    }
+    this.http = HttpClient.newBuilder().connectTimeout(settings.timeout()).build();
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("certalert-notify-%d")
+                .setDaemon(true)
+                .build());
+    long window = settings.window().toMillis();
+    scheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+    scheduler.execute(this::deliver); // batches left over from the last run
+    log.info("Sending notifications to {} webhooks every {}", webhooks.size(), settings.window());
+  }
+
+  /** Returns whether notifications are sent at all. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Classifies a collected certificate and queues a transition if its severity changed. */
+  public void observe(CertificateIdentity identity, CertificateInfo info) {
+    observe(identity, info, Instant.now());
+  }
+
+  void observe(CertificateIdentity identity, CertificateInfo info, Instant now) {
+    if (!enabled) {
+      return;
+    }
+    Severity severity = Severity.of(info, now, thresholds);
+    Severity previous = severities.put(identity, severity);
+    if (severity == previous) {
+      return;
+    }
+    synchronized (pending) {
+      Transition queued = pending.get(identity);
+      Severity from = queued != null ? queued.from() : previous;
+      if (severity == Severity.OK || severity == from) {
+        pending.remove(identity); // recovered within the window; nothing to report
+        return;
+      }
+      pending.put(
+          identity,
+          new Transition(identity, info.getSubject(), info.getNotAfter(), from, severity, now));
+    }
+  }
+
+  /**
+   * Records the severity of a certificate restored at startup without reporting it, so that only
+   * changes since the last run are sent.
+   */
+  public void restore(CertificateIdentity identity, CertificateInfo info) {
+    if (enabled) {
+      severities.put(identity, Severity.of(info, Instant.now(), thresholds));
+    }
+  }
+
+  /** Forgets a certificate that is no longer configured. */
+  public void forget(CertificateIdentity identity) {
+    if (!enabled) {
+      return;
+    }
+    severities.remove(identity);
+    synchronized (pending) {
+      pending.remove(identity);
+    }
+  }
+
+  /** Queues the transitions of the finished window and delivers what is due. */
+  synchronized void flush() {
+    try {
+      enqueuePending();
+      deliver();
+    } catch (RuntimeException e) {
+      log.warn("Failed to send notifications: {}", e.getMessage(), e); // keep the schedule alive
+    }
+  }
+
+  /** Writes the pending transitions as batches to every webhook's queue. */
+  private synchronized void enqueuePending() {
+    List<Transition> transitions;
+    synchronized (pending) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      transitions = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    for (List<Transition> batch : Lists.partition(transitions, settings.maxBatchSize())) {
+      byte[] payload = encode(batch);
+      for (Webhook webhook : webhooks) {
+        try {
+          if (webhook.queue.offer(payload)) {
+            dropped.increment();
+          }
+        } catch (IOException e) {
+          log.warn("Cannot queue notification for {}: {}", webhook.uri, e.getMessage());
+          dropped.increment();
+        }
+      }
+    }
+    log.info("Queued {} certificate transitions", transitions.size());
+  }
+
+  /** Sends queued batches until every webhook is empty, rate-limited or backing off. */
+  synchronized void deliver() {
+    if (nextDelivery != null) {
+      nextDelivery.cancel(false);
+      nextDelivery = null;
+    }
+    long wait = Long.MAX_VALUE;
+    for (Webhook webhook : webhooks) {
+      while (!webhook.queue.isEmpty()) {
+        long now = System.nanoTime();
+        if (webhook.failures > 0 && webhook.retryAt - now > 0) {
+          wait = Math.min(wait, webhook.retryAt - now);
+          break;
+        }
+        if (!webhook.limiter.tryAcquire()) {
+          wait =
+              Math.min(wait, (long) (TimeUnit.SECONDS.toNanos(1) / settings.requestsPerSecond()));
+          break;
+        }
+        if (!deliverOldest(webhook)) {
+          long backoff =
+              Math.min(
+                  settings.maxBackoff().toNanos(),
+                  INITIAL_BACKOFF.toNanos() << Math.min(webhook.failures - 1, 20));
+          webhook.retryAt = System.nanoTime() + backoff;
+          wait = Math.min(wait, backoff);
+          break;
+        }
+      }
+    }
+    if (wait != Long.MAX_VALUE && !scheduler.isShutdown()) {
+      nextDelivery = scheduler.schedule(this::deliver, wait, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Sends the oldest batch of the webhook. Delivered and rejected batches are removed.
+   *
+   * @return false if the webhook failed and the batch has to be retried
+   */
+  private boolean deliverOldest(Webhook webhook) {
+    byte[] batch;
+    try {
+      batch = webhook.queue.peek();
+    } catch (IOException e) {
+      log.warn("Dropping unreadable notification batch for {}: {}", webhook.uri, e.getMessage());
+      webhook.queue.remove();
+      dropped.increment();
+      return true;
+    }
+
+    int status;
+    try {
+      HttpRequest request =
+          HttpRequest.newBuilder(webhook.uri)
+              .timeout(settings.timeout())
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofByteArray(batch))
+              .build();
+      status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (IOException e) {
+      return retryLater(webhook, e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return retryLater(webhook, "interrupted");
+    }
+
+    if (status / 100 == 2) {
+      webhook.queue.remove();
+      webhook.failures = 0;
+      delivered.increment();
+      return true;
+    }
+    if (status / 100 == 4 && status != 408 && status != 429) {
+      log.warn(
+          "Webhook {} rejected a notification batch with {}; dropping it", webhook.uri, status);
+      webhook.queue.remove();
+      dropped.increment();
+      return true;
+    }
+    return retryLater(webhook, "HTTP " + status);
+  }
+
+  private boolean retryLater(Webhook webhook, String reason) {
+    webhook.failures++;
+    failed.increment();
+    log.warn(
+        "Webhook {} failed ({} queued, attempt {}): {}",
+        webhook.uri,
+        webhook.queue.size(),
+        webhook.failures,
+        reason);
+    return false;
+  }
+
+  /** Returns how many batches are waiting for the webhook at the given position. */
+  synchronized int queued(int webhook) {
+    return webhooks.get(webhook).queue.size();
+  }
+
+  /** Queues the pending transitions so that they are sent after a restart. */
+  @PreDestroy
+  public void close() {
+    if (scheduler == null) {
+      return;
+    }
+    scheduler.shutdownNow();
+    enqueuePending();
+  }
+
+  private static byte[] encode(List<Transition> batch) {
+    List<Map<String, String>> transitions = new ArrayList<>(batch.size());
+    for (Transition transition : batch) {
+      Map<String, String> fields = new LinkedHashMap<>();
+      fields.put("name", transition.identity().name());
+      fields.put("alias", transition.identity().alias());
+      fields.put("path", transition.identity().path());
+      fields.put("type", transition.identity().type());
+      fields.put("subject", transition.subject());
+      fields.put(
+          "notAfter", transition.notAfter() != null ? transition.notAfter().toString() : null);
+      fields.put("from", transition.from() != null ? transition.from().name() : null);
+      fields.put("to", transition.to().name());
+      fields.put("at", transition.at().toString());
+      transitions.add(fields);
+    }
+    try {
+      return MAPPER.writeValueAsBytes(Map.of("transitions", transitions));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot encode notification batch", e);
+    }
+  }
+
+  private static Counter batchCounter(MeterRegistry registry, String result) {
+    return Counter.builder("certalert_notification_batches_total")
+        .description("Notification batches by outcome of their delivery attempts")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** One webhook with its queue, rate limit and retry state; used by the delivery thread only. */
+  private static final class Webhook {
+    private final URI uri;
+    private final BatchQueue queue;
+    private final RateLimiter limiter;
+    private int failures;
+    private long retryAt;
+
+    private Webhook(URI uri, BatchQueue queue, RateLimiter limiter) {
+      this.uri = uri;
+      this.queue = queue;
+      this.limiter = limiter;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package ch.tkb.certalert.revocation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads the OCSP and CRL locations published in certificate extensions. */
+final class CertificateUrls {
+
+  static final String AUTHORITY_INFO_ACCESS = "1.3.6.1.5.5.7.1.1";
+  static final String CRL_DISTRIBUTION_POINTS = "2.5.29.31";
+  static final String ACCESS_METHOD_OCSP = "1.3.6.1.5.5.7.48.1";
+
+  /** GeneralName choice for a uniformResourceIdentifier. */
+  private static final int URI = Der.implicit(6);
+
+  private CertificateUrls() {}
+
+  /** Returns the HTTP URLs of the OCSP responders listed in the Authority Information Access. */
+  static List<String> ocsp(X509Certificate cert) {
+    List<String> urls = new ArrayList<>();
+    try {
+      for (Der.Element description : extension(cert, AUTHORITY_INFO_ACCESS)) {
+        List<Der.Element> fields = description.children(Der.SEQUENCE);
+        if (ACCESS_METHOD_OCSP.equals(fields.get(0).oid())) {
+          addHttp(urls, fields.get(1));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // A malformed extension is treated like a missing one
+    }
+    return urls;
+  }
+
+  /** Returns the HTTP URLs of the full names in the CRL Distribution Points. */
+  static List<String> crl(X509Certificate cert) {
+    List<String> urls = new ArrayList<>();
+    try {
+      for (Der.Element point : extension(cert, CRL_DISTRIBUTION_POINTS)) {
+        for (Der.Element field : point.children(Der.SEQUENCE)) {
+          if (field.tag() != Der.explicit(0)) {
+            continue; // reasons or cRLIssuer
+          }
+          for (Der.Element name : field.children()) {
+            if (name.tag() == Der.explicit(0)) { // fullName
+              for (Der.Element general : name.children()) {
+                addHttp(urls, general);
+              }
+            }
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // A malformed extension is treated like a missing one
+    }
+    return urls;
+  }
+
+  /** Returns the elements of the SEQUENCE held by the extension, or none if it is absent. */
+  private static List<Der.Element> extension(X509Certificate cert, String oid) throws IOException {
+    byte[] value = cert.getExtensionValue(oid);
+    if (value == null) {
+      return List.of();
+    }
+    // The value is the DER encoding wrapped in an OCTET STRING
+    return Der.read(Der.read(value).content()).children(Der.SEQUENCE);
+  }
+
+  private static void addHttp(List<String> urls, Der.Element name) {
+    if (name.tag() == URI) {
+      String url = new String(name.content(), StandardCharsets.US_ASCII);
+      if (url.startsWith("http://") || url.startsWith("https://")) {
+        urls.add(url);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package ch.tkb.certalert.revocation;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * A parsed CRL with its revoked serial numbers in a hash set. The signature is verified once per
+ * issuer certificate; the index is fresh until the CRL's nextUpdate.
+ */
+final class CrlIndex {
+
+  private final X509CRL crl;
+  private final Set<BigInteger> revoked;
+  private final Instant thisUpdate;
+  private final Instant expires;
+  private final ConcurrentMap<X509Certificate, Boolean> verified = new ConcurrentHashMap<>();
+
+  private CrlIndex(X509CRL crl, Duration ttl) {
+    this.crl = crl;
+    this.thisUpdate = crl.getThisUpdate().toInstant();
+    this.expires =
+        crl.getNextUpdate() != null ? crl.getNextUpdate().toInstant() : thisUpdate.plus(ttl);
+    Set<? extends X509CRLEntry> entries = crl.getRevokedCertificates();
+    this.revoked = new HashSet<>(entries != null ? entries.size() * 2 : 0);
+    if (entries != null) {
+      for (X509CRLEntry entry : entries) {
+        revoked.add(entry.getSerialNumber());
+      }
+    }
+  }
+
+  /**
+   * Parses a PEM or DER encoded CRL.
+   *
+   * @param ttl how long the CRL is used if it has no nextUpdate
+   */
+  static CrlIndex parse(byte[] encoded, Duration ttl) throws CertificateException, CRLException {
+    CertificateFactory factory = CertificateFactory.getInstance("X.509");
+    return new CrlIndex((X509CRL) factory.generateCRL(new ByteArrayInputStream(encoded)), ttl);
+  }
+
+  /** Returns the name of the CA that issued the CRL. */
+  X500Principal issuer() {
+    return crl.getIssuerX500Principal();
+  }
+
+  /** Returns whether the CRL may still be used at the given time. */
+  boolean isFresh(Instant now) {
+    return !thisUpdate.isAfter(now.plus(RevocationChecker.CLOCK_SKEW)) && now.isBefore(expires);
+  }
+
+  /** Returns whether the CRL covers certificates of the issuer and is signed by it. */
+  boolean isIssuedBy(X509Certificate issuer) {
+    if (!issuer.getSubjectX500Principal().equals(issuer())) {
+      return false;
+    }
+    return verified.computeIfAbsent(
+        issuer,
+        ca -> {
+          try {
+            crl.verify(ca.getPublicKey());
+            return true;
+          } catch (Exception e) {
+            return false;
+          }
+        });
+  }
+
+  /** Returns whether the serial number is listed as revoked. */
+  boolean isRevoked(BigInteger serial) {
+    return revoked.contains(serial);
+  }
+
+  /** Returns the number of revoked serial numbers. */
+  int size() {
+    return revoked.size();
+  }
+}
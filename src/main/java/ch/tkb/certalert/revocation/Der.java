@@ -0,0 +1,256 @@
+package ch.tkb.certalert.revocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal DER encoder and decoder for the few ASN.1 structures of OCSP and certificate extensions.
+ * Only definite lengths and single-byte tags are supported, which is all DER allows for them.
+ */
+final class Der {
+
+  static final int INTEGER = 0x02;
+  static final int BIT_STRING = 0x03;
+  static final int OCTET_STRING = 0x04;
+  static final int NULL = 0x05;
+  static final int OID = 0x06;
+  static final int ENUMERATED = 0x0a;
+  static final int GENERALIZED_TIME = 0x18;
+  static final int SEQUENCE = 0x30;
+
+  private static final DateTimeFormatter GENERALIZED =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+  private Der() {}
+
+  /** Tag of an explicitly tagged, constructed context-specific element. */
+  static int explicit(int number) {
+    return 0xa0 | number;
+  }
+
+  /** Tag of an implicitly tagged, primitive context-specific element. */
+  static int implicit(int number) {
+    return 0x80 | number;
+  }
+
+  // ---------------------------------------------------------------- encoding
+
+  /** Encodes an element with the given tag whose content is the concatenation of the parts. */
+  static byte[] encode(int tag, byte[]... parts) {
+    int length = 0;
+    for (byte[] part : parts) {
+      length += part.length;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+    out.write(tag);
+    if (length < 0x80) {
+      out.write(length);
+    } else {
+      int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+      out.write(0x80 | bytes);
+      for (int i = bytes - 1; i >= 0; i--) {
+        out.write(length >>> (8 * i));
+      }
+    }
+    for (byte[] part : parts) {
+      out.writeBytes(part);
+    }
+    return out.toByteArray();
+  }
+
+  static byte[] sequence(byte[]... items) {
+    return encode(SEQUENCE, items);
+  }
+
+  static byte[] integer(BigInteger value) {
+    return encode(INTEGER, value.toByteArray());
+  }
+
+  static byte[] octetString(byte[] value) {
+    return encode(OCTET_STRING, value);
+  }
+
+  static byte[] nullValue() {
+    return encode(NULL);
+  }
+
+  static byte[] enumerated(int value) {
+    return encode(ENUMERATED, BigInteger.valueOf(value).toByteArray());
+  }
+
+  static byte[] bitString(byte[] value) {
+    return encode(BIT_STRING, new byte[] {0}, value);
+  }
+
+  static byte[] generalizedTime(Instant time) {
+    return encode(
+        GENERALIZED_TIME, (GENERALIZED.format(time) + "Z").getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /** Encodes a dotted object identifier. */
+  static byte[] oid(String dotted) {
+    String[] arcs = dotted.split("\\.");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeBase128(out, Long.parseLong(arcs[0]) * 40 + Long.parseLong(arcs[1]));
+    for (int i = 2; i < arcs.length; i++) {
+      writeBase128(out, Long.parseLong(arcs[i]));
+    }
+    return encode(OID, out.toByteArray());
+  }
+
+  private static void writeBase128(ByteArrayOutputStream out, long value) {
+    int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+    for (int i = groups - 1; i >= 0; i--) {
+      int bits = (int) (value >>> (7 * i)) & 0x7f;
+      out.write(i > 0 ? bits | 0x80 : bits);
+    }
+  }
+
+  // ---------------------------------------------------------------- decoding
+
+  /**
+   * Decodes the single element that makes up the input.
+   *
+   * @throws IOException if the input is not exactly one well-formed element
+   */
+  static Element read(byte[] input) throws IOException {
+    List<Element> elements = new Element(0, input, 0, input.length, 0).children();
+    if (elements.size() != 1) {
+      throw new IOException("Expected one DER element, found " + elements.size());
+    }
+    return elements.get(0);
+  }
+
+  /** One decoded element; a view on the input without copying. */
+  static final class Element {
+    private final int tag;
+    private final byte[] input;
+    private final int contentStart;
+    private final int contentEnd;
+    private final int start;
+
+    private Element(int tag, byte[] input, int contentStart, int contentEnd, int start) {
+      this.tag = tag;
+      this.input = input;
+      this.contentStart = contentStart;
+      this.contentEnd = contentEnd;
+      this.start = start;
+    }
+
+    int tag() {
+      return tag;
+    }
+
+    /** Returns a copy of the content octets. */
+    byte[] content() {
+      return Arrays.copyOfRange(input, contentStart, contentEnd);
+    }
+
+    /** Returns a copy of the whole encoding including tag and length. */
+    byte[] encoded() {
+      return Arrays.copyOfRange(input, start, contentEnd);
+    }
+
+    /** Decodes the content as a list of elements. */
+    List<Element> children() throws IOException {
+      List<Element> children = new ArrayList<>();
+      int pos = contentStart;
+      while (pos < contentEnd) {
+        int elementStart = pos;
+        int childTag = input[pos++] & 0xff;
+        if ((childTag & 0x1f) == 0x1f) {
+          throw new IOException("Multi-byte DER tags are not supported");
+        }
+        if (pos >= contentEnd) {
+          throw new IOException("Truncated DER element");
+        }
+        int length = input[pos++] & 0xff;
+        if (length >= 0x80) {
+          int bytes = length & 0x7f;
+          if (bytes == 0 || bytes > 4 || pos + bytes > contentEnd) {
+            throw new IOException("Unsupported DER length");
+          }
+          length = 0;
+          for (int i = 0; i < bytes; i++) {
+            length = (length << 8) | (input[pos++] & 0xff);
+          }
+        }
+        if (length < 0 || pos + length > contentEnd) {
+          throw new IOException("Truncated DER element");
+        }
+        children.add(new Element(childTag, input, pos, pos + length, elementStart));
+        pos += length;
+      }
+      return children;
+    }
+
+    /** Decodes the content as a list of elements and checks the element's tag first. */
+    List<Element> children(int expectedTag) throws IOException {
+      expect(expectedTag);
+      return children();
+    }
+
+    BigInteger integer() throws IOException {
+      expect(INTEGER);
+      return new BigInteger(content());
+    }
+
+    int enumerated() throws IOException {
+      expect(ENUMERATED);
+      return new BigInteger(content()).intValueExact();
+    }
+
+    /** Returns the bits of a BIT STRING without the unused-bits octet. */
+    byte[] bitString() throws IOException {
+      expect(BIT_STRING);
+      return Arrays.copyOfRange(input, contentStart + 1, contentEnd);
+    }
+
+    String oid() throws IOException {
+      expect(OID);
+      StringBuilder dotted = new StringBuilder();
+      long value = 0;
+      boolean first = true;
+      for (int i = contentStart; i < contentEnd; i++) {
+        value = (value << 7) | (input[i] & 0x7f);
+        if ((input[i] & 0x80) == 0) {
+          if (first) {
+            int root = (int) Math.min(2, value / 40);
+            dotted.append(root).append('.').append(value - root * 40L);
+            first = false;
+          } else {
+            dotted.append('.').append(value);
+          }
+          value = 0;
+        }
+      }
+      return dotted.toString();
+    }
+
+    Instant generalizedTime() throws IOException {
+      expect(GENERALIZED_TIME);
+      String text =
+          new String(input, contentStart, contentEnd - contentStart, StandardCharsets.US_ASCII);
+      if (text.length() < 15 || !text.endsWith("Z")) {
+        throw new IOException("Unsupported GeneralizedTime " + text);
+      }
+      // Fractional seconds are dropped; the times are only compared at second precision
+      return GENERALIZED.parse(text.substring(0, 14), Instant::from);
+    }
+
+    private void expect(int expectedTag) throws IOException {
+      if (tag != expectedTag) {
+        throw new IOException(
+            String.format("Expected DER tag 0x%02x, found 0x%02x", expectedTag, tag));
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package ch.tkb.certalert.revocation;
+
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
+import ch.tkb.certalert.utils.CertificateLoader;
+import com.google.common.io.BaseEncoding;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes OCSP requests for several certificates of one issuer and decodes the signed basic
+ * responses (RFC 6960). Requests carry no nonce, so responders may answer from their caches.
+ */
+final class Ocsp {
+
+  static final String CONTENT_TYPE_REQUEST = "application/ocsp-request";
+  static final String CONTENT_TYPE_RESPONSE = "application/ocsp-response";
+
+  static final String SHA1 = "1.3.14.3.2.26";
+  static final String BASIC_RESPONSE = "1.3.6.1.5.5.7.48.1.1";
+  static final String OCSP_SIGNING = "1.3.6.1.5.5.7.3.9";
+
+  private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+  private Ocsp() {}
+
+  /** Identifies a certificate towards the responder by its issuer's name and key and its serial. */
+  record CertId(String issuerNameHash, String issuerKeyHash, BigInteger serial) {
+
+    /** Computes the SHA-1 based identifier of the certificate issued by the issuer. */
+    static CertId of(X509Certificate cert, X509Certificate issuer) throws IOException {
+      return new CertId(
+          HEX.encode(sha1(issuer.getSubjectX500Principal().getEncoded())),
+          HEX.encode(sha1(publicKeyBits(issuer))),
+          cert.getSerialNumber());
+    }
+
+    byte[] encoded() {
+      return Der.sequence(
+          Der.sequence(Der.oid(SHA1), Der.nullValue()),
+          Der.octetString(HEX.decode(issuerNameHash)),
+          Der.octetString(HEX.decode(issuerKeyHash)),
+          Der.integer(serial));
+    }
+  }
+
+  /** Status of one certificate as stated by the responder. */
+  record SingleResponse(RevocationStatus status, Instant thisUpdate, Instant nextUpdate) {}
+
+  /** Encodes an unsigned request for all given certificates. */
+  static byte[] request(List<CertId> ids) {
+    byte[][] requests = new byte[ids.size()][];
+    for (int i = 0; i < ids.size(); i++) {
+      requests[i] = Der.sequence(ids.get(i).encoded());
+    }
+    return Der.sequence(Der.sequence(Der.sequence(requests)));
+  }
+
+  /**
+   * Decodes a response and verifies that it is signed by the issuer or by a responder the issuer
+   * delegated to.
+   *
+   * @return the single responses keyed by certificate id
+   * @throws IOException if the response is malformed or reports an error
+   * @throws GeneralSecurityException if the signature cannot be verified
+   */
+  static Map<CertId, SingleResponse> parse(byte[] body, X509Certificate issuer)
+      throws IOException, GeneralSecurityException {
+    List<Der.Element> response = Der.read(body).children(Der.SEQUENCE);
+    int status = response.get(0).enumerated();
+    if (status != 0) {
+      throw new IOException("OCSP responder returned status " + status);
+    }
+    if (response.size() < 2) {
+      throw new IOException("OCSP response has no content");
+    }
+    List<Der.Element> responseBytes =
+        response.get(1).children(Der.explicit(0)).get(0).children(Der.SEQUENCE);
+    String type = responseBytes.get(0).oid();
+    if (!BASIC_RESPONSE.equals(type)) {
+      throw new IOException("Unsupported OCSP response type " + type);
+    }
+
+    Der.Element basic = Der.read(responseBytes.get(1).content());
+    List<Der.Element> parts = basic.children(Der.SEQUENCE);
+    Der.Element tbs = parts.get(0);
+    String algorithm = parts.get(1).children(Der.SEQUENCE).get(0).oid();
+    byte[] signature = parts.get(2).bitString();
+    List<X509Certificate> certs = new ArrayList<>();
+    if (parts.size() > 3 && parts.get(3).tag() == Der.explicit(0)) {
+      for (Der.Element cert : parts.get(3).children().get(0).children(Der.SEQUENCE)) {
+        certs.add(decode(cert.encoded()));
+      }
+    }
+    verifySignature(tbs.encoded(), algorithm, signature, issuer, certs);
+
+    List<Der.Element> data = tbs.children(Der.SEQUENCE);
+    int index = data.get(0).tag() == Der.explicit(0) ? 1 : 0; // optional version
+    Der.Element responses = data.get(index + 2); // after responderID and producedAt
+    Map<CertId, SingleResponse> result = new HashMap<>();
+    for (Der.Element single : responses.children(Der.SEQUENCE)) {
+      List<Der.Element> fields = single.children(Der.SEQUENCE);
+      List<Der.Element> id = fields.get(0).children(Der.SEQUENCE);
+      CertId certId =
+          new CertId(
+              HEX.encode(id.get(1).content()),
+              HEX.encode(id.get(2).content()),
+              id.get(3).integer());
+      RevocationStatus certStatus =
+          switch (fields.get(1).tag()) {
+            case 0x80 -> RevocationStatus.GOOD;
+            case 0xa1 -> RevocationStatus.REVOKED;
+            default -> RevocationStatus.UNKNOWN;
+          };
+      Instant thisUpdate = fields.get(2).generalizedTime();
+      Instant nextUpdate = null;
+      if (fields.size() > 3 && fields.get(3).tag() == Der.explicit(0)) {
+        nextUpdate = fields.get(3).children().get(0).generalizedTime();
+      }
+      result.put(certId, new SingleResponse(certStatus, thisUpdate, nextUpdate));
+    }
+    return result;
+  }
+
+  /** Accepts signatures of the issuer and of responders certified by it for OCSP signing. */
+  private static void verifySignature(
+      byte[] signed,
+      String algorithm,
+      byte[] signature,
+      X509Certificate issuer,
+      List<X509Certificate> certs)
+      throws GeneralSecurityException {
+    if (verifies(signed, algorithm, signature, issuer)) {
+      return;
+    }
+    for (X509Certificate responder : certs) {
+      List<String> usages = responder.getExtendedKeyUsage();
+      if (usages == null || !usages.contains(OCSP_SIGNING)) {
+        continue;
+      }
+      try {
+        responder.verify(issuer.getPublicKey());
+        responder.checkValidity();
+      } catch (GeneralSecurityException e) {
+        continue;
+      }
+      if (verifies(signed, algorithm, signature, responder)) {
+        return;
+      }
+    }
+    throw new GeneralSecurityException(
+        "OCSP response is not signed by the issuer or its responder");
+  }
+
+  private static boolean verifies(
+      byte[] signed, String algorithm, byte[] signature, X509Certificate signer)
+      throws GeneralSecurityException {
+    Signature verifier = Signature.getInstance(algorithm);
+    try {
+      verifier.initVerify(signer.getPublicKey());
+    } catch (GeneralSecurityException e) {
+      return false; // key type does not match the algorithm
+    }
+    verifier.update(signed);
+    try {
+      return verifier.verify(signature);
+    } catch (SignatureException e) {
+      return false; // malformed signature for this key
+    }
+  }
+
+  /** Returns the subjectPublicKey bits of the certificate's SubjectPublicKeyInfo. */
+  private static byte[] publicKeyBits(X509Certificate cert) throws IOException {
+    return Der.read(cert.getPublicKey().getEncoded()).children(Der.SEQUENCE).get(1).bitString();
+  }
+
+  private static byte[] sha1(byte[] input) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(input);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
+  private static X509Certificate decode(byte[] der) throws IOException {
+    try {
+      return CertificateLoader.decode(der);
+    } catch (Exception e) {
+      throw new IOException("Invalid responder certificate: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,354 @@
+package ch.tkb.certalert.revocation;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the revocation status of certificates against CRLs and OCSP responders.
+ *
+ * <ul>
+ *   <li>CRLs (configured files and the HTTP distribution points of the certificates) are indexed by
+ *       serial number and used until their nextUpdate, so one download covers all certificates of
+ *       an issuer.
+ *   <li>Certificates without a CRL are sent to the OCSP responder of their issuer, up to {@code
+ *       batch-size} certificates per request. Responses are cached until their nextUpdate (or
+ *       thisUpdate plus {@code cache-ttl}).
+ *   <li>At most {@code max-in-flight} requests run at the same time.
+ * </ul>
+ */
+@Component
+public class RevocationChecker {
+
+  private static final Logger log = LoggerFactory.getLogger(RevocationChecker.class);
+
+  /** Tolerated clock difference for thisUpdate values in the future. */
+  static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+  private final CertificateConfig.Revocation settings;
+  private final HttpClient http;
+  private final ExecutorService requests;
+  private final Counter ocspRequests;
+  private final Counter crlRequests;
+
+  private final ConcurrentMap<Ocsp.CertId, CachedStatus> ocspCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CrlIndex> downloadedCrls = new ConcurrentHashMap<>();
+  private final Map<Path, LocalCrl> localCrls = new LinkedHashMap<>();
+
+  /** Creates the checker; no threads are started unless revocation checks are enabled. */
+  public RevocationChecker(CertificateConfig config, MeterRegistry meterRegistry) {
+    this.settings = config.revocation();
+    this.http =
+        settings.enabled()
+            ? HttpClient.newBuilder()
+                .connectTimeout(settings.timeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build()
+            : null;
+    this.requests =
+        settings.enabled()
+            ? Executors.newFixedThreadPool(
+                settings.maxInFlight(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("certalert-revocation-%d")
+                    .setDaemon(true)
+                    .build())
+            : null;
+    this.ocspRequests =
+        Counter.builder("certalert_revocation_requests_total")
+            .description("Requests sent to OCSP responders and CRL distribution points")
+            .tag("type", "ocsp")
+            .register(meterRegistry);
+    this.crlRequests =
+        Counter.builder("certalert_revocation_requests_total")
+            .description("Requests sent to OCSP responders and CRL distribution points")
+            .tag("type", "crl")
+            .register(meterRegistry);
+    for (String file : settings.crlFiles()) {
+      localCrls.put(Paths.get(file), null);
+    }
+  }
+
+  /** Returns whether revocation is checked at all. */
+  public boolean isEnabled() {
+    return settings.enabled();
+  }
+
+  /**
+   * Returns the revocation status of every certificate, in the order of the checks. Waits until all
+   * required CRL downloads and OCSP requests have completed.
+   */
+  public List<RevocationStatus> check(List<RevocationCheck> checks) {
+    Instant now = Instant.now();
+    ocspCache.values().removeIf(cached -> !cached.isFresh(now));
+    List<CrlIndex> crls = currentCrls(checks, now);
+
+    RevocationStatus[] statuses = new RevocationStatus[checks.size()];
+    Map<OcspBatch, List<Integer>> pending = new LinkedHashMap<>();
+    Map<Integer, Ocsp.CertId> ids = new HashMap<>();
+    for (int i = 0; i < checks.size(); i++) {
+      RevocationCheck check = checks.get(i);
+      if (check.issuer() == null) {
+        statuses[i] = RevocationStatus.UNKNOWN;
+        continue;
+      }
+      CrlIndex crl = findCrl(crls, check);
+      if (crl != null) {
+        statuses[i] =
+            crl.isRevoked(check.certificate().getSerialNumber())
+                ? RevocationStatus.REVOKED
+                : RevocationStatus.GOOD;
+        continue;
+      }
+
+      String responder = responderOf(check.certificate());
+      Ocsp.CertId id;
+      try {
+        id = Ocsp.CertId.of(check.certificate(), check.issuer());
+      } catch (IOException e) {
+        statuses[i] = RevocationStatus.UNKNOWN;
+        continue;
+      }
+      CachedStatus cached = ocspCache.get(id);
+      if (cached != null) {
+        statuses[i] = cached.status();
+      } else if (responder == null) {
+        statuses[i] = RevocationStatus.UNKNOWN;
+      } else {
+        ids.put(i, id);
+        pending
+            .computeIfAbsent(new OcspBatch(responder, check.issuer()), b -> new ArrayList<>())
+            .add(i);
+      }
+    }
+
+    if (!pending.isEmpty()) {
+      Map<Ocsp.CertId, RevocationStatus> answers = requestOcsp(pending, ids, now);
+      for (var entry : ids.entrySet()) {
+        statuses[entry.getKey()] = answers.getOrDefault(entry.getValue(), RevocationStatus.UNKNOWN);
+      }
+    }
+    return List.of(statuses);
+  }
+
+  /** Stops the request threads. */
+  @PreDestroy
+  public void close() {
+    if (requests != null) {
+      requests.shutdownNow();
+    }
+  }
+
+  /** Sends the pending certificates in batches and caches the answers. */
+  private Map<Ocsp.CertId, RevocationStatus> requestOcsp(
+      Map<OcspBatch, List<Integer>> pending, Map<Integer, Ocsp.CertId> ids, Instant now) {
+    List<Future<Map<Ocsp.CertId, Ocsp.SingleResponse>>> futures = new ArrayList<>();
+    for (var batch : pending.entrySet()) {
+      // Certificates appearing in several entries are asked for once
+      List<Ocsp.CertId> distinct =
+          new ArrayList<>(new LinkedHashSet<>(batch.getValue().stream().map(ids::get).toList()));
+      for (List<Ocsp.CertId> chunk : Lists.partition(distinct, settings.batchSize())) {
+        futures.add(requests.submit(() -> sendOcsp(batch.getKey(), chunk)));
+      }
+    }
+
+    Map<Ocsp.CertId, RevocationStatus> answers = new HashMap<>();
+    for (var future : futures) {
+      Map<Ocsp.CertId, Ocsp.SingleResponse> responses;
+      try {
+        responses = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        continue; // already logged
+      }
+      for (var response : responses.entrySet()) {
+        Ocsp.SingleResponse single = response.getValue();
+        if (single.thisUpdate().isAfter(now.plus(CLOCK_SKEW))) {
+          log.warn(
+              "Ignoring OCSP response for serial {} from the future", response.getKey().serial());
+          continue;
+        }
+        answers.put(response.getKey(), single.status());
+        Instant expires =
+            single.nextUpdate() != null
+                ? single.nextUpdate()
+                : single.thisUpdate().plus(settings.cacheTtl());
+        if (expires.isAfter(now)) {
+          ocspCache.put(response.getKey(), new CachedStatus(single.status(), expires));
+        }
+      }
+    }
+    return answers;
+  }
+
+  private Map<Ocsp.CertId, Ocsp.SingleResponse> sendOcsp(OcspBatch batch, List<Ocsp.CertId> ids)
+      throws Exception {
+    ocspRequests.increment();
+    try {
+      HttpRequest request =
+          HttpRequest.newBuilder(URI.create(batch.responder()))
+              .timeout(settings.timeout())
+              .header("Content-Type", Ocsp.CONTENT_TYPE_REQUEST)
+              .header("Accept", Ocsp.CONTENT_TYPE_RESPONSE)
+              .POST(HttpRequest.BodyPublishers.ofByteArray(Ocsp.request(ids)))
+              .build();
+      HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+      if (response.statusCode() != 200) {
+        throw new IOException("HTTP " + response.statusCode());
+      }
+      Map<Ocsp.CertId, Ocsp.SingleResponse> result = Ocsp.parse(response.body(), batch.issuer());
+      log.debug(
+          "OCSP responder {} answered {} of {} certificates",
+          batch.responder(),
+          result.size(),
+          ids.size());
+      return result;
+    } catch (Exception e) {
+      log.warn("OCSP request to {} failed: {}", batch.responder(), e.getMessage());
+      throw e;
+    }
+  }
+
+  /** Returns the fresh local and downloaded CRLs, reading or downloading stale ones. */
+  private List<CrlIndex> currentCrls(List<RevocationCheck> checks, Instant now) {
+    List<CrlIndex> crls = new ArrayList<>(localCrls(now));
+
+    Set<String> urls = new LinkedHashSet<>();
+    for (RevocationCheck check : checks) {
+      if (check.issuer() != null) {
+        urls.addAll(CertificateUrls.crl(check.certificate()));
+      }
+    }
+    Map<String, Future<CrlIndex>> downloads = new LinkedHashMap<>();
+    for (String url : urls) {
+      CrlIndex cached = downloadedCrls.get(url);
+      if (cached != null && cached.isFresh(now)) {
+        crls.add(cached);
+      } else {
+        downloads.put(url, requests.submit(() -> downloadCrl(url)));
+      }
+    }
+    for (var download : downloads.entrySet()) {
+      try {
+        CrlIndex crl = download.getValue().get();
+        downloadedCrls.put(download.getKey(), crl);
+        if (crl.isFresh(now)) {
+          crls.add(crl);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        downloadedCrls.remove(download.getKey());
+        log.warn("Cannot download CRL {}: {}", download.getKey(), e.getCause().getMessage());
+      }
+    }
+    return crls;
+  }
+
+  private CrlIndex downloadCrl(String url) throws Exception {
+    crlRequests.increment();
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create(url)).timeout(settings.timeout()).GET().build();
+    HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    if (response.statusCode() != 200) {
+      throw new IOException("HTTP " + response.statusCode());
+    }
+    CrlIndex crl = CrlIndex.parse(response.body(), settings.cacheTtl());
+    log.debug("Downloaded CRL {} with {} revoked serials", url, crl.size());
+    return crl;
+  }
+
+  /** Returns the configured CRL files, re-reading those that changed or expired. */
+  private synchronized List<CrlIndex> localCrls(Instant now) {
+    List<CrlIndex> crls = new ArrayList<>();
+    for (var entry : localCrls.entrySet()) {
+      Path file = entry.getKey();
+      LocalCrl current = entry.getValue();
+      try {
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (current == null || !current.modified().equals(modified)) {
+          current =
+              new LocalCrl(CrlIndex.parse(Files.readAllBytes(file), settings.cacheTtl()), modified);
+          entry.setValue(current);
+          log.debug("Read CRL {} with {} revoked serials", file, current.crl().size());
+        }
+      } catch (Exception e) {
+        log.warn("Cannot read CRL {}: {}", file, e.getMessage());
+        entry.setValue(null);
+        continue;
+      }
+      if (current.crl().isFresh(now)) {
+        crls.add(current.crl());
+      } else {
+        log.warn("CRL {} is outdated", file);
+      }
+    }
+    return crls;
+  }
+
+  private static CrlIndex findCrl(List<CrlIndex> crls, RevocationCheck check) {
+    for (CrlIndex crl : crls) {
+      if (crl.isIssuedBy(check.issuer())) {
+        return crl;
+      }
+    }
+    return null;
+  }
+
+  private String responderOf(X509Certificate cert) {
+    if (settings.ocspResponder() != null) {
+      return settings.ocspResponder();
+    }
+    List<String> urls = CertificateUrls.ocsp(cert);
+    return urls.isEmpty() ? null : urls.get(0);
+  }
+
+  /** A certificate to check together with the CA that issued it (null if unknown). */
+  public record RevocationCheck(X509Certificate certificate, X509Certificate issuer) {}
+
+  /** Certificates of one issuer that are sent to the same responder. */
+  private record OcspBatch(String responder, X509Certificate issuer) {}
+
+  private record CachedStatus(RevocationStatus status, Instant expires) {
+    boolean isFresh(Instant now) {
+      return now.isBefore(expires);
+    }
+  }
+
+  private record LocalCrl(CrlIndex crl, FileTime modified) {}
+}
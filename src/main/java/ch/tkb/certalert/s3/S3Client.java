@@ -0,0 +1,216 @@
+package ch.tkb.certalert.s3;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.utils.Resolver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Minimal client for the read-only S3 calls of the {@link S3Source}: ListObjectsV2 and conditional
+ * GetObject. Listings are parsed as they stream in; object bodies are handed to the caller as
+ * streams.
+ */
+final class S3Client {
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final DateTimeFormatter AMZ_DATE =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+  private static final XMLInputFactory XML = xmlInputFactory();
+
+  private final CertificateConfig.ObjectStorage settings;
+  private final URI endpoint;
+  private final HttpClient http;
+
+  S3Client(CertificateConfig.ObjectStorage settings) {
+    this.settings = settings;
+    this.endpoint = URI.create(settings.endpoint());
+    this.http =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+  }
+
+  /** Object of a listing. */
+  record S3Object(String key, String etag, long size) {}
+
+  /** Lists all objects whose key starts with the prefix, following continuation tokens. */
+  List<S3Object> list(String bucket, String prefix) throws IOException, InterruptedException {
+    List<S3Object> objects = new ArrayList<>();
+    String token = null;
+    do {
+      Map<String, String> query = new LinkedHashMap<>();
+      query.put("list-type", "2");
+      query.put("prefix", prefix);
+      if (token != null) {
+        query.put("continuation-token", token);
+      }
+      HttpResponse<InputStream> response = send(bucket, "", query, null);
+      try (InputStream body = response.body()) {
+        checkStatus("List " + bucket + "/" + prefix, response.statusCode(), body);
+        token = parseListing(body, objects);
+      } catch (XMLStreamException e) {
+        throw new IOException("Invalid listing of " + bucket + "/" + prefix, e);
+      }
+    } while (token != null);
+    return objects;
+  }
+
+  /**
+   * Gets an object; with an ETag, the object is only sent if it changed. The caller checks the
+   * status ({@code 200}, {@code 304}, ...) and closes the body.
+   */
+  HttpResponse<InputStream> get(String bucket, String key, String etag)
+      throws IOException, InterruptedException {
+    return send(bucket, key, Map.of(), etag);
+  }
+
+  /** Throws the status and the start of the body unless the status is 200. */
+  static void checkStatus(String request, int status, InputStream body) throws IOException {
+    if (status != 200) {
+      byte[] message = body.readNBytes(512);
+      throw new IOException(
+          request
+              + " returned status "
+              + status
+              + ": "
+              + new String(message, StandardCharsets.UTF_8));
+    }
+  }
+
+  private HttpResponse<InputStream> send(
+      String bucket, String key, Map<String, String> query, String etag)
+      throws IOException, InterruptedException {
+    String host = endpoint.getHost();
+    String path = key.isEmpty() ? "" : "/" + SigV4.encode(key, true);
+    if (settings.pathStyle()) {
+      path = "/" + SigV4.encode(bucket, false) + path;
+    } else {
+      host = bucket + "." + host;
+      path = path.isEmpty() ? "/" : path;
+    }
+    String authority = endpoint.getPort() >= 0 ? host + ":" + endpoint.getPort() : host;
+    String queryString = SigV4.canonicalQuery(query);
+    URI uri =
+        URI.create(
+            endpoint.getScheme()
+                + "://"
+                + authority
+                + path
+                + (queryString.isEmpty() ? "" : "?" + queryString));
+
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET();
+    if (etag != null) {
+      request.header("If-None-Match", etag);
+    }
+    String accessKey = Resolver.resolve(settings.accessKey());
+    if (accessKey != null && !accessKey.isBlank()) {
+      SortedMap<String, String> headers = new TreeMap<>();
+      headers.put("host", hostHeader(uri));
+      headers.put("x-amz-content-sha256", SigV4.EMPTY_PAYLOAD);
+      headers.put("x-amz-date", AMZ_DATE.format(ZonedDateTime.now(ZoneOffset.UTC)));
+      request.header("x-amz-content-sha256", headers.get("x-amz-content-sha256"));
+      request.header("x-amz-date", headers.get("x-amz-date"));
+      request.header(
+          "Authorization",
+          SigV4.authorization(
+              "GET",
+              path,
+              query,
+              headers,
+              settings.region(),
+              accessKey,
+              Resolver.resolve(settings.secretKey())));
+    }
+    return http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+  }
+
+  /** Returns the Host header the HTTP client sends, which omits default ports. */
+  private static String hostHeader(URI uri) {
+    int port = uri.getPort();
+    boolean defaultPort =
+        port < 0
+            || ("https".equalsIgnoreCase(uri.getScheme()) && port == 443)
+            || ("http".equalsIgnoreCase(uri.getScheme()) && port == 80);
+    return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+  }
+
+  /** Adds the objects of one listing page and returns the continuation token, or null if last. */
+  private static String parseListing(InputStream body, List<S3Object> objects)
+      throws XMLStreamException {
+    XMLStreamReader xml = XML.createXMLStreamReader(body);
+    try {
+      boolean truncated = false;
+      String token = null;
+      String key = null;
+      String etag = null;
+      long size = 0;
+      int depth = 0;
+      while (xml.hasNext()) {
+        int event = xml.next();
+        if (event == XMLStreamReader.END_ELEMENT) {
+          depth--;
+          if (depth == 1 && xml.getLocalName().equals("Contents") && key != null) {
+            objects.add(new S3Object(key, etag, size));
+            key = null;
+            etag = null;
+            size = 0;
+          }
+        } else if (event == XMLStreamReader.START_ELEMENT) {
+          depth++;
+          String element = xml.getLocalName();
+          if (depth == 2) {
+            switch (element) {
+              case "IsTruncated" -> truncated = Boolean.parseBoolean(xml.getElementText());
+              case "NextContinuationToken" -> token = xml.getElementText();
+              default -> {
+                // Contents are read below, other elements are of no interest
+              }
+            }
+          } else if (depth == 3) {
+            switch (element) {
+              case "Key" -> key = xml.getElementText();
+              case "ETag" -> etag = xml.getElementText();
+              case "Size" -> size = Long.parseLong(xml.getElementText());
+              default -> {
+                // e.g. LastModified, StorageClass
+              }
+            }
+          }
+          if (xml.getEventType() == XMLStreamReader.END_ELEMENT) {
+            depth--; // getElementText consumed the element
+          }
+        }
+      }
+      return truncated ? token : null;
+    } finally {
+      xml.close();
+    }
+  }
+
+  private static XMLInputFactory xmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
@@ -0,0 +1,224 @@
+package ch.tkb.certalert.s3;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.s3.S3Client.S3Object;
+import ch.tkb.certalert.source.CertificateFiles;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.Resolver;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads PEM files and keystores stored as objects in an S3-compatible bucket.
+ *
+ * <p>The path of an entry is the bucket followed by a key prefix, e.g. {@code pki/ingress/}; every
+ * object below the prefix with a certificate or keystore extension is read. The certificates of an
+ * object are kept with its ETag: objects whose ETag in a fresh listing is unchanged are not fetched
+ * again, and objects that are fetched anyway are requested with {@code If-None-Match}, so an
+ * unchanged object costs a {@code 304} without a body. With {@code list-interval}, listings are
+ * reused in between and the known objects are revalidated this way. Downloads run on a shared pool
+ * of {@code concurrency} threads and are parsed straight from the response stream.
+ */
+@Component
+public class S3Source implements CertificateSource {
+
+  private static final Logger log = LoggerFactory.getLogger(S3Source.class);
+
+  private final CertificateConfig.ObjectStorage settings;
+  private final S3Client client;
+  private final ExecutorService downloads;
+  private final ConcurrentMap<Prefix, Listing> listings = new ConcurrentHashMap<>();
+  private final ConcurrentMap<ObjectKey, Cached> objects = new ConcurrentHashMap<>();
+  private final LongAdder downloaded = new LongAdder();
+
+  public S3Source(CertificateConfig config) {
+    this.settings = config.objectStorage();
+    this.client = new S3Client(settings);
+    this.downloads =
+        Executors.newFixedThreadPool(
+            settings.concurrency(),
+            new ThreadFactoryBuilder().setNameFormat("certalert-s3-%d").setDaemon(true).build());
+  }
+
+  @Override
+  public Set<String> types() {
+    return Set.of("s3");
+  }
+
+  @Override
+  public Cost cost() {
+    return Cost.EXPENSIVE;
+  }
+
+  @Override
+  public int maxConcurrency() {
+    return settings.concurrency();
+  }
+
+  @Override
+  public boolean readsFiles() {
+    return false;
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    Prefix prefix = Prefix.of(entry.path());
+    String password = Resolver.resolve(entry.password());
+
+    long now = System.nanoTime();
+    Listing listing = listings.get(prefix);
+    boolean fresh =
+        listing == null || now - listing.listedAt() >= settings.listInterval().toNanos();
+    if (fresh) {
+      List<S3Object> listed = new ArrayList<>();
+      for (S3Object object : client.list(prefix.bucket(), prefix.key())) {
+        if (CertificateFiles.isCertificateFile(object.key())) {
+          listed.add(object);
+        }
+      }
+      listing = new Listing(now, List.copyOf(listed));
+      listings.put(prefix, listing);
+      forgetUnlisted(prefix, listing);
+    }
+    if (listing.objects().isEmpty()) {
+      throw new IllegalArgumentException(
+          "No certificate objects in s3 bucket " + prefix.bucket() + " under " + prefix.key());
+    }
+
+    List<Future<List<LoadedCertificate>>> pending = new ArrayList<>(listing.objects().size());
+    for (S3Object object : listing.objects()) {
+      ObjectKey key = new ObjectKey(prefix.bucket(), object.key(), password);
+      Cached cached = objects.get(key);
+      if (fresh && cached != null && cached.etag().equals(object.etag())) {
+        pending.add(CompletableFuture.completedFuture(cached.loaded()));
+      } else {
+        pending.add(downloads.submit(() -> fetch(prefix, key, object, cached)));
+      }
+    }
+
+    List<LoadedCertificate> loaded = new ArrayList<>();
+    try {
+      for (Future<List<LoadedCertificate>> future : pending) {
+        loaded.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      pending.forEach(future -> future.cancel(true));
+      throw e;
+    } catch (ExecutionException e) {
+      pending.forEach(future -> future.cancel(true));
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+    return loaded;
+  }
+
+  @PreDestroy
+  public void close() {
+    downloads.shutdownNow();
+  }
+
+  /** Returns how many objects were downloaded rather than served from the cache. */
+  long downloaded() {
+    return downloaded.sum();
+  }
+
+  /**
+   * Fetches an object unless it is unchanged since it was cached. Problems with the object are
+   * reported as a failed certificate rather than failing the whole entry.
+   */
+  private List<LoadedCertificate> fetch(
+      Prefix prefix, ObjectKey key, S3Object object, Cached cached) throws InterruptedException {
+    if (object.size() > CertificateFiles.MAX_SIZE) {
+      return List.of(
+          LoadedCertificate.failed(
+              object.key(), "file exceeds " + CertificateFiles.MAX_SIZE + " bytes"));
+    }
+    try {
+      HttpResponse<InputStream> response =
+          client.get(key.bucket(), key.key(), cached != null ? cached.etag() : null);
+      try (InputStream body = response.body()) {
+        if (response.statusCode() == 304 && cached != null) {
+          log.debug("Object {}/{} is unchanged", key.bucket(), key.key());
+          return cached.loaded();
+        }
+        if (response.statusCode() == 404) {
+          // Deleted since the listing; list again on the next load
+          objects.remove(key);
+          listings.remove(prefix);
+          return List.of();
+        }
+        S3Client.checkStatus("Get " + key.bucket() + "/" + key.key(), response.statusCode(), body);
+        downloaded.increment();
+        List<LoadedCertificate> loaded = CertificateFiles.parse(key.key(), body, key.password());
+        String etag = response.headers().firstValue("ETag").orElse(object.etag());
+        if (etag != null) {
+          objects.put(key, new Cached(etag, loaded));
+        }
+        return loaded;
+      }
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      return List.of(LoadedCertificate.failed(object.key(), e.getMessage()));
+    }
+  }
+
+  /** Drops cached objects below the prefix that a fresh listing no longer contains. */
+  private void forgetUnlisted(Prefix prefix, Listing listing) {
+    Set<String> listed = new HashSet<>();
+    listing.objects().forEach(object -> listed.add(object.key()));
+    objects
+        .keySet()
+        .removeIf(
+            key ->
+                key.bucket().equals(prefix.bucket())
+                    && key.key().startsWith(prefix.key())
+                    && !listed.contains(key.key()));
+  }
+
+  /** Bucket and key prefix of an entry. */
+  record Prefix(String bucket, String key) {
+
+    /**
+     * Parses {@code bucket/prefix}; an optional {@code s3://} scheme is ignored.
+     *
+     * @throws IllegalArgumentException if the path names no bucket
+     */
+    static Prefix of(String path) {
+      String location = path.startsWith("s3://") ? path.substring(5) : path;
+      int slash = location.indexOf('/');
+      String bucket = slash >= 0 ? location.substring(0, slash) : location;
+      if (bucket.isEmpty()) {
+        throw new IllegalArgumentException("No bucket in s3 path: " + path);
+      }
+      return new Prefix(bucket, slash >= 0 ? location.substring(slash + 1) : "");
+    }
+  }
+
+  /** Objects below a prefix as of a listing. */
+  private record Listing(long listedAt, List<S3Object> objects) {}
+
+  /** Identifies the certificates of one object; the password decides whether keystores open. */
+  private record ObjectKey(String bucket, String key, String password) {}
+
+  /** Certificates of an object as of its ETag. */
+  private record Cached(String etag, List<LoadedCertificate> loaded) {}
+}
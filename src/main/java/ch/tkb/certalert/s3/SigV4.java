@@ -0,0 +1,129 @@
+package ch.tkb.certalert.s3;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/** AWS Signature Version 4 for S3 requests without a body. */
+final class SigV4 {
+
+  static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+  /** SHA-256 of an empty payload, sent as {@code x-amz-content-sha256} of GET requests. */
+  static final String EMPTY_PAYLOAD =
+      "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+  private static final HexFormat HEX = HexFormat.of();
+
+  private SigV4() {}
+
+  /**
+   * Returns the {@code Authorization} header of a request.
+   *
+   * @param path the encoded path, see {@link #encode(String, boolean)}
+   * @param query the query parameters, unencoded; may be empty
+   * @param headers the signed headers by lower-case name, including {@code host}, {@code
+   *     x-amz-date} and {@code x-amz-content-sha256}
+   */
+  static String authorization(
+      String method,
+      String path,
+      Map<String, String> query,
+      SortedMap<String, String> headers,
+      String region,
+      String accessKey,
+      String secretKey) {
+    String amzDate = headers.get("x-amz-date");
+    String scope = amzDate.substring(0, 8) + "/" + region + "/s3/aws4_request";
+    StringBuilder canonicalHeaders = new StringBuilder();
+    for (var header : headers.entrySet()) {
+      canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim());
+      canonicalHeaders.append('\n');
+    }
+    String signedHeaders = String.join(";", headers.keySet());
+    String canonicalRequest =
+        String.join(
+            "\n",
+            method,
+            path,
+            canonicalQuery(query),
+            canonicalHeaders,
+            signedHeaders,
+            headers.get("x-amz-content-sha256"));
+    String stringToSign =
+        String.join("\n", ALGORITHM, amzDate, scope, HEX.formatHex(sha256(canonicalRequest)));
+
+    byte[] key = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+    for (String part : scope.split("/")) {
+      key = hmac(key, part);
+    }
+    String signature = HEX.formatHex(hmac(key, stringToSign));
+    return ALGORITHM
+        + " Credential="
+        + accessKey
+        + "/"
+        + scope
+        + ", SignedHeaders="
+        + signedHeaders
+        + ", Signature="
+        + signature;
+  }
+
+  /** Returns the query parameters sorted by name and encoded, as both signed and sent. */
+  static String canonicalQuery(Map<String, String> query) {
+    StringBuilder canonical = new StringBuilder();
+    for (var parameter : new TreeMap<>(query).entrySet()) {
+      if (!canonical.isEmpty()) {
+        canonical.append('&');
+      }
+      canonical.append(encode(parameter.getKey(), false));
+      canonical.append('=').append(encode(parameter.getValue(), false));
+    }
+    return canonical.toString();
+  }
+
+  /** Percent-encodes everything but unreserved characters and, in paths, slashes. */
+  static String encode(String value, boolean path) {
+    StringBuilder encoded = new StringBuilder(value.length());
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xff);
+      if ((c >= 'A' && c <= 'Z')
+          || (c >= 'a' && c <= 'z')
+          || (c >= '0' && c <= '9')
+          || c == '-'
+          || c == '_'
+          || c == '.'
+          || c == '~'
+          || (path && c == '/')) {
+        encoded.append(c);
+      } else {
+        encoded.append('%').append(HEX.withUpperCase().toHexDigits(b));
+      }
+    }
+    return encoded.toString();
+  }
+
+  private static byte[] sha256(String value) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static byte[] hmac(byte[] key, String value) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      throw new IllegalStateException("HmacSHA256 is not available", e);
+    }
+  }
+}
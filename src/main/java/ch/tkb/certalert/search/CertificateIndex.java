@@ -0,0 +1,293 @@
+package ch.tkb.certalert.search;
+
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.utils.IntObjectMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inverted index over the served snapshot for searching certificates by name, alias, subject,
+ * issuer and subject alternative names.
+ *
+ * <p>Every row is indexed under lower-cased terms: the full values, their words, the attribute
+ * values of the subject and issuer DN, and for host names every parent domain, so that {@code
+ * example.com} finds {@code api.example.com}. Terms are kept sorted, so a query token matches all
+ * terms it is a prefix of. {@link #update(CertificateSnapshot)} diffs the new snapshot against the
+ * indexed one and re-indexes only the changed rows.
+ */
+@Component
+public class CertificateIndex {
+
+  /** Longest indexed term; longer values such as error messages are cut. */
+  static final int MAX_TERM_LENGTH = 128;
+
+  private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Ids of the rows by term. */
+  private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+  /** Terms of every indexed row, to remove them without the old row. */
+  private final IntObjectMap<String[]> termsById = new IntObjectMap<>();
+
+  private CertificateSnapshot indexed = CertificateSnapshot.empty();
+
+  /** Re-indexes the rows that changed since the last indexed snapshot. */
+  public void update(CertificateSnapshot snapshot) {
+    lock.writeLock().lock();
+    try {
+      snapshot.diff(
+          indexed,
+          new CertificateSnapshot.Changes() {
+            @Override
+            public void added(int id) {
+              index(id, snapshot.info(id));
+            }
+
+            @Override
+            public void changed(int id) {
+              unindex(id);
+              index(id, snapshot.info(id));
+            }
+
+            @Override
+            public void removed(int id) {
+              unindex(id);
+            }
+          });
+      indexed = snapshot;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the rows matching every whitespace-separated token of the query, in id order. A token
+   * matches a row if one of its terms starts with the token; matching ignores case.
+   */
+  public List<CertificateInfo> search(String query, int limit) {
+    List<String> tokens = tokens(query);
+    if (tokens.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      BitSet matches = null;
+      for (String token : tokens) {
+        BitSet ids = lookup(token);
+        if (matches == null) {
+          matches = ids;
+        } else {
+          matches.and(ids);
+        }
+        if (matches.isEmpty()) {
+          return List.of();
+        }
+      }
+      List<CertificateInfo> rows = new ArrayList<>(Math.min(limit, matches.cardinality()));
+      for (int id = matches.nextSetBit(0); id >= 0 && rows.size() < limit; ) {
+        rows.add(indexed.info(id));
+        id = matches.nextSetBit(id + 1);
+      }
+      return rows;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of distinct terms. */
+  public int termCount() {
+    lock.readLock().lock();
+    try {
+      return postings.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the ids of all rows with a term starting with the token. */
+  private BitSet lookup(String token) {
+    BitSet ids = new BitSet();
+    for (Postings terms :
+        postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+      terms.addTo(ids);
+    }
+    return ids;
+  }
+
+  private void index(int id, CertificateInfo info) {
+    Set<String> terms = terms(info);
+    for (String term : terms) {
+      postings.computeIfAbsent(term, t -> new Postings()).add(id);
+    }
+    termsById.put(id, terms.toArray(String[]::new));
+  }
+
+  private void unindex(int id) {
+    String[] terms = termsById.remove(id);
+    if (terms == null) {
+      return;
+    }
+    for (String term : terms) {
+      Postings ids = postings.get(term);
+      if (ids != null && ids.remove(id)) {
+        postings.remove(term);
+      }
+    }
+  }
+
+  /** Returns the terms a row is found by. */
+  static Set<String> terms(CertificateInfo info) {
+    Set<String> terms = new LinkedHashSet<>();
+    addText(terms, info.getName());
+    addText(terms, info.getAlias());
+    addDistinguishedName(terms, info.getSubject());
+    addDistinguishedName(terms, info.getIssuer());
+    if (info.getSubjectAltNames() != null) {
+      for (String name : info.getSubjectAltNames()) {
+        if (name.startsWith("DNS:")) {
+          addHost(terms, name.substring(4).toLowerCase(Locale.ROOT));
+        } else if (name.startsWith("IP:")) {
+          addTerm(terms, name.substring(3).toLowerCase(Locale.ROOT));
+        } else {
+          addText(terms, name.substring(name.indexOf(':') + 1));
+        }
+      }
+    }
+    return terms;
+  }
+
+  /** Splits a query into lower-cased tokens; a trailing {@code *} is ignored. */
+  static List<String> tokens(String query) {
+    if (query == null) {
+      return List.of();
+    }
+    List<String> tokens = new ArrayList<>();
+    for (String token : WHITESPACE.split(query.trim().toLowerCase(Locale.ROOT))) {
+      while (token.endsWith("*")) {
+        token = token.substring(0, token.length() - 1);
+      }
+      if (!token.isEmpty()) {
+        tokens.add(token.length() > MAX_TERM_LENGTH ? token.substring(0, MAX_TERM_LENGTH) : token);
+      }
+    }
+    return tokens;
+  }
+
+  /** Adds the attribute values of an RFC 2253 name; error messages end up as plain text. */
+  private static void addDistinguishedName(Set<String> terms, String name) {
+    if (name == null) {
+      return;
+    }
+    StringBuilder value = new StringBuilder();
+    boolean escaped = false;
+    for (int i = 0; i <= name.length(); i++) {
+      char c = i < name.length() ? name.charAt(i) : ',';
+      if (escaped) {
+        value.append(c);
+        escaped = false;
+      } else if (c == '\\') {
+        escaped = true;
+      } else if (c == ',' || c == '+') {
+        String part = value.toString();
+        int equals = part.indexOf('=');
+        addText(
+            terms, equals > 0 && isAttributeType(part, equals) ? part.substring(equals + 1) : part);
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+  }
+
+  private static boolean isAttributeType(String part, int end) {
+    for (int i = 0; i < end; i++) {
+      char c = part.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '.' && c != '-' && c != ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Adds the full value, its words and, for host names, its parent domains. */
+  private static void addText(Set<String> terms, String text) {
+    if (text == null) {
+      return;
+    }
+    String value = text.trim().toLowerCase(Locale.ROOT);
+    if (value.isEmpty()) {
+      return;
+    }
+    if (value.indexOf('.') > 0 && value.chars().noneMatch(Character::isWhitespace)) {
+      addHost(terms, value);
+    } else {
+      addTerm(terms, value);
+    }
+    for (String word : WORD_SEPARATORS.split(value)) {
+      addTerm(terms, word);
+    }
+  }
+
+  /** Adds the host name and every parent domain of it. */
+  private static void addHost(Set<String> terms, String host) {
+    addTerm(terms, host);
+    for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+      addTerm(terms, host.substring(dot + 1));
+    }
+  }
+
+  private static void addTerm(Set<String> terms, String term) {
+    if (!term.isEmpty()) {
+      terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+    }
+  }
+
+  /** Sorted ids of the rows with one term. */
+  private static final class Postings {
+    private int[] ids = new int[2];
+    private int size;
+
+    void add(int id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0) {
+        return;
+      }
+      position = -position - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      ids[position] = id;
+      size++;
+    }
+
+    /** Removes the id and returns whether no ids are left. */
+    boolean remove(int id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0) {
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+      }
+      return size == 0;
+    }
+
+    void addTo(BitSet target) {
+      for (int i = 0; i < size; i++) {
+        target.set(ids[i]);
+      }
+    }
+  }
+}
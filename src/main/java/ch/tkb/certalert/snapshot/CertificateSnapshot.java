@@ -0,0 +1,757 @@
+package ch.tkb.certalert.snapshot;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.ChainStatus;
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import ch.tkb.certalert.utils.IntObjectMap;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, persistent snapshot of collected certificates keyed by identity id.
+ *
+ * <p>Rows live in a hash array mapped trie keyed directly by the (dense) ids: branches consume five
+ * bits of the id each and are compressed with a bitmap, and every leaf stores the rows of 32
+ * consecutive ids in primitive columns (dates as epoch millis, status as ordinal). A new generation
+ * is built from the previous one with {@link #toBuilder()}; only the leaves and branches on the
+ * path of a changed row are copied, all others are shared. {@link #diff(CertificateSnapshot,
+ * Changes)} skips shared nodes and therefore runs in time proportional to the changes.
+ *
+ * <p>The {@link java.util.List} view orders the rows by id and materializes {@link CertificateInfo}
+ * objects only when a row is read.
+ */
+public final class CertificateSnapshot extends AbstractList<CertificateInfo>
+    implements RandomAccess {
+
+  /** Marker for absent instants. */
+  private static final long NO_INSTANT = Long.MIN_VALUE;
+
+  /** Marker for rows without a chain or revocation status. */
+  private static final byte NO_STATUS = -1;
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Status[] STATUSES = Status.values();
+  private static final ChainStatus[] CHAIN_STATUSES = ChainStatus.values();
+  private static final RevocationStatus[] REVOCATION_STATUSES = RevocationStatus.values();
+
+  private static final CertificateSnapshot EMPTY = new CertificateSnapshot(null, BITS, 0);
+
+  private final Object root; // Branch or null; leaves are at level 0
+  private final int shift; // bits below the root level; the root covers ids < 1 << (shift + BITS)
+  private final int size;
+
+  /** Ids in ascending order; computed on the first positional access. */
+  private volatile int[] order;
+
+  private CertificateSnapshot(Object root, int shift, int size) {
+    this.root = root;
+    this.shift = shift;
+    this.size = size;
+  }
+
+  /** Returns an empty snapshot. */
+  public static CertificateSnapshot empty() {
+    return EMPTY;
+  }
+
+  /** Returns a builder for a new snapshot that shares nothing with earlier ones. */
+  public static Builder builder() {
+    return new Builder(EMPTY);
+  }
+
+  /**
+   * Returns a builder for the next generation of this snapshot. Rows that are added unchanged keep
+   * their leaves; rows that are not added again are removed by {@link Builder#build()}.
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** Materializes the row at the given position of the id order. */
+  @Override
+  public CertificateInfo get(int row) {
+    Objects.checkIndex(row, size);
+    return info(order()[row]);
+  }
+
+  /** Returns the identity id of the row at the given position of the id order. */
+  public int idAt(int row) {
+    Objects.checkIndex(row, size);
+    return order()[row];
+  }
+
+  /** Materializes the row of the id, or returns null if the id is not part of the snapshot. */
+  public CertificateInfo info(int id) {
+    Leaf leaf = leaf(id);
+    if (leaf == null) {
+      return null;
+    }
+    int slot = id & MASK;
+    CertificateIdentity identity = leaf.identities[slot];
+    return CertificateInfo.builder()
+        .path(identity.path())
+        .fileName(leaf.fileName[slot])
+        .name(identity.name())
+        .type(identity.type())
+        .alias(identity.alias())
+        .subject(leaf.subject[slot])
+        .issuer(leaf.issuer[slot])
+        .subjectAltNames(leaf.subjectAltNames[slot])
+        .notBefore(instant(leaf.notBefore[slot]))
+        .notAfter(instant(leaf.notAfter[slot]))
+        .status(STATUSES[leaf.status[slot]])
+        .fingerprint(leaf.fingerprint[slot])
+        .chain(chainOf(leaf, slot))
+        .revocation(revocationOf(leaf, slot))
+        .build();
+  }
+
+  /** Returns whether the id is part of the snapshot. */
+  public boolean contains(int id) {
+    return leaf(id) != null;
+  }
+
+  /** Returns the identity of the id, or null if the id is not part of the snapshot. */
+  public CertificateIdentity identityOf(int id) {
+    Leaf leaf = leaf(id);
+    return leaf != null ? leaf.identities[id & MASK] : null;
+  }
+
+  /** Returns the status of the id without materializing its row. */
+  public Status statusOf(int id) {
+    return STATUSES[required(id).status[id & MASK]];
+  }
+
+  /** Returns the fingerprint of the id, or null for rows of certificates that failed to load. */
+  public String fingerprintOf(int id) {
+    return required(id).fingerprint[id & MASK];
+  }
+
+  /** Returns the chain status of the id, or null if its chain was not validated. */
+  public ChainStatus chainOf(int id) {
+    return chainOf(required(id), id & MASK);
+  }
+
+  /** Returns whether the chain of the id was validated. */
+  public boolean hasChain(int id) {
+    Leaf leaf = leaf(id);
+    return leaf != null && leaf.chain[id & MASK] != NO_STATUS;
+  }
+
+  /** Returns the revocation status of the id, or null if it was not checked. */
+  public RevocationStatus revocationOf(int id) {
+    return revocationOf(required(id), id & MASK);
+  }
+
+  /** Returns whether the revocation status of the id was checked. */
+  public boolean hasRevocation(int id) {
+    Leaf leaf = leaf(id);
+    return leaf != null && leaf.revocation[id & MASK] != NO_STATUS;
+  }
+
+  /** Returns whether the id has a known expiry. */
+  public boolean hasNotAfter(int id) {
+    Leaf leaf = leaf(id);
+    return leaf != null && leaf.notAfter[id & MASK] != NO_INSTANT;
+  }
+
+  /**
+   * Returns whether the id holds the same state as the given certificate info. The chain and
+   * revocation status are not part of the state; compare them with {@link #chainOf(int)} and {@link
+   * #revocationOf(int)}. The issuer and alternative names follow from the fingerprint.
+   */
+  public boolean sameState(int id, CertificateInfo info) {
+    Leaf leaf = required(id);
+    int slot = id & MASK;
+    return leaf.notBefore[slot] == millis(info.getNotBefore())
+        && leaf.notAfter[slot] == millis(info.getNotAfter())
+        && STATUSES[leaf.status[slot]] == info.getStatus()
+        && Objects.equals(leaf.subject[slot], info.getSubject())
+        && Objects.equals(leaf.fileName[slot], info.getFileName())
+        && Objects.equals(leaf.fingerprint[slot], info.getFingerprint());
+  }
+
+  /**
+   * Returns a copy of this snapshot in which the given ids have the given status. Only the leaves
+   * of these ids and their paths are copied.
+   */
+  public CertificateSnapshot withStatus(int[] ids, Status newStatus) {
+    Builder builder = new Builder(this);
+    for (int id : ids) {
+      required(id);
+      builder.edit(id).status[id & MASK] = (byte) newStatus.ordinal();
+    }
+    return builder.apply();
+  }
+
+  /**
+   * Returns a copy of this snapshot with the changes from {@code before} to {@code after} applied.
+   * Both hold a part of the rows of this snapshot, such as the rows of one scan group, and rows
+   * outside of them are kept. Runs in time proportional to the changes.
+   */
+  public CertificateSnapshot merge(CertificateSnapshot before, CertificateSnapshot after) {
+    Builder builder = new Builder(this);
+    after.diff(
+        before,
+        new Changes() {
+          @Override
+          public void added(int id) {
+            builder.edit(id).copy(id & MASK, after.leaf(id));
+          }
+
+          @Override
+          public void changed(int id) {
+            builder.edit(id).copy(id & MASK, after.leaf(id));
+          }
+
+          @Override
+          public void removed(int id) {
+            Leaf current = builder.current(id);
+            if (current != null && (current.present & (1 << (id & MASK))) != 0) {
+              builder.edit(id).clear(id & MASK);
+            }
+          }
+        });
+    return builder.apply();
+  }
+
+  /**
+   * Reports the ids that were added, changed or removed since the given earlier snapshot. Subtrees
+   * shared by both snapshots are skipped.
+   */
+  public void diff(CertificateSnapshot previous, Changes changes) {
+    int top = Math.max(shift, previous.shift);
+    diff(previous.rootAt(top), rootAt(top), top, 0, changes);
+  }
+
+  /** Returns how many leaves of this snapshot are shared with the given one. */
+  public int sharedLeaves(CertificateSnapshot other) {
+    Set<Object> theirs = Collections.newSetFromMap(new IdentityHashMap<>());
+    forEachLeaf(other.root, other.shift, theirs::add);
+    int[] shared = new int[1];
+    forEachLeaf(
+        root,
+        shift,
+        leaf -> {
+          if (theirs.contains(leaf)) {
+            shared[0]++;
+          }
+        });
+    return shared[0];
+  }
+
+  /**
+   * Returns an estimate of the heap retained by this snapshot, excluding the shared identities.
+   * Assumes compressed references and 16 bytes of array/object overhead; strings are counted once
+   * per instance.
+   */
+  public long estimatedBytes() {
+    long[] bytes = new long[1];
+    Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+    Set<List<String>> lists = Collections.newSetFromMap(new IdentityHashMap<>());
+    forEachNode(
+        root,
+        shift,
+        node -> {
+          if (node instanceof Leaf leaf) {
+            // 12 columns of 32 rows plus the leaf object
+            bytes[0] += 16 * 13 + WIDTH * (4 * 6 + 8 * 2 + 3) + 8;
+            for (int slot = 0; slot < WIDTH; slot++) {
+              if ((leaf.present & (1 << slot)) != 0) {
+                strings.add(leaf.subject[slot]);
+                strings.add(leaf.issuer[slot]);
+                strings.add(leaf.fileName[slot]);
+                strings.add(leaf.fingerprint[slot]);
+                List<String> names = leaf.subjectAltNames[slot];
+                if (names != null && lists.add(names)) {
+                  bytes[0] += 16 + names.size() * 4L;
+                  strings.addAll(names);
+                }
+              }
+            }
+          } else {
+            bytes[0] += 16 * 2 + 8 + ((Branch) node).children.length * 4L;
+          }
+        });
+    strings.remove(null);
+    for (String value : strings) {
+      bytes[0] += 40 + value.length();
+    }
+    return bytes[0];
+  }
+
+  private int[] order() {
+    int[] ids = order;
+    if (ids == null) {
+      int[] collected = new int[size];
+      int[] next = new int[1];
+      forEachNode(
+          root,
+          shift,
+          node -> {
+            if (node instanceof Leaf leaf) {
+              for (int bits = leaf.present; bits != 0; bits &= bits - 1) {
+                collected[next[0]++] = leaf.base + Integer.numberOfTrailingZeros(bits);
+              }
+            }
+          });
+      order = ids = collected;
+    }
+    return ids;
+  }
+
+  private Leaf leaf(int id) {
+    if (id < 0 || (id >>> shift >>> BITS) != 0) {
+      return null;
+    }
+    Object node = root;
+    for (int level = shift; node instanceof Branch branch; level -= BITS) {
+      node = branch.child((id >>> level) & MASK);
+    }
+    Leaf leaf = (Leaf) node;
+    return leaf != null && (leaf.present & (1 << (id & MASK))) != 0 ? leaf : null;
+  }
+
+  private Leaf required(int id) {
+    Leaf leaf = leaf(id);
+    if (leaf == null) {
+      throw new IllegalArgumentException("Id " + id + " is not part of the snapshot");
+    }
+    return leaf;
+  }
+
+  /** Returns the root as seen from a higher level, wrapping it in single-child branches. */
+  private Object rootAt(int level) {
+    Object node = root;
+    for (int current = shift; current < level && node != null; current += BITS) {
+      node = new Branch(1, new Object[] {node});
+    }
+    return node;
+  }
+
+  private static void diff(Object before, Object after, int level, int prefix, Changes changes) {
+    if (before == after) {
+      return;
+    }
+    if (level == 0) {
+      Leaf old = (Leaf) before;
+      Leaf now = (Leaf) after;
+      int oldPresent = old != null ? old.present : 0;
+      int nowPresent = now != null ? now.present : 0;
+      for (int bits = oldPresent | nowPresent; bits != 0; bits &= bits - 1) {
+        int slot = Integer.numberOfTrailingZeros(bits);
+        int bit = 1 << slot;
+        int id = prefix | slot;
+        if ((nowPresent & bit) == 0) {
+          changes.removed(id);
+        } else if ((oldPresent & bit) == 0) {
+          changes.added(id);
+        } else if (!old.sameRow(slot, now)) {
+          changes.changed(id);
+        }
+      }
+      return;
+    }
+    Branch old = (Branch) before;
+    Branch now = (Branch) after;
+    int oldBitmap = old != null ? old.bitmap : 0;
+    int nowBitmap = now != null ? now.bitmap : 0;
+    for (int bits = oldBitmap | nowBitmap; bits != 0; bits &= bits - 1) {
+      int index = Integer.numberOfTrailingZeros(bits);
+      diff(
+          old != null ? old.child(index) : null,
+          now != null ? now.child(index) : null,
+          level - BITS,
+          prefix | (index << level),
+          changes);
+    }
+  }
+
+  private static void forEachNode(Object node, int level, Consumer<Object> visitor) {
+    if (node == null) {
+      return;
+    }
+    visitor.accept(node);
+    if (node instanceof Branch branch) {
+      for (Object child : branch.children) {
+        forEachNode(child, level - BITS, visitor);
+      }
+    }
+  }
+
+  private static void forEachLeaf(Object node, int level, Consumer<Leaf> visitor) {
+    forEachNode(
+        node,
+        level,
+        n -> {
+          if (n instanceof Leaf leaf) {
+            visitor.accept(leaf);
+          }
+        });
+  }
+
+  private static ChainStatus chainOf(Leaf leaf, int slot) {
+    return leaf.chain[slot] != NO_STATUS ? CHAIN_STATUSES[leaf.chain[slot]] : null;
+  }
+
+  private static RevocationStatus revocationOf(Leaf leaf, int slot) {
+    return leaf.revocation[slot] != NO_STATUS ? REVOCATION_STATUSES[leaf.revocation[slot]] : null;
+  }
+
+  private static Instant instant(long millis) {
+    return millis != NO_INSTANT ? Instant.ofEpochMilli(millis) : null;
+  }
+
+  private static long millis(Instant instant) {
+    return instant != null ? instant.toEpochMilli() : NO_INSTANT;
+  }
+
+  /** Receives the differences between two snapshots, in ascending id order. */
+  public interface Changes {
+
+    /** The id is only part of the newer snapshot. */
+    default void added(int id) {}
+
+    /** The id is part of both snapshots with different rows. */
+    default void changed(int id) {}
+
+    /** The id is only part of the older snapshot. */
+    default void removed(int id) {}
+  }
+
+  /** Inner trie node; {@code children} holds the non-empty children in index order. */
+  private record Branch(int bitmap, Object[] children) {
+
+    Object child(int index) {
+      int bit = 1 << index;
+      return (bitmap & bit) != 0 ? children[Integer.bitCount(bitmap & (bit - 1))] : null;
+    }
+
+    /** Returns a branch with the child at the index replaced, or null if it ends up empty. */
+    Branch with(int index, Object child) {
+      int bit = 1 << index;
+      int position = Integer.bitCount(bitmap & (bit - 1));
+      if ((bitmap & bit) != 0) {
+        if (child != null) {
+          Object[] copy = children.clone();
+          copy[position] = child;
+          return new Branch(bitmap, copy);
+        }
+        if (children.length == 1) {
+          return null;
+        }
+        Object[] copy = new Object[children.length - 1];
+        System.arraycopy(children, 0, copy, 0, position);
+        System.arraycopy(children, position + 1, copy, position, copy.length - position);
+        return new Branch(bitmap & ~bit, copy);
+      }
+      if (child == null) {
+        return this;
+      }
+      Object[] copy = new Object[children.length + 1];
+      System.arraycopy(children, 0, copy, 0, position);
+      copy[position] = child;
+      System.arraycopy(children, position, copy, position + 1, children.length - position);
+      return new Branch(bitmap | bit, copy);
+    }
+  }
+
+  /** Rows of 32 consecutive ids in columns. Never modified once part of a snapshot. */
+  private static final class Leaf {
+    private final int base; // first id of the leaf
+    private int present; // bit per slot holding a row
+    private final CertificateIdentity[] identities;
+    private final long[] notBefore;
+    private final long[] notAfter;
+    private final byte[] status;
+    private final byte[] chain;
+    private final byte[] revocation;
+    private final String[] subject;
+    private final String[] issuer;
+    private final List<String>[] subjectAltNames;
+    private final String[] fileName;
+    private final String[] fingerprint;
+
+    private Leaf(int base) {
+      this.base = base;
+      identities = new CertificateIdentity[WIDTH];
+      notBefore = new long[WIDTH];
+      notAfter = new long[WIDTH];
+      status = new byte[WIDTH];
+      chain = new byte[WIDTH];
+      revocation = new byte[WIDTH];
+      subject = new String[WIDTH];
+      issuer = new String[WIDTH];
+      subjectAltNames = newListArray();
+      fileName = new String[WIDTH];
+      fingerprint = new String[WIDTH];
+    }
+
+    private Leaf(Leaf source) {
+      base = source.base;
+      present = source.present;
+      identities = source.identities.clone();
+      notBefore = source.notBefore.clone();
+      notAfter = source.notAfter.clone();
+      status = source.status.clone();
+      chain = source.chain.clone();
+      revocation = source.revocation.clone();
+      subject = source.subject.clone();
+      issuer = source.issuer.clone();
+      subjectAltNames = source.subjectAltNames.clone();
+      fileName = source.fileName.clone();
+      fingerprint = source.fingerprint.clone();
+    }
+
+    /** Returns whether the slot holds the same row in both leaves. */
+    boolean sameRow(int slot, Leaf other) {
+      return identities[slot].equals(other.identities[slot])
+          && notBefore[slot] == other.notBefore[slot]
+          && notAfter[slot] == other.notAfter[slot]
+          && status[slot] == other.status[slot]
+          && chain[slot] == other.chain[slot]
+          && revocation[slot] == other.revocation[slot]
+          && Objects.equals(subject[slot], other.subject[slot])
+          && Objects.equals(issuer[slot], other.issuer[slot])
+          && Objects.equals(subjectAltNames[slot], other.subjectAltNames[slot])
+          && Objects.equals(fileName[slot], other.fileName[slot])
+          && Objects.equals(fingerprint[slot], other.fingerprint[slot]);
+    }
+
+    /** Copies the row in the slot of the other leaf into this one. */
+    void copy(int slot, Leaf other) {
+      present |= 1 << slot;
+      identities[slot] = other.identities[slot];
+      notBefore[slot] = other.notBefore[slot];
+      notAfter[slot] = other.notAfter[slot];
+      status[slot] = other.status[slot];
+      chain[slot] = other.chain[slot];
+      revocation[slot] = other.revocation[slot];
+      subject[slot] = other.subject[slot];
+      issuer[slot] = other.issuer[slot];
+      subjectAltNames[slot] = other.subjectAltNames[slot];
+      fileName[slot] = other.fileName[slot];
+      fingerprint[slot] = other.fingerprint[slot];
+    }
+
+    void clear(int slot) {
+      present &= ~(1 << slot);
+      identities[slot] = null;
+      subject[slot] = null;
+      issuer[slot] = null;
+      subjectAltNames[slot] = null;
+      fileName[slot] = null;
+      fingerprint[slot] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newListArray() {
+      return (List<String>[]) new List<?>[WIDTH];
+    }
+  }
+
+  /**
+   * Collects the rows of the next generation. Leaves are copied on their first change and shared
+   * otherwise. Not thread-safe.
+   */
+  public static final class Builder {
+    private CertificateSnapshot base;
+    private final IntObjectMap<Leaf> edits = new IntObjectMap<>(); // by leaf index
+    private final Map<String, String> strings = new HashMap<>(); // strings of the edited rows
+    private long[] seen = new long[1]; // ids added since the builder was created
+
+    private Builder(CertificateSnapshot base) {
+      this.base = base;
+    }
+
+    /**
+     * Adds or replaces the row of the id. An unchanged row keeps its leaf, including a revocation
+     * status that is not part of the given info; set it with {@link #revocation(int,
+     * RevocationStatus)}.
+     */
+    public Builder add(int id, CertificateIdentity identity, CertificateInfo info) {
+      markSeen(id);
+      Leaf current = current(id);
+      int slot = id & MASK;
+      if (current != null
+          && (current.present & (1 << slot)) != 0
+          && current.identities[slot].equals(identity)
+          && current.notBefore[slot] == millis(info.getNotBefore())
+          && current.notAfter[slot] == millis(info.getNotAfter())
+          && current.status[slot] == info.getStatus().ordinal()
+          && current.chain[slot] == ordinal(info.getChain())
+          && (info.getRevocation() == null
+              || current.revocation[slot] == ordinal(info.getRevocation()))
+          && Objects.equals(current.subject[slot], info.getSubject())
+          && Objects.equals(current.issuer[slot], info.getIssuer())
+          && Objects.equals(current.subjectAltNames[slot], info.getSubjectAltNames())
+          && Objects.equals(current.fileName[slot], info.getFileName())
+          && Objects.equals(current.fingerprint[slot], info.getFingerprint())) {
+        return this;
+      }
+
+      Leaf leaf = edit(id);
+      leaf.present |= 1 << slot;
+      leaf.identities[slot] = identity;
+      leaf.notBefore[slot] = millis(info.getNotBefore());
+      leaf.notAfter[slot] = millis(info.getNotAfter());
+      leaf.status[slot] = (byte) info.getStatus().ordinal();
+      leaf.chain[slot] = ordinal(info.getChain());
+      leaf.revocation[slot] = ordinal(info.getRevocation());
+      leaf.subject[slot] = intern(info.getSubject());
+      leaf.issuer[slot] = intern(info.getIssuer());
+      leaf.subjectAltNames[slot] = info.getSubjectAltNames();
+      leaf.fileName[slot] = intern(info.getFileName());
+      leaf.fingerprint[slot] = intern(info.getFingerprint());
+      return this;
+    }
+
+    /** Keeps the row of the id from the base snapshot as it is. */
+    public Builder keep(int id) {
+      markSeen(id);
+      return this;
+    }
+
+    /** Sets the revocation status of an id that was already added. */
+    public Builder revocation(int id, RevocationStatus status) {
+      Leaf current = current(id);
+      int slot = id & MASK;
+      if (current == null || (current.present & (1 << slot)) == 0) {
+        throw new IllegalArgumentException("Id " + id + " was not added");
+      }
+      byte value = ordinal(status);
+      if (current.revocation[slot] != value) {
+        edit(id).revocation[slot] = value;
+      }
+      return this;
+    }
+
+    /**
+     * Builds the snapshot of the rows added so far; rows of the base snapshot that were not added
+     * again are left out. The builder can be used further.
+     */
+    public CertificateSnapshot build() {
+      // Remove the rows that were not added, leaf by leaf
+      forEachLeaf(
+          base.root,
+          base.shift,
+          leaf -> {
+            int unseen = leaf.present & ~seenBits(leaf.base);
+            if (unseen == 0) {
+              return;
+            }
+            Leaf edited = edit(leaf.base);
+            for (int bits = unseen & edited.present; bits != 0; bits &= bits - 1) {
+              edited.clear(Integer.numberOfTrailingZeros(bits));
+            }
+          });
+      return apply();
+    }
+
+    /** Replaces the edited leaves along their paths and starts a new round of edits. */
+    private CertificateSnapshot apply() {
+      Object root = base.root;
+      int shift = base.shift;
+      int size = base.size;
+      List<Leaf> edited = new ArrayList<>(edits.size());
+      edits.forEach((index, leaf) -> edited.add(leaf));
+      for (Leaf leaf : edited) {
+        int id = leaf.base;
+        while ((id >>> shift >>> BITS) != 0) {
+          root = root != null ? new Branch(1, new Object[] {root}) : null;
+          shift += BITS;
+        }
+        Leaf previous = base.leafAt(leaf.base);
+        size +=
+            Integer.bitCount(leaf.present)
+                - (previous != null ? Integer.bitCount(previous.present) : 0);
+        root = replace(root, shift, id, leaf.present != 0 ? leaf : null);
+      }
+      edits.clear();
+      strings.clear();
+      base = size == 0 ? EMPTY : new CertificateSnapshot(root, shift, size);
+      return base;
+    }
+
+    private static Object replace(Object node, int level, int id, Leaf leaf) {
+      if (level == 0) {
+        return leaf;
+      }
+      Branch branch = node != null ? (Branch) node : new Branch(0, new Object[0]);
+      int index = (id >>> level) & MASK;
+      Object child = replace(branch.child(index), level - BITS, id, leaf);
+      return branch.with(index, child);
+    }
+
+    /** Returns the leaf of the id as edited so far, or null. */
+    private Leaf current(int id) {
+      Leaf edited = edits.get(id >>> BITS);
+      return edited != null ? edited : base.leafAt(id);
+    }
+
+    /** Returns the private copy of the leaf of the id, copying or creating it if needed. */
+    private Leaf edit(int id) {
+      Leaf edited = edits.get(id >>> BITS);
+      if (edited == null) {
+        Leaf shared = base.leafAt(id);
+        edited = shared != null ? new Leaf(shared) : new Leaf(id & ~MASK);
+        edits.put(id >>> BITS, edited);
+      }
+      return edited;
+    }
+
+    private void markSeen(int id) {
+      int word = id >>> 6;
+      if (word >= seen.length) {
+        seen = Arrays.copyOf(seen, Math.max(word + 1, seen.length * 2));
+      }
+      seen[word] |= 1L << id;
+    }
+
+    private int seenBits(int base) {
+      int word = base >>> 6;
+      return word < seen.length ? (int) (seen[word] >>> (base & 63)) : 0;
+    }
+
+    private String intern(String value) {
+      return value != null ? strings.computeIfAbsent(value, v -> v) : null;
+    }
+
+    private static byte ordinal(Enum<?> value) {
+      return value != null ? (byte) value.ordinal() : NO_STATUS;
+    }
+  }
+
+  /** Returns the leaf covering the id, whether or not the id itself is present. */
+  private Leaf leafAt(int id) {
+    if (id < 0 || (id >>> shift >>> BITS) != 0) {
+      return null;
+    }
+    Object node = root;
+    for (int level = shift; node instanceof Branch branch; level -= BITS) {
+      node = branch.child((id >>> level) & MASK);
+    }
+    return (Leaf) node;
+  }
+}
@@ -0,0 +1,70 @@
+package ch.tkb.certalert.snapshot;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns each {@link CertificateIdentity} a stable, dense int id.
+ *
+ * <p>Ids stay the same for as long as an identity is part of the snapshot, so snapshots, metrics
+ * and indexes can key on plain ints instead of rebuilding identity records. Released ids are reused
+ * for new identities.
+ */
+@Component
+public class IdentityRegistry {
+
+  private final Map<CertificateIdentity, Integer> ids = new HashMap<>();
+  private CertificateIdentity[] identities = new CertificateIdentity[64];
+  private int[] freeIds = new int[16];
+  private int freeCount;
+  private int nextId;
+
+  /** Returns the id of the identity, assigning a new one if it is unknown. */
+  public synchronized int idOf(CertificateIdentity identity) {
+    Integer id = ids.get(identity);
+    if (id != null) {
+      return id;
+    }
+
+    int assigned = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+    if (assigned >= identities.length) {
+      identities = Arrays.copyOf(identities, identities.length << 1);
+    }
+    identities[assigned] = identity;
+    ids.put(identity, assigned);
+    return assigned;
+  }
+
+  /** Returns the id of the identity, or -1 if it has none. */
+  public synchronized int find(CertificateIdentity identity) {
+    Integer id = ids.get(identity);
+    return id != null ? id : -1;
+  }
+
+  /** Returns the identity registered under the id, or null if the id is not in use. */
+  public synchronized CertificateIdentity identity(int id) {
+    return id >= 0 && id < nextId ? identities[id] : null;
+  }
+
+  /** Releases the id so it can be reused for another identity. */
+  public synchronized void release(int id) {
+    CertificateIdentity identity = identity(id);
+    if (identity == null) {
+      return;
+    }
+    ids.remove(identity);
+    identities[id] = null;
+    if (freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIds.length << 1);
+    }
+    freeIds[freeCount++] = id;
+  }
+
+  /** Returns the number of identities currently registered. */
+  public synchronized int size() {
+    return ids.size();
+  }
+}
@@ -0,0 +1,70 @@
+package ch.tkb.certalert.source;
+
+import ch.tkb.certalert.utils.CertificateLoader;
+import ch.tkb.certalert.utils.KeystoreLoader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses PEM files and keystores found inside other containers, such as archives and buckets, by
+ * their extension.
+ */
+public final class CertificateFiles {
+
+  /** Largest file that is read; certificate files are orders of magnitude smaller. */
+  public static final int MAX_SIZE = 8 * 1024 * 1024;
+
+  private static final Set<String> PEM_EXTENSIONS = Set.of("pem", "crt", "cer");
+  private static final Map<String, String> KEYSTORE_EXTENSIONS =
+      Map.of("jks", "jks", "jceks", "jceks", "p12", "pkcs12", "pfx", "pkcs12");
+
+  private CertificateFiles() {}
+
+  /** Returns whether the path has the extension of a PEM file or keystore. */
+  public static boolean isCertificateFile(String path) {
+    String extension = extensionOf(path);
+    return PEM_EXTENSIONS.contains(extension) || KEYSTORE_EXTENSIONS.containsKey(extension);
+  }
+
+  /**
+   * Parses one file by its extension, which must be known. Aliases are prefixed with the path, e.g.
+   * {@code certs/truststore.jks:root}. Problems with the file are reported as a failed certificate.
+   */
+  public static List<LoadedCertificate> parse(String path, InputStream content, String password) {
+    String keystoreType = KEYSTORE_EXTENSIONS.get(extensionOf(path));
+    try {
+      byte[] bytes = content.readNBytes(MAX_SIZE + 1);
+      if (bytes.length > MAX_SIZE) {
+        return List.of(LoadedCertificate.failed(path, "file exceeds " + MAX_SIZE + " bytes"));
+      }
+      List<LoadedCertificate> certificates;
+      if (keystoreType != null) {
+        certificates =
+            KeystoreSource.certificates(
+                KeystoreLoader.load(keystoreType, new ByteArrayInputStream(bytes), password));
+      } else {
+        certificates = LoadedCertificate.bundle(CertificateLoader.encodedCertificates(bytes));
+        if (certificates.isEmpty()) {
+          return List.of(LoadedCertificate.failed(path, "no certificates found"));
+        }
+      }
+      List<LoadedCertificate> prefixed = new ArrayList<>(certificates.size());
+      for (LoadedCertificate cert : certificates) {
+        prefixed.add(
+            new LoadedCertificate(
+                path + ":" + cert.alias(), cert.der(), cert.issuers(), cert.error()));
+      }
+      return prefixed;
+    } catch (Exception e) {
+      return List.of(LoadedCertificate.failed(path, e.getMessage()));
+    }
+  }
+
+  private static String extensionOf(String path) {
+    return path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+  }
+}
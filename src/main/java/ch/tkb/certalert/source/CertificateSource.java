@@ -0,0 +1,66 @@
+package ch.tkb.certalert.source;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the certificates of configured entries of one or more types.
+ *
+ * <p>Sources are discovered as Spring beans and through {@link java.util.ServiceLoader}, so a new
+ * type does not require changes to the collector. The cost hints tell the collector how to schedule
+ * loads: cheap sources are loaded inline on the scan thread, expensive ones in parallel with at
+ * most {@link #maxConcurrency()} loads at a time, and batch sources get all their entries up front
+ * through {@link #prepare(List)}.
+ */
+public interface CertificateSource {
+
+  /** Returns the entry types handled by this source, in lower case. */
+  Set<String> types();
+
+  /** Returns how expensive a single load is. */
+  default Cost cost() {
+    return Cost.CHEAP;
+  }
+
+  /** Returns how many loads of this source may run at the same time. */
+  default int maxConcurrency() {
+    return 1;
+  }
+
+  /**
+   * Returns whether loads read local or mounted files, which count against the I/O budget of {@code
+   * certalert.pacing}.
+   */
+  default boolean readsFiles() {
+    return true;
+  }
+
+  /** Returns whether the source loads its entries as a batch in {@link #prepare(List)}. */
+  default boolean supportsBatch() {
+    return false;
+  }
+
+  /**
+   * Called once per scan with all entries of this source before any of them is loaded. Batch
+   * sources start their work here; {@link #load(CertificateEntry)} then returns its result.
+   */
+  default void prepare(List<CertificateEntry> entries) {}
+
+  /**
+   * Loads the certificates of one entry.
+   *
+   * @return the certificates in source order; problems with single certificates are reported as
+   *     {@link LoadedCertificate#error()}
+   * @throws Exception if the entry cannot be loaded at all
+   */
+  List<LoadedCertificate> load(CertificateEntry entry) throws Exception;
+
+  /** Relative cost of a single load. */
+  enum Cost {
+    /** In-memory or small local reads; loaded inline. */
+    CHEAP,
+    /** CPU-heavy decoding or remote calls; loaded in parallel. */
+    EXPENSIVE
+  }
+}
@@ -0,0 +1,75 @@
+package ch.tkb.certalert.source;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.utils.KeystoreLoader;
+import ch.tkb.certalert.utils.Resolver;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads Java keystores. Opening a keystore runs its password-based key derivation, so loads are
+ * expensive and run in parallel, at most one per available processor.
+ */
+@Component
+public class KeystoreSource implements CertificateSource {
+
+  @Override
+  public Set<String> types() {
+    return Set.of("jceks", "jks", "dks", "p12", "pkcs11", "pkcs12");
+  }
+
+  @Override
+  public Cost cost() {
+    return Cost.EXPENSIVE;
+  }
+
+  @Override
+  public int maxConcurrency() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    return certificates(
+        KeystoreLoader.load(entry.type(), entry.path(), Resolver.resolve(entry.password())));
+  }
+
+  /** Reads the certificate of every alias of a loaded keystore. */
+  public static List<LoadedCertificate> certificates(KeyStore keyStore) throws Exception {
+    List<LoadedCertificate> loaded = new ArrayList<>();
+    for (String alias : Collections.list(keyStore.aliases())) {
+      loaded.add(loadAlias(keyStore, alias));
+    }
+    return loaded;
+  }
+
+  private static LoadedCertificate loadAlias(KeyStore keyStore, String alias) {
+    try {
+      Certificate certificate = keyStore.getCertificate(alias);
+      if (certificate == null) {
+        return LoadedCertificate.failed(alias, "certificate is missing");
+      }
+      return LoadedCertificate.of(alias, certificate.getEncoded(), issuers(keyStore, alias));
+    } catch (Exception e) {
+      return LoadedCertificate.failed(alias, e.getMessage());
+    }
+  }
+
+  /** Returns the chain stored with a key entry without its leaf; empty for trusted entries. */
+  private static List<byte[]> issuers(KeyStore keyStore, String alias) throws Exception {
+    Certificate[] chain = keyStore.getCertificateChain(alias);
+    if (chain == null || chain.length < 2) {
+      return List.of();
+    }
+    List<byte[]> issuers = new ArrayList<>(chain.length - 1);
+    for (int i = 1; i < chain.length; i++) {
+      issuers.add(chain[i].getEncoded());
+    }
+    return issuers;
+  }
+}
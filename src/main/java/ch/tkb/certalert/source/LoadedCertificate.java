@@ -0,0 +1,46 @@
+package ch.tkb.certalert.source;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** One certificate loaded by a {@link CertificateSource}; exactly one of der and error is set. */
+public record LoadedCertificate(
+    String alias, // Alias within the entry (keystore alias or position in a bundle)
+    byte[] der, // DER encoding of the certificate
+    List<byte[]> issuers, // DER encodings of the chain stored with the certificate, leaf excluded
+    String error // Why the certificate could not be read
+    ) {
+
+  /** Defaults the issuers to an empty list. */
+  public LoadedCertificate {
+    issuers = issuers != null ? issuers : List.of();
+  }
+
+  /** Creates a successfully loaded certificate. */
+  public static LoadedCertificate of(String alias, byte[] der) {
+    return new LoadedCertificate(alias, der, null, null);
+  }
+
+  /** Creates a successfully loaded certificate that was stored together with its issuers. */
+  public static LoadedCertificate of(String alias, byte[] der, List<byte[]> issuers) {
+    return new LoadedCertificate(alias, der, issuers, null);
+  }
+
+  /** Creates a certificate that could not be read. */
+  public static LoadedCertificate failed(String alias, String error) {
+    return new LoadedCertificate(alias, null, null, error);
+  }
+
+  /**
+   * Names the certificates of a bundle: a single certificate is {@code default}, otherwise they are
+   * {@code cert1}, {@code cert2}, ... in order.
+   */
+  public static List<LoadedCertificate> bundle(List<byte[]> certificates) {
+    List<LoadedCertificate> loaded = new ArrayList<>(certificates.size());
+    for (int i = 0; i < certificates.size(); i++) {
+      String alias = certificates.size() == 1 ? "default" : "cert" + (i + 1);
+      loaded.add(of(alias, certificates.get(i)));
+    }
+    return loaded;
+  }
+}
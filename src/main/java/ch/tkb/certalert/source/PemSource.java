@@ -0,0 +1,25 @@
+package ch.tkb.certalert.source;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.utils.CertificateLoader;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads PEM and CRT files. Blocks are only Base64-decoded, so loads are cheap and run inline on the
+ * scan thread.
+ */
+@Component
+public class PemSource implements CertificateSource {
+
+  @Override
+  public Set<String> types() {
+    return Set.of("pem", "crt");
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    return LoadedCertificate.bundle(CertificateLoader.loadAllEncoded(entry.path()));
+  }
+}
@@ -0,0 +1,68 @@
+package ch.tkb.certalert.source;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps entry types to their {@link CertificateSource}. Sources are collected from the Spring
+ * context and from {@link ServiceLoader} registrations ({@code
+ * META-INF/services/ch.tkb.certalert.source.CertificateSource}) of additional jars.
+ */
+@Component
+public class SourceRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(SourceRegistry.class);
+
+  private final Map<String, CertificateSource> sourcesByType = new LinkedHashMap<>();
+
+  /**
+   * Registers the given sources and those found by the {@link ServiceLoader}.
+   *
+   * @throws IllegalStateException if two sources claim the same type
+   */
+  public SourceRegistry(List<CertificateSource> sources) {
+    List<CertificateSource> all = new ArrayList<>(sources);
+    Set<Class<?>> known = new HashSet<>();
+    sources.forEach(source -> known.add(source.getClass()));
+    for (CertificateSource source : ServiceLoader.load(CertificateSource.class)) {
+      if (known.add(source.getClass())) {
+        all.add(source);
+      }
+    }
+
+    for (CertificateSource source : all) {
+      for (String type : source.types()) {
+        CertificateSource previous = sourcesByType.putIfAbsent(type.toLowerCase(), source);
+        if (previous != null) {
+          throw new IllegalStateException(
+              "Type '"
+                  + type
+                  + "' is claimed by "
+                  + previous.getClass().getName()
+                  + " and "
+                  + source.getClass().getName());
+        }
+      }
+    }
+    log.debug("Registered certificate sources for types {}", sourcesByType.keySet());
+  }
+
+  /** Returns the source for the entry type, or null if the type is not supported. */
+  public CertificateSource find(String type) {
+    return type != null ? sourcesByType.get(type.toLowerCase()) : null;
+  }
+
+  /** Returns all registered types. */
+  public Collection<String> types() {
+    return sourcesByType.keySet();
+  }
+}
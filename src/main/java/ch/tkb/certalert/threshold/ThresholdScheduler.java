@@ -0,0 +1,166 @@
+package ch.tkb.certalert.threshold;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.threshold.TimingWheel.Timer;
+import ch.tkb.certalert.utils.IntObjectMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fires the instants at which certificates cross the warning and critical thresholds and expire.
+ *
+ * <p>For every known expiry the three crossing instants are kept in a {@link TimingWheel} that is
+ * advanced once per second, so statuses and metrics change when a threshold is crossed rather than
+ * on the next scan. Rescheduling a certificate with an unchanged expiry is free; all crossings of
+ * one tick are handed to the listener together.
+ */
+@Component
+public class ThresholdScheduler {
+
+  private static final Logger log = LoggerFactory.getLogger(ThresholdScheduler.class);
+
+  /** Resolution of the crossings. */
+  static final Duration TICK = Duration.ofSeconds(1);
+
+  /** Which instant of a certificate was reached. */
+  public enum Threshold {
+    WARNING,
+    CRITICAL,
+    EXPIRY
+  }
+
+  /** A certificate (by identity id) that reached one of its thresholds. */
+  public record Crossing(int id, Threshold threshold, Instant at) {}
+
+  private final Duration warningThreshold;
+  private final Duration criticalThreshold;
+  private final TimingWheel<Crossing> wheel;
+  private final IntObjectMap<Scheduled> scheduled = new IntObjectMap<>();
+  private ScheduledExecutorService ticker;
+  private Consumer<List<Crossing>> listener = crossings -> {};
+
+  /** Creates the scheduler; the clock starts with {@link #start(Consumer)}. */
+  public ThresholdScheduler(CertificateConfig config) {
+    this.warningThreshold = config.dashboard().warningThreshold();
+    this.criticalThreshold = config.dashboard().criticalThreshold();
+    this.wheel = new TimingWheel<>(TICK.toMillis(), System.currentTimeMillis());
+  }
+
+  /** Starts advancing the clock and hands every tick's crossings to the listener. */
+  public synchronized void start(Consumer<List<Crossing>> listener) {
+    if (ticker != null) {
+      return;
+    }
+    this.listener = listener;
+    ticker =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("certalert-thresholds-%d")
+                .setDaemon(true)
+                .build());
+    long initialDelay = TICK.toMillis() - System.currentTimeMillis() % TICK.toMillis();
+    ticker.scheduleAtFixedRate(this::tick, initialDelay, TICK.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Schedules the crossings of a certificate that lie in the future, replacing the ones scheduled
+   * for an earlier expiry. Does nothing if the expiry is unchanged.
+   */
+  public synchronized void schedule(int id, Instant notAfter) {
+    if (notAfter == null) {
+      cancel(id);
+      return;
+    }
+    long expiry = notAfter.toEpochMilli();
+    Scheduled current = scheduled.get(id);
+    if (current != null) {
+      if (current.expiry == expiry) {
+        return;
+      }
+      cancelTimers(current);
+    }
+
+    long now = System.currentTimeMillis();
+    Scheduled timers = new Scheduled(expiry);
+    add(timers, id, Threshold.WARNING, expiry - warningThreshold.toMillis(), now);
+    add(timers, id, Threshold.CRITICAL, expiry - criticalThreshold.toMillis(), now);
+    add(timers, id, Threshold.EXPIRY, expiry, now);
+    scheduled.put(id, timers);
+  }
+
+  /** Removes the crossings of a certificate that is gone or has no expiry. */
+  public synchronized void cancel(int id) {
+    Scheduled current = scheduled.remove(id);
+    if (current != null) {
+      cancelTimers(current);
+    }
+  }
+
+  /** Returns the number of crossings that have not been reached yet. */
+  public synchronized int pending() {
+    return wheel.size();
+  }
+
+  /** Advances the clock to the given time and returns the crossings reached. */
+  synchronized List<Crossing> advance(long nowMillis) {
+    List<Crossing> crossings = new ArrayList<>();
+    wheel.advance(nowMillis, crossings::add);
+    return crossings;
+  }
+
+  private void tick() {
+    try {
+      List<Crossing> crossings = advance(System.currentTimeMillis());
+      if (!crossings.isEmpty()) {
+        log.debug("{} certificates crossed a threshold", crossings.size());
+        listener.accept(crossings);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Failed to apply threshold crossings: {}", e.getMessage(), e);
+    }
+  }
+
+  private void add(Scheduled timers, int id, Threshold threshold, long at, long now) {
+    if (at > now) {
+      timers.add(wheel.schedule(at, new Crossing(id, threshold, Instant.ofEpochMilli(at))));
+    }
+  }
+
+  private void cancelTimers(Scheduled timers) {
+    for (Timer<Crossing> timer : timers.timers) {
+      wheel.cancel(timer);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+  }
+
+  /** The expiry a certificate's timers were scheduled for. */
+  private static final class Scheduled {
+    private final long expiry;
+    private final List<Timer<Crossing>> timers = new ArrayList<>(3);
+
+    private Scheduled(long expiry) {
+      this.expiry = expiry;
+    }
+
+    private void add(Timer<Crossing> timer) {
+      timers.add(timer);
+    }
+  }
+}
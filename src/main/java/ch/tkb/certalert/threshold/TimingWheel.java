@@ -0,0 +1,175 @@
+package ch.tkb.certalert.threshold;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel with O(1) scheduling and cancellation.
+ *
+ * <p>Time is counted in ticks. Level {@code L} has 64 slots of {@code 64^L} ticks each, so six
+ * levels cover more than two thousand years at a tick of one second. A timer is stored on the
+ * lowest level whose current rotation contains its deadline; whenever the clock enters a new slot
+ * of a higher level, the timers of that slot are cascaded to the levels below. Timers beyond the
+ * highest level wait in an overflow list. Timers never fire before their deadline and at most one
+ * tick after it. Not thread-safe.
+ *
+ * @param <T> the payload of the timers
+ */
+final class TimingWheel<T> {
+
+  static final int LEVELS = 6;
+  private static final int BITS = 6;
+  private static final int SLOTS = 1 << BITS;
+  private static final int MASK = SLOTS - 1;
+
+  private final long tickMillis;
+  private final Slot<T>[][] wheels;
+  private final Slot<T> overflow = new Slot<>();
+  private final Slot<T> due = new Slot<>();
+  private long now; // current tick; timers up to it have fired
+  private int size;
+
+  /** Creates a wheel whose clock starts at the given time. */
+  TimingWheel(long tickMillis, long startMillis) {
+    this.tickMillis = tickMillis;
+    this.now = Math.floorDiv(startMillis, tickMillis);
+    @SuppressWarnings("unchecked") // the slots only ever hold timers of T
+    Slot<T>[][] levels = (Slot<T>[][]) new Slot<?>[LEVELS][SLOTS];
+    this.wheels = levels;
+    for (Slot<T>[] level : wheels) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Slot<>();
+      }
+    }
+  }
+
+  /** A scheduled timer; pass it to {@link #cancel(Timer)} to remove it. */
+  static final class Timer<T> {
+    private final T payload;
+    private final long deadline; // tick
+    private Slot<T> slot;
+    private Timer<T> prev;
+    private Timer<T> next;
+
+    private Timer(T payload, long deadline) {
+      this.payload = payload;
+      this.deadline = deadline;
+    }
+
+    T payload() {
+      return payload;
+    }
+  }
+
+  /**
+   * Schedules a payload to fire at the given time. Times that are already due fire on the next
+   * {@link #advance(long, Consumer)}.
+   */
+  Timer<T> schedule(long deadlineMillis, T payload) {
+    // Round up so that a timer never fires before its deadline
+    Timer<T> timer = new Timer<>(payload, -Math.floorDiv(-deadlineMillis, tickMillis));
+    place(timer);
+    size++;
+    return timer;
+  }
+
+  /** Removes a timer that has not fired yet; does nothing otherwise. */
+  void cancel(Timer<T> timer) {
+    if (timer.slot != null) {
+      timer.slot.remove(timer);
+      size--;
+    }
+  }
+
+  /** Moves the clock forward and fires every timer whose deadline has passed, in tick order. */
+  void advance(long nowMillis, Consumer<T> fire) {
+    fireAll(due, fire);
+    long target = Math.floorDiv(nowMillis, tickMillis);
+    while (now < target) {
+      now++;
+      // Cascade from the top so that timers reach level 0 before its slot fires
+      if ((now & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+        cascade(overflow);
+      }
+      for (int level = LEVELS - 1; level >= 1; level--) {
+        if ((now & ((1L << (BITS * level)) - 1)) == 0) {
+          cascade(wheels[level][(int) (now >>> (BITS * level)) & MASK]);
+        }
+      }
+      fireAll(wheels[0][(int) now & MASK], fire);
+      fireAll(due, fire);
+    }
+  }
+
+  /** Returns the number of timers that have not fired yet. */
+  int size() {
+    return size;
+  }
+
+  private void place(Timer<T> timer) {
+    long deadline = timer.deadline;
+    if (deadline <= now) {
+      due.add(timer);
+      return;
+    }
+    for (int level = 0; level < LEVELS; level++) {
+      int shift = BITS * (level + 1);
+      if ((deadline >>> shift) == (now >>> shift)) {
+        wheels[level][(int) (deadline >>> (BITS * level)) & MASK].add(timer);
+        return;
+      }
+    }
+    overflow.add(timer);
+  }
+
+  private void cascade(Slot<T> slot) {
+    Timer<T> timer;
+    while ((timer = slot.poll()) != null) {
+      place(timer);
+    }
+  }
+
+  private void fireAll(Slot<T> slot, Consumer<T> fire) {
+    Timer<T> timer;
+    while ((timer = slot.poll()) != null) {
+      size--;
+      fire.accept(timer.payload);
+    }
+  }
+
+  /** Intrusive doubly-linked list of timers. */
+  private static final class Slot<T> {
+    private Timer<T> head;
+
+    void add(Timer<T> timer) {
+      timer.slot = this;
+      timer.prev = null;
+      timer.next = head;
+      if (head != null) {
+        head.prev = timer;
+      }
+      head = timer;
+    }
+
+    void remove(Timer<T> timer) {
+      if (timer.prev != null) {
+        timer.prev.next = timer.next;
+      } else {
+        head = timer.next;
+      }
+      if (timer.next != null) {
+        timer.next.prev = timer.prev;
+      }
+      timer.slot = null;
+      timer.prev = null;
+      timer.next = null;
+    }
+
+    Timer<T> poll() {
+      Timer<T> timer = head;
+      if (timer != null) {
+        remove(timer);
+      }
+      return timer;
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package ch.tkb.certalert.tls;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the certificate chains presented by remote TLS endpoints.
+ *
+ * <p>Handshakes run on a bounded pool and are started for all {@code tls} entries at the beginning
+ * of a scan, so slow endpoints overlap instead of adding up. Each handshake must complete (connect
+ * included) within the configured timeout. The per-host rate is enforced before a handshake is
+ * handed to the pool, so waiting for it never occupies a pool thread. Entries of one scan with the
+ * same host, port and SNI share one handshake; prefetched handshakes are kept per entry, and an
+ * entry belongs to a single group, so groups scanning at the same time never replace each other's
+ * handshakes.
+ *
+ * <p>The connection is closed right after the handshake and its session is invalidated. A resumed
+ * session skips the server's Certificate message and reuses the chain cached from the earlier
+ * handshake, so a rotated certificate would only show up once the session expired; a full handshake
+ * costs the endpoint one signature per scan, which the per-host rate bounds.
+ */
+@Component
+public class TlsProber {
+
+  private static final Logger log = LoggerFactory.getLogger(TlsProber.class);
+
+  /** Entry type handled by this prober. */
+  public static final String TYPE = "tls";
+
+  private final int concurrency;
+  private final int timeoutMillis;
+  private final double perHostRate;
+  private final ExecutorService pool;
+
+  /** Closes sockets whose connect and handshake exceed the deadline. */
+  private final ScheduledExecutorService watchdog;
+
+  private final SSLSocketFactory socketFactory;
+
+  /** Earliest start of the next handshake per host, in {@link System#nanoTime()}. */
+  private final ConcurrentMap<String, Long> nextStarts = new ConcurrentHashMap<>();
+
+  /** Prefetched handshakes by entry; each is taken by the load of its entry. */
+  private final ConcurrentMap<CertificateEntry, Future<List<byte[]>>> prefetched =
+      new ConcurrentHashMap<>();
+
+  /** Creates the prober with a pool of the configured size. */
+  public TlsProber(CertificateConfig config) {
+    CertificateConfig.Tls settings = config.tls();
+    this.concurrency = settings.concurrency();
+    this.timeoutMillis = Math.toIntExact(settings.timeout().toMillis());
+    this.perHostRate = settings.perHostRate();
+    this.pool =
+        Executors.newFixedThreadPool(
+            concurrency,
+            new ThreadFactoryBuilder().setNameFormat("certalert-tls-%d").setDaemon(true).build());
+    this.watchdog =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("certalert-tls-watchdog")
+                .setDaemon(true)
+                .build());
+    this.socketFactory = chainReadingContext().getSocketFactory();
+  }
+
+  /**
+   * Starts the handshakes of all {@code tls} entries of a scan in the background. Entries with the
+   * same target share one handshake; a handshake prefetched for an entry by an earlier scan and
+   * never loaded is replaced.
+   */
+  public void prefetch(List<CertificateEntry> entries) {
+    Map<TlsTarget, Future<List<byte[]>>> started = new HashMap<>();
+    for (CertificateEntry entry : entries) {
+      if (TYPE.equalsIgnoreCase(entry.type())) {
+        try {
+          prefetched.put(entry, started.computeIfAbsent(TlsTarget.of(entry), this::handshake));
+        } catch (IllegalArgumentException e) {
+          // reported when the entry is collected
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the DER-encoded peer chain of the entry's endpoint, leaf first. Waits for a prefetched
+   * handshake or starts one.
+   *
+   * @throws Exception if the endpoint cannot be reached or the handshake fails
+   */
+  public List<byte[]> certificates(CertificateEntry entry) throws Exception {
+    TlsTarget target = TlsTarget.of(entry);
+    Future<List<byte[]>> handshake = prefetched.remove(entry);
+    try {
+      return (handshake != null ? handshake : handshake(target)).get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+  }
+
+  /** Returns the maximum number of concurrent handshakes. */
+  public int concurrency() {
+    return concurrency;
+  }
+
+  /** Stops the handshake pool. */
+  @PreDestroy
+  public void close() {
+    pool.shutdownNow();
+    watchdog.shutdownNow();
+  }
+
+  /**
+   * Starts a handshake once the host's rate allows it. Until then the handshake waits on the
+   * watchdog rather than on a pool thread.
+   */
+  private Future<List<byte[]>> handshake(TlsTarget target) {
+    CompletableFuture<List<byte[]>> result = new CompletableFuture<>();
+    Runnable submit =
+        () -> {
+          try {
+            pool.execute(
+                () -> {
+                  try {
+                    result.complete(readChain(target));
+                  } catch (Exception e) {
+                    result.completeExceptionally(e);
+                  }
+                });
+          } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e); // the prober was closed
+          }
+        };
+    long delay = reserveStart(target.host());
+    if (delay <= 0) {
+      submit.run();
+    } else {
+      try {
+        watchdog.schedule(submit, delay, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        result.completeExceptionally(e);
+      }
+    }
+    return result;
+  }
+
+  /** Reserves the next start slot of the host; returns how many nanoseconds to wait for it. */
+  private long reserveStart(String host) {
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perHostRate);
+    long now = System.nanoTime();
+    long start =
+        nextStarts.merge(host, now + interval, (next, ignored) -> Math.max(next, now) + interval)
+            - interval;
+    return start - now;
+  }
+
+  /** Connects, completes the handshake and returns the peer chain without sending any data. */
+  private List<byte[]> readChain(TlsTarget target)
+      throws IOException, CertificateEncodingException {
+    long started = System.nanoTime();
+    Socket socket = new Socket();
+    AtomicBoolean expired = new AtomicBoolean();
+    ScheduledFuture<?> deadline =
+        watchdog.schedule(
+            () -> {
+              expired.set(true);
+              closeQuietly(socket);
+            },
+            timeoutMillis,
+            TimeUnit.MILLISECONDS);
+    try {
+      socket.connect(new InetSocketAddress(target.host(), target.port()), timeoutMillis);
+      socket.setSoTimeout(timeoutMillis);
+      try (SSLSocket ssl =
+          (SSLSocket) socketFactory.createSocket(socket, target.host(), target.port(), true)) {
+        SSLParameters parameters = ssl.getSSLParameters();
+        if (target.sni() != null) {
+          parameters.setServerNames(List.of(new SNIHostName(target.sni())));
+        }
+        ssl.setSSLParameters(parameters);
+        ssl.startHandshake();
+
+        SSLSession session = ssl.getSession();
+        List<byte[]> chain = encode(session.getPeerCertificates());
+        // never resume this session, a later handshake must show the current certificate
+        session.invalidate();
+        log.debug(
+            "Read {} certificates from {} in {} ms",
+            chain.size(),
+            target,
+            (System.nanoTime() - started) / 1_000_000);
+        return chain;
+      }
+    } catch (IOException e) {
+      if (e instanceof UnknownHostException) {
+        throw new IOException("Unknown host " + target.host(), e);
+      }
+      if (expired.get() || e instanceof SocketTimeoutException) {
+        throw new IOException("Handshake with " + target + " timed out", e);
+      }
+      throw e;
+    } finally {
+      deadline.cancel(false);
+      socket.close();
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // the blocked connect or handshake fails with the close
+    }
+  }
+
+  private static List<byte[]> encode(Certificate[] chain) throws CertificateEncodingException {
+    List<byte[]> encoded = new ArrayList<>(chain.length);
+    for (Certificate certificate : chain) {
+      encoded.add(certificate.getEncoded());
+    }
+    return encoded;
+  }
+
+  /**
+   * Creates a context that accepts any peer chain. The chain is only read and reported, never
+   * trusted: the connection is closed after the handshake without sending application data.
+   */
+  private static SSLContext chainReadingContext() {
+    // An extended trust manager keeps the JDK from adding its own checks on top
+    X509ExtendedTrustManager acceptAll =
+        new X509ExtendedTrustManager() {
+          @Override
+          public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+          @Override
+          public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+          @Override
+          public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+
+          @Override
+          public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+
+          @Override
+          public void checkClientTrusted(
+              X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+          @Override
+          public void checkServerTrusted(
+              X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+          @Override
+          public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+          }
+        };
+    try {
+      SSLContext context = SSLContext.getInstance("TLS");
+      context.init(null, new TrustManager[] {acceptAll}, new SecureRandom());
+      return context;
+    } catch (Exception e) {
+      throw new IllegalStateException("Cannot create TLS context: " + e.getMessage(), e);
+    }
+  }
+}
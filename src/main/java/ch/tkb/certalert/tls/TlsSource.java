@@ -0,0 +1,57 @@
+package ch.tkb.certalert.tls;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves {@code tls} entries. Handshakes are expensive but run as a batch on the {@link TlsProber}
+ * pool, which also bounds their concurrency.
+ */
+@Component
+public class TlsSource implements CertificateSource {
+
+  private final TlsProber tlsProber;
+
+  public TlsSource(TlsProber tlsProber) {
+    this.tlsProber = tlsProber;
+  }
+
+  @Override
+  public Set<String> types() {
+    return Set.of(TlsProber.TYPE);
+  }
+
+  @Override
+  public Cost cost() {
+    return Cost.EXPENSIVE;
+  }
+
+  @Override
+  public int maxConcurrency() {
+    return tlsProber.concurrency();
+  }
+
+  @Override
+  public boolean readsFiles() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsBatch() {
+    return true;
+  }
+
+  @Override
+  public void prepare(List<CertificateEntry> entries) {
+    tlsProber.prefetch(entries);
+  }
+
+  @Override
+  public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+    return LoadedCertificate.bundle(tlsProber.certificates(entry));
+  }
+}
@@ -0,0 +1,55 @@
+package ch.tkb.certalert.tls;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+
+/** Remote endpoint of a {@code tls} entry; entries with equal targets share one handshake. */
+record TlsTarget(
+    String host, // Host name or IP address to connect to
+    int port, // TCP port
+    String sni // Server name sent in the handshake, or null for IP literals without SNI
+    ) {
+
+  /** Default port if the entry only names a host. */
+  static final int DEFAULT_PORT = 443;
+
+  /**
+   * Parses the {@code host:port} path of an entry. IPv6 addresses are written in brackets, e.g.
+   * {@code [::1]:8443}.
+   */
+  static TlsTarget of(CertificateEntry entry) {
+    String path = entry.path().trim();
+    String host = path;
+    int port = DEFAULT_PORT;
+
+    int colon = path.lastIndexOf(':');
+    boolean bracketed = path.startsWith("[");
+    if (colon > 0 && (!bracketed || colon > path.indexOf(']'))) {
+      host = path.substring(0, colon);
+      try {
+        port = Integer.parseInt(path.substring(colon + 1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid port in tls entry: " + path);
+      }
+    }
+    if (bracketed) {
+      host = host.substring(1, host.length() - 1);
+    }
+    if (host.isEmpty() || port < 1 || port > 65535) {
+      throw new IllegalArgumentException("Invalid tls entry, expected host:port: " + path);
+    }
+
+    String sni = entry.sni() != null && !entry.sni().isBlank() ? entry.sni() : defaultSni(host);
+    return new TlsTarget(host, port, sni);
+  }
+
+  @Override
+  public String toString() {
+    return host + ":" + port + (sni != null && !sni.equals(host) ? " (" + sni + ")" : "");
+  }
+
+  /** IP literals are not valid SNI names. */
+  private static String defaultSni(String host) {
+    boolean ipLiteral = host.contains(":") || host.matches("[0-9.]+");
+    return ipLiteral ? null : host;
+  }
+}
@@ -1,7 +1,9 @@
 package ch.tkb.certalert.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,6 +11,7 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
 
@@ -20,6 +23,9 @@ import java.util.List;
  */
 public class CertificateLoader {
 
+  private static final String PEM_BEGIN = "-----BEGIN CERTIFICATE-----";
+  private static final String PEM_END = "-----END CERTIFICATE-----";
+
   /**
    * Loads all X.509 certificates from the given file path.
    *
@@ -63,4 +69,80 @@ public class CertificateLoader {
     List<X509Certificate> all = loadAll(path);
     return all.get(0);
   }
+
+  /**
+   * Reads the DER encoding of every certificate in the given file without decoding them.
+   *
+   * <p>PEM blocks are only Base64-decoded, which lets callers fingerprint the content and skip the
+   * X.509 parsing of certificates they have already seen. Files without PEM certificate blocks
+   * (e.g. binary DER) fall back to the {@link CertificateFactory}.
+   *
+   * @param path the absolute or relative path to a PEM or CRT file
+   * @return the DER-encoded certificates in file order; never empty
+   * @throws Exception if the file is missing, unreadable, or contains no certificates
+   */
+  public static List<byte[]> loadAllEncoded(String path) throws Exception {
+    Path normalized = Paths.get(path).toAbsolutePath().normalize();
+
+    if (!Files.exists(normalized) || !Files.isRegularFile(normalized)) {
+      throw new IllegalArgumentException("Certificate file does not exist: " + normalized);
+    }
+
+    List<byte[]> result = encodedCertificates(Files.readAllBytes(normalized));
+    if (result.isEmpty()) {
+      throw new IllegalArgumentException("No certificates found in file: " + normalized);
+    }
+    return result;
+  }
+
+  /**
+   * Extracts the DER encodings of all certificates in PEM or DER content, e.g. the {@code tls.crt}
+   * of a Kubernetes Secret.
+   *
+   * @param content the PEM or DER content
+   * @return the DER encodings in order of appearance; empty if none were found
+   * @throws Exception if the content cannot be read as certificates
+   */
+  public static List<byte[]> encodedCertificates(byte[] content) throws Exception {
+    List<byte[]> result = extractPemBlocks(new String(content, StandardCharsets.US_ASCII));
+    if (result.isEmpty()) {
+      CertificateFactory factory = CertificateFactory.getInstance("X.509");
+      for (Certificate cert : factory.generateCertificates(new ByteArrayInputStream(content))) {
+        result.add(cert.getEncoded());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Decodes a single DER-encoded X.509 certificate.
+   *
+   * @param der the DER encoding, e.g. as returned by {@link #loadAllEncoded(String)}
+   * @return the decoded certificate
+   * @throws Exception if the content is not a valid X.509 certificate
+   */
+  public static X509Certificate decode(byte[] der) throws Exception {
+    CertificateFactory factory = CertificateFactory.getInstance("X.509");
+    return (X509Certificate) factory.generateCertificate(new ByteArrayInputStream(der));
+  }
+
+  /** Extracts and Base64-decodes all PEM certificate blocks of a text. */
+  private static List<byte[]> extractPemBlocks(String text) {
+    List<byte[]> blocks = new ArrayList<>();
+    int from = 0;
+    while (true) {
+      int begin = text.indexOf(PEM_BEGIN, from);
+      if (begin < 0) {
+        break;
+      }
+      int end = text.indexOf(PEM_END, begin);
+      if (end < 0) {
+        break;
+      }
+      String body = text.substring(begin + PEM_BEGIN.length(), end);
+      blocks.add(Base64.getMimeDecoder().decode(body));
+      from = end + PEM_END.length();
+    }
+    return blocks;
+  }
 }
@@ -0,0 +1,22 @@
+package ch.tkb.certalert.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Size, modification time and file key of a file. A file whose fingerprint is unchanged is assumed
+ * to have unchanged content, which is cheaper to check than reading it. Take the fingerprint before
+ * reading: a change during the read then shows up as a new fingerprint next time.
+ */
+public record FileFingerprint(long size, FileTime modified, String fileKey) {
+
+  /** Returns the fingerprint of the given file. */
+  public static FileFingerprint of(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    return new FileFingerprint(
+        attributes.size(), attributes.lastModifiedTime(), String.valueOf(attributes.fileKey()));
+  }
+}
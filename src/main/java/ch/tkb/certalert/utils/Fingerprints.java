@@ -0,0 +1,47 @@
+package ch.tkb.certalert.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+
+/** Utility for computing SHA-256 fingerprints of certificates and raw DER content. */
+public final class Fingerprints {
+
+  private static final HexFormat HEX = HexFormat.of();
+
+  private Fingerprints() {
+    // Utility class; prevent instantiation
+  }
+
+  /**
+   * Computes the SHA-256 fingerprint of the given bytes.
+   *
+   * @param content the bytes to hash, typically DER-encoded certificate content
+   * @return the fingerprint as lowercase hex string
+   */
+  public static String sha256(byte[] content) {
+    return HEX.formatHex(digest().digest(content));
+  }
+
+  /**
+   * Computes the SHA-256 fingerprint of a certificate's DER encoding.
+   *
+   * @param cert the certificate to fingerprint
+   * @return the fingerprint as lowercase hex string
+   * @throws CertificateEncodingException if the certificate cannot be encoded
+   */
+  public static String sha256(X509Certificate cert) throws CertificateEncodingException {
+    return sha256(cert.getEncoded());
+  }
+
+  /** Returns a new SHA-256 digest; every JRE is required to provide it. */
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package ch.tkb.certalert.utils;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash map with primitive {@code int} keys.
+ *
+ * <p>Avoids the boxing and entry objects of a {@code HashMap<Integer, V>} for maps keyed by dense
+ * identity ids. Not thread-safe; callers synchronize externally.
+ *
+ * @param <V> the value type
+ */
+public final class IntObjectMap<V> {
+
+  private static final int MIN_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.6f;
+
+  private int[] keys;
+  private Object[] values;
+  private int size;
+  private int resizeAt;
+
+  /** Creates an empty map. */
+  public IntObjectMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /** Creates an empty map sized for the given number of entries. */
+  public IntObjectMap(int expectedSize) {
+    allocate(tableSizeFor(expectedSize));
+  }
+
+  /** Returns the number of entries. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns whether the map has no entries. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the value for the key, or null if absent. */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    int slot = find(key);
+    return slot >= 0 ? (V) values[slot] : null;
+  }
+
+  /** Returns whether the key is present. */
+  public boolean containsKey(int key) {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Associates the value with the key.
+   *
+   * @return the previous value, or null if the key was absent
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null values are not supported");
+    }
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size >= resizeAt) {
+      rehash(keys.length << 1);
+    }
+    return null;
+  }
+
+  /** Returns the value for the key, creating and storing it with the factory if absent. */
+  public V computeIfAbsent(int key, IntFunction<V> factory) {
+    V value = get(key);
+    if (value == null) {
+      value = factory.apply(key);
+      put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return the removed value, or null if the key was absent
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    V previous = (V) values[slot];
+    shiftBack(slot);
+    size--;
+    return previous;
+  }
+
+  /** Removes all entries matching the predicate. */
+  @SuppressWarnings("unchecked")
+  public void removeIf(EntryPredicate<V> predicate) {
+    // Collect first: backward-shift deletion moves entries across the iteration position
+    int[] doomed = new int[size];
+    int count = 0;
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (values[slot] != null && predicate.test(keys[slot], (V) values[slot])) {
+        doomed[count++] = keys[slot];
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      remove(doomed[i]);
+    }
+  }
+
+  /** Calls the consumer for every entry. */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<V> consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (values[slot] != null) {
+        consumer.accept(keys[slot], (V) values[slot]);
+      }
+    }
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private int find(int key) {
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /** Backward-shift deletion keeps probe sequences intact without tombstones. */
+  private void shiftBack(int slot) {
+    int mask = keys.length - 1;
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (values[next] != null) {
+      int home = mix(keys[next]) & mask;
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[gap] = null;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldValues[slot] != null) {
+        int mask = keys.length - 1;
+        int target = mix(oldKeys[slot]) & mask;
+        while (values[target] != null) {
+          target = (target + 1) & mask;
+        }
+        keys[target] = oldKeys[slot];
+        values[target] = oldValues[slot];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+    resizeAt = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private static int tableSizeFor(int expectedSize) {
+    int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+    return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+  }
+
+  /** Spreads sequential ids across the table. */
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** Receives one entry of the map. */
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+    void accept(int key, V value);
+  }
+
+  /** Tests one entry of the map. */
+  @FunctionalInterface
+  public interface EntryPredicate<V> {
+    boolean test(int key, V value);
+  }
+}
@@ -2,6 +2,7 @@ package ch.tkb.certalert.utils;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -49,16 +50,30 @@ public class KeystoreLoader {
       throw new FileNotFoundException("Keystore file does not exist: " + normalized);
     }
 
+    try (FileInputStream fis = new FileInputStream(normalized.toFile())) {
+      return load(type, fis, password);
+    }
+  }
+
+  /**
+   * Loads a keystore of the specified type from a stream, e.g. an entry of an archive. The stream
+   * is read but not closed.
+   *
+   * @param type the type of the keystore; case-insensitive
+   * @param in the keystore content
+   * @param password the password for the keystore; may be {@code null}
+   * @return a loaded {@link KeyStore} instance
+   * @throws IllegalArgumentException if the specified keystore type is not supported
+   * @throws Exception if loading the keystore fails due to IO or format issues
+   */
+  public static KeyStore load(String type, InputStream in, String password) throws Exception {
     String normalizedType = TYPE_ALIASES.get(type.toLowerCase());
     if (normalizedType == null) {
       throw new IllegalArgumentException("Unsupported keystore type: " + type);
     }
 
     KeyStore keyStore = KeyStore.getInstance(normalizedType);
-    try (FileInputStream fis = new FileInputStream(normalized.toFile())) {
-      keyStore.load(fis, password != null ? password.toCharArray() : null);
-    }
-
+    keyStore.load(in, password != null ? password.toCharArray() : null);
     return keyStore;
   }
 }
@@ -1,5 +1,6 @@
 package ch.tkb.certalert.utils;
 
+import ch.tkb.certalert.jfr.ResolverLookupEvent;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
@@ -10,6 +11,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Properties;
+import java.util.Set;
 import org.ini4j.Ini;
 import org.tomlj.Toml;
 import org.tomlj.TomlParseResult;
@@ -37,6 +39,10 @@ public final class Resolver {
   private static final ObjectMapper jsonMapper = new ObjectMapper();
   private static final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
 
+  /** Prefixes of values that are looked up; any other value is used as is. */
+  private static final Set<String> SCHEMES =
+      Set.of("env", "file", "json", "yaml", "ini", "properties", "toml");
+
   private Resolver() {
     // Utility class; prevent instantiation
   }
@@ -46,7 +52,29 @@ public final class Resolver {
     if (rawValue == null) {
       return null;
     }
+    int colon = rawValue.indexOf(':');
+    if (colon < 0 || !SCHEMES.contains(rawValue.substring(0, colon))) {
+      return rawValue;
+    }
 
+    ResolverLookupEvent event = new ResolverLookupEvent();
+    event.begin();
+    String value = null;
+    try {
+      value = lookup(rawValue);
+      return value;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.scheme = rawValue.substring(0, colon);
+        event.location = rawValue.substring(colon + 1);
+        event.found = value != null;
+        event.commit();
+      }
+    }
+  }
+
+  private static String lookup(String rawValue) {
     if (rawValue.startsWith("env:")) {
       return resolveEnv(rawValue.substring(4));
     } else if (rawValue.startsWith("file:")) {
@@ -59,10 +87,8 @@ public final class Resolver {
       return resolveIni(rawValue.substring(4));
     } else if (rawValue.startsWith("properties:")) {
       return resolveProperties(rawValue.substring(11));
-    } else if (rawValue.startsWith("toml:")) {
-      return resolveToml(rawValue.substring(5));
     } else {
-      return rawValue;
+      return resolveToml(rawValue.substring(5));
     }
   }
 
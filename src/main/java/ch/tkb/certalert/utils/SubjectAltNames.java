@@ -0,0 +1,52 @@
+package ch.tkb.certalert.utils;
+
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Utility for reading the subject alternative names of certificates. */
+public final class SubjectAltNames {
+
+  private static final Logger log = LoggerFactory.getLogger(SubjectAltNames.class);
+
+  /** Prefixes of the supported general name types (RFC 5280, section 4.2.1.6). */
+  private static final Map<Integer, String> PREFIXES =
+      Map.of(1, "email:", 2, "DNS:", 6, "URI:", 7, "IP:");
+
+  private SubjectAltNames() {
+    // Utility class; prevent instantiation
+  }
+
+  /**
+   * Returns the DNS, IP, email and URI alternative names of the certificate.
+   *
+   * @param cert the certificate to read
+   * @return the names prefixed with their type, e.g. {@code DNS:example.com}; empty if the
+   *     extension is missing or cannot be parsed
+   */
+  public static List<String> of(X509Certificate cert) {
+    Collection<List<?>> names;
+    try {
+      names = cert.getSubjectAlternativeNames();
+    } catch (CertificateParsingException e) {
+      log.debug("Ignoring unparsable subject alternative names: {}", e.getMessage());
+      return List.of();
+    }
+    if (names == null) {
+      return List.of();
+    }
+    List<String> formatted = new ArrayList<>(names.size());
+    for (List<?> name : names) {
+      String prefix = PREFIXES.get((Integer) name.get(0));
+      if (prefix != null && name.get(1) instanceof String value) {
+        formatted.add(prefix + value);
+      }
+    }
+    return List.copyOf(formatted);
+  }
+}
@@ -46,6 +46,11 @@ public class TimeUtils {
 
     Period datePart = Period.between(from.toLocalDate(), to.toLocalDate());
     LocalDateTime afterDate = from.plus(datePart);
+    // The end's time of day is earlier than the start's: the last day is not complete yet
+    if (afterDate.isAfter(to)) {
+      datePart = Period.between(from.toLocalDate(), to.toLocalDate().minusDays(1));
+      afterDate = from.plus(datePart);
+    }
 
     Duration timePart = Duration.between(afterDate, to);
 
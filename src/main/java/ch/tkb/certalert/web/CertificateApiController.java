@@ -1,23 +1,124 @@
 package ch.tkb.certalert.web;
 
 import ch.tkb.certalert.collector.CertificateCollector;
+import ch.tkb.certalert.collector.ConfigReloader;
+import ch.tkb.certalert.collector.ReloadResult;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.history.HistoryLog;
+import ch.tkb.certalert.history.HistoryRecord;
+import ch.tkb.certalert.model.CertificateDetails;
 import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.search.CertificateIndex;
 import java.util.List;
+import java.util.Locale;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /** JSON API for certificate data. */
 @RestController
 public class CertificateApiController {
 
+  /** Number of history records returned when no limit is requested. */
+  private static final int DEFAULT_HISTORY_LIMIT = 100;
+
+  /** Largest number of history records returned, whatever limit is requested. */
+  private static final int MAX_HISTORY_LIMIT = 1000;
+
+  /** Number of search results returned when no limit is requested. */
+  private static final int DEFAULT_SEARCH_LIMIT = 100;
+
   private final CertificateCollector collector;
+  private final HistoryLog historyLog;
+  private final ConfigReloader configReloader;
+  private final CertificateIndex searchIndex;
+  private final boolean reloadEndpoint;
 
-  public CertificateApiController(CertificateCollector collector) {
+  public CertificateApiController(
+      CertificateConfig config,
+      CertificateCollector collector,
+      HistoryLog historyLog,
+      ConfigReloader configReloader,
+      CertificateIndex searchIndex) {
     this.collector = collector;
+    this.historyLog = historyLog;
+    this.configReloader = configReloader;
+    this.searchIndex = searchIndex;
+    this.reloadEndpoint = config.reload().endpoint();
   }
 
   @GetMapping("/api/certificates")
   public List<CertificateInfo> certificates() {
     return collector.getCertificateInfos();
   }
+
+  /**
+   * Returns recorded state changes, newest first, optionally filtered by identity fields. At most
+   * {@value #MAX_HISTORY_LIMIT} records are returned.
+   */
+  @GetMapping("/api/certificates/history")
+  public List<HistoryRecord> history(
+      @RequestParam(required = false) String name,
+      @RequestParam(required = false) String alias,
+      @RequestParam(required = false) String path,
+      @RequestParam(required = false) String type,
+      @RequestParam(required = false) Integer limit) {
+    return historyLog.query(
+        identity ->
+            matches(name, identity.name())
+                && matches(alias, identity.alias())
+                && matches(path, identity.path())
+                && matches(type, identity.type()),
+        limit != null ? Math.min(limit, MAX_HISTORY_LIMIT) : DEFAULT_HISTORY_LIMIT);
+  }
+
+  /**
+   * Returns the certificates whose name, alias, subject, issuer or alternative names match every
+   * token of the query, either in full or as a prefix.
+   */
+  @GetMapping("/api/certificates/search")
+  public List<CertificateInfo> search(
+      @RequestParam String q, @RequestParam(required = false) Integer limit) {
+    return searchIndex.search(q, limit != null ? limit : DEFAULT_SEARCH_LIMIT);
+  }
+
+  /**
+   * Returns issuer, serial number, key and signature algorithm and further fields of a served
+   * certificate by its SHA-256 fingerprint. They are decoded on the first request.
+   */
+  @GetMapping("/api/certificates/{fingerprint}")
+  public CertificateDetails details(@PathVariable String fingerprint) {
+    CertificateDetails details = collector.getDetails(fingerprint.toLowerCase(Locale.ROOT));
+    if (details == null) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "No certificate with fingerprint " + fingerprint);
+    }
+    return details;
+  }
+
+  /**
+   * Re-reads the configuration files and applies added, removed and changed entries. The endpoint
+   * is unauthenticated and therefore only available if {@code certalert.reload.endpoint} is set.
+   */
+  @PostMapping("/api/reload")
+  public ReloadResult reload() {
+    if (!reloadEndpoint) {
+      throw new ResponseStatusException(
+          HttpStatus.FORBIDDEN, "Reloading via the API is disabled (certalert.reload.endpoint)");
+    }
+    try {
+      return configReloader.reload();
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+  }
+
+  /** Returns true if no filter is set or the value equals the filter. */
+  private static boolean matches(String filter, String value) {
+    return filter == null || filter.equals(value);
+  }
 }
@@ -0,0 +1,89 @@
+package ch.tkb.certalert;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.archive.ArchiveSource;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.KeystoreSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.PemSource;
+import ch.tkb.certalert.source.SourceRegistry;
+import ch.tkb.certalert.web.CertificateView;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+/**
+ * Checks the native image hints. Run with {@code ./gradlew -Pnative nativeTest}, these and all
+ * other tests also run inside a native binary.
+ */
+class CertalertRuntimeHintsTest {
+
+  private static final String DIR = "tests/certs/";
+
+  @Test
+  @DisplayName("CertalertRuntimeHints registers bound types, ini4j services and keystore providers")
+  void registersHints() throws Exception {
+    RuntimeHints hints = new RuntimeHints();
+    new CertalertRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+    var reflection = RuntimeHintsPredicates.reflection();
+    assertTrue(reflection.onType(CertificateInfo.class).test(hints));
+    assertTrue(reflection.onMethodInvocation(CertificateInfo.class, "getNotAfter").test(hints));
+    assertTrue(reflection.onMethodInvocation(CertificateView.class, "statusClass").test(hints));
+    assertTrue(reflection.onType(CertificateInfo.Status.class).test(hints));
+    assertTrue(
+        reflection
+            .onType(TypeReference.of("org.ini4j.spi.IniParser"))
+            .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+            .test(hints));
+    assertTrue(
+        RuntimeHintsPredicates.resource()
+            .forResource("META-INF/services/org.ini4j.spi.IniParser")
+            .test(hints));
+    for (String service : CertalertRuntimeHints.SECURITY_SERVICES) {
+      assertTrue(reflection.onType(TypeReference.of(service)).test(hints), service);
+    }
+  }
+
+  @Test
+  @DisplayName("Every supported certificate type in tests/certs loads")
+  void loadsEveryCertificateType() throws Exception {
+    SourceRegistry registry =
+        new SourceRegistry(List.of(new KeystoreSource(), new PemSource(), new ArchiveSource()));
+    List<CertificateEntry> entries =
+        List.of(
+            entry("jks/regular.jks", "jks", "password"),
+            entry("jks/chain.jks", "jks", "password"),
+            entry("jks/pkcs12.p12", "jks", "password"),
+            entry("p12/final.p12", "pkcs12", "password"),
+            entry("p12/with_password.p12", "pkcs12", "password"),
+            entry("p12/chain.p12", "p12", "password"),
+            entry("crt/single.crt", "crt", null),
+            entry("crt/multiple.crt", "crt", null),
+            entry("pem/single.pem", "pem", null),
+            entry("chain/bundle.pem", "pem", null),
+            entry("archive/certs.tar.gz", "tar.gz", "password"),
+            entry("archive/app.jar", "jar", "password"));
+
+    for (CertificateEntry entry : entries) {
+      CertificateSource source = registry.find(entry.type());
+      assertNotNull(source, entry.type());
+      List<LoadedCertificate> loaded = source.load(entry);
+      assertFalse(loaded.isEmpty(), entry.path());
+      for (LoadedCertificate certificate : loaded) {
+        assertNull(certificate.error(), entry.path() + ": " + certificate.alias());
+      }
+    }
+  }
+
+  private static CertificateEntry entry(String path, String type, String password) {
+    return new CertificateEntry(path, DIR + path, type, password, null);
+  }
+}
@@ -0,0 +1,98 @@
+package ch.tkb.certalert.archive;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.CertificateLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArchiveSourceTest {
+
+  private static final String DIR = "tests/certs/archive/";
+  private static final String LONG_NAME =
+      "opt/certalert/configuration/very/long/directory/name/that/exceeds/the/one/hundred"
+          + "/characters/of/a/tar/header/single.pem";
+
+  private final ArchiveSource source = new ArchiveSource();
+
+  private List<LoadedCertificate> load(String path, String type) throws Exception {
+    return source.load(new CertificateEntry("archive", path, type, "password", null));
+  }
+
+  private static List<String> aliases(List<LoadedCertificate> loaded) {
+    return loaded.stream().map(LoadedCertificate::alias).toList();
+  }
+
+  @Test
+  @DisplayName("ArchiveSource.load parses PEM files and keystores matching the glob of a jar")
+  void readsJarEntries() throws Exception {
+    List<LoadedCertificate> loaded = load(DIR + "app.jar!/BOOT-INF/classes/**", "jar");
+
+    assertEquals(
+        List.of(
+            "BOOT-INF/classes/ca.pem:cert1",
+            "BOOT-INF/classes/ca.pem:cert2",
+            "BOOT-INF/classes/truststore.jks:regular"),
+        aliases(loaded));
+    for (LoadedCertificate cert : loaded) {
+      assertNull(cert.error());
+      assertNotNull(CertificateLoader.decode(cert.der()));
+    }
+  }
+
+  @Test
+  @DisplayName("ArchiveSource.load descends into nested archives")
+  void readsNestedArchives() throws Exception {
+    List<LoadedCertificate> loaded = load(DIR + "app.jar!/BOOT-INF/lib/*.jar!/certs/*.pem", "jar");
+
+    assertEquals(List.of("BOOT-INF/lib/certs.jar!/certs/single.pem:default"), aliases(loaded));
+  }
+
+  @Test
+  @DisplayName("ArchiveSource.load reads tar and tar.gz archives with long entry names")
+  void readsTarArchives() throws Exception {
+    for (String[] archive : new String[][] {{"certs.tar", "tar"}, {"certs.tar.gz", "tar.gz"}}) {
+      List<LoadedCertificate> loaded = load(DIR + archive[0], archive[1]);
+
+      assertEquals(List.of("opt/chain.p12:leaf", LONG_NAME + ":default"), aliases(loaded));
+      assertFalse(loaded.get(0).issuers().isEmpty(), "chain stored with the key entry");
+    }
+  }
+
+  @Test
+  @DisplayName("ArchiveSource.load skips archives whose fingerprint is unchanged")
+  void skipsUnchangedArchives(@TempDir Path tempDir) throws Exception {
+    Path archive = tempDir.resolve("app.jar");
+    Files.copy(Path.of(DIR + "app.jar"), archive);
+    String path = archive + "!/**/*.jks";
+
+    List<LoadedCertificate> first = load(path, "jar");
+    assertSame(first, load(path, "jar"));
+    assertEquals(1, source.archivesRead());
+
+    Files.setLastModifiedTime(archive, FileTime.from(Instant.now().plusSeconds(60)));
+    assertEquals(aliases(first), aliases(load(path, "jar")));
+    assertEquals(2, source.archivesRead());
+  }
+
+  @Test
+  @DisplayName("ArchiveSource.load reports unreadable files and fails when nothing matches")
+  void reportsErrors() throws Exception {
+    LoadedCertificate wrongPassword =
+        source
+            .load(new CertificateEntry("archive", DIR + "app.jar!/**/*.jks", "jar", "wrong", null))
+            .get(0);
+    assertEquals("BOOT-INF/classes/truststore.jks", wrongPassword.alias());
+    assertNotNull(wrongPassword.error());
+
+    assertThrows(IllegalArgumentException.class, () -> load(DIR + "app.jar!/**/*.p12", "jar"));
+  }
+}
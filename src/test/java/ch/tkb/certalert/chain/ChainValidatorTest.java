@@ -0,0 +1,98 @@
+package ch.tkb.certalert.chain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.model.CertificateInfo.ChainStatus;
+import ch.tkb.certalert.source.KeystoreSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.utils.CertificateLoader;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ChainValidatorTest {
+
+  private static final String DIR = "tests/certs/chain/";
+
+  private static ChainValidator validator() {
+    var chain = new CertificateConfig.Chain(true, List.of(DIR + "root.crt"), false);
+    return new ChainValidator(TestConfigs.builder().chain(chain).build());
+  }
+
+  private static List<LoadedCertificate> bundle(String file) throws Exception {
+    return LoadedCertificate.bundle(CertificateLoader.loadAllEncoded(DIR + file));
+  }
+
+  @Test
+  @DisplayName("ChainValidator.validate trusts a bundle leading to a trust anchor")
+  void trustsCompleteChain() throws Exception {
+    ChainValidator validator = validator();
+    List<LoadedCertificate> certs = bundle("bundle.pem");
+    ChainValidator.Pool pool = validator.pool(certs);
+
+    for (LoadedCertificate cert : certs) {
+      assertEquals(ChainStatus.TRUSTED, validator.validate(cert.der(), pool), cert.alias());
+    }
+  }
+
+  @Test
+  @DisplayName("ChainValidator.validate reports missing and forged intermediates")
+  void reportsIncompleteAndBrokenChains() throws Exception {
+    ChainValidator validator = validator();
+
+    List<LoadedCertificate> leafOnly = bundle("leaf-only.pem");
+    assertEquals(
+        ChainStatus.UNTRUSTED, validator.validate(leafOnly.get(0).der(), validator.pool(leafOnly)));
+
+    // The rogue CA carries the intermediate's name but did not sign the leaf
+    List<LoadedCertificate> forged = bundle("forged.pem");
+    assertEquals(
+        ChainStatus.BROKEN, validator.validate(forged.get(0).der(), validator.pool(forged)));
+    assertEquals(
+        ChainStatus.UNTRUSTED, validator.validate(forged.get(1).der(), validator.pool(forged)));
+  }
+
+  @Test
+  @DisplayName("ChainValidator.validate uses the chain stored with a keystore alias")
+  void usesKeystoreChain() throws Exception {
+    ChainValidator validator = validator();
+    List<LoadedCertificate> certs =
+        new KeystoreSource()
+            .load(new CertificateEntry("chain", DIR + "chain.p12", "p12", "password", null));
+
+    assertEquals(1, certs.size());
+    assertEquals(1, certs.get(0).issuers().size());
+    assertEquals(
+        ChainStatus.TRUSTED, validator.validate(certs.get(0).der(), validator.pool(certs)));
+  }
+
+  @Test
+  @DisplayName("ChainValidator verifies each issuer-subject link once per cycle")
+  void memoizesLinks() throws Exception {
+    ChainValidator validator = validator();
+    List<LoadedCertificate> certs = bundle("bundle.pem");
+
+    // Many stores sharing the same leaf and intermediate
+    for (int i = 0; i < 50; i++) {
+      ChainValidator.Pool pool = validator.pool(certs);
+      for (LoadedCertificate cert : certs) {
+        assertEquals(ChainStatus.TRUSTED, validator.validate(cert.der(), pool));
+      }
+    }
+    assertEquals(2, validator.verifiedLinks());
+
+    validator.endCycle();
+    validator.validate(certs.get(0).der(), validator.pool(certs));
+    assertEquals(2, validator.verifiedLinks());
+  }
+
+  @Test
+  @DisplayName("ChainValidator is disabled by default")
+  void disabledByDefault() {
+    var config = TestConfigs.builder().build();
+    assertFalse(new ChainValidator(config).isEnabled());
+  }
+}
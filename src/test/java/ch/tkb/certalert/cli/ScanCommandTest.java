@@ -0,0 +1,83 @@
+package ch.tkb.certalert.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.model.Severity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanCommandTest {
+
+  private static final String DIR = "tests/certs/jks/";
+
+  @TempDir Path dir;
+
+  @Test
+  @DisplayName("ScanCommand.run writes JSON atomically and exits with the worst severity")
+  void writesJsonAndExitsWithWorstSeverity() throws Exception {
+    Path output = dir.resolve("certalert.json");
+    int exitCode =
+        ScanCommand.run(
+            new String[] {
+              "--format=json",
+              "--output=" + output,
+              "--certalert.certificates[0].name=expired",
+              "--certalert.certificates[0].path=" + DIR + "expired.jks",
+              "--certalert.certificates[0].type=jks",
+              "--certalert.certificates[0].password=password",
+              "--certalert.certificates[1].name=chain",
+              "--certalert.certificates[1].path=" + DIR + "chain.jks",
+              "--certalert.certificates[1].type=jks",
+              "--certalert.certificates[1].password=password"
+            });
+
+    assertEquals(Severity.EXPIRED.ordinal(), exitCode);
+    assertFalse(Files.exists(dir.resolve("certalert.json.tmp")));
+    JsonNode result = new ObjectMapper().readTree(output.toFile());
+    assertEquals("EXPIRED", result.get("worst").asText());
+    assertEquals(5, result.get("certificates").size());
+    assertEquals("expired", result.get("certificates").get(0).get("name").asText());
+    assertEquals("EXPIRED", result.get("certificates").get(0).get("severity").asText());
+  }
+
+  @Test
+  @DisplayName("ScanCommand.run prints only certalert metrics to stdout")
+  void printsPrometheusMetrics() {
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    PrintStream stdout = System.out;
+    int exitCode;
+    try {
+      System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+      exitCode =
+          ScanCommand.run(
+              new String[] {
+                "--certalert.certificates[0].name=broken",
+                "--certalert.certificates[0].path=" + DIR + "broken.jks",
+                "--certalert.certificates[0].type=jks"
+              });
+    } finally {
+      System.setOut(stdout);
+    }
+
+    assertEquals(Severity.INVALID.ordinal(), exitCode);
+    String metrics = captured.toString(StandardCharsets.UTF_8);
+    assertTrue(metrics.contains("certalert_certificate_validity{"), metrics);
+    for (String line : metrics.split("\n")) {
+      assertTrue(line.startsWith("certalert_") || line.startsWith("# "), line);
+    }
+  }
+
+  @Test
+  @DisplayName("ScanCommand.run rejects unknown formats without starting")
+  void rejectsUnknownFormat() {
+    assertEquals(ScanCommand.EXIT_USAGE, ScanCommand.run(new String[] {"--format=xml"}));
+  }
+}
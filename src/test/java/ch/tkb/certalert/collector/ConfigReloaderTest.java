@@ -0,0 +1,161 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.chain.ChainValidator;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.history.HistoryLog;
+import ch.tkb.certalert.metrics.CertificateMetricsPublisher;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.notification.WebhookNotifier;
+import ch.tkb.certalert.revocation.RevocationChecker;
+import ch.tkb.certalert.search.CertificateIndex;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.snapshot.IdentityRegistry;
+import ch.tkb.certalert.source.KeystoreSource;
+import ch.tkb.certalert.source.PemSource;
+import ch.tkb.certalert.source.SourceRegistry;
+import ch.tkb.certalert.threshold.ThresholdScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+
+class ConfigReloaderTest {
+
+  private static final Validator VALIDATOR =
+      Validation.buildDefaultValidatorFactory().getValidator();
+
+  @TempDir Path tempDir;
+
+  private Path configFile;
+  private MeterRegistry meterRegistry;
+  private CertificateCollector collector;
+  private ConfigReloader reloader;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    configFile = tempDir.resolve("certalert.yaml");
+    writeConfig(
+        """
+        certalert:
+          certificates:
+            - name: regular
+              path: tests/certs/jks/regular.jks
+              type: jks
+              password: password
+            - name: single
+              path: tests/certs/pem/single.pem
+              type: pem
+        """);
+
+    StandardEnvironment environment = new StandardEnvironment();
+    var reload = new CertificateConfig.Reload(true, List.of(configFile.toString()), null, null);
+    var config = TestConfigs.builder().reload(reload).build();
+
+    meterRegistry = new SimpleMeterRegistry();
+    collector =
+        new CertificateCollector(
+            config,
+            new CertificateMetricsPublisher(meterRegistry),
+            new HistoryLog(config),
+            new IdentityRegistry(),
+            new ScanProgress(meterRegistry),
+            new ShardAssignment(config, meterRegistry),
+            new SourceRegistry(List.of(new PemSource(), new KeystoreSource())),
+            new ChainValidator(config),
+            new RevocationChecker(config, new SimpleMeterRegistry()),
+            new WebhookNotifier(config, new SimpleMeterRegistry()),
+            new ThresholdScheduler(config),
+            new CertificateIndex(),
+            new IoBudget(config, new SimpleMeterRegistry()));
+    reloader = new ConfigReloader(config, environment, VALIDATOR, collector);
+    collector.reload(reloader.bind());
+  }
+
+  private void writeConfig(String yaml) throws IOException {
+    Files.writeString(configFile, yaml);
+  }
+
+  private List<String> expirationGauges() {
+    return meterRegistry.find("certalert_certificate_expiration_seconds").gauges().stream()
+        .map(gauge -> gauge.getId().getTag("certificate_name"))
+        .sorted()
+        .toList();
+  }
+
+  @Test
+  @DisplayName("ConfigReloader.bind reads the certificate entries from the watched file")
+  void testBind() {
+    List<CertificateEntry> entries = reloader.bind().certificates();
+    assertEquals(2, entries.size());
+    assertEquals("regular", entries.get(0).name());
+    assertEquals("password", entries.get(0).password());
+  }
+
+  @Test
+  @DisplayName("ConfigReloader.reload only loads added entries and prunes removed ones")
+  void testReloadAppliesDiff() throws IOException {
+    CertificateSnapshot before = collector.getSnapshot();
+    assertEquals(List.of("regular", "single"), expirationGauges());
+    int singleId = -1;
+    for (int row = 0; row < before.size(); row++) {
+      if (before.identityOf(before.idAt(row)).name().equals("single")) {
+        singleId = before.idAt(row);
+      }
+    }
+    CertificateInfo single = before.info(singleId);
+
+    writeConfig(
+        """
+        certalert:
+          certificates:
+            - name: single
+              path: tests/certs/pem/single.pem
+              type: pem
+            - name: bundle
+              path: tests/certs/crt/multiple.crt
+              type: crt
+        """);
+    ReloadResult result = reloader.reload();
+
+    assertEquals(List.of("bundle"), result.added());
+    assertEquals(List.of("regular"), result.removed());
+    assertTrue(result.changed().isEmpty());
+    assertEquals(1, result.unchanged());
+
+    CertificateSnapshot after = collector.getSnapshot();
+    assertEquals(single, after.info(singleId));
+    assertEquals(3, after.size());
+    assertTrue(after.stream().noneMatch(info -> info.getName().equals("regular")));
+    assertEquals(List.of("bundle", "bundle", "single"), expirationGauges());
+  }
+
+  @Test
+  @DisplayName("ConfigReloader.reload rejects invalid entries and keeps the current ones")
+  void testReloadRejectsInvalidConfig() throws IOException {
+    int size = collector.getSnapshot().size();
+    writeConfig(
+        """
+        certalert:
+          certificates:
+            - name: broken
+              type: pem
+        """);
+
+    assertThrows(IllegalArgumentException.class, reloader::reload);
+    assertEquals(size, collector.getSnapshot().size());
+    assertEquals(List.of("regular", "single"), expirationGauges());
+  }
+}
@@ -0,0 +1,118 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.chain.ChainValidator;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.history.HistoryLog;
+import ch.tkb.certalert.metrics.CertificateMetricsPublisher;
+import ch.tkb.certalert.model.CertificateDetails;
+import ch.tkb.certalert.notification.WebhookNotifier;
+import ch.tkb.certalert.revocation.RevocationChecker;
+import ch.tkb.certalert.search.CertificateIndex;
+import ch.tkb.certalert.snapshot.IdentityRegistry;
+import ch.tkb.certalert.source.PemSource;
+import ch.tkb.certalert.source.SourceRegistry;
+import ch.tkb.certalert.threshold.ThresholdScheduler;
+import ch.tkb.certalert.utils.CertificateLoader;
+import ch.tkb.certalert.utils.Fingerprints;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class DetailsCacheTest {
+
+  private static final String SINGLE_PEM_PATH = "tests/certs/pem/single.pem";
+
+  @Test
+  @DisplayName("DetailsCache decodes retained encodings once and caches the details")
+  void testDecodesRetained() throws Exception {
+    byte[] der = CertificateLoader.loadAllEncoded(SINGLE_PEM_PATH).get(0);
+    String fingerprint = Fingerprints.sha256(der);
+    DetailsCache cache = new DetailsCache(new CertificateConfig.Details(null, null));
+    cache.retain(fingerprint, der);
+
+    List<String> rereads = new ArrayList<>();
+    CertificateDetails details =
+        cache.details(
+            fingerprint,
+            fp -> {
+              rereads.add(fp);
+              return null;
+            });
+
+    assertEquals(fingerprint, details.fingerprint());
+    assertEquals("CN=single.test", details.issuer());
+    assertEquals("51fdbe8fa9714e4a9dc84799fa925ebbfd731581", details.serialNumber());
+    assertEquals(3, details.version());
+    assertEquals("RSA", details.keyAlgorithm());
+    assertEquals(2048, details.keySize());
+    assertEquals("SHA256withRSA", details.signatureAlgorithm());
+    assertEquals(List.of(), details.subjectAltNames());
+    assertSame(details, cache.details(fingerprint, fp -> null));
+    assertTrue(rereads.isEmpty());
+    assertNull(cache.details("unknown", fp -> null));
+  }
+
+  @Test
+  @DisplayName("DetailsCache keeps the retained encodings within the budget")
+  void testBudget() throws Exception {
+    List<byte[]> encoded = CertificateLoader.loadAllEncoded("tests/certs/crt/multiple.crt");
+    DetailsCache cache =
+        new DetailsCache(
+            new CertificateConfig.Details(DataSize.ofBytes(encoded.get(0).length + 1), 0));
+
+    cache.retain(Fingerprints.sha256(encoded.get(0)), encoded.get(0));
+    cache.retain(Fingerprints.sha256(encoded.get(1)), encoded.get(1));
+    assertEquals(1, cache.retained());
+
+    DetailsCache disabled = new DetailsCache(new CertificateConfig.Details(DataSize.ofBytes(0), 0));
+    disabled.retain(Fingerprints.sha256(encoded.get(0)), encoded.get(0));
+    assertEquals(0, disabled.retained());
+  }
+
+  @Test
+  @DisplayName("CertificateCollector.getDetails reads evicted certificates from their source again")
+  void testRereadsEvicted() throws Exception {
+    CertificateConfig config =
+        TestConfigs.builder()
+            .checkInterval(Duration.ofMinutes(5))
+            .certificates(
+                List.of(new CertificateEntry("single", SINGLE_PEM_PATH, "pem", null, null)))
+            .reload(new CertificateConfig.Reload(false, null, null, null))
+            .details(new CertificateConfig.Details(DataSize.ofBytes(0), null))
+            .build();
+    CertificateCollector collector =
+        new CertificateCollector(
+            config,
+            new CertificateMetricsPublisher(new SimpleMeterRegistry()),
+            new HistoryLog(config),
+            new IdentityRegistry(),
+            new ScanProgress(new SimpleMeterRegistry()),
+            new ShardAssignment(config, new SimpleMeterRegistry()),
+            new SourceRegistry(List.of(new PemSource())),
+            new ChainValidator(config),
+            new RevocationChecker(config, new SimpleMeterRegistry()),
+            new WebhookNotifier(config, new SimpleMeterRegistry()),
+            new ThresholdScheduler(config),
+            new CertificateIndex(),
+            new IoBudget(config, new SimpleMeterRegistry()));
+    try {
+      collector.collectCertificateData();
+      String fingerprint = collector.getCertificateInfos().get(0).getFingerprint();
+
+      CertificateDetails details = collector.getDetails(fingerprint);
+      assertNotNull(details);
+      assertEquals("CN=single.test", details.subject());
+      assertNull(collector.getDetails(Fingerprints.sha256(new byte[] {1})));
+    } finally {
+      collector.close();
+    }
+  }
+}
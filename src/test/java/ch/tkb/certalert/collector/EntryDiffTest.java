@@ -0,0 +1,45 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class EntryDiffTest {
+
+  private static CertificateEntry entry(String name, String password) {
+    return new CertificateEntry(name, "/certs/" + name + ".jks", "jks", password, null);
+  }
+
+  @Test
+  @DisplayName("EntryDiff.between reports added, removed, changed and unchanged entries")
+  void testBetween() {
+    List<CertificateEntry> previous =
+        List.of(entry("kept", "a"), entry("dropped", "a"), entry("rotated", "a"));
+    List<CertificateEntry> updated =
+        List.of(entry("kept", "a"), entry("rotated", "b"), entry("new", null));
+
+    EntryDiff diff = EntryDiff.between(previous, updated);
+
+    assertEquals(List.of(entry("new", null)), diff.added());
+    assertEquals(List.of(entry("dropped", "a")), diff.removed());
+    assertEquals(List.of(entry("rotated", "b")), diff.changed());
+    assertTrue(diff.isUnchanged(entry("kept", "a")));
+    assertFalse(diff.isUnchanged(entry("rotated", "b")));
+    assertEquals(updated, diff.entries());
+
+    ReloadResult result = diff.toResult();
+    assertEquals(List.of("new"), result.added());
+    assertEquals(1, result.unchanged());
+  }
+
+  @Test
+  @DisplayName("EntryDiff.between is empty for equal lists")
+  void testEmpty() {
+    List<CertificateEntry> entries = List.of(entry("a", null), entry("b", "secret"));
+    assertTrue(EntryDiff.between(entries, List.copyOf(entries)).isEmpty());
+    assertFalse(EntryDiff.between(entries, List.of(entry("a", null))).isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.TestConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class IoBudgetTest {
+
+  private static IoBudget budget(
+      SimpleMeterRegistry registry, DataSize bytesPerSecond, Double files, Integer open) {
+    CertificateConfig config =
+        TestConfigs.builder()
+            .checkInterval(Duration.ofMinutes(5))
+            .certificates(List.of())
+            .pacing(new CertificateConfig.Pacing(false, null, bytesPerSecond, files, open))
+            .build();
+    return new IoBudget(config, registry);
+  }
+
+  @Test
+  @DisplayName("IoBudget.acquire paces loads to the files-per-second limit and counts reads")
+  void pacesFiles() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IoBudget budget = budget(registry, null, 20.0, null);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      budget.acquire();
+      budget.read(100);
+      budget.release();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // The first load starts right away, the others 50 ms apart
+    assertTrue(elapsed >= Duration.ofMillis(190).toNanos(), "elapsed " + elapsed);
+    assertEquals(500, registry.get("certalert_io_read_bytes_total").counter().count());
+    assertEquals(5, registry.get("certalert_io_read_files_total").counter().count());
+    assertEquals(0, registry.get("certalert_io_open_files").gauge().value());
+  }
+
+  @Test
+  @DisplayName("IoBudget.acquire waits for the bytes read before to be paid off")
+  void pacesBytes() throws Exception {
+    IoBudget budget = budget(new SimpleMeterRegistry(), DataSize.ofKilobytes(100), null, null);
+
+    budget.acquire();
+    budget.read(DataSize.ofKilobytes(20).toBytes());
+    budget.release();
+    long start = System.nanoTime();
+    budget.acquire();
+    budget.release();
+
+    assertTrue(System.nanoTime() - start >= Duration.ofMillis(150).toNanos());
+  }
+
+  @Test
+  @DisplayName("IoBudget.acquire holds loads beyond the open-file limit until a slot is released")
+  void boundsOpenFiles() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IoBudget budget = budget(registry, null, null, 1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      budget.acquire();
+      CountDownLatch acquired = new CountDownLatch(1);
+      executor.execute(
+          () -> {
+            try {
+              budget.acquire();
+              acquired.countDown();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+
+      assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+      assertEquals(1, registry.get("certalert_io_open_files").gauge().value());
+      budget.release();
+      assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("IoBudget.minimumDuration is bounded by the stricter of the limits")
+  void minimumDuration() {
+    IoBudget budget = budget(new SimpleMeterRegistry(), DataSize.ofKilobytes(1), 10.0, null);
+    assertEquals(Duration.ofSeconds(10), budget.minimumDuration(100, 1024));
+    assertEquals(Duration.ofSeconds(20), budget.minimumDuration(100, 20 * 1024));
+
+    IoBudget unlimited = budget(new SimpleMeterRegistry(), null, null, null);
+    assertEquals(Duration.ZERO, unlimited.minimumDuration(100, 1024));
+  }
+
+  @Test
+  @DisplayName("Pacer spreads the loads evenly across the window")
+  void spreadsLoads() throws Exception {
+    Pacer pacer = new Pacer(4, Duration.ofMillis(200));
+    long start = System.nanoTime();
+    for (int i = 0; i < 4; i++) {
+      pacer.await();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // The last load starts three spacings after the first
+    assertTrue(elapsed >= Duration.ofMillis(145).toNanos(), "elapsed " + elapsed);
+    assertTrue(elapsed < Duration.ofSeconds(2).toNanos(), "elapsed " + elapsed);
+
+    start = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      Pacer.NONE.await();
+    }
+    assertTrue(System.nanoTime() - start < Duration.ofMillis(100).toNanos());
+  }
+}
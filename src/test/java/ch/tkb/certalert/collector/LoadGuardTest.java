@@ -0,0 +1,237 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.jfr.EntryLoadEvent;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoadGuardTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @TempDir Path dir;
+
+  @AfterEach
+  void shutdown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  private LoadGuard guard(Duration timeout, int bulkhead, int threshold, Duration backoff) {
+    return new LoadGuard(
+        executor, new CertificateConfig.Loading(timeout, bulkhead, threshold, backoff, backoff));
+  }
+
+  @Test
+  @DisplayName("LoadGuard gives up hung loads and bounds them per source")
+  void timesOutAndBoundsHungLoads() throws Exception {
+    LoadGuard guard = guard(Duration.ofMillis(100), 2, 10, Duration.ZERO);
+    FakeSource hanging =
+        new FakeSource(
+            entry -> {
+              // Like a hung mount: interrupting the worker does not help
+              Uninterruptibles.awaitUninterruptibly(release);
+              return List.of();
+            });
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 2; i++) {
+      CertificateEntry entry = entry("/mnt/hung" + i);
+      assertThrows(TimeoutException.class, () -> guard.load(hanging, entry));
+    }
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+
+    // Both permits are held by the hung loads
+    assertThrows(RejectedExecutionException.class, () -> guard.load(hanging, entry("/mnt/hung2")));
+    release.countDown();
+    hanging.loads.set(0);
+    for (int i = 0; i < 50 && hanging.loads.get() == 0; i++) {
+      try {
+        guard.load(hanging, entry("/mnt/hung2"));
+      } catch (RejectedExecutionException e) {
+        Thread.sleep(20);
+      }
+    }
+    assertEquals(1, hanging.loads.get(), "permits are released once the hung loads return");
+  }
+
+  @Test
+  @DisplayName("LoadGuard runs at most the concurrency limit of loads across all sources")
+  void boundsLoadsOfTheGroup() throws Exception {
+    LoadGuard guard =
+        new LoadGuard(
+            executor,
+            new CertificateConfig.Loading(Duration.ofMillis(200), 4, 10, Duration.ZERO, null),
+            1);
+    FakeSource hanging =
+        new FakeSource(
+            entry -> {
+              Uninterruptibles.awaitUninterruptibly(release);
+              return List.of();
+            });
+    FakeSource other = new FakeSource(entry -> List.of());
+
+    assertThrows(TimeoutException.class, () -> guard.load(hanging, entry("/mnt/hung")));
+    Exception e = assertThrows(TimeoutException.class, () -> guard.load(other, entry("/certs/a")));
+    assertTrue(e.getMessage().startsWith("No load slot"), e.getMessage());
+    assertEquals(0, other.loads.get(), "waits for the slot held by the hung load");
+
+    release.countDown();
+    for (int i = 0; i < 50 && other.loads.get() == 0; i++) {
+      try {
+        guard.load(other, entry("/certs/a"));
+      } catch (TimeoutException retry) {
+        Thread.sleep(20);
+      }
+    }
+    assertEquals(1, other.loads.get(), "the slot is released once the hung load returns");
+  }
+
+  @Test
+  @DisplayName("LoadGuard skips an entry after repeated failures until its backoff has passed")
+  void backsOffFailingEntries() throws Exception {
+    LoadGuard guard = guard(Duration.ofSeconds(5), 4, 2, Duration.ofMillis(300));
+    FakeSource failing =
+        new FakeSource(
+            entry -> {
+              throw new IOException("connection refused");
+            });
+    CertificateEntry entry = entry("remote-host:443");
+
+    for (int i = 0; i < 4; i++) {
+      Exception e = assertThrows(IOException.class, () -> guard.load(failing, entry));
+      assertEquals("connection refused", e.getMessage());
+    }
+    assertEquals(2, failing.loads.get(), "skipped once the threshold is reached");
+    assertEquals(1, guard.failing());
+
+    Thread.sleep(400);
+    assertThrows(IOException.class, () -> guard.load(failing, entry));
+    assertEquals(3, failing.loads.get(), "retried after the backoff");
+
+    guard.endCycle();
+    assertEquals(1, guard.failing());
+    guard.endCycle();
+    assertEquals(0, guard.failing(), "entries not loaded during a cycle are forgotten");
+  }
+
+  @Test
+  @DisplayName("LoadGuard does not reload a failed file until its fingerprint changes")
+  void cachesFailuresByFingerprint() throws Exception {
+    LoadGuard guard = guard(Duration.ofSeconds(5), 4, 100, Duration.ZERO);
+    Path file = Files.writeString(dir.resolve("broken.pem"), "garbage");
+    FakeSource parser =
+        new FakeSource(
+            entry -> {
+              if (Files.readString(Path.of(entry.path())).equals("garbage")) {
+                throw new IllegalArgumentException("not a certificate");
+              }
+              return List.of(LoadedCertificate.of("default", new byte[0]));
+            });
+    CertificateEntry entry = entry(file.toString());
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(IllegalArgumentException.class, () -> guard.load(parser, entry));
+    }
+    assertEquals(1, parser.loads.get());
+
+    Files.writeString(file, "fixed");
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+    assertEquals(1, guard.load(parser, entry).size());
+    assertEquals(2, parser.loads.get());
+    assertEquals(0, guard.failing());
+  }
+
+  @Test
+  @DisplayName("LoadGuard records every load and its outcome as a JFR event")
+  void recordsLoadEvents() throws Exception {
+    LoadGuard guard = guard(Duration.ofSeconds(5), 4, 1, Duration.ofMinutes(1));
+    Path file = Files.writeString(dir.resolve("bundle.pem"), "x".repeat(100));
+    FakeSource source =
+        new FakeSource(
+            entry -> {
+              if (entry.path().endsWith(".pem")) {
+                return List.of(
+                    LoadedCertificate.of("a", new byte[0]), LoadedCertificate.of("b", new byte[0]));
+              }
+              throw new IOException("connection refused");
+            });
+    Path dump = dir.resolve("loads.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(EntryLoadEvent.class);
+      recording.start();
+      guard.load(source, entry(file.toString()));
+      assertThrows(IOException.class, () -> guard.load(source, entry("remote-host:443")));
+      assertThrows(IOException.class, () -> guard.load(source, entry("remote-host:443")));
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+    events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+    assertEquals(3, events.size());
+    assertEquals(EntryLoadEvent.LOADED, events.get(0).getString("outcome"));
+    assertEquals(100, events.get(0).getLong("bytes"));
+    assertEquals(2, events.get(0).getInt("aliases"));
+    assertEquals(file.toString(), events.get(0).getString("path"));
+    assertEquals(EntryLoadEvent.FAILED, events.get(1).getString("outcome"));
+    assertEquals(EntryLoadEvent.SKIPPED, events.get(2).getString("outcome"));
+  }
+
+  private static CertificateEntry entry(String path) {
+    return new CertificateEntry("e", path, "fake", null, null);
+  }
+
+  /** Counts loads and delegates them to a function. */
+  private static final class FakeSource implements CertificateSource {
+    private final Load load;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    FakeSource(Load load) {
+      this.load = load;
+    }
+
+    @Override
+    public Set<String> types() {
+      return Set.of("fake");
+    }
+
+    @Override
+    public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+      loads.incrementAndGet();
+      return load.apply(entry);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Load {
+    List<LoadedCertificate> apply(CertificateEntry entry) throws Exception;
+  }
+}
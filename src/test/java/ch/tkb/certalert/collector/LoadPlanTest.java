@@ -0,0 +1,186 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.SourceRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LoadPlanTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final LoadGuard guard =
+      new LoadGuard(executor, new CertificateConfig.Loading(null, null, null, null, null));
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("LoadPlan runs expensive loads in parallel up to maxConcurrency")
+  void boundsExpensiveConcurrency() throws Exception {
+    CountingSource source = new CountingSource("slow", CertificateSource.Cost.EXPENSIVE, 2);
+    List<CertificateEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      entries.add(entry("e" + i, "/tmp/store" + i, "slow"));
+    }
+
+    LoadPlan plan = LoadPlan.start(entries, new SourceRegistry(List.of(source)), executor, guard);
+    for (CertificateEntry entry : entries) {
+      assertEquals(entry.path(), plan.load(entry).get(0).alias());
+    }
+
+    assertEquals(8, source.loads.get());
+    assertEquals(2, source.maxRunning.get());
+  }
+
+  @Test
+  @DisplayName("LoadPlan loads entries with the same path, type and password once")
+  void coalescesEqualLoads() throws Exception {
+    CountingSource cheap = new CountingSource("cheap", CertificateSource.Cost.CHEAP, 1);
+    CountingSource expensive = new CountingSource("slow", CertificateSource.Cost.EXPENSIVE, 4);
+    List<CertificateEntry> entries =
+        List.of(
+            entry("a", "/tmp/one", "cheap"),
+            entry("b", "/tmp/./one", "CHEAP"),
+            entry("c", "/tmp/two", "slow"),
+            entry("d", "/tmp/two", "slow"));
+
+    LoadPlan plan =
+        LoadPlan.start(entries, new SourceRegistry(List.of(cheap, expensive)), executor, guard);
+    for (CertificateEntry entry : entries) {
+      plan.load(entry);
+    }
+
+    assertEquals(1, cheap.loads.get());
+    assertEquals(1, expensive.loads.get());
+  }
+
+  @Test
+  @DisplayName("LoadPlan hands batch sources all their entries before loading")
+  void preparesBatchSources() throws Exception {
+    List<CertificateEntry> prepared = new ArrayList<>();
+    CertificateSource batch =
+        new CertificateSource() {
+          @Override
+          public Set<String> types() {
+            return Set.of("batch");
+          }
+
+          @Override
+          public boolean supportsBatch() {
+            return true;
+          }
+
+          @Override
+          public void prepare(List<CertificateEntry> entries) {
+            prepared.addAll(entries);
+          }
+
+          @Override
+          public List<LoadedCertificate> load(CertificateEntry entry) {
+            assertTrue(prepared.contains(entry));
+            return List.of(LoadedCertificate.of("default", new byte[0]));
+          }
+        };
+    List<CertificateEntry> entries =
+        List.of(entry("a", "host-a:443", "batch"), entry("b", "host-b:443", "batch"));
+
+    LoadPlan plan = LoadPlan.start(entries, new SourceRegistry(List.of(batch)), executor, guard);
+
+    assertEquals(entries, prepared);
+    assertEquals(1, plan.load(entries.get(1)).size());
+  }
+
+  @Test
+  @DisplayName("LoadPlan.load rejects unsupported types and rethrows load failures")
+  void reportsFailures() {
+    CertificateSource failing =
+        new CertificateSource() {
+          @Override
+          public Set<String> types() {
+            return Set.of("broken");
+          }
+
+          @Override
+          public Cost cost() {
+            return Cost.EXPENSIVE;
+          }
+
+          @Override
+          public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+            throw new IOException("unreadable " + entry.path());
+          }
+        };
+    CertificateEntry broken = entry("a", "/tmp/broken", "broken");
+    CertificateEntry unknown = entry("b", "/tmp/unknown", "nope");
+
+    LoadPlan plan =
+        LoadPlan.start(
+            List.of(broken, unknown), new SourceRegistry(List.of(failing)), executor, guard);
+
+    Exception e = assertThrows(IOException.class, () -> plan.load(broken));
+    assertEquals("unreadable /tmp/broken", e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> plan.load(unknown));
+  }
+
+  private static CertificateEntry entry(String name, String path, String type) {
+    return new CertificateEntry(name, path, type, null, null);
+  }
+
+  /** Records how many loads ran and how many ran at the same time. */
+  private static final class CountingSource implements CertificateSource {
+    private final String type;
+    private final Cost cost;
+    private final int maxConcurrency;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    CountingSource(String type, Cost cost, int maxConcurrency) {
+      this.type = type;
+      this.cost = cost;
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public Set<String> types() {
+      return Set.of(type);
+    }
+
+    @Override
+    public Cost cost() {
+      return cost;
+    }
+
+    @Override
+    public int maxConcurrency() {
+      return maxConcurrency;
+    }
+
+    @Override
+    public List<LoadedCertificate> load(CertificateEntry entry) throws InterruptedException {
+      loads.incrementAndGet();
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(20);
+        return List.of(LoadedCertificate.of(entry.path(), new byte[0]));
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.collector.ParsedCertificateCache.ParsedCertificate;
+import ch.tkb.certalert.utils.CertificateLoader;
+import ch.tkb.certalert.utils.Fingerprints;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ParsedCertificateCacheTest {
+
+  private static final String BUNDLE_CRT_PATH = "tests/certs/crt/multiple.crt";
+
+  @Test
+  @DisplayName("ParsedCertificateCache shares one entry per fingerprint and retains its DER once")
+  void testSharedByFingerprint() throws Exception {
+    Map<String, byte[]> retained = new HashMap<>();
+    ParsedCertificateCache cache = new ParsedCertificateCache(retained::put);
+    List<byte[]> encoded = CertificateLoader.loadAllEncoded(BUNDLE_CRT_PATH);
+    X509Certificate decoded = CertificateLoader.decode(encoded.get(0));
+
+    ParsedCertificate fromDer = cache.acquire(encoded.get(0));
+    ParsedCertificate fromCert = cache.acquire(decoded);
+
+    assertSame(fromDer, fromCert);
+    assertEquals(Fingerprints.sha256(decoded), fromDer.fingerprint());
+    assertEquals(decoded.getSubjectX500Principal().getName(), fromDer.subject());
+    assertEquals("CN=Root CA", fromDer.issuer());
+    assertEquals(List.of(), fromDer.subjectAltNames());
+    assertEquals(1, cache.size());
+    assertArrayEquals(encoded.get(0), retained.get(fromDer.fingerprint()));
+    assertEquals(1, retained.size());
+  }
+
+  @Test
+  @DisplayName("ParsedCertificateCache.endCycle evicts entries not referenced in the cycle")
+  void testEndCycleEvictsUnreferenced() throws Exception {
+    ParsedCertificateCache cache = new ParsedCertificateCache((fingerprint, der) -> {});
+    List<byte[]> encoded = CertificateLoader.loadAllEncoded(BUNDLE_CRT_PATH);
+
+    cache.acquire(encoded.get(0));
+    cache.acquire(encoded.get(1));
+    cache.endCycle();
+    assertEquals(2, cache.size());
+
+    cache.acquire(encoded.get(0));
+    cache.endCycle();
+    assertEquals(1, cache.size());
+
+    cache.endCycle();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  @DisplayName("ParsedCertificateCache rejects invalid DER content")
+  void testInvalidDer() {
+    Map<String, byte[]> retained = new HashMap<>();
+    ParsedCertificateCache cache = new ParsedCertificateCache(retained::put);
+    assertThrows(IllegalArgumentException.class, () -> cache.acquire(new byte[] {1, 2, 3}));
+    assertEquals(0, cache.size());
+    assertTrue(retained.isEmpty());
+  }
+}
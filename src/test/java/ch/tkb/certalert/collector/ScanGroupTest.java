@@ -0,0 +1,257 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.chain.ChainValidator;
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.CertificateConfig.Group;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.history.HistoryLog;
+import ch.tkb.certalert.metrics.CertificateMetricsPublisher;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import ch.tkb.certalert.notification.WebhookNotifier;
+import ch.tkb.certalert.revocation.RevocationChecker;
+import ch.tkb.certalert.scale.FixtureGenerator;
+import ch.tkb.certalert.search.CertificateIndex;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.snapshot.IdentityRegistry;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.KeystoreSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.PemSource;
+import ch.tkb.certalert.source.SourceRegistry;
+import ch.tkb.certalert.threshold.ThresholdScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ScanGroupTest {
+
+  private static final CertificateEntry REGULAR =
+      new CertificateEntry("regular", "tests/certs/jks/regular.jks", "jks", "password", null);
+  private static final CertificateEntry SINGLE =
+      new CertificateEntry("single", "tests/certs/pem/single.pem", "pem", null, null);
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private CertificateCollector collector;
+
+  @AfterEach
+  void close() {
+    if (collector != null) {
+      collector.close();
+    }
+  }
+
+  private static CertificateConfig config(List<CertificateEntry> defaults, List<Group> groups) {
+    return TestConfigs.builder()
+        .checkInterval(Duration.ofMinutes(5))
+        .certificates(defaults)
+        .reload(new CertificateConfig.Reload(false, null, null, null))
+        .groups(groups)
+        .build();
+  }
+
+  private CertificateCollector collector(CertificateConfig config, CertificateSource... extra) {
+    List<CertificateSource> sources =
+        new ArrayList<>(List.of(new PemSource(), new KeystoreSource()));
+    sources.addAll(List.of(extra));
+    collector =
+        new CertificateCollector(
+            config,
+            new CertificateMetricsPublisher(meterRegistry),
+            new HistoryLog(config),
+            new IdentityRegistry(),
+            new ScanProgress(meterRegistry),
+            new ShardAssignment(config, meterRegistry),
+            new SourceRegistry(sources),
+            new ChainValidator(config),
+            new RevocationChecker(config, new SimpleMeterRegistry()),
+            new WebhookNotifier(config, new SimpleMeterRegistry()),
+            new ThresholdScheduler(config),
+            new CertificateIndex(),
+            new IoBudget(config, new SimpleMeterRegistry()));
+    return collector;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(10);
+    }
+  }
+
+  private int idOf(CertificateSnapshot snapshot, String name) {
+    for (int row = 0; row < snapshot.size(); row++) {
+      if (snapshot.identityOf(snapshot.idAt(row)).name().equals(name)) {
+        return snapshot.idAt(row);
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  @DisplayName("CertificateConfig.allGroups defaults the intervals and rejects duplicate names")
+  void testGroupDefaults() {
+    CertificateConfig config =
+        config(List.of(REGULAR), List.of(new Group("nfs", null, 0, List.of(SINGLE))));
+
+    List<Group> groups = config.allGroups();
+    assertEquals(List.of("default", "nfs"), groups.stream().map(Group::name).toList());
+    assertEquals(Duration.ofMinutes(5), groups.get(1).checkInterval());
+    assertEquals(1, groups.get(1).concurrency());
+    assertNull(groups.get(0).concurrency());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> config(List.of(), List.of(new Group("default", null, null, List.of()))));
+  }
+
+  @Test
+  @DisplayName("ScanGroup.assign keeps an entry listed in several groups in the first one")
+  void testAssignDeduplicates() {
+    Map<String, List<CertificateEntry>> assigned =
+        ScanGroup.assign(
+            List.of(
+                new Group("ingress", null, null, List.of(REGULAR, SINGLE)),
+                new Group("nfs", null, null, List.of(SINGLE))));
+
+    assertEquals(List.of(REGULAR, SINGLE), assigned.get("ingress"));
+    assertEquals(List.of(), assigned.get("nfs"));
+  }
+
+  @Test
+  @DisplayName("CertificateCollector serves the rows of all groups and tags scan metrics by group")
+  void testGroupsAreMerged() {
+    collector(
+        config(
+            List.of(REGULAR),
+            List.of(new Group("ingress", Duration.ofSeconds(30), 2, List.of(SINGLE)))));
+    collector.collectCertificateData();
+
+    CertificateSnapshot snapshot = collector.getSnapshot();
+    assertTrue(idOf(snapshot, "regular") >= 0);
+    assertTrue(idOf(snapshot, "single") >= 0);
+    assertEquals(
+        1.0,
+        meterRegistry.get("certalert_scan_entries_done").tag("group", "ingress").gauge().value());
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("certalert_scan_entries_configured")
+            .tag("group", "default")
+            .gauge()
+            .value());
+    assertEquals(2, meterRegistry.find("certalert_scan_duration_seconds").gauges().size());
+
+    // A rescan of one group keeps the rows of the other
+    collector.collectCertificateData();
+    assertEquals(snapshot.size(), collector.getSnapshot().size());
+  }
+
+  @Test
+  @DisplayName(
+      "CertificateCollector.reload keeps the row and metrics of an entry moved between groups")
+  void testReloadMovesEntry() {
+    collector(config(List.of(REGULAR), List.of(new Group("pem", null, null, List.of(SINGLE)))));
+    collector.collectCertificateData();
+    CertificateSnapshot before = collector.getSnapshot();
+    int single = idOf(before, "single");
+
+    // The default group adds the entry before the group it leaves removes it
+    ReloadResult result =
+        collector.reload(
+            config(List.of(REGULAR, SINGLE), List.of(new Group("pem", null, null, List.of()))));
+
+    assertEquals(List.of("single"), result.added());
+    assertEquals(List.of("single"), result.removed());
+    CertificateSnapshot after = collector.getSnapshot();
+    assertEquals(before.size(), after.size());
+    assertEquals(single, idOf(after, "single"));
+    assertEquals(before.info(single), after.info(single));
+    assertNotNull(
+        meterRegistry
+            .find("certalert_certificate_expiration_seconds")
+            .tag("certificate_name", "single")
+            .gauge());
+  }
+
+  @Test
+  @DisplayName(
+      "CertificateCollector applies threshold crossings and reloads while a spread scan is running")
+  void testCrossingDuringSpreadScan() throws Exception {
+    // Valid through the first two scans, expires while the second one waits for the gated entry
+    Instant notAfter = Instant.now().plusSeconds(5).truncatedTo(ChronoUnit.SECONDS);
+    byte[] soon = FixtureGenerator.selfSigned("soon", notAfter.minus(Duration.ofDays(1)), notAfter);
+    CountDownLatch arrived = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger gatedLoads = new AtomicInteger();
+    CertificateSource source =
+        new CertificateSource() {
+          @Override
+          public Set<String> types() {
+            return Set.of("test");
+          }
+
+          @Override
+          public boolean readsFiles() {
+            return false;
+          }
+
+          @Override
+          public List<LoadedCertificate> load(CertificateEntry entry) throws Exception {
+            if (entry.name().equals("gated") && gatedLoads.incrementAndGet() > 1) {
+              arrived.countDown();
+              release.await();
+            }
+            return List.of(LoadedCertificate.of(entry.name(), soon));
+          }
+        };
+    List<CertificateEntry> entries =
+        List.of(
+            new CertificateEntry("soon", "soon", "test", null, null),
+            new CertificateEntry("gated", "gated", "test", null, null));
+    CertificateConfig config =
+        TestConfigs.builder()
+            .checkInterval(Duration.ofSeconds(2))
+            .certificates(entries)
+            .reload(new CertificateConfig.Reload(false, null, null, null))
+            .pacing(new CertificateConfig.Pacing(true, null, null, null, null))
+            .build();
+    collector(config, source).startInitialScan();
+
+    assertTrue(arrived.await(10, TimeUnit.SECONDS), "the second scan did not start");
+    int id = idOf(collector.getSnapshot(), "soon");
+    await(() -> collector.getSnapshot().statusOf(id) == Status.EXPIRED);
+
+    List<CertificateEntry> added = new ArrayList<>(entries);
+    added.add(SINGLE);
+    ReloadResult result =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5),
+            () -> collector.reload(TestConfigs.from(config).certificates(added).build()));
+    assertEquals(List.of("single"), result.added());
+    assertTrue(idOf(collector.getSnapshot(), "single") >= 0);
+
+    // The scan keeps the crossing and the reloaded entry when it publishes
+    Instant lastUpdate = collector.getLastUpdateTime();
+    release.countDown();
+    await(() -> !lastUpdate.equals(collector.getLastUpdateTime()));
+    assertEquals(Status.EXPIRED, collector.getSnapshot().statusOf(id));
+    assertTrue(idOf(collector.getSnapshot(), "single") >= 0);
+  }
+}
@@ -0,0 +1,109 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.health.CertificateScanHealthIndicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+
+class ScanProgressTest {
+
+  @Test
+  @DisplayName("CertificateScanHealthIndicator is out of service until the first pass completes")
+  void testReadinessFollowsFirstPass() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ScanProgress progress = new ScanProgress(registry);
+    CertificateScanHealthIndicator indicator = new CertificateScanHealthIndicator(progress);
+
+    progress.cycleStarted("default", 3);
+    progress.entryDone("default");
+    Health health = indicator.health();
+    assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+    assertEquals(1, health.getDetails().get("entriesDone"));
+    assertEquals(3, health.getDetails().get("entriesTotal"));
+    assertEquals(1.0, registry.get("certalert_scan_entries_done").gauge().value());
+    assertEquals(0.0, registry.get("certalert_ready").gauge().value());
+
+    progress.entryDone("default");
+    progress.entryDone("default");
+    progress.cycleCompleted("default");
+    assertEquals(Status.UP, indicator.health().getStatus());
+    assertNotNull(progress.getFirstPassCompletedAt());
+    assertEquals(1.0, registry.get("certalert_ready").gauge().value());
+  }
+
+  @Test
+  @DisplayName("ScanProgress completes the first pass once every group completed a scan")
+  void testGroupsCompleteFirstPass() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ScanProgress progress = new ScanProgress(registry);
+    progress.register("ingress");
+    progress.register("nfs");
+
+    progress.cycleStarted("ingress", 2);
+    progress.cycleStarted("nfs", 5);
+    progress.entryDone("ingress");
+    progress.entryDone("ingress");
+    progress.cycleCompleted("ingress");
+    progress.entryDone("nfs");
+
+    assertFalse(progress.isFirstPassComplete());
+    assertEquals(7, progress.getEntriesTotal());
+    assertEquals(3, progress.getEntriesDone());
+    assertEquals(
+        2.0, registry.get("certalert_scan_entries_done").tag("group", "ingress").gauge().value());
+    assertEquals(
+        1.0, registry.get("certalert_scan_entries_done").tag("group", "nfs").gauge().value());
+
+    progress.cycleCompleted("nfs");
+    assertTrue(progress.isFirstPassComplete());
+    assertEquals(2, registry.find("certalert_scan_duration_seconds").gauges().size());
+  }
+
+  @Test
+  @DisplayName("CertificateScanHealthIndicator is up while serving a restored snapshot")
+  void testRestoredSnapshotIsReady() {
+    ScanProgress progress = new ScanProgress(new SimpleMeterRegistry());
+    CertificateScanHealthIndicator indicator = new CertificateScanHealthIndicator(progress);
+
+    progress.restored();
+    progress.cycleStarted("default", 10);
+
+    assertTrue(progress.isReady());
+    assertFalse(progress.isFirstPassComplete());
+    assertEquals(Status.UP, indicator.health().getStatus());
+    assertEquals("restored", indicator.health().getDetails().get("phase"));
+  }
+
+  @Test
+  @DisplayName("CertificateScanHealthIndicator reuses the health while progress is unchanged")
+  void testHealthIsCached() {
+    ScanProgress progress = new ScanProgress(new SimpleMeterRegistry());
+    CertificateScanHealthIndicator indicator = new CertificateScanHealthIndicator(progress);
+    progress.cycleStarted("default", 2);
+
+    Health first = indicator.health();
+    assertSame(first, indicator.health());
+
+    progress.entryDone("default");
+    assertNotSame(first, indicator.health());
+  }
+
+  @Test
+  @DisplayName("ScanProgress gauges keep their names when scraped by Prometheus")
+  void testScrapedNames() {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    ScanProgress progress = new ScanProgress(registry);
+    progress.cycleStarted("default", 3);
+
+    String scrape = registry.scrape();
+    assertTrue(scrape.contains("certalert_scan_entries_configured{group=\"default\"} 3.0"), scrape);
+    assertTrue(scrape.contains("certalert_scan_entries_done{group=\"default\"} 0.0"), scrape);
+    assertTrue(scrape.contains("certalert_scan_window_seconds{group=\"default\"}"), scrape);
+  }
+}
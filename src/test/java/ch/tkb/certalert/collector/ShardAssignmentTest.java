@@ -0,0 +1,99 @@
+package ch.tkb.certalert.collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ShardAssignmentTest {
+
+  private static List<CertificateEntry> entries(int count) {
+    List<CertificateEntry> entries = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      entries.add(
+          new CertificateEntry("entry-" + i, "/certs/store-" + i + ".jks", "jks", null, null));
+    }
+    return entries;
+  }
+
+  private static ShardAssignment shard(int ordinal, int replicas) {
+    var sharding = new CertificateConfig.Sharding(true, replicas, ordinal, null);
+    var config = TestConfigs.builder().sharding(sharding).build();
+    return new ShardAssignment(config, new SimpleMeterRegistry());
+  }
+
+  @Test
+  @DisplayName("ShardAssignment assigns every entry to exactly one replica")
+  void testEveryEntryHasOneOwner() {
+    List<CertificateEntry> entries = entries(1_000);
+    int replicas = 3;
+
+    int total = 0;
+    for (int ordinal = 0; ordinal < replicas; ordinal++) {
+      int owned = shard(ordinal, replicas).select(entries).size();
+      // rendezvous hashing spreads entries roughly evenly
+      assertTrue(owned > 250 && owned < 420, "replica " + ordinal + " owns " + owned);
+      total += owned;
+    }
+    assertEquals(entries.size(), total);
+  }
+
+  @Test
+  @DisplayName("ShardAssignment only moves entries to a newly added replica")
+  void testMinimalMovementOnScaleUp() {
+    List<CertificateEntry> entries = entries(1_000);
+
+    int moved = 0;
+    for (CertificateEntry entry : entries) {
+      int before = ShardAssignment.ownerOf(entry, 3);
+      int after = ShardAssignment.ownerOf(entry, 4);
+      if (before != after) {
+        assertEquals(3, after);
+        moved++;
+      }
+    }
+    // ideally a quarter of the entries move to the new replica
+    assertTrue(moved > 180 && moved < 320, "moved " + moved);
+  }
+
+  @Test
+  @DisplayName("ShardAssignment owns everything when sharding is disabled")
+  void testDisabled() {
+    var config = TestConfigs.builder().build();
+    ShardAssignment assignment = new ShardAssignment(config, new SimpleMeterRegistry());
+    List<CertificateEntry> entries = entries(10);
+    assertEquals(entries, assignment.select(entries));
+  }
+
+  @Test
+  @DisplayName("Sharding derives the ordinal from a StatefulSet hostname")
+  void testOrdinalFromHostname() {
+    assertEquals(2, CertificateConfig.Sharding.ordinalFromHostname("certalert-2"));
+    assertEquals(1, new CertificateConfig.Sharding(true, 3, null, "certalert-1").ordinal());
+  }
+
+  @Test
+  @DisplayName("Sharding rejects a hostname without ordinal unless the ordinal is configured")
+  void testHostnameWithoutOrdinal() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CertificateConfig.Sharding(true, 3, null, "certalert-7d9f-abcde"));
+    assertThrows(
+        IllegalArgumentException.class, () -> new CertificateConfig.Sharding(true, 3, null, null));
+    assertEquals(2, new CertificateConfig.Sharding(true, 3, 2, "certalert-7d9f-abcde").ordinal());
+    assertEquals(
+        0, new CertificateConfig.Sharding(false, 3, null, "certalert-7d9f-abcde").ordinal());
+  }
+
+  @Test
+  @DisplayName("ShardAssignment rejects ordinals outside of the replica count")
+  void testInvalidOrdinal() {
+    assertThrows(IllegalArgumentException.class, () -> shard(3, 3));
+  }
+}
@@ -0,0 +1,173 @@
+package ch.tkb.certalert.config;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.CertificateConfig.Chain;
+import ch.tkb.certalert.config.CertificateConfig.Dashboard;
+import ch.tkb.certalert.config.CertificateConfig.Details;
+import ch.tkb.certalert.config.CertificateConfig.Group;
+import ch.tkb.certalert.config.CertificateConfig.History;
+import ch.tkb.certalert.config.CertificateConfig.Kubernetes;
+import ch.tkb.certalert.config.CertificateConfig.Loading;
+import ch.tkb.certalert.config.CertificateConfig.Notifications;
+import ch.tkb.certalert.config.CertificateConfig.ObjectStorage;
+import ch.tkb.certalert.config.CertificateConfig.Pacing;
+import ch.tkb.certalert.config.CertificateConfig.Reload;
+import ch.tkb.certalert.config.CertificateConfig.Revocation;
+import ch.tkb.certalert.config.CertificateConfig.Sharding;
+import ch.tkb.certalert.config.CertificateConfig.Tls;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Builds configurations for tests without spelling out every component of {@link
+ * CertificateConfig}. Unset settings stay null, so they get the same defaults as when they are
+ * missing from the YAML.
+ */
+public final class TestConfigs {
+
+  private Duration checkInterval;
+  private List<CertificateEntry> certificates;
+  private Dashboard dashboard;
+  private History history;
+  private Sharding sharding;
+  private Reload reload;
+  private Kubernetes kubernetes;
+  private Tls tls;
+  private Chain chain;
+  private Revocation revocation;
+  private Notifications notifications;
+  private Loading loading;
+  private List<Group> groups;
+  private Details details;
+  private Pacing pacing;
+  private ObjectStorage objectStorage;
+
+  private TestConfigs() {}
+
+  /** Returns a builder without any settings. */
+  public static TestConfigs builder() {
+    return new TestConfigs();
+  }
+
+  /** Returns a builder with the settings of the configuration. */
+  public static TestConfigs from(CertificateConfig config) {
+    TestConfigs builder = new TestConfigs();
+    builder.checkInterval = config.checkInterval();
+    builder.certificates = config.certificates();
+    builder.dashboard = config.dashboard();
+    builder.history = config.history();
+    builder.sharding = config.sharding();
+    builder.reload = config.reload();
+    builder.kubernetes = config.kubernetes();
+    builder.tls = config.tls();
+    builder.chain = config.chain();
+    builder.revocation = config.revocation();
+    builder.notifications = config.notifications();
+    builder.loading = config.loading();
+    builder.groups = config.groups();
+    builder.details = config.details();
+    builder.pacing = config.pacing();
+    builder.objectStorage = config.objectStorage();
+    return builder;
+  }
+
+  public TestConfigs checkInterval(Duration checkInterval) {
+    this.checkInterval = checkInterval;
+    return this;
+  }
+
+  public TestConfigs certificates(List<CertificateEntry> certificates) {
+    this.certificates = certificates;
+    return this;
+  }
+
+  public TestConfigs dashboard(Dashboard dashboard) {
+    this.dashboard = dashboard;
+    return this;
+  }
+
+  public TestConfigs history(History history) {
+    this.history = history;
+    return this;
+  }
+
+  public TestConfigs sharding(Sharding sharding) {
+    this.sharding = sharding;
+    return this;
+  }
+
+  public TestConfigs reload(Reload reload) {
+    this.reload = reload;
+    return this;
+  }
+
+  public TestConfigs kubernetes(Kubernetes kubernetes) {
+    this.kubernetes = kubernetes;
+    return this;
+  }
+
+  public TestConfigs tls(Tls tls) {
+    this.tls = tls;
+    return this;
+  }
+
+  public TestConfigs chain(Chain chain) {
+    this.chain = chain;
+    return this;
+  }
+
+  public TestConfigs revocation(Revocation revocation) {
+    this.revocation = revocation;
+    return this;
+  }
+
+  public TestConfigs notifications(Notifications notifications) {
+    this.notifications = notifications;
+    return this;
+  }
+
+  public TestConfigs loading(Loading loading) {
+    this.loading = loading;
+    return this;
+  }
+
+  public TestConfigs groups(List<Group> groups) {
+    this.groups = groups;
+    return this;
+  }
+
+  public TestConfigs details(Details details) {
+    this.details = details;
+    return this;
+  }
+
+  public TestConfigs pacing(Pacing pacing) {
+    this.pacing = pacing;
+    return this;
+  }
+
+  public TestConfigs objectStorage(ObjectStorage objectStorage) {
+    this.objectStorage = objectStorage;
+    return this;
+  }
+
+  public CertificateConfig build() {
+    return new CertificateConfig(
+        checkInterval,
+        certificates,
+        dashboard,
+        history,
+        sharding,
+        reload,
+        kubernetes,
+        tls,
+        chain,
+        revocation,
+        notifications,
+        loading,
+        groups,
+        details,
+        pacing,
+        objectStorage);
+  }
+}
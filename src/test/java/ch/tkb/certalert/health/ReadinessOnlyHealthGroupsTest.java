@@ -0,0 +1,67 @@
+package ch.tkb.certalert.health;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.health.actuate.endpoint.AdditionalHealthEndpointPath;
+import org.springframework.boot.health.actuate.endpoint.HealthEndpointGroup;
+import org.springframework.boot.health.actuate.endpoint.HealthEndpointGroups;
+import org.springframework.boot.health.actuate.endpoint.HttpCodeStatusMapper;
+import org.springframework.boot.health.actuate.endpoint.StatusAggregator;
+
+class ReadinessOnlyHealthGroupsTest {
+
+  /** Group with a fixed set of members; null means every indicator. */
+  private record Group(Set<String> members) implements HealthEndpointGroup {
+
+    @Override
+    public boolean isMember(String name) {
+      return members == null || members.contains(name);
+    }
+
+    @Override
+    public boolean showComponents(SecurityContext securityContext) {
+      return true;
+    }
+
+    @Override
+    public boolean showDetails(SecurityContext securityContext) {
+      return true;
+    }
+
+    @Override
+    public StatusAggregator getStatusAggregator() {
+      return StatusAggregator.getDefault();
+    }
+
+    @Override
+    public HttpCodeStatusMapper getHttpCodeStatusMapper() {
+      return null;
+    }
+
+    @Override
+    public AdditionalHealthEndpointPath getAdditionalPath() {
+      return null;
+    }
+  }
+
+  @Test
+  @DisplayName("ReadinessOnlyHealthGroups keeps certificateScan out of the root group only")
+  void testScanOnlyInReadiness() {
+    HealthEndpointGroups groups =
+        new ReadinessOnlyHealthGroups()
+            .postProcessHealthEndpointGroups(
+                HealthEndpointGroups.of(
+                    new Group(null),
+                    Map.of("readiness", new Group(Set.of("readinessState", "certificateScan")))));
+
+    assertFalse(groups.getPrimary().isMember("certificateScan"));
+    assertTrue(groups.getPrimary().isMember("diskSpace"));
+    assertTrue(groups.get("readiness").isMember("certificateScan"));
+    assertEquals(Set.of("readiness"), groups.getNames());
+  }
+}
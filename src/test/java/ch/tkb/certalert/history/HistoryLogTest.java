@@ -0,0 +1,172 @@
+package ch.tkb.certalert.history;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class HistoryLogTest {
+
+  @TempDir Path tempDir;
+
+  private HistoryLog open(long segmentBytes, int retain) {
+    var history =
+        new CertificateConfig.History(
+            true, tempDir.toString(), DataSize.ofBytes(segmentBytes), retain, Duration.ofHours(1));
+    return new HistoryLog(TestConfigs.builder().history(history).build());
+  }
+
+  private static CertificateInfo info(String alias, Instant notAfter) {
+    return CertificateInfo.builder()
+        .name("store")
+        .path("/certs/store.jks")
+        .type("jks")
+        .alias(alias)
+        .subject("CN=" + alias)
+        .notBefore(notAfter.minus(Duration.ofDays(365)))
+        .notAfter(notAfter)
+        .status(Status.VALID)
+        .build();
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(f -> f.getFileName().toString().endsWith(".log")).count();
+    }
+  }
+
+  @Test
+  @DisplayName("HistoryLog.query returns records newest first and skips unchanged states")
+  void testAppendAndQuery() {
+    HistoryLog historyLog = open(1024 * 1024, 10);
+    Instant first = Instant.parse("2030-01-01T00:00:00Z");
+    Instant second = Instant.parse("2031-01-01T00:00:00Z");
+
+    historyLog.append(info("a", first));
+    historyLog.append(info("a", first));
+    historyLog.append(info("a", second));
+    historyLog.append(info("b", first));
+
+    List<HistoryRecord> records = historyLog.query(id -> id.alias().equals("a"), 10);
+    assertEquals(2, records.size());
+    assertEquals(second, records.get(0).notAfter());
+    assertEquals(first, records.get(1).notAfter());
+    historyLog.close();
+  }
+
+  @Test
+  @DisplayName(
+      "HistoryLog.append compares the last state after reopening and keeps the status name")
+  void testStateAfterReopen() throws IOException {
+    Instant notAfter = Instant.parse("2030-01-01T00:00:00Z");
+    HistoryLog historyLog = open(1024 * 1024, 10);
+    historyLog.append(info("a", notAfter));
+    historyLog.close();
+
+    historyLog = open(1024 * 1024, 10);
+    historyLog.append(info("a", notAfter));
+    historyLog.append(info("a", notAfter).toBuilder().status(Status.EXPIRED).build());
+
+    List<HistoryRecord> records = historyLog.query(id -> true, 10);
+    assertEquals(2, records.size());
+    assertEquals(Status.EXPIRED, records.get(0).status());
+    assertFalse(records.get(0).sameState(records.get(1)));
+    byte[] encoded = records.get(0).encode();
+    assertEquals(records.get(0), HistoryRecord.decode(encoded));
+    assertTrue(new String(encoded, StandardCharsets.UTF_8).contains("EXPIRED"));
+    historyLog.close();
+  }
+
+  @Test
+  @DisplayName("HistoryLog rolls segments and rebuilds its index after reopening")
+  void testRollingAndReopen() throws IOException {
+    HistoryLog historyLog = open(128, 10);
+    Instant base = Instant.parse("2030-01-01T00:00:00Z");
+    for (int i = 0; i < 5; i++) {
+      historyLog.append(info("a", base.plus(Duration.ofDays(i))));
+    }
+    historyLog.close();
+    assertTrue(segmentCount() > 1);
+
+    HistoryLog reopened = open(128, 10);
+    List<HistoryRecord> records = reopened.query(id -> true, 10);
+    assertEquals(5, records.size());
+    assertEquals(base.plus(Duration.ofDays(4)), records.get(0).notAfter());
+
+    // the latest state is known after reopening, so it is not appended again
+    reopened.append(info("a", base.plus(Duration.ofDays(4))));
+    assertEquals(5, reopened.query(id -> true, 10).size());
+    reopened.close();
+  }
+
+  @Test
+  @DisplayName("HistoryLog.compact keeps only the last versions per identity")
+  void testCompaction() throws IOException {
+    HistoryLog historyLog = open(128, 2);
+    Instant base = Instant.parse("2030-01-01T00:00:00Z");
+    for (int i = 0; i < 8; i++) {
+      historyLog.append(info("a", base.plus(Duration.ofDays(i))));
+    }
+    long before = segmentCount();
+
+    historyLog.compact();
+
+    assertTrue(segmentCount() < before);
+    List<HistoryRecord> records = historyLog.query(id -> true, 10);
+    assertEquals(2, records.size());
+    assertEquals(base.plus(Duration.ofDays(7)), records.get(0).notAfter());
+    assertEquals(base.plus(Duration.ofDays(6)), records.get(1).notAfter());
+    historyLog.close();
+
+    HistoryLog reopened = open(128, 2);
+    assertEquals(2, reopened.query(id -> true, 10).size());
+    reopened.close();
+  }
+
+  @Test
+  @DisplayName("HistoryLog.latest returns the newest record per identity")
+  void testLatest() {
+    HistoryLog historyLog = open(128, 10);
+    Instant base = Instant.parse("2030-01-01T00:00:00Z");
+    for (int i = 0; i < 3; i++) {
+      historyLog.append(info("a", base.plus(Duration.ofDays(i))));
+      historyLog.append(info("b", base.minus(Duration.ofDays(i))));
+    }
+
+    List<HistoryRecord> latest = historyLog.latest(id -> true);
+    assertEquals(2, latest.size());
+    for (HistoryRecord record : latest) {
+      Instant expected =
+          record.identity().alias().equals("a")
+              ? base.plus(Duration.ofDays(2))
+              : base.minus(Duration.ofDays(2));
+      assertEquals(expected, record.notAfter());
+      assertEquals(expected, record.toInfo().getNotAfter());
+      assertEquals("store.jks", record.toInfo().getFileName());
+    }
+    historyLog.close();
+  }
+
+  @Test
+  @DisplayName("HistoryLog is a no-op when history is disabled")
+  void testDisabled() {
+    HistoryLog historyLog = new HistoryLog(TestConfigs.builder().build());
+    historyLog.append(info("a", Instant.parse("2030-01-01T00:00:00Z")));
+    assertFalse(historyLog.isAvailable());
+    assertTrue(historyLog.query(id -> true, 10).isEmpty());
+  }
+}
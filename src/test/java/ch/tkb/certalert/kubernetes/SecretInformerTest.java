@@ -0,0 +1,215 @@
+package ch.tkb.certalert.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SecretInformerTest {
+
+  private static final String END_OF_WATCH = "";
+
+  @TempDir Path tempDir;
+
+  private HttpServer server;
+  private SecretInformer informer;
+  private final Map<String, String> secrets = new ConcurrentHashMap<>();
+  private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+  private final List<String> watchQueries = new CopyOnWriteArrayList<>();
+  private final List<String> tokens = new CopyOnWriteArrayList<>();
+  private final AtomicInteger lists = new AtomicInteger();
+  private volatile String listVersion = "100";
+
+  @BeforeEach
+  void setUp() throws IOException {
+    secrets.put("tls-a", secret("tls-a", "10", "tests/certs/pem/single.pem"));
+    secrets.put("tls-b", secret("tls-b", "11", "tests/certs/crt/multiple.crt"));
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/api/v1/namespaces/team/secrets", this::handle);
+    // watches block their handler, so requests need their own threads
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    Files.writeString(tempDir.resolve("token"), "test-token\n");
+    informer = new SecretInformer(config(List.of()));
+  }
+
+  private CertificateConfig config(List<CertificateEntry> certificates) {
+    var kubernetes =
+        new CertificateConfig.Kubernetes(
+            "http://127.0.0.1:" + server.getAddress().getPort(),
+            tempDir.resolve("token").toString(),
+            tempDir.resolve("missing-ca.crt").toString(),
+            "team",
+            null);
+    return TestConfigs.builder().kubernetes(kubernetes).certificates(certificates).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    informer.close();
+    events.add(END_OF_WATCH);
+    server.stop(0);
+  }
+
+  /** Serves the list and streams queued events to watch requests. */
+  private void handle(HttpExchange exchange) throws IOException {
+    tokens.add(exchange.getRequestHeaders().getFirst("Authorization"));
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null || !query.contains("watch=true")) {
+      lists.incrementAndGet();
+      byte[] body =
+          ("{\"metadata\":{\"resourceVersion\":\""
+                  + listVersion
+                  + "\"},\"items\":["
+                  + String.join(",", secrets.values())
+                  + "]}")
+              .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+      return;
+    }
+
+    watchQueries.add(query);
+    exchange.sendResponseHeaders(200, 0);
+    try (OutputStream out = exchange.getResponseBody()) {
+      while (true) {
+        String event = events.poll(5, TimeUnit.SECONDS);
+        if (event == null || event.equals(END_OF_WATCH)) {
+          return;
+        }
+        out.write((event + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String secret(String name, String version, String certificateFile)
+      throws IOException {
+    String data =
+        certificateFile != null
+            ? "{\"tls.crt\":\""
+                + Base64.getEncoder().encodeToString(Files.readAllBytes(Path.of(certificateFile)))
+                + "\"}"
+            : "{}";
+    return "{\"metadata\":{\"name\":\""
+        + name
+        + "\",\"resourceVersion\":\""
+        + version
+        + "\"},\"type\":\"kubernetes.io/tls\",\"data\":"
+        + data
+        + "}";
+  }
+
+  private static String event(String type, String object) {
+    return "{\"type\":\"" + type + "\",\"object\":" + object + "}";
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  @DisplayName("SecretInformer lists a namespace once and watches from its resourceVersion")
+  void testListAndWatch() throws Exception {
+    assertEquals(1, informer.certificates("team/tls-a").size());
+    assertEquals(2, informer.certificates("tls-b").size());
+    await(() -> !watchQueries.isEmpty());
+
+    assertEquals(1, lists.get());
+    assertEquals(2, informer.parseCount());
+    assertTrue(watchQueries.get(0).contains("resourceVersion=100"));
+    assertTrue(tokens.stream().allMatch("Bearer test-token"::equals));
+  }
+
+  @Test
+  @DisplayName("SecretInformer only re-parses secrets whose resourceVersion changed")
+  void testWatchEvents() throws Exception {
+    informer.certificates("team/tls-a");
+    await(() -> !watchQueries.isEmpty());
+
+    events.add(event("MODIFIED", secret("tls-a", "10", "tests/certs/pem/single.pem")));
+    events.add(event("MODIFIED", secret("tls-b", "12", "tests/certs/pem/single.pem")));
+    await(() -> informer.parseCount() == 3);
+    assertEquals(1, informer.certificates("team/tls-b").size());
+
+    events.add(event("DELETED", secret("tls-a", "13", null)));
+    events.add(event("ADDED", secret("tls-c", "14", null)));
+    await(() -> informer.parseCount() == 4);
+    assertThrows(IllegalArgumentException.class, () -> informer.certificates("team/tls-a"));
+    Exception missingData =
+        assertThrows(IllegalArgumentException.class, () -> informer.certificates("team/tls-c"));
+    assertTrue(missingData.getMessage().contains("tls.crt"));
+  }
+
+  @Test
+  @DisplayName("SecretInformer relists when the watched resourceVersion expired")
+  void testRelistOnGone() throws Exception {
+    informer.certificates("team/tls-a");
+    await(() -> !watchQueries.isEmpty());
+
+    secrets.remove("tls-a");
+    listVersion = "200";
+    events.add(event("ERROR", "{\"kind\":\"Status\",\"code\":410,\"message\":\"too old\"}"));
+
+    await(() -> lists.get() == 2 && watchQueries.size() == 2);
+    assertTrue(watchQueries.get(1).contains("resourceVersion=200"));
+    assertThrows(IllegalArgumentException.class, () -> informer.certificates("team/tls-a"));
+    assertEquals(2, informer.certificates("team/tls-b").size());
+    // the unchanged secret was not parsed again by the relist
+    assertEquals(2, informer.parseCount());
+  }
+
+  @Test
+  @DisplayName("SecretInformer.start lists the namespaces of configured entries before any load")
+  void testStartListsConfiguredNamespaces() throws Exception {
+    informer.start();
+    Thread.sleep(100);
+    assertEquals(0, lists.get(), "no k8s-secret entries, so the API must not be contacted");
+    informer.close();
+
+    informer =
+        new SecretInformer(
+            config(List.of(new CertificateEntry("a", "team/tls-a", "k8s-secret", null, null))));
+    informer.start();
+    await(() -> !watchQueries.isEmpty());
+
+    assertEquals(1, lists.get());
+    assertEquals(1, informer.certificates("team/tls-a").size());
+    assertEquals(1, lists.get());
+  }
+}
@@ -0,0 +1,195 @@
+package ch.tkb.certalert.notification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WebhookNotifierTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @TempDir Path queueDirectory;
+
+  private HttpServer server;
+  private final BlockingQueue<JsonNode> received = new LinkedBlockingQueue<>();
+  private volatile int responseStatus = 200;
+  private WebhookNotifier notifier;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/hook", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+    if (notifier != null) {
+      notifier.close();
+    }
+  }
+
+  private WebhookNotifier notifier(int maxBatchSize, int queueCapacity) {
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    var settings =
+        new CertificateConfig.Notifications(
+            true,
+            List.of(url),
+            Duration.ofHours(1), // windows are closed by the tests
+            maxBatchSize,
+            100.0,
+            Duration.ofSeconds(5),
+            queueDirectory.toString(),
+            queueCapacity,
+            null);
+    var config = TestConfigs.builder().notifications(settings).build();
+    notifier = new WebhookNotifier(config, new SimpleMeterRegistry());
+    return notifier;
+  }
+
+  private static CertificateIdentity identity(String name) {
+    return new CertificateIdentity("/certs/" + name + ".pem", "pem", name, "default");
+  }
+
+  /** A certificate that expires after the given duration (default thresholds: 20d and 3d). */
+  private static CertificateInfo expiringIn(String name, Duration remaining, Instant now) {
+    return CertificateInfo.builder()
+        .name(name)
+        .alias("default")
+        .subject("CN=" + name)
+        .notAfter(now.plus(remaining))
+        .status(Status.VALID)
+        .build();
+  }
+
+  @Test
+  @DisplayName("WebhookNotifier coalesces transitions of a window and deduplicates per identity")
+  void coalescesAndDeduplicates() throws Exception {
+    WebhookNotifier notifier = notifier(100, 10);
+    Instant now = Instant.now();
+    notifier.observe(identity("a"), expiringIn("a", Duration.ofDays(90), now), now);
+    notifier.observe(identity("b"), expiringIn("b", Duration.ofDays(90), now), now);
+    notifier.observe(identity("c"), expiringIn("c", Duration.ofDays(10), now), now);
+
+    // a: warning, then critical within the window; b: warning and back; c: no change
+    notifier.observe(identity("a"), expiringIn("a", Duration.ofDays(10), now), now);
+    notifier.observe(identity("a"), expiringIn("a", Duration.ofDays(2), now), now);
+    notifier.observe(identity("b"), expiringIn("b", Duration.ofDays(10), now), now);
+    notifier.observe(identity("b"), expiringIn("b", Duration.ofDays(90), now), now);
+    notifier.observe(identity("c"), expiringIn("c", Duration.ofDays(10), now), now);
+    notifier.flush();
+
+    JsonNode first = received.poll(5, TimeUnit.SECONDS);
+    assertNotNull(first);
+    JsonNode transitions = first.get("transitions");
+    assertEquals(2, transitions.size());
+    assertEquals("c", transitions.get(0).get("name").asText());
+    assertTrue(transitions.get(0).get("from").isNull(), "new certificate");
+    assertEquals("WARNING", transitions.get(0).get("to").asText());
+    assertEquals("a", transitions.get(1).get("name").asText());
+    assertEquals("OK", transitions.get(1).get("from").asText());
+    assertEquals("CRITICAL", transitions.get(1).get("to").asText());
+
+    notifier.flush();
+    assertNull(received.poll(200, TimeUnit.MILLISECONDS), "nothing new to send");
+  }
+
+  @Test
+  @DisplayName("WebhookNotifier splits large windows into batches and reports invalid entries")
+  void splitsBatches() throws Exception {
+    WebhookNotifier notifier = notifier(2, 10);
+    Instant now = Instant.now();
+    for (String name : List.of("a", "b", "c")) {
+      notifier.observe(identity(name), expiringIn(name, Duration.ofDays(-1), now), now);
+    }
+    CertificateInfo invalid =
+        CertificateInfo.builder().name("d").subject("broken").status(Status.INVALID).build();
+    notifier.observe(identity("d"), invalid, now);
+    notifier.flush();
+
+    JsonNode first = received.poll(5, TimeUnit.SECONDS);
+    JsonNode second = received.poll(5, TimeUnit.SECONDS);
+    assertEquals(2, first.get("transitions").size());
+    assertEquals("EXPIRED", first.get("transitions").get(0).get("to").asText());
+    assertEquals(2, second.get("transitions").size());
+    assertEquals("INVALID", second.get("transitions").get(1).get("to").asText());
+  }
+
+  @Test
+  @DisplayName("WebhookNotifier keeps failed batches on disk and delivers them after a restart")
+  void retriesFromPersistentQueue() throws Exception {
+    responseStatus = 503;
+    WebhookNotifier failing = notifier(100, 10);
+    Instant now = Instant.now();
+    failing.observe(identity("a"), expiringIn("a", Duration.ofDays(1), now), now);
+    failing.flush();
+    assertNotNull(received.poll(5, TimeUnit.SECONDS), "first attempt");
+    assertEquals(1, failing.queued(0));
+    failing.close();
+
+    responseStatus = 200;
+    notifier(100, 10); // delivers the left-over batch at startup
+    JsonNode retried = received.poll(5, TimeUnit.SECONDS);
+    assertNotNull(retried);
+    assertEquals("a", retried.get("transitions").get(0).get("name").asText());
+    waitUntilEmpty(notifier);
+  }
+
+  @Test
+  @DisplayName("WebhookNotifier drops the oldest batches once the queue is full")
+  void boundsQueue() throws Exception {
+    responseStatus = 503;
+    WebhookNotifier notifier = notifier(1, 2);
+    Instant now = Instant.now();
+    for (String name : List.of("a", "b", "c", "d")) {
+      notifier.observe(identity(name), expiringIn(name, Duration.ofDays(1), now), now);
+    }
+    notifier.flush();
+
+    assertEquals(2, notifier.queued(0));
+    notifier.close();
+
+    responseStatus = 200;
+    received.clear();
+    notifier(1, 2);
+    assertEquals("c", received.poll(5, TimeUnit.SECONDS).at("/transitions/0/name").asText());
+    assertEquals("d", received.poll(5, TimeUnit.SECONDS).at("/transitions/0/name").asText());
+  }
+
+  private static void waitUntilEmpty(WebhookNotifier notifier) throws InterruptedException {
+    for (int i = 0; i < 50 && notifier.queued(0) > 0; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(0, notifier.queued(0));
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    received.add(MAPPER.readTree(exchange.getRequestBody()));
+    exchange.sendResponseHeaders(responseStatus, -1);
+    exchange.close();
+  }
+}
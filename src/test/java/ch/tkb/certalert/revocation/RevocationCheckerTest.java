@@ -0,0 +1,245 @@
+package ch.tkb.certalert.revocation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.model.CertificateInfo.RevocationStatus;
+import ch.tkb.certalert.revocation.RevocationChecker.RevocationCheck;
+import ch.tkb.certalert.utils.CertificateLoader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RevocationCheckerTest {
+
+  private static final String DIR = "tests/certs/revocation/";
+  private static final String SHA256_WITH_RSA = "1.2.840.113549.1.1.11";
+
+  private final X509Certificate ca = load("ca.crt");
+  private final X509Certificate revoked = load("revoked.crt");
+  private final List<X509Certificate> good = List.of(load("a.crt"), load("b.crt"), load("c.crt"));
+
+  private HttpServer responder;
+  private RevocationChecker checker;
+
+  /** Certificates per received OCSP request. */
+  private final List<Integer> requests = new CopyOnWriteArrayList<>();
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private volatile PrivateKey signingKey;
+  private volatile Duration responseAge = Duration.ZERO;
+  private volatile long delayMillis;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    String pem = Files.readString(Path.of(DIR + "ca.key"));
+    byte[] pkcs8 = Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", "").trim());
+    signingKey = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+
+    responder = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    responder.createContext("/ocsp", this::handle);
+    responder.setExecutor(Executors.newCachedThreadPool());
+    responder.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    responder.stop(0);
+    if (checker != null) {
+      checker.close();
+    }
+  }
+
+  private RevocationChecker checker(List<String> crlFiles, int maxInFlight, int batchSize) {
+    String url = "http://127.0.0.1:" + responder.getAddress().getPort() + "/ocsp";
+    var revocation =
+        new CertificateConfig.Revocation(
+            true, url, crlFiles, maxInFlight, batchSize, Duration.ofSeconds(5), null);
+    checker =
+        new RevocationChecker(
+            TestConfigs.builder().revocation(revocation).build(), new SimpleMeterRegistry());
+    return checker;
+  }
+
+  private List<RevocationCheck> allChecks() {
+    List<RevocationCheck> checks = new ArrayList<>();
+    for (X509Certificate cert : good) {
+      checks.add(new RevocationCheck(cert, ca));
+    }
+    checks.add(new RevocationCheck(revoked, ca));
+    return checks;
+  }
+
+  private static final List<RevocationStatus> EXPECTED =
+      List.of(
+          RevocationStatus.GOOD,
+          RevocationStatus.GOOD,
+          RevocationStatus.GOOD,
+          RevocationStatus.REVOKED);
+
+  @Test
+  @DisplayName("RevocationChecker.check looks up serials in a local CRL without OCSP requests")
+  void checksLocalCrl() {
+    RevocationChecker checker = checker(List.of(DIR + "ca.crl"), 1, 10);
+    List<RevocationCheck> checks = allChecks();
+    checks.add(new RevocationCheck(good.get(0), null));
+
+    List<RevocationStatus> statuses = checker.check(checks);
+
+    assertEquals(EXPECTED, statuses.subList(0, 4));
+    assertEquals(RevocationStatus.UNKNOWN, statuses.get(4));
+    assertTrue(requests.isEmpty());
+  }
+
+  @Test
+  @DisplayName("RevocationChecker.check batches one issuer into one OCSP request and caches it")
+  void batchesAndCachesOcsp() {
+    RevocationChecker checker = checker(List.of(), 2, 10);
+    List<RevocationCheck> checks = allChecks();
+    checks.add(new RevocationCheck(good.get(0), ca)); // same certificate in another entry
+
+    List<RevocationStatus> statuses = checker.check(checks);
+
+    assertEquals(EXPECTED, statuses.subList(0, 4));
+    assertEquals(RevocationStatus.GOOD, statuses.get(4));
+    assertEquals(List.of(4), requests);
+
+    // Answers are used until their nextUpdate
+    assertEquals(EXPECTED, checker.check(allChecks()));
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  @DisplayName("RevocationChecker.check bounds the number of concurrent OCSP requests")
+  void boundsInFlightRequests() {
+    RevocationChecker checker = checker(List.of(), 2, 1);
+    delayMillis = 100;
+
+    assertEquals(EXPECTED, checker.check(allChecks()));
+
+    assertEquals(List.of(1, 1, 1, 1), requests);
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  @DisplayName("RevocationChecker.check does not cache responses past their nextUpdate")
+  void honorsNextUpdate() {
+    RevocationChecker checker = checker(List.of(), 1, 10);
+    responseAge = Duration.ofHours(2); // nextUpdate one hour ago
+
+    assertEquals(EXPECTED, checker.check(allChecks()));
+    assertEquals(EXPECTED, checker.check(allChecks()));
+    assertEquals(2, requests.size());
+  }
+
+  @Test
+  @DisplayName("RevocationChecker.check rejects OCSP responses not signed by the issuer")
+  void rejectsForeignSignatures() throws Exception {
+    RevocationChecker checker = checker(List.of(), 1, 10);
+    signingKey = KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate();
+
+    for (RevocationStatus status : checker.check(allChecks())) {
+      assertEquals(RevocationStatus.UNKNOWN, status);
+    }
+  }
+
+  /** Answers every requested certificate: revoked.crt is revoked, all others are good. */
+  private void handle(HttpExchange exchange) throws IOException {
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(delayMillis);
+      byte[] body = response(exchange.getRequestBody().readAllBytes());
+      exchange.getResponseHeaders().add("Content-Type", Ocsp.CONTENT_TYPE_RESPONSE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (Exception e) {
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      running.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  private byte[] response(byte[] request) throws Exception {
+    List<Der.Element> list =
+        Der.read(request)
+            .children(Der.SEQUENCE)
+            .get(0)
+            .children(Der.SEQUENCE)
+            .get(0)
+            .children(Der.SEQUENCE);
+    requests.add(list.size());
+
+    Instant thisUpdate = Instant.now().minus(responseAge);
+    List<byte[]> singles = new ArrayList<>();
+    for (Der.Element single : list) {
+      Der.Element certId = single.children(Der.SEQUENCE).get(0);
+      BigInteger serial = certId.children(Der.SEQUENCE).get(3).integer();
+      byte[] status =
+          serial.equals(revoked.getSerialNumber())
+              ? Der.encode(Der.explicit(1), Der.generalizedTime(thisUpdate))
+              : Der.encode(Der.implicit(0));
+      singles.add(
+          Der.sequence(
+              certId.encoded(),
+              status,
+              Der.generalizedTime(thisUpdate),
+              Der.encode(
+                  Der.explicit(0), Der.generalizedTime(thisUpdate.plus(Duration.ofHours(1))))));
+    }
+
+    byte[] tbs =
+        Der.sequence(
+            Der.encode(Der.explicit(1), ca.getSubjectX500Principal().getEncoded()),
+            Der.generalizedTime(thisUpdate),
+            Der.sequence(singles.toArray(byte[][]::new)));
+    Signature signer = Signature.getInstance("SHA256withRSA");
+    signer.initSign(signingKey);
+    signer.update(tbs);
+    byte[] basic =
+        Der.sequence(
+            tbs,
+            Der.sequence(Der.oid(SHA256_WITH_RSA), Der.nullValue()),
+            Der.bitString(signer.sign()));
+    return Der.sequence(
+        Der.enumerated(0),
+        Der.encode(
+            Der.explicit(0), Der.sequence(Der.oid(Ocsp.BASIC_RESPONSE), Der.octetString(basic))));
+  }
+
+  private static X509Certificate load(String file) {
+    try {
+      return CertificateLoader.load(DIR + file);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package ch.tkb.certalert.scale;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates keystores and PEM bundles with many aliases for scale tests.
+ *
+ * <p>Certificates are encoded and signed with a single EC key, so generating tens of thousands of
+ * them takes seconds. Their expiry is drawn from a weighted distribution over the dashboard
+ * thresholds (default 20 and 3 days), and a share of the stores is written as garbage to exercise
+ * the error path. The output is deterministic for a given seed, apart from being relative to now.
+ */
+public final class FixtureGenerator {
+
+  static final String PASSWORD = "password";
+
+  /** Store formats, with their entry type and file extension. */
+  enum Format {
+    JKS("jks", ".jks"),
+    PKCS12("pkcs12", ".p12"),
+    PEM("pem", ".pem");
+
+    final String type;
+    final String extension;
+
+    Format(String type, String extension) {
+      this.type = type;
+      this.extension = extension;
+    }
+  }
+
+  /** Where a certificate's expiry falls relative to the default thresholds. */
+  enum Expiry {
+    EXPIRED,
+    CRITICAL,
+    WARNING,
+    VALID
+  }
+
+  /** What to generate. */
+  record Spec(
+      int stores, // Number of keystores and bundles
+      int aliases, // Certificates per store
+      List<Format> formats, // Formats used in turn
+      Map<Expiry, Double> expiry, // Relative weight of each expiry bucket
+      double failureRate, // Share of stores written as garbage
+      long seed // Seed of all random choices
+      ) {
+
+    /** Returns a spec with all formats, mostly valid certificates and 1% broken stores. */
+    static Spec of(int stores, int aliases) {
+      return new Spec(
+          stores,
+          aliases,
+          List.of(Format.values()),
+          Map.of(
+              Expiry.EXPIRED, 0.05, Expiry.CRITICAL, 0.05, Expiry.WARNING, 0.1, Expiry.VALID, 0.8),
+          0.01,
+          42);
+    }
+  }
+
+  /** The generated entries and what they contain. */
+  record Fixtures(
+      List<CertificateEntry> entries, // One entry per store, in generation order
+      int certificates, // Certificates in the readable stores
+      int failing, // Stores written as garbage
+      Map<Expiry, Integer> expiries // Certificates per expiry bucket
+      ) {}
+
+  private static final String EC_WITH_SHA256 = "1.2.840.10045.4.3.2";
+  private static final String COMMON_NAME = "2.5.4.3";
+  private static final DateTimeFormatter UTC_TIME =
+      DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+  private static final DateTimeFormatter GENERALIZED_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+
+  private FixtureGenerator() {}
+
+  /** Writes the stores of the spec into the directory. */
+  static Fixtures generate(Path directory, Spec spec) throws Exception {
+    Files.createDirectories(directory);
+    Random random = new Random(spec.seed());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    KeyPair key = generator.generateKeyPair();
+    CertificateFactory factory = CertificateFactory.getInstance("X.509");
+    Instant now = Instant.now();
+
+    List<CertificateEntry> entries = new ArrayList<>(spec.stores());
+    Map<Expiry, Integer> expiries = new EnumMap<>(Expiry.class);
+    int certificates = 0;
+    int failing = 0;
+    long serial = 1;
+    for (int store = 0; store < spec.stores(); store++) {
+      Format format = spec.formats().get(store % spec.formats().size());
+      String name = String.format("store-%05d", store);
+      Path file = directory.resolve(name + format.extension);
+      entries.add(new CertificateEntry(name, file.toString(), format.type, PASSWORD, null));
+
+      if (random.nextDouble() < spec.failureRate()) {
+        byte[] garbage = new byte[256];
+        random.nextBytes(garbage);
+        Files.write(file, garbage);
+        failing++;
+        continue;
+      }
+
+      List<X509Certificate> certs = new ArrayList<>(spec.aliases());
+      for (int alias = 0; alias < spec.aliases(); alias++) {
+        Expiry expiry = pick(spec.expiry(), random);
+        expiries.merge(expiry, 1, Integer::sum);
+        Instant notAfter = now.plus(remaining(expiry, random));
+        byte[] der =
+            certificate(
+                key, serial++, name + "-" + alias, notAfter.minus(Duration.ofDays(365)), notAfter);
+        certs.add((X509Certificate) factory.generateCertificate(new ByteArrayInputStream(der)));
+      }
+      certificates += certs.size();
+      write(file, format, certs);
+    }
+    return new Fixtures(List.copyOf(entries), certificates, failing, expiries);
+  }
+
+  /** Returns a self-signed certificate with the given validity, encoded as DER. */
+  public static byte[] selfSigned(String commonName, Instant notBefore, Instant notAfter)
+      throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    return certificate(generator.generateKeyPair(), 1, commonName, notBefore, notAfter);
+  }
+
+  private static void write(Path file, Format format, List<X509Certificate> certs)
+      throws Exception {
+    if (format == Format.PEM) {
+      Base64.Encoder encoder = Base64.getMimeEncoder(64, new byte[] {'\n'});
+      StringBuilder pem = new StringBuilder();
+      for (X509Certificate cert : certs) {
+        pem.append("-----BEGIN CERTIFICATE-----\n")
+            .append(encoder.encodeToString(cert.getEncoded()))
+            .append("\n-----END CERTIFICATE-----\n");
+      }
+      Files.writeString(file, pem, StandardCharsets.US_ASCII);
+      return;
+    }
+    KeyStore store = KeyStore.getInstance(format == Format.JKS ? "JKS" : "PKCS12");
+    store.load(null, null);
+    for (int i = 0; i < certs.size(); i++) {
+      store.setCertificateEntry("alias-" + i, certs.get(i));
+    }
+    try (OutputStream out = Files.newOutputStream(file)) {
+      store.store(out, PASSWORD.toCharArray());
+    }
+  }
+
+  private static Expiry pick(Map<Expiry, Double> weights, Random random) {
+    double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+    double point = random.nextDouble() * total;
+    Expiry last = Expiry.VALID;
+    for (Expiry expiry : Expiry.values()) {
+      double weight = weights.getOrDefault(expiry, 0.0);
+      if (weight <= 0) {
+        continue;
+      }
+      last = expiry;
+      point -= weight;
+      if (point < 0) {
+        return expiry;
+      }
+    }
+    return last;
+  }
+
+  /** Returns a time to expiry within the bucket, keeping an hour away from its bounds. */
+  private static Duration remaining(Expiry expiry, Random random) {
+    long hour = Duration.ofHours(1).toMillis();
+    long day = Duration.ofDays(1).toMillis();
+    long millis =
+        switch (expiry) {
+          case EXPIRED -> -between(hour, 365 * day, random);
+          case CRITICAL -> between(hour, 3 * day - hour, random);
+          case WARNING -> between(3 * day + hour, 20 * day - hour, random);
+          case VALID -> between(20 * day + hour, 730 * day, random);
+        };
+    return Duration.ofMillis(millis);
+  }
+
+  private static long between(long from, long to, Random random) {
+    return from + (long) (random.nextDouble() * (to - from));
+  }
+
+  // ------------------------------------------------------------------ X.509 encoding
+
+  /** Encodes and signs a minimal v3 certificate whose subject and issuer are the given name. */
+  private static byte[] certificate(
+      KeyPair key, long serial, String commonName, Instant notBefore, Instant notAfter)
+      throws Exception {
+    byte[] algorithm = sequence(oid(EC_WITH_SHA256));
+    byte[] name = name(commonName);
+    byte[] tbs =
+        sequence(
+            encode(0xa0, integer(BigInteger.TWO)),
+            integer(BigInteger.valueOf(serial)),
+            algorithm,
+            name,
+            sequence(time(notBefore), time(notAfter)),
+            name,
+            key.getPublic().getEncoded());
+    Signature signer = Signature.getInstance("SHA256withECDSA");
+    signer.initSign(key.getPrivate());
+    signer.update(tbs);
+    byte[] signature = signer.sign();
+    byte[] bits = new byte[signature.length + 1];
+    System.arraycopy(signature, 0, bits, 1, signature.length);
+    return sequence(tbs, algorithm, encode(0x03, bits));
+  }
+
+  private static byte[] name(String commonName) {
+    byte[] value = encode(0x0c, commonName.getBytes(StandardCharsets.UTF_8));
+    return sequence(encode(0x31, sequence(oid(COMMON_NAME), value)));
+  }
+
+  /** Encodes UTCTime for the years 1950 to 2049 and GeneralizedTime otherwise (RFC 5280). */
+  private static byte[] time(Instant instant) {
+    int year = instant.atZone(ZoneOffset.UTC).getYear();
+    boolean utc = year >= 1950 && year < 2050;
+    String text = (utc ? UTC_TIME : GENERALIZED_TIME).format(instant);
+    return encode(utc ? 0x17 : 0x18, text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static byte[] integer(BigInteger value) {
+    return encode(0x02, value.toByteArray());
+  }
+
+  private static byte[] oid(String dotted) {
+    String[] arcs = dotted.split("\\.");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+    for (int i = 2; i < arcs.length; i++) {
+      long arc = Long.parseLong(arcs[i]);
+      int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(arc) + 6) / 7);
+      for (int group = groups - 1; group >= 0; group--) {
+        int bits = (int) (arc >>> (7 * group)) & 0x7f;
+        out.write(group > 0 ? bits | 0x80 : bits);
+      }
+    }
+    return encode(0x06, out.toByteArray());
+  }
+
+  private static byte[] sequence(byte[]... items) {
+    return encode(0x30, items);
+  }
+
+  private static byte[] encode(int tag, byte[]... parts) {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      content.writeBytes(part);
+    }
+    int length = content.size();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+    out.write(tag);
+    if (length < 0x80) {
+      out.write(length);
+    } else {
+      int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+      out.write(0x80 | bytes);
+      for (int i = bytes - 1; i >= 0; i--) {
+        out.write(length >>> (8 * i));
+      }
+    }
+    out.writeBytes(content.toByteArray());
+    return out.toByteArray();
+  }
+
+  /** Writes fixtures from the command line: {@code <directory> <stores> <aliases>}. */
+  public static void main(String[] args) throws Exception {
+    Fixtures fixtures =
+        generate(Path.of(args[0]), Spec.of(Integer.parseInt(args[1]), Integer.parseInt(args[2])));
+    System.out.printf(
+        "Wrote %d stores with %d certificates (%d broken stores): %s%n",
+        fixtures.entries().size(),
+        fixtures.certificates(),
+        fixtures.failing(),
+        fixtures.expiries());
+  }
+}
@@ -0,0 +1,89 @@
+package ch.tkb.certalert.scale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.scale.FixtureGenerator.Expiry;
+import ch.tkb.certalert.scale.FixtureGenerator.Fixtures;
+import ch.tkb.certalert.scale.FixtureGenerator.Format;
+import ch.tkb.certalert.scale.FixtureGenerator.Spec;
+import ch.tkb.certalert.source.CertificateSource;
+import ch.tkb.certalert.source.KeystoreSource;
+import ch.tkb.certalert.source.LoadedCertificate;
+import ch.tkb.certalert.source.PemSource;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FixtureGeneratorTest {
+
+  @TempDir Path dir;
+
+  @Test
+  @DisplayName("FixtureGenerator.generate writes readable stores with the requested expiries")
+  void generatesReadableStores() throws Exception {
+    Spec spec =
+        new Spec(
+            12,
+            5,
+            List.of(Format.values()),
+            Map.of(
+                Expiry.EXPIRED, 1.0, Expiry.CRITICAL, 1.0, Expiry.WARNING, 1.0, Expiry.VALID, 1.0),
+            0.25,
+            7);
+    Fixtures fixtures = FixtureGenerator.generate(dir, spec);
+
+    assertEquals(12, fixtures.entries().size());
+    assertTrue(fixtures.failing() > 0 && fixtures.failing() < 12);
+    assertEquals((12 - fixtures.failing()) * 5, fixtures.certificates());
+
+    CertificateFactory factory = CertificateFactory.getInstance("X.509");
+    Map<Expiry, Integer> expiries = new EnumMap<>(Expiry.class);
+    int loaded = 0;
+    int failed = 0;
+    for (CertificateEntry entry : fixtures.entries()) {
+      CertificateSource source =
+          entry.type().equals("pem") ? new PemSource() : new KeystoreSource();
+      List<LoadedCertificate> certificates;
+      try {
+        certificates = source.load(entry);
+      } catch (Exception e) {
+        failed++;
+        continue;
+      }
+      for (LoadedCertificate certificate : certificates) {
+        assertNull(certificate.error());
+        X509Certificate cert =
+            (X509Certificate)
+                factory.generateCertificate(new ByteArrayInputStream(certificate.der()));
+        cert.verify(cert.getPublicKey());
+        expiries.merge(expiryOf(cert.getNotAfter().toInstant()), 1, Integer::sum);
+        loaded++;
+      }
+    }
+
+    assertEquals(fixtures.failing(), failed);
+    assertEquals(fixtures.certificates(), loaded);
+    assertEquals(fixtures.expiries(), expiries);
+  }
+
+  private static Expiry expiryOf(Instant notAfter) {
+    Duration remaining = Duration.between(Instant.now(), notAfter);
+    if (remaining.isNegative()) {
+      return Expiry.EXPIRED;
+    }
+    if (remaining.compareTo(Duration.ofDays(3)) < 0) {
+      return Expiry.CRITICAL;
+    }
+    return remaining.compareTo(Duration.ofDays(20)) < 0 ? Expiry.WARNING : Expiry.VALID;
+  }
+}
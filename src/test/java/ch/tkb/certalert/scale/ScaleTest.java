@@ -0,0 +1,240 @@
+package ch.tkb.certalert.scale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.CertalertApplication;
+import ch.tkb.certalert.collector.CertificateCollector;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.scale.FixtureGenerator.Fixtures;
+import ch.tkb.certalert.scale.FixtureGenerator.Spec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the application against generated fixtures and compares its cost with a stored baseline.
+ *
+ * <p>Runs with {@code ./gradlew scaleTest}, not with the regular tests. It records the duration of
+ * the first and of steady-state scans, the heap retained after a full GC, the bytes allocated per
+ * scan and the p99 latency of the endpoints, and fails if any of them exceeds the baseline by more
+ * than the tolerance. {@code -Dscale.updateBaseline=true} stores the measured values as the new
+ * baseline instead. The size of the run is set with {@code -Dscale.stores} and {@code
+ * -Dscale.aliases}; a baseline recorded for another size is reported but not enforced.
+ */
+@Tag("scale")
+class ScaleTest {
+
+  private static final Logger log = LoggerFactory.getLogger(ScaleTest.class);
+
+  private static final int STORES = Integer.getInteger("scale.stores", 500);
+  private static final int ALIASES = Integer.getInteger("scale.aliases", 100);
+  private static final int CYCLES = Integer.getInteger("scale.cycles", 5);
+  private static final int REQUESTS = Integer.getInteger("scale.requests", 50);
+  private static final double TOLERANCE =
+      Double.parseDouble(System.getProperty("scale.tolerance", "0.5"));
+  private static final Path BASELINE =
+      Path.of(System.getProperty("scale.baseline", "tests/scale/baseline.json"));
+  private static final Path REPORT =
+      Path.of(System.getProperty("scale.report", "build/reports/scale/report.json"));
+  private static final boolean UPDATE_BASELINE = Boolean.getBoolean("scale.updateBaseline");
+
+  /** Timed endpoints and the name of their latency metric. */
+  private static final Map<String, String> ENDPOINTS =
+      Map.of(
+          "/metrics", "p99MetricsMillis",
+          "/api/certificates", "p99ApiMillis",
+          "/", "p99DashboardMillis");
+
+  /** Absolute slack per unit, so that small values do not fail on noise. */
+  private static final double SLACK_MILLIS = 25;
+
+  private static final double SLACK_MEGABYTES = 16;
+
+  private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  @TempDir Path dir;
+
+  @Test
+  @DisplayName("Scans, heap and endpoint latencies stay within the stored baseline")
+  void staysWithinBaseline() throws Exception {
+    Fixtures fixtures = FixtureGenerator.generate(dir, Spec.of(STORES, ALIASES));
+    log.warn(
+        "Generated {} stores with {} certificates ({} broken)",
+        fixtures.entries().size(),
+        fixtures.certificates(),
+        fixtures.failing());
+
+    Map<String, Double> measured = new LinkedHashMap<>();
+    long start = System.nanoTime();
+    try (ConfigurableApplicationContext context = boot(fixtures.entries())) {
+      CertificateCollector collector = context.getBean(CertificateCollector.class);
+      awaitFirstScan(collector);
+      measured.put("firstScanMillis", millisSince(start));
+      assertTrue(
+          collector.getSnapshot().size() >= fixtures.certificates(),
+          "every generated certificate is in the snapshot");
+
+      measureScans(collector, measured);
+      measured.put("heapAfterGcMegabytes", heapAfterGc());
+
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      HttpClient client = HttpClient.newHttpClient();
+      for (String endpoint : List.of("/metrics", "/api/certificates", "/")) {
+        URI uri = URI.create("http://localhost:" + port + endpoint);
+        measured.put(ENDPOINTS.get(endpoint), p99(client, uri));
+      }
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("stores", STORES);
+    report.put("aliases", ALIASES);
+    Map<String, Double> rounded = new LinkedHashMap<>();
+    measured.forEach((name, value) -> rounded.put(name, Math.round(value * 10) / 10.0));
+    report.put("metrics", rounded);
+    Files.createDirectories(REPORT.toAbsolutePath().getParent());
+    mapper.writeValue(REPORT.toFile(), report);
+    log.warn("Scale results: {}", measured);
+
+    if (UPDATE_BASELINE) {
+      Files.createDirectories(BASELINE.toAbsolutePath().getParent());
+      mapper.writeValue(BASELINE.toFile(), report);
+      log.warn("Stored the results as the new baseline in {}", BASELINE);
+      return;
+    }
+    assertWithinBaseline(measured);
+  }
+
+  private static ConfigurableApplicationContext boot(List<CertificateEntry> entries) {
+    List<String> args = new ArrayList<>();
+    args.add("--server.port=0");
+    args.add("--certalert.check-interval=1h");
+    args.add("--certalert.reload.enabled=false");
+    args.add("--logging.level.root=WARN");
+    args.add("--logging.structured.format.console=");
+    for (int i = 0; i < entries.size(); i++) {
+      CertificateEntry entry = entries.get(i);
+      String prefix = "--certalert.certificates[" + i + "].";
+      args.add(prefix + "name=" + entry.name());
+      args.add(prefix + "path=" + entry.path());
+      args.add(prefix + "type=" + entry.type());
+      args.add(prefix + "password=" + entry.password());
+    }
+    return new SpringApplicationBuilder(CertalertApplication.class)
+        .run(args.toArray(String[]::new));
+  }
+
+  private static void awaitFirstScan(CertificateCollector collector) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofMinutes(10).toNanos();
+    while (collector.getLastUpdateTime() == null) {
+      assertTrue(System.nanoTime() < deadline, "the first scan did not finish");
+      Thread.sleep(50);
+    }
+  }
+
+  /** Records the median duration of steady-state scans and the bytes allocated per scan. */
+  private static void measureScans(CertificateCollector collector, Map<String, Double> measured) {
+    collector.collectCertificateData(); // warm up
+    double[] millis = new double[CYCLES];
+    long allocated = allocatedBytes();
+    for (int i = 0; i < CYCLES; i++) {
+      long start = System.nanoTime();
+      collector.collectCertificateData();
+      millis[i] = millisSince(start);
+    }
+    double perScan = (double) (allocatedBytes() - allocated) / CYCLES;
+    Arrays.sort(millis);
+    measured.put("scanMillis", millis[CYCLES / 2]);
+    measured.put("allocatedPerScanMegabytes", perScan / (1024 * 1024));
+  }
+
+  /** Returns the bytes allocated so far by all live threads. */
+  private static long allocatedBytes() {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+        .filter(bytes -> bytes > 0)
+        .sum();
+  }
+
+  private static double heapAfterGc() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024);
+  }
+
+  /** Sends the requests one after another and returns the 99th percentile latency. */
+  private static double p99(HttpClient client, URI uri) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+    for (int i = 0; i < 5; i++) {
+      client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+    double[] millis = new double[REQUESTS];
+    for (int i = 0; i < REQUESTS; i++) {
+      long start = System.nanoTime();
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      millis[i] = millisSince(start);
+      assertEquals(200, response.statusCode(), uri.toString());
+    }
+    Arrays.sort(millis);
+    return millis[Math.min(REQUESTS - 1, (int) Math.ceil(REQUESTS * 0.99) - 1)];
+  }
+
+  private void assertWithinBaseline(Map<String, Double> measured) throws Exception {
+    if (!Files.exists(BASELINE)) {
+      log.warn("No baseline at {}; run with -Dscale.updateBaseline=true to store one", BASELINE);
+      return;
+    }
+    JsonNode baseline = mapper.readTree(BASELINE.toFile());
+    if (baseline.path("stores").asInt() != STORES || baseline.path("aliases").asInt() != ALIASES) {
+      log.warn(
+          "Baseline was recorded for {}x{}; not comparing",
+          baseline.path("stores").asInt(),
+          baseline.path("aliases").asInt());
+      return;
+    }
+
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, Double> metric : measured.entrySet()) {
+      JsonNode expected = baseline.path("metrics").path(metric.getKey());
+      if (!expected.isNumber()) {
+        continue;
+      }
+      double slack = metric.getKey().endsWith("Millis") ? SLACK_MILLIS : SLACK_MEGABYTES;
+      double limit = expected.asDouble() * (1 + TOLERANCE) + slack;
+      if (metric.getValue() > limit) {
+        regressions.add(
+            String.format(
+                "%s: %.1f > %.1f (baseline %.1f)",
+                metric.getKey(), metric.getValue(), limit, expected.asDouble()));
+      }
+    }
+    assertTrue(regressions.isEmpty(), "Regressions past the baseline: " + regressions);
+  }
+
+  private static double millisSince(long start) {
+    return (System.nanoTime() - start) / 1e6;
+  }
+}
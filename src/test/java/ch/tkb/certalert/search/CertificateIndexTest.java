@@ -0,0 +1,169 @@
+package ch.tkb.certalert.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import ch.tkb.certalert.snapshot.CertificateSnapshot;
+import ch.tkb.certalert.snapshot.IdentityRegistry;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CertificateIndexTest {
+
+  private static CertificateInfo info(int i) {
+    return CertificateInfo.builder()
+        .name("store-" + (i / 100))
+        .path("/certs/store-" + (i / 100) + ".jks")
+        .fileName("store-" + (i / 100) + ".jks")
+        .type("jks")
+        .alias("alias-" + i)
+        .subject("CN=api-" + i + ".example.com,O=Acme Corp,C=CH")
+        .issuer("CN=Acme Issuing CA " + (i % 3) + ",O=Acme Corp,C=CH")
+        .subjectAltNames(List.of("DNS:api-" + i + ".example.com", "IP:10.0." + (i % 256) + ".1"))
+        .notBefore(Instant.ofEpochSecond(1_700_000_000L))
+        .notAfter(Instant.ofEpochSecond(1_800_000_000L))
+        .status(Status.VALID)
+        .fingerprint("fp-" + i)
+        .build();
+  }
+
+  private static CertificateSnapshot build(IdentityRegistry registry, int count) {
+    CertificateSnapshot.Builder builder = CertificateSnapshot.builder();
+    for (int i = 0; i < count; i++) {
+      CertificateInfo info = info(i);
+      CertificateIdentity identity = CertificateIdentity.from(info);
+      builder.add(registry.idOf(identity), identity, info);
+    }
+    return builder.build();
+  }
+
+  private static List<String> aliases(List<CertificateInfo> rows) {
+    return rows.stream().map(CertificateInfo::getAlias).toList();
+  }
+
+  @Test
+  @DisplayName("CertificateIndex.terms splits names into values, words and parent domains")
+  void testTerms() {
+    Set<String> terms = CertificateIndex.terms(info(7));
+
+    assertTrue(
+        terms.containsAll(
+            List.of(
+                "store-0",
+                "store",
+                "alias-7",
+                "api-7.example.com",
+                "example.com",
+                "com",
+                "acme corp",
+                "corp",
+                "acme issuing ca 1",
+                "issuing",
+                "10.0.7.1")),
+        terms::toString);
+    assertFalse(terms.contains("cn=api-7.example.com"));
+
+    CertificateInfo error =
+        CertificateInfo.builder()
+            .name("broken")
+            .alias("unknown")
+            .subject("Keystore was tampered with, or password was incorrect")
+            .status(Status.INVALID)
+            .build();
+    assertTrue(CertificateIndex.terms(error).containsAll(List.of("tampered", "password")));
+  }
+
+  @Test
+  @DisplayName("CertificateIndex.search matches every token in full or as a prefix")
+  void testSearch() {
+    CertificateIndex index = new CertificateIndex();
+    index.update(build(new IdentityRegistry(), 300));
+
+    assertEquals(List.of("alias-42"), aliases(index.search("API-42.example.com", 10)));
+    assertEquals(List.of("alias-42", "alias-298"), aliases(index.search("10.0.42.1", 10)));
+    assertEquals(11, index.search("api-4", 100).size(), "api-4 and api-40..49");
+    assertEquals(100, index.search("store-1", 1000).size());
+    assertEquals(List.of("alias-100", "alias-101"), aliases(index.search("store-1 alias-10*", 2)));
+    assertEquals(300, index.search("example.com acme", 1000).size());
+    assertEquals(List.of(), index.search("example.org", 10));
+    assertEquals(List.of(), index.search("  ", 10));
+  }
+
+  @Test
+  @DisplayName("CertificateIndex.update re-indexes changed rows and drops removed ones")
+  void testIncrementalUpdate() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateIndex index = new CertificateIndex();
+    CertificateSnapshot previous = build(registry, 100);
+    index.update(previous);
+
+    // Renew alias-5 for another host and drop alias-6
+    CertificateSnapshot.Builder next = previous.toBuilder();
+    for (int id = 0; id < 100; id++) {
+      if (id == 5) {
+        next.add(
+            id,
+            previous.identityOf(id),
+            info(5).toBuilder()
+                .subject("CN=renewed.example.org")
+                .subjectAltNames(List.of("DNS:renewed.example.org"))
+                .build());
+      } else if (id != 6) {
+        next.keep(id);
+      }
+    }
+    CertificateSnapshot current = next.build();
+    index.update(current);
+
+    assertEquals(List.of("alias-5"), aliases(index.search("renewed", 10)));
+    assertEquals(List.of("alias-5"), aliases(index.search("example.org", 10)));
+    assertEquals(List.of(), index.search("api-5.example.com", 10));
+    assertFalse(aliases(index.search("alias-6", 100)).contains("alias-6"));
+    assertEquals(98, index.search("example.com", 1000).size());
+    CertificateIndex rebuilt = new CertificateIndex();
+    rebuilt.update(current);
+    assertEquals(rebuilt.termCount(), index.termCount());
+
+    index.update(CertificateSnapshot.empty());
+    assertEquals(0, index.termCount());
+  }
+
+  @Test
+  @DisplayName(
+      "CertificateIndex answers selective queries in well under a millisecond at 100k rows")
+  void testLatencyAtScale() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateIndex index = new CertificateIndex();
+    CertificateSnapshot snapshot = build(registry, 100_000);
+    index.update(snapshot);
+
+    String[] queries = {"api-54321.example.com", "alias-99999", "store-512 alias-51234", "10.0.7"};
+    long[] nanos = new long[2000];
+    for (int round = 0; round < nanos.length; round++) {
+      long start = System.nanoTime();
+      assertFalse(index.search(queries[round % queries.length], 20).isEmpty());
+      nanos[round] = System.nanoTime() - start;
+    }
+    Arrays.sort(nanos);
+    long median = nanos[nanos.length / 2];
+    assertTrue(median < 1_000_000, () -> "median search took " + median + " ns");
+
+    // A renewal re-indexes one row only
+    CertificateSnapshot.Builder next = snapshot.toBuilder();
+    for (int id = 0; id < 100_000; id++) {
+      next.keep(id);
+    }
+    next.add(1, snapshot.identityOf(1), info(1).toBuilder().subject("CN=renewed").build());
+    long start = System.nanoTime();
+    index.update(next.build());
+    long updateNanos = System.nanoTime() - start;
+    assertEquals(1, index.search("renewed", 10).size());
+    assertTrue(updateNanos < 50_000_000, () -> "update took " + updateNanos + " ns");
+  }
+}
@@ -0,0 +1,269 @@
+package ch.tkb.certalert.snapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.model.CertificateIdentity;
+import ch.tkb.certalert.model.CertificateInfo;
+import ch.tkb.certalert.model.CertificateInfo.Status;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class CertificateSnapshotTest {
+
+  private static CertificateInfo info(int i) {
+    return CertificateInfo.builder()
+        .name("store-" + (i / 10))
+        .path("/certs/store-" + (i / 10) + ".jks")
+        .fileName("store-" + (i / 10) + ".jks")
+        .type("jks")
+        .alias("alias-" + i)
+        .subject("CN=Shared Intermediate, O=Example")
+        .notBefore(Instant.ofEpochSecond(1_700_000_000L + i))
+        .notAfter(Instant.ofEpochSecond(1_800_000_000L + i))
+        .status(Status.VALID)
+        .fingerprint("fp-" + (i % 100))
+        .build();
+  }
+
+  private static CertificateSnapshot build(IdentityRegistry registry, int count) {
+    CertificateSnapshot.Builder builder = CertificateSnapshot.builder();
+    for (int i = 0; i < count; i++) {
+      CertificateInfo info = info(i);
+      CertificateIdentity identity = CertificateIdentity.from(info);
+      builder.add(registry.idOf(identity), identity, info);
+    }
+    return builder.build();
+  }
+
+  @Test
+  @DisplayName("CertificateSnapshot materializes rows equal to the added certificates")
+  void testMaterialize() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateSnapshot snapshot = build(registry, 50);
+
+    assertEquals(50, snapshot.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals(info(i), snapshot.get(i));
+      assertTrue(snapshot.sameState(i, info(i)));
+    }
+    assertFalse(snapshot.sameState(0, info(1)));
+  }
+
+  @Test
+  @DisplayName("CertificateSnapshot keeps missing dates and looks rows up by identity id")
+  void testErrorRowsAndLookup() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateInfo error =
+        CertificateInfo.builder()
+            .name("broken")
+            .path("/certs/broken.jks")
+            .type("jks")
+            .alias("unknown")
+            .subject("Keystore was tampered with")
+            .status(Status.INVALID)
+            .build();
+    CertificateIdentity identity = CertificateIdentity.from(error);
+    int id = registry.idOf(identity);
+
+    CertificateSnapshot snapshot = CertificateSnapshot.builder().add(id, identity, error).build();
+
+    assertTrue(snapshot.contains(id));
+    assertFalse(snapshot.contains(id + 1));
+    assertNull(snapshot.info(id + 1));
+    assertFalse(snapshot.hasNotAfter(id));
+    assertEquals(error, snapshot.get(0));
+    assertEquals(error, snapshot.info(id));
+  }
+
+  @Test
+  @DisplayName("CertificateSnapshot shares unchanged leaves and diffs only the changed ones")
+  void testStructuralSharingAndDiff() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateSnapshot previous = build(registry, 1000);
+
+    // Same rows again: nothing is copied
+    CertificateSnapshot.Builder same = previous.toBuilder();
+    for (int i = 0; i < 1000; i++) {
+      same.add(i, previous.identityOf(i), info(i));
+    }
+    CertificateSnapshot unchanged = same.build();
+    assertEquals(32, unchanged.sharedLeaves(previous));
+    List<String> none = new ArrayList<>();
+    unchanged.diff(previous, recorder(none));
+    assertTrue(none.isEmpty());
+
+    // Renew id 5, drop id 700 (not added again) and add id 1000
+    CertificateSnapshot.Builder next = previous.toBuilder();
+    for (int i = 0; i < 1000; i++) {
+      if (i == 5) {
+        CertificateInfo renewed =
+            info(5).toBuilder().notAfter(Instant.ofEpochSecond(1_900_000_000L)).build();
+        next.add(i, previous.identityOf(i), renewed);
+      } else if (i != 700) {
+        next.keep(i);
+      }
+    }
+    CertificateInfo added = info(1000);
+    next.add(
+        registry.idOf(CertificateIdentity.from(added)), CertificateIdentity.from(added), added);
+    CertificateSnapshot current = next.build();
+
+    List<String> changes = new ArrayList<>();
+    current.diff(previous, recorder(changes));
+    assertEquals(List.of("changed 5", "removed 700", "added 1000"), changes);
+    assertEquals(1000, current.size());
+    assertEquals(
+        29, current.sharedLeaves(previous), "only the leaves of 5, 700 and 1000 are copied");
+    assertEquals(1_900_000_000L, current.info(5).getNotAfter().getEpochSecond());
+    assertEquals(info(5), previous.info(5), "earlier generations are not modified");
+    assertTrue(previous.contains(700));
+    assertFalse(current.contains(700));
+
+    CertificateSnapshot expired = current.withStatus(new int[] {7}, Status.EXPIRED);
+    assertEquals(Status.EXPIRED, expired.statusOf(7));
+    assertEquals(Status.VALID, current.statusOf(7));
+  }
+
+  @Test
+  @DisplayName("CertificateSnapshot.merge applies the changes of one part and keeps the others")
+  void testMerge() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateSnapshot all = build(registry, 100);
+
+    // The part holds ids 40..59; renew 45, drop 50 and add 100
+    CertificateSnapshot.Builder part = CertificateSnapshot.builder();
+    for (int i = 40; i < 60; i++) {
+      part.add(i, all.identityOf(i), info(i));
+    }
+    CertificateSnapshot before = part.build();
+    CertificateSnapshot.Builder next = before.toBuilder();
+    for (int i = 40; i < 60; i++) {
+      if (i == 45) {
+        next.add(i, before.identityOf(i), info(i).toBuilder().status(Status.EXPIRED).build());
+      } else if (i != 50) {
+        next.keep(i);
+      }
+    }
+    CertificateInfo added = info(100);
+    next.add(
+        registry.idOf(CertificateIdentity.from(added)), CertificateIdentity.from(added), added);
+    CertificateSnapshot after = next.build();
+
+    CertificateSnapshot merged = all.merge(before, after);
+    assertEquals(100, merged.size());
+    assertEquals(Status.EXPIRED, merged.statusOf(45));
+    assertFalse(merged.contains(50));
+    assertEquals(added, merged.info(100));
+    assertEquals(info(10), merged.info(10));
+    assertEquals(info(99), merged.info(99));
+
+    List<String> changes = new ArrayList<>();
+    merged.diff(all, recorder(changes));
+    assertEquals(List.of("changed 45", "removed 50", "added 100"), changes);
+  }
+
+  private static CertificateSnapshot.Changes recorder(List<String> changes) {
+    return new CertificateSnapshot.Changes() {
+      @Override
+      public void added(int id) {
+        changes.add("added " + id);
+      }
+
+      @Override
+      public void changed(int id) {
+        changes.add("changed " + id);
+      }
+
+      @Override
+      public void removed(int id) {
+        changes.add("removed " + id);
+      }
+    };
+  }
+
+  @Test
+  @DisplayName("IdentityRegistry assigns stable ids and reuses released ones")
+  void testRegistry() {
+    IdentityRegistry registry = new IdentityRegistry();
+    CertificateIdentity a = new CertificateIdentity("/a", "jks", "a", "x");
+    CertificateIdentity b = new CertificateIdentity("/b", "jks", "b", "x");
+
+    int idA = registry.idOf(a);
+    int idB = registry.idOf(b);
+    assertNotEquals(idA, idB);
+    assertEquals(idA, registry.idOf(new CertificateIdentity("/a", "jks", "a", "x")));
+    assertEquals(a, registry.identity(idA));
+
+    registry.release(idA);
+    assertNull(registry.identity(idA));
+    assertEquals(-1, registry.find(a));
+    assertEquals(idA, registry.idOf(new CertificateIdentity("/c", "jks", "c", "x")));
+  }
+
+  /** Returns the used heap after letting the collector settle. */
+  private static long usedHeap() throws InterruptedException {
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+      used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+
+  /** Returns a copy whose strings are distinct instances, as the X.509 and File APIs return. */
+  private static CertificateInfo copied(CertificateInfo info) {
+    return info.toBuilder()
+        .subject(new String(info.getSubject()))
+        .fileName(new String(info.getFileName()))
+        .fingerprint(new String(info.getFingerprint()))
+        .build();
+  }
+
+  @Test
+  @Tag("scale")
+  @DisplayName("CertificateSnapshot retains far less heap than a list of CertificateInfo objects")
+  void testMemoryFootprint() throws InterruptedException {
+    int count = 200_000;
+    IdentityRegistry registry = new IdentityRegistry();
+    List<CertificateIdentity> identities = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      CertificateIdentity identity = CertificateIdentity.from(info(i));
+      registry.idOf(identity);
+      identities.add(identity);
+    }
+
+    // Identities are shared by both representations and allocated before measuring
+    long base = usedHeap();
+    CertificateSnapshot.Builder builder = CertificateSnapshot.builder();
+    for (int i = 0; i < count; i++) {
+      builder.add(registry.idOf(identities.get(i)), identities.get(i), copied(info(i)));
+    }
+    CertificateSnapshot snapshot = builder.build();
+    builder = null;
+    long columnarBytes = usedHeap() - base;
+
+    base = usedHeap();
+    List<CertificateInfo> infos = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      infos.add(copied(info(i)).toBuilder().path(identities.get(i).path()).build());
+    }
+    long objectBytes = usedHeap() - base;
+
+    assertEquals(count, snapshot.size());
+    assertEquals(count, infos.size());
+    assertTrue(
+        columnarBytes * 4 < objectBytes,
+        () -> "columnar " + columnarBytes + " bytes vs objects " + objectBytes + " bytes");
+    // The estimate logged per scan is in the right order of magnitude
+    long estimate = snapshot.estimatedBytes();
+    assertTrue(
+        estimate > columnarBytes / 2 && estimate < columnarBytes * 2,
+        () -> "estimate " + estimate + " bytes vs measured " + columnarBytes + " bytes");
+  }
+}
@@ -0,0 +1,48 @@
+package ch.tkb.certalert.source;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SourceRegistryTest {
+
+  @Test
+  @DisplayName("SourceRegistry.find resolves types case-insensitively")
+  void findIgnoresCase() {
+    PemSource pem = new PemSource();
+    KeystoreSource keystore = new KeystoreSource();
+    SourceRegistry registry = new SourceRegistry(List.of(pem, keystore));
+
+    assertSame(pem, registry.find("PEM"));
+    assertSame(keystore, registry.find("Pkcs12"));
+    assertNull(registry.find("unknown"));
+    assertNull(registry.find(null));
+    assertTrue(registry.types().containsAll(Set.of("pem", "crt", "jks", "p12")));
+  }
+
+  @Test
+  @DisplayName("SourceRegistry rejects two sources claiming the same type")
+  void rejectsDuplicateTypes() {
+    CertificateSource other =
+        new CertificateSource() {
+          @Override
+          public Set<String> types() {
+            return Set.of("crt");
+          }
+
+          @Override
+          public List<LoadedCertificate> load(CertificateEntry entry) {
+            return List.of();
+          }
+        };
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class, () -> new SourceRegistry(List.of(new PemSource(), other)));
+    assertTrue(e.getMessage().contains("'crt'"));
+  }
+}
@@ -0,0 +1,62 @@
+package ch.tkb.certalert.threshold;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.threshold.ThresholdScheduler.Crossing;
+import ch.tkb.certalert.threshold.ThresholdScheduler.Threshold;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ThresholdSchedulerTest {
+
+  private static ThresholdScheduler scheduler() {
+    var dashboard = new CertificateConfig.Dashboard(Duration.ofDays(20), Duration.ofDays(3), null);
+    return new ThresholdScheduler(TestConfigs.builder().dashboard(dashboard).build());
+  }
+
+  @Test
+  @DisplayName("ThresholdScheduler reaches warning, critical and expiry at their instants")
+  void reachesThresholds() {
+    ThresholdScheduler scheduler = scheduler();
+    Instant notAfter = Instant.now().plus(Duration.ofDays(30)).truncatedTo(ChronoUnit.SECONDS);
+    scheduler.schedule(7, notAfter);
+    scheduler.schedule(7, notAfter); // unchanged: not scheduled twice
+    assertEquals(3, scheduler.pending());
+
+    Instant warning = notAfter.minus(Duration.ofDays(20));
+    assertTrue(scheduler.advance(warning.toEpochMilli() - 1).isEmpty());
+    assertEquals(
+        List.of(new Crossing(7, Threshold.WARNING, warning)),
+        scheduler.advance(warning.toEpochMilli()));
+
+    List<Crossing> rest = scheduler.advance(notAfter.toEpochMilli());
+    assertEquals(
+        List.of(Threshold.CRITICAL, Threshold.EXPIRY),
+        rest.stream().map(Crossing::threshold).toList());
+    assertEquals(0, scheduler.pending());
+  }
+
+  @Test
+  @DisplayName("ThresholdScheduler replaces crossings on renewal and drops them on cancel")
+  void renewAndCancel() {
+    ThresholdScheduler scheduler = scheduler();
+    Instant now = Instant.now();
+    scheduler.schedule(1, now.plus(Duration.ofDays(2))); // only the expiry is ahead
+    assertEquals(1, scheduler.pending());
+
+    Instant renewed = now.plus(Duration.ofDays(365));
+    scheduler.schedule(1, renewed);
+    assertEquals(3, scheduler.pending());
+    assertTrue(scheduler.advance(now.plus(Duration.ofDays(3)).toEpochMilli()).isEmpty());
+
+    scheduler.cancel(1);
+    assertEquals(0, scheduler.pending());
+    assertTrue(scheduler.advance(renewed.toEpochMilli()).isEmpty());
+  }
+}
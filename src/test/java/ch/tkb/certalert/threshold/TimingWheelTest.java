@@ -0,0 +1,84 @@
+package ch.tkb.certalert.threshold;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  private static final long TICK = 1000;
+  private static final long START = 1_700_000_000_000L;
+
+  @Test
+  @DisplayName("TimingWheel.advance fires timers in deadline order and never early")
+  void firesInOrderAndNotEarly() {
+    TimingWheel<Long> wheel = new TimingWheel<>(TICK, START);
+    Random random = new Random(42);
+    List<Long> deadlines = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      // Spread over several levels: up to ~190 days
+      long deadline = START + (long) (random.nextDouble() * 190 * 86_400_000L);
+      deadlines.add(deadline);
+      wheel.schedule(deadline, deadline);
+    }
+    assertEquals(2000, wheel.size());
+
+    List<Long> fired = new ArrayList<>();
+    long now = START;
+    while (wheel.size() > 0) {
+      now += 3_600_000L; // one hour at a time
+      long current = now;
+      wheel.advance(
+          now,
+          deadline -> {
+            assertTrue(deadline <= current, "fired before its deadline");
+            fired.add(deadline);
+          });
+    }
+    deadlines.sort(null);
+    // Within one advance timers of the same tick may fire in any order; compare ticks
+    assertEquals(
+        deadlines.stream().map(d -> -Math.floorDiv(-d, TICK)).toList(),
+        fired.stream().map(d -> -Math.floorDiv(-d, TICK)).toList());
+  }
+
+  @Test
+  @DisplayName("TimingWheel.advance fires a timer on the tick of its deadline")
+  void firesOnExactTick() {
+    TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+    long deadline = START + 70 * 60 * TICK + 1; // crosses a level-1 boundary, rounded up
+    wheel.schedule(deadline, "a");
+    List<String> fired = new ArrayList<>();
+
+    wheel.advance(deadline - 1, fired::add);
+    assertTrue(fired.isEmpty());
+    wheel.advance(deadline + TICK - 1, fired::add);
+    assertEquals(List.of("a"), fired);
+  }
+
+  @Test
+  @DisplayName("TimingWheel.cancel removes timers and past deadlines fire on the next advance")
+  void cancelAndPastDeadlines() {
+    TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+    TimingWheel.Timer<String> cancelled = wheel.schedule(START + 5 * TICK, "cancelled");
+    wheel.schedule(START + 5 * TICK, "kept");
+    wheel.schedule(START - TICK, "past");
+    // Far beyond the highest level: kept in the overflow list
+    TimingWheel.Timer<String> far = wheel.schedule(Long.MAX_VALUE / 2, "far");
+    wheel.cancel(cancelled);
+    wheel.cancel(cancelled);
+    wheel.cancel(far);
+    assertEquals(2, wheel.size());
+
+    List<String> fired = new ArrayList<>();
+    wheel.advance(START, fired::add);
+    assertEquals(List.of("past"), fired);
+    wheel.advance(START + 10 * TICK, fired::add);
+    assertEquals(List.of("past", "kept"), fired);
+    assertEquals(0, wheel.size());
+  }
+}
@@ -0,0 +1,219 @@
+package ch.tkb.certalert.tls;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.tkb.certalert.config.CertificateConfig;
+import ch.tkb.certalert.config.CertificateConfig.CertificateEntry;
+import ch.tkb.certalert.config.TestConfigs;
+import ch.tkb.certalert.utils.KeystoreLoader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SNIMatcher;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.StandardConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TlsProberTest {
+
+  private static final String KEYSTORE = "tests/certs/jks/regular.jks";
+  private static final String PASSWORD = "password";
+
+  private KeyStore keyStore;
+  private SSLServerSocket server;
+  private final AtomicInteger handshakes = new AtomicInteger();
+  private final List<String> serverNames = new CopyOnWriteArrayList<>();
+  private TlsProber prober;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyStore = KeystoreLoader.load("jks", KEYSTORE, PASSWORD);
+    KeyManagerFactory keyManagers =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagers.init(keyStore, PASSWORD.toCharArray());
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(keyManagers.getKeyManagers(), null, null);
+
+    server =
+        (SSLServerSocket)
+            context
+                .getServerSocketFactory()
+                .createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    // record names while the ClientHello is processed, before the client sees the handshake end
+    SSLParameters parameters = server.getSSLParameters();
+    parameters.setSNIMatchers(
+        List.of(
+            new SNIMatcher(StandardConstants.SNI_HOST_NAME) {
+              @Override
+              public boolean matches(SNIServerName name) {
+                serverNames.add(new String(name.getEncoded()));
+                return true;
+              }
+            }));
+    server.setSSLParameters(parameters);
+    Thread acceptor = new Thread(this::serve, "tls-test-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (prober != null) {
+      prober.close();
+    }
+    server.close();
+  }
+
+  /** Counts connections and completes their handshakes. */
+  private void serve() {
+    while (!server.isClosed()) {
+      try (SSLSocket socket = (SSLSocket) server.accept()) {
+        handshakes.incrementAndGet();
+        socket.startHandshake();
+      } catch (IOException e) {
+        // client went away or server closed
+      }
+    }
+  }
+
+  private TlsProber prober(Duration timeout) {
+    return prober(4, timeout, 100.0);
+  }
+
+  private TlsProber prober(int concurrency, Duration timeout, double perHostRate) {
+    var tls = new CertificateConfig.Tls(concurrency, timeout, perHostRate);
+    prober = new TlsProber(TestConfigs.builder().tls(tls).build());
+    return prober;
+  }
+
+  private CertificateEntry entry(String name, String sni) {
+    return new CertificateEntry(name, "localhost:" + server.getLocalPort(), "tls", null, sni);
+  }
+
+  @Test
+  @DisplayName("TlsProber.certificates returns the chain presented by the endpoint")
+  void testReadsPeerChain() throws Exception {
+    List<byte[]> chain = prober(Duration.ofSeconds(5)).certificates(entry("local", null));
+
+    X509Certificate expected = (X509Certificate) keyStore.getCertificate("regular");
+    assertEquals(1, chain.size());
+    assertArrayEquals(expected.getEncoded(), chain.get(0));
+    assertEquals(List.of("localhost"), serverNames);
+  }
+
+  @Test
+  @DisplayName("TlsProber.prefetch shares one handshake between entries with the same target")
+  void testSharesHandshakes() throws Exception {
+    TlsProber tlsProber = prober(Duration.ofSeconds(5));
+    List<CertificateEntry> entries =
+        List.of(entry("a", "service.test"), entry("b", "service.test"), entry("c", null));
+
+    tlsProber.prefetch(entries);
+    for (CertificateEntry entry : entries) {
+      assertEquals(1, tlsProber.certificates(entry).size());
+    }
+
+    assertEquals(2, handshakes.get());
+    assertEquals(List.of("localhost", "service.test"), serverNames.stream().sorted().toList());
+  }
+
+  @Test
+  @DisplayName("TlsProber.prefetch of one group keeps the handshakes prefetched by another")
+  void testConcurrentPrefetches() throws Exception {
+    TlsProber tlsProber = prober(Duration.ofSeconds(5));
+    CertificateEntry ingress = entry("ingress", "ingress.test");
+    CertificateEntry internal = entry("internal", "internal.test");
+
+    tlsProber.prefetch(List.of(ingress));
+    tlsProber.prefetch(List.of(internal));
+    assertEquals(1, tlsProber.certificates(ingress).size());
+    assertEquals(1, tlsProber.certificates(internal).size());
+
+    assertEquals(2, handshakes.get());
+  }
+
+  @Test
+  @DisplayName("TlsProber waits for the per-host rate without holding a pool thread")
+  void testRateLimitDoesNotBlockPool() throws Exception {
+    // Warm up TLS first, so the single pool thread is not busy with the first, cold handshake
+    prober(Duration.ofSeconds(5)).certificates(entry("warm-up", "warm-up.test"));
+    prober.close();
+    serverNames.clear();
+
+    TlsProber tlsProber = prober(1, Duration.ofSeconds(5), 1.0);
+    CertificateEntry first = entry("first", "a.test");
+    CertificateEntry second = entry("second", "b.test");
+    CertificateEntry otherHost =
+        new CertificateEntry(
+            "other", "127.0.0.1:" + server.getLocalPort(), "tls", null, "other.test");
+
+    long started = System.nanoTime();
+    tlsProber.prefetch(List.of(first, second, otherHost));
+    tlsProber.certificates(otherHost);
+    tlsProber.certificates(second);
+    long secondMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+    // The second handshake to localhost waits a second, the one to 127.0.0.1 goes ahead of it
+    assertEquals(List.of("a.test", "other.test", "b.test"), serverNames);
+    assertTrue(secondMillis >= 900, "second handshake after " + secondMillis + " ms");
+  }
+
+  @Test
+  @DisplayName("TlsProber.certificates fails once the handshake deadline passes")
+  void testHandshakeDeadline() throws Exception {
+    try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Thread acceptor =
+          new Thread(
+              () -> {
+                // never answer the ClientHello; read until the prober gives up
+                try (Socket accepted = silent.accept()) {
+                  accepted.getInputStream().readAllBytes();
+                } catch (IOException e) {
+                  // test finished
+                }
+              });
+      acceptor.setDaemon(true);
+      acceptor.start();
+
+      var entry =
+          new CertificateEntry("silent", "127.0.0.1:" + silent.getLocalPort(), "tls", null, null);
+      long started = System.nanoTime();
+      Exception e =
+          assertThrows(IOException.class, () -> prober(Duration.ofMillis(300)).certificates(entry));
+      assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 3_000);
+      assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+    }
+  }
+
+  @Test
+  @DisplayName("TlsTarget.of parses host, port and default SNI")
+  void testTargetParsing() {
+    assertEquals(
+        new TlsTarget("example.com", 8443, "example.com"),
+        TlsTarget.of(new CertificateEntry("a", "example.com:8443", "tls", null, null)));
+    assertEquals(
+        new TlsTarget("example.com", 443, "www.example.com"),
+        TlsTarget.of(new CertificateEntry("a", "example.com", "tls", null, "www.example.com")));
+    assertEquals(
+        new TlsTarget("::1", 8443, null),
+        TlsTarget.of(new CertificateEntry("a", "[::1]:8443", "tls", null, null)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> TlsTarget.of(new CertificateEntry("a", "example.com:https", "tls", null, null)));
+  }
+}
@@ -58,4 +58,26 @@ class CertificateLoaderTest {
             IllegalArgumentException.class, () -> CertificateLoader.loadAll(emptyFile.toString()));
     assertTrue(ex.getMessage().contains("No certificates found"));
   }
+
+  @Test
+  @DisplayName("CertificateLoader.loadAllEncoded returns the DER of every certificate in a bundle")
+  void testLoadAllEncoded() throws Exception {
+    List<byte[]> encoded = CertificateLoader.loadAllEncoded(BUNDLE_CRT_PATH);
+    List<X509Certificate> certs = CertificateLoader.loadAll(BUNDLE_CRT_PATH);
+    assertEquals(certs.size(), encoded.size());
+    for (int i = 0; i < certs.size(); i++) {
+      assertArrayEquals(certs.get(i).getEncoded(), encoded.get(i));
+      assertEquals(certs.get(i), CertificateLoader.decode(encoded.get(i)));
+    }
+  }
+
+  @Test
+  @DisplayName("CertificateLoader.loadAllEncoded throws if no certs found")
+  void testLoadAllEncodedEmpty() {
+    Exception ex =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> CertificateLoader.loadAllEncoded(BASE_PATH + "/pem/empty.pem"));
+    assertTrue(ex.getMessage().contains("No certificates found"));
+  }
 }
@@ -0,0 +1,72 @@
+package ch.tkb.certalert.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IntObjectMapTest {
+
+  @Test
+  @DisplayName("IntObjectMap.put and get behave like a map with int keys")
+  void testPutGet() {
+    IntObjectMap<String> map = new IntObjectMap<>();
+    assertNull(map.put(1, "a"));
+    assertEquals("a", map.put(1, "b"));
+    map.put(-7, "neg");
+
+    assertEquals("b", map.get(1));
+    assertEquals("neg", map.get(-7));
+    assertNull(map.get(2));
+    assertEquals(2, map.size());
+  }
+
+  @Test
+  @DisplayName("IntObjectMap stays consistent with HashMap under random puts and removes")
+  void testRandomOperations() {
+    IntObjectMap<Integer> map = new IntObjectMap<>(4);
+    Map<Integer, Integer> reference = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 20_000; i++) {
+      int key = random.nextInt(2_000);
+      if (random.nextBoolean()) {
+        assertEquals(reference.put(key, i), map.put(key, i));
+      } else {
+        assertEquals(reference.remove(key), map.remove(key));
+      }
+    }
+
+    assertEquals(reference.size(), map.size());
+    reference.forEach((key, value) -> assertEquals(value, map.get(key)));
+    map.forEach((key, value) -> assertEquals(reference.get(key), value));
+  }
+
+  @Test
+  @DisplayName("IntObjectMap.removeIf removes all matching entries")
+  void testRemoveIf() {
+    IntObjectMap<Integer> map = new IntObjectMap<>();
+    for (int i = 0; i < 1_000; i++) {
+      map.put(i, i);
+    }
+
+    map.removeIf((key, value) -> key % 3 == 0);
+
+    assertEquals(666, map.size());
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(i % 3 != 0, map.containsKey(i));
+    }
+  }
+
+  @Test
+  @DisplayName("IntObjectMap.computeIfAbsent only creates missing values")
+  void testComputeIfAbsent() {
+    IntObjectMap<String> map = new IntObjectMap<>();
+    assertEquals("v5", map.computeIfAbsent(5, key -> "v" + key));
+    assertEquals("v5", map.computeIfAbsent(5, key -> "other"));
+    assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+  }
+}
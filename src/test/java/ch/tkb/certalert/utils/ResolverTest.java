@@ -2,9 +2,14 @@ package ch.tkb.certalert.utils;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ch.tkb.certalert.jfr.ResolverLookupEvent;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -26,6 +31,31 @@ class ResolverTest {
     assertEquals("password123", Resolver.resolve("password123"));
   }
 
+  @Test
+  @DisplayName("Resolver.resolve records lookups, but not literal values, as JFR events")
+  void testLookupEvents() throws IOException {
+    Path file = tempDir.resolve("lookup.txt");
+    Files.writeString(file, "secret-value");
+    Path dump = tempDir.resolve("lookups.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(ResolverLookupEvent.class);
+      recording.start();
+      Resolver.resolve("file:" + file);
+      Resolver.resolve("env:CERTALERT_TEST_ENV_VALUE_THAT_SHOULD_NOT_EXIST");
+      Resolver.resolve("literal");
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+    assertEquals(2, events.size());
+    assertEquals("file", events.get(0).getString("scheme"));
+    assertEquals(file.toString(), events.get(0).getString("location"));
+    assertTrue(events.get(0).getBoolean("found"));
+    assertEquals("env", events.get(1).getString("scheme"));
+    assertFalse(events.get(1).getBoolean("found"));
+  }
+
   @Test
   @DisplayName("Resolver.resolve resolves file path")
   void testFilePlain() throws IOException {